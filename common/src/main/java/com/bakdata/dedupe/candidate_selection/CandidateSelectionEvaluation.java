@@ -0,0 +1,246 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.candidate_selection;
+
+import com.bakdata.dedupe.candidate_selection.online.OnlineCandidateSelection;
+import com.bakdata.dedupe.clustering.Cluster;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+
+/**
+ * Evaluates the quality and cost of {@link CandidateSelection}s against a gold standard.
+ * <p>The dataset is replayed in the given order through a fresh instance of each candidate selection. {@link
+ * OnlineCandidateSelection}s receive one record at a time, such that the maximum number of candidates per record can
+ * be reported as well. The wall-clock time only covers the candidate selection itself.</p>
+ * <p>Candidates and gold duplicates are represented as primitive id pairs through a {@link PairEncoder}, such that
+ * large gold standards can be evaluated without materializing {@link Candidate} objects.</p>
+ * <p>Example:</p>
+ * <pre>{@code
+ * CandidateSelectionEvaluation<Person, String> evaluation =
+ *         CandidateSelectionEvaluation.forClusters(persons, goldClusters, Person::getId);
+ * List<CandidateSelectionEvaluation.Result> results = List.of(
+ *         evaluation.evaluate("w=10", () -> createSnm(10)),
+ *         evaluation.evaluate("w=20", () -> createSnm(20)));
+ * CandidateSelectionEvaluation.printTable(System.out, results);
+ * }</pre>
+ *
+ * @param <T> the type of the record.
+ * @param <I> the type of the record id.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class CandidateSelectionEvaluation<T, I> {
+    private static final String TABLE_FORMAT = "%-30s %12s %12s %12s %12s %12s %14s%n";
+
+    /**
+     * The dataset in the order in which it is replayed.
+     */
+    @NonNull
+    List<T> records;
+    /**
+     * The encoder for record pairs of the dataset.
+     */
+    @NonNull
+    PairEncoder<T, I> encoder;
+    /**
+     * All duplicate pairs of the gold standard.
+     */
+    @NonNull
+    Set<Long> goldPairs;
+
+    /**
+     * Creates an evaluation where all records within a gold cluster are duplicates.
+     *
+     * @param records the dataset in the order in which it is replayed.
+     * @param goldClusters the gold clustering; for example, of {@link com.bakdata.dedupe.clustering.OracleClustering}.
+     * @param idExtractor extracts the id of the record.
+     * @param <T> the type of the record.
+     * @param <I> the type of the record id.
+     * @return the evaluation.
+     */
+    public static <T, I> @NonNull CandidateSelectionEvaluation<T, I> forClusters(
+            final @NonNull List<? extends T> records,
+            final @NonNull Iterable<? extends Cluster<?, ? extends T>> goldClusters,
+            final @NonNull Function<? super T, ? extends I> idExtractor) {
+        final PairEncoder<T, I> encoder = PairEncoder.of(records, idExtractor);
+        return new CandidateSelectionEvaluation<>(Collections.unmodifiableList(records), encoder,
+                encoder.encodeClusters(goldClusters));
+    }
+
+    /**
+     * Creates an evaluation for the given duplicate pairs.
+     *
+     * @param records the dataset in the order in which it is replayed.
+     * @param goldDuplicates the real duplicates; for example, of {@link
+     * com.bakdata.dedupe.classifier.OracleClassifier}.
+     * @param idExtractor extracts the id of the record.
+     * @param <T> the type of the record.
+     * @param <I> the type of the record id.
+     * @return the evaluation.
+     */
+    public static <T, I> @NonNull CandidateSelectionEvaluation<T, I> forDuplicates(
+            final @NonNull List<? extends T> records, final @NonNull Collection<? extends Candidate<T>> goldDuplicates,
+            final @NonNull Function<? super T, ? extends I> idExtractor) {
+        final PairEncoder<T, I> encoder = PairEncoder.of(records, idExtractor);
+        return new CandidateSelectionEvaluation<>(Collections.unmodifiableList(records), encoder,
+                encoder.encodeCandidates(goldDuplicates.stream()));
+    }
+
+    /**
+     * Prints the results as a human-readable table.
+     *
+     * @param out the target stream.
+     * @param results the results to compare.
+     */
+    public static void printTable(final @NonNull PrintStream out, final @NonNull Iterable<Result> results) {
+        out.printf(TABLE_FORMAT, "Configuration", "Comparisons", "Comp./rec.", "Max/rec.", "PC", "RR", "Time (ms)");
+        for (final Result result : results) {
+            out.printf(TABLE_FORMAT, result.getName(),
+                    result.getComparisons(),
+                    String.format("%.2f", result.getComparisonsPerRecord()),
+                    result.getMaxComparisonsPerRecord() < 0 ? "-" : result.getMaxComparisonsPerRecord(),
+                    String.format("%.4f", result.getPairCompleteness()),
+                    String.format("%.4f", result.getReductionRatio()),
+                    result.getDuration().toMillis());
+        }
+    }
+
+    /**
+     * Evaluates all given configurations in iteration order.
+     *
+     * @param configurations the candidate selection factories by configuration name.
+     * @return the results of all configurations.
+     */
+    public @NonNull List<Result> evaluateAll(
+            final @NonNull Map<String, ? extends Supplier<? extends CandidateSelection<T>>> configurations) {
+        return configurations.entrySet().stream()
+                .map(configuration -> this.evaluate(configuration.getKey(), configuration.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Replays the dataset through a fresh candidate selection and compares the candidates with the gold standard.
+     *
+     * @param name the name of the configuration.
+     * @param candidateSelectionFactory creates a fresh candidate selection, which is especially important for stateful
+     * {@link OnlineCandidateSelection}s.
+     * @return the result of the evaluation.
+     */
+    public @NonNull Result evaluate(final @NonNull String name,
+            final @NonNull Supplier<? extends CandidateSelection<T>> candidateSelectionFactory) {
+        final CandidateSelection<T> candidateSelection = candidateSelectionFactory.get();
+        final List<Candidate<T>> candidates;
+        final long duration;
+        int maxComparisonsPerRecord = -1;
+        if (candidateSelection instanceof OnlineCandidateSelection) {
+            final OnlineCandidateSelection<T> onlineSelection = (OnlineCandidateSelection<T>) candidateSelection;
+            candidates = new ArrayList<>();
+            long totalDuration = 0;
+            for (final T record : this.records) {
+                final long start = System.nanoTime();
+                final List<Candidate<T>> recordCandidates =
+                        onlineSelection.selectCandidates(record).collect(Collectors.toList());
+                totalDuration += System.nanoTime() - start;
+                maxComparisonsPerRecord = Math.max(maxComparisonsPerRecord, recordCandidates.size());
+                candidates.addAll(recordCandidates);
+            }
+            duration = totalDuration;
+        } else {
+            final long start = System.nanoTime();
+            candidates = candidateSelection.selectCandidates(this.records.stream()).collect(Collectors.toList());
+            duration = System.nanoTime() - start;
+        }
+
+        final Set<Long> pairs = this.encoder.encodeCandidates(candidates.stream());
+        final long foundDuplicates = pairs.stream().filter(this.goldPairs::contains).count();
+        final long numPairs = this.encoder.getNumPairs();
+        return Result.builder()
+                .name(name)
+                .comparisons(pairs.size())
+                .comparisonsPerRecord(this.records.isEmpty() ? 0 : (double) pairs.size() / this.records.size())
+                .maxComparisonsPerRecord(maxComparisonsPerRecord)
+                .pairCompleteness(this.goldPairs.isEmpty() ? 1 : (double) foundDuplicates / this.goldPairs.size())
+                .pairsQuality(pairs.isEmpty() ? 0 : (double) foundDuplicates / pairs.size())
+                .reductionRatio(numPairs == 0 ? 1 : 1 - (double) pairs.size() / numPairs)
+                .duration(Duration.ofNanos(duration))
+                .build();
+    }
+
+    /**
+     * The quality and cost of one candidate selection configuration.
+     */
+    @Value
+    @Builder
+    public static class Result {
+        /**
+         * The name of the configuration.
+         */
+        @NonNull
+        String name;
+        /**
+         * The number of distinct candidate pairs.
+         */
+        long comparisons;
+        /**
+         * The average number of distinct candidate pairs per record.
+         */
+        double comparisonsPerRecord;
+        /**
+         * The maximum number of candidates of a single record or -1 for offline candidate selections.
+         */
+        int maxComparisonsPerRecord;
+        /**
+         * The fraction of gold duplicates within the candidates (recall).
+         */
+        double pairCompleteness;
+        /**
+         * The fraction of candidates that are gold duplicates (precision).
+         */
+        double pairsQuality;
+        /**
+         * The fraction of all pairs that are not compared.
+         */
+        double reductionRatio;
+        /**
+         * The wall-clock time spent in the candidate selection.
+         */
+        @NonNull
+        Duration duration;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.candidate_selection;
+
+import com.bakdata.dedupe.clustering.Cluster;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+
+/**
+ * Assigns dense positions to the records of a fixed dataset, such that unordered record pairs can be represented as
+ * primitive longs.
+ * <p>Pair sets become significantly smaller and faster to intersect than sets of {@link Candidate} objects, which
+ * need to hash and compare the full records. This class is mostly used for evaluation and tuning of {@link
+ * CandidateSelection}s against gold standards.</p>
+ *
+ * @param <T> the type of the record.
+ * @param <I> the type of the record id.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class PairEncoder<T, I> {
+    /**
+     * Extracts the id of the record.
+     */
+    @NonNull Function<? super T, ? extends I> idExtractor;
+    /**
+     * The dense position of each record id.
+     */
+    @NonNull Map<I, Integer> positions;
+
+    /**
+     * Creates an encoder for the given dataset.
+     *
+     * @param records the dataset with unique record ids.
+     * @param idExtractor extracts the id of the record.
+     * @param <T> the type of the record.
+     * @param <I> the type of the record id.
+     * @return an encoder for all pairs of the dataset.
+     * @throws IllegalArgumentException if a record id occurs more than once.
+     */
+    public static <T, I> @NonNull PairEncoder<T, I> of(final @NonNull List<? extends T> records,
+            final @NonNull Function<? super T, ? extends I> idExtractor) {
+        final Map<I, Integer> positions = new HashMap<>(records.size() * 4 / 3 + 1);
+        for (final T record : records) {
+            final I id = idExtractor.apply(record);
+            if (positions.putIfAbsent(id, positions.size()) != null) {
+                throw new IllegalArgumentException("Duplicate record id " + id);
+            }
+        }
+        return new PairEncoder<>(idExtractor, positions);
+    }
+
+    /**
+     * Packs two positions into an order-independent pair.
+     *
+     * @param leftPosition the position of the first record.
+     * @param rightPosition the position of the second record.
+     * @return the encoded pair.
+     */
+    public static long pack(final int leftPosition, final int rightPosition) {
+        return ((long) Math.min(leftPosition, rightPosition) << Integer.SIZE) | Math.max(leftPosition, rightPosition);
+    }
+
+    /**
+     * Returns the first position of a packed pair.
+     */
+    public static int getLeftPosition(final long pair) {
+        return (int) (pair >>> Integer.SIZE);
+    }
+
+    /**
+     * Returns the second position of a packed pair.
+     */
+    public static int getRightPosition(final long pair) {
+        return (int) pair;
+    }
+
+    /**
+     * Returns the number of records in the dataset.
+     */
+    public int getNumRecords() {
+        return this.positions.size();
+    }
+
+    /**
+     * Returns the number of all unordered pairs of the dataset; that is, the comparisons of a naive candidate
+     * selection.
+     */
+    public long getNumPairs() {
+        final long n = this.getNumRecords();
+        return n * (n - 1) / 2;
+    }
+
+    /**
+     * Returns the dense position of the record.
+     *
+     * @throws IllegalArgumentException if the record is not part of the dataset.
+     */
+    public int getPosition(final @NonNull T record) {
+        final I id = this.idExtractor.apply(record);
+        final Integer position = this.positions.get(id);
+        if (position == null) {
+            throw new IllegalArgumentException("Unknown record id " + id);
+        }
+        return position;
+    }
+
+    /**
+     * Encodes the unordered pair of the two records.
+     */
+    public long encode(final @NonNull T left, final @NonNull T right) {
+        return pack(this.getPosition(left), this.getPosition(right));
+    }
+
+    /**
+     * Encodes all candidates into a set of unordered pairs.
+     *
+     * @param candidates the candidates to encode.
+     * @return the set of distinct pairs.
+     */
+    public @NonNull Set<Long> encodeCandidates(final @NonNull Stream<? extends Candidate<T>> candidates) {
+        return candidates
+                .map(candidate -> this.encode(candidate.getRecord1(), candidate.getRecord2()))
+                .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    /**
+     * Encodes all pairs within the given clusters; for example, the duplicates of a gold standard.
+     *
+     * @param clusters the clusters to encode.
+     * @return the set of distinct intra-cluster pairs.
+     */
+    public @NonNull Set<Long> encodeClusters(final @NonNull Iterable<? extends Cluster<?, ? extends T>> clusters) {
+        final Set<Long> pairs = new HashSet<>();
+        for (final Cluster<?, ? extends T> cluster : clusters) {
+            final int[] clusterPositions = cluster.getElements().stream().mapToInt(this::getPosition).toArray();
+            for (int i = 0; i < clusterPositions.length; i++) {
+                for (int j = i + 1; j < clusterPositions.length; j++) {
+                    pairs.add(pack(clusterPositions[i], clusterPositions[j]));
+                }
+            }
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.candidate_selection;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+
+/**
+ * Order-preserving binary encodings of sorting keys, which are needed for disk-based sort indexes.
+ * <p>An encoding is order-preserving if the unsigned lexicographic order of the encoded bytes matches the natural
+ * order of the keys.</p>
+ */
+@UtilityClass
+public class SortingKeyEncoders {
+    private static final int ESCAPE = 0x00;
+    private static final int ESCAPED_ZERO = 0xFF;
+    private static final int TERMINATOR = 0x01;
+
+    /**
+     * Encodes strings as UTF-8, which preserves the natural order of all strings without supplementary characters.
+     *
+     * @return the string encoder.
+     */
+    public static @NonNull Function<String, byte[]> string() {
+        return value -> value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encodes longs in 8 bytes in big-endian order with a flipped sign bit.
+     *
+     * @return the long encoder.
+     */
+    public static @NonNull Function<Long, byte[]> longValue() {
+        return value -> ByteBuffer.allocate(Long.BYTES).putLong(value ^ Long.MIN_VALUE).array();
+    }
+
+    /**
+     * Encodes a {@link CompositeValue} by escaping and terminating the encoding of the first element, such that a
+     * shorter first element is always sorted before a longer first element with the same prefix. The encoding of the
+     * second element is appended unchanged.
+     *
+     * @param firstEncoder the encoder of the first element.
+     * @param secondEncoder the encoder of the second element.
+     * @param <T1> the type of the first element.
+     * @param <T2> the type of the second element.
+     * @return the composite encoder.
+     */
+    public static <T1 extends Comparable<T1>, T2 extends Comparable<T2>> @NonNull Function<CompositeValue<T1, T2>,
+            byte[]> composite(final @NonNull Function<? super T1, byte[]> firstEncoder,
+            final @NonNull Function<? super T2, byte[]> secondEncoder) {
+        return value -> {
+            final byte[] first = firstEncoder.apply(value.getFirst());
+            final byte[] second = secondEncoder.apply(value.getSecond());
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(first.length + second.length + 2);
+            for (final byte b : first) {
+                out.write(b);
+                if (b == ESCAPE) {
+                    out.write(ESCAPED_ZERO);
+                }
+            }
+            out.write(ESCAPE);
+            out.write(TERMINATOR);
+            out.write(second, 0, second.length);
+            return out.toByteArray();
+        };
+    }
+}
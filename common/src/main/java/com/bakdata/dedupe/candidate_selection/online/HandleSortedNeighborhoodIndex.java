@@ -0,0 +1,224 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.candidate_selection.online;
+
+import com.bakdata.dedupe.deduplication.online.RecordStore;
+import com.bakdata.dedupe.deduplication.online.SnapshotInput;
+import com.bakdata.dedupe.deduplication.online.SnapshotOutput;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.TreeMap;
+import java.util.function.Function;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+
+/**
+ * A {@link SortedNeighborhoodIndex} that keeps the handles of a {@link RecordStore} in primitive arrays instead of
+ * references to the records.
+ * <p>Compared to {@link InMemorySortedNeighborhoodIndex}, each record only costs an int and a reference to its key
+ * per pass, and removals compare handles instead of invoking {@link Object#equals(Object)} on the records. Records
+ * are added to the {@link #recordStore} and resolved lazily while iterating over the window.</p>
+ * <p>As the record store only keeps the latest version of each record id, adding a new version of a known record
+ * replaces the entry of the previous version, even if its sorting key has changed. Handles that have already been
+ * removed from the record store are skipped during lookups; nevertheless, the index should be evicted before the
+ * record store, such that it can still find the handles of the evicted records.</p>
+ * <p>The snapshot only contains the handles, such that the record store needs to be restored before this index.</p>
+ *
+ * @param <K> the type of the sorting key.
+ * @param <T> the type of the record.
+ */
+@RequiredArgsConstructor
+public class HandleSortedNeighborhoodIndex<K extends Comparable<K>, T> implements SortedNeighborhoodIndex<K, T> {
+    private final @NonNull RecordStore<T, ?> recordStore;
+    private final TreeMap<K, HandleList> index = new TreeMap<>(Comparator.naturalOrder());
+    // the key under which each handle is indexed
+    private Object[] keys = new Object[0];
+
+    @Override
+    public void add(final @NonNull K key, final @NonNull T record) {
+        final int handle = this.store(record);
+        this.index.computeIfAbsent(key, k -> new HandleList()).add(handle);
+        this.setKey(handle, key);
+    }
+
+    @Override
+    public void addAll(final @NonNull List<? extends Map.Entry<K, ? extends T>> sortedEntries) {
+        int start = 0;
+        while (start < sortedEntries.size()) {
+            final K key = sortedEntries.get(start).getKey();
+            final HandleList handles = this.index.computeIfAbsent(key, k -> new HandleList());
+            int end = start;
+            for (; end < sortedEntries.size() && key.compareTo(sortedEntries.get(end).getKey()) == 0; end++) {
+                final int handle = this.store(sortedEntries.get(end).getValue());
+                handles.add(handle);
+                this.setKey(handle, key);
+            }
+            // the list may have been dropped while replacing a previous version with the same key
+            this.index.put(key, handles);
+            start = end;
+        }
+    }
+
+    @Override
+    public void remove(final @NonNull K key, final @NonNull T record) {
+        final int handle = this.recordStore.getHandleOf(record);
+        if (handle == RecordStore.NO_HANDLE || this.getKey(handle) == null) {
+            return;
+        }
+        this.removeHandle(handle);
+    }
+
+    @Override
+    public @NonNull Iterator<T> descendingFrom(final @NonNull K key) {
+        return this.resolve(this.index.headMap(key, true).descendingMap().values());
+    }
+
+    @Override
+    public @NonNull Iterator<T> ascendingFrom(final @NonNull K key) {
+        return this.resolve(this.index.tailMap(key, true).values());
+    }
+
+    @Override
+    public void writeSnapshot(final @NonNull SnapshotOutput output) throws IOException {
+        output.getData().writeInt(this.index.values().stream().mapToInt(HandleList::size).sum());
+        for (final HandleList handles : this.index.values()) {
+            for (int i = 0; i < handles.size(); i++) {
+                output.getData().writeInt(handles.get(i));
+            }
+        }
+    }
+
+    @Override
+    public void restoreSnapshot(final @NonNull SnapshotInput input,
+            final @NonNull Function<? super T, ? extends K> keyExtractor) throws IOException {
+        final int size = input.getData().readInt();
+        final List<Map.Entry<K, T>> sortedEntries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final T record = this.recordStore.get(input.getData().readInt());
+            sortedEntries.add(Maps.immutableEntry(keyExtractor.apply(record), record));
+        }
+        this.addAll(sortedEntries);
+    }
+
+    private int store(final T record) {
+        final int handle = this.recordStore.put(record);
+        if (this.getKey(handle) != null) {
+            // the previous version of the record cannot be resolved anymore
+            this.removeHandle(handle);
+        }
+        return handle;
+    }
+
+    @SuppressWarnings("unchecked")
+    private K getKey(final int handle) {
+        return handle < this.keys.length ? (K) this.keys[handle] : null;
+    }
+
+    private void setKey(final int handle, final K key) {
+        if (handle >= this.keys.length) {
+            this.keys = Arrays.copyOf(this.keys, Math.max(handle + 1, this.keys.length * 2));
+        }
+        this.keys[handle] = key;
+    }
+
+    private void removeHandle(final int handle) {
+        final K key = this.getKey(handle);
+        final HandleList handles = this.index.get(key);
+        if (handles != null && handles.remove(handle) && handles.size() == 0) {
+            this.index.remove(key);
+        }
+        this.keys[handle] = null;
+    }
+
+    private Iterator<T> resolve(final Collection<HandleList> handlesWithSameKey) {
+        final Iterator<Integer> handles = Iterators.concat(Iterators.transform(handlesWithSameKey.iterator(),
+                HandleList::iterator));
+        return Iterators.transform(Iterators.filter(handles, this.recordStore::contains), this.recordStore::get);
+    }
+
+    /**
+     * A growable list of handles, which doubles its capacity when it is full, such that adding a handle takes
+     * amortized constant time.
+     */
+    private static final class HandleList {
+        private int[] handles = new int[1];
+        private int size;
+
+        void add(final int handle) {
+            if (this.size == this.handles.length) {
+                this.handles = Arrays.copyOf(this.handles, this.size * 2);
+            }
+            this.handles[this.size++] = handle;
+        }
+
+        boolean remove(final int handle) {
+            for (int i = 0; i < this.size; i++) {
+                if (this.handles[i] == handle) {
+                    System.arraycopy(this.handles, i + 1, this.handles, i, this.size - i - 1);
+                    this.size--;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int get(final int index) {
+            return this.handles[index];
+        }
+
+        int size() {
+            return this.size;
+        }
+
+        PrimitiveIterator.OfInt iterator() {
+            return new PrimitiveIterator.OfInt() {
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return this.index < HandleList.this.size;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (!this.hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return HandleList.this.handles[this.index++];
+                }
+            };
+        }
+    }
+}
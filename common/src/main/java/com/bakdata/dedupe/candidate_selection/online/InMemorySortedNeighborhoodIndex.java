@@ -0,0 +1,130 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.candidate_selection.online;
+
+import com.bakdata.dedupe.deduplication.online.SnapshotInput;
+import com.bakdata.dedupe.deduplication.online.SnapshotOutput;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import lombok.NonNull;
+
+
+/**
+ * A {@link SortedNeighborhoodIndex} that keeps all records on heap in a {@link TreeMap}. Records with the same key are
+ * kept in insertion order.
+ *
+ * @param <K> the type of the sorting key.
+ * @param <T> the type of the record.
+ */
+public class InMemorySortedNeighborhoodIndex<K extends Comparable<K>, T> implements SortedNeighborhoodIndex<K, T> {
+    // an explicit comparator allows TreeMap#putAll to build the tree in linear time from a sorted map
+    private final TreeMap<K, List<T>> index = new TreeMap<>(Comparator.naturalOrder());
+
+    @Override
+    public void add(final @NonNull K key, final @NonNull T record) {
+        this.index.computeIfAbsent(key, k -> new LinkedList<>()).add(record);
+    }
+
+    @Override
+    public void addAll(final @NonNull List<? extends Map.Entry<K, ? extends T>> sortedEntries) {
+        // group records with the same key; the builder only verifies the order of the already sorted runs
+        final ImmutableSortedMap.Builder<K, List<T>> sortedRuns =
+                ImmutableSortedMap.orderedBy(Comparator.<K>naturalOrder());
+        List<T> currentRun = null;
+        K currentKey = null;
+        for (final Map.Entry<K, ? extends T> entry : sortedEntries) {
+            if (currentRun == null || currentKey.compareTo(entry.getKey()) != 0) {
+                currentKey = entry.getKey();
+                currentRun = new LinkedList<>();
+                sortedRuns.put(currentKey, currentRun);
+            }
+            currentRun.add(entry.getValue());
+        }
+
+        if (this.index.isEmpty()) {
+            this.index.putAll(sortedRuns.build());
+        } else {
+            sortedRuns.build().forEach((key, run) -> this.index.merge(key, run, (existing, loaded) -> {
+                existing.addAll(loaded);
+                return existing;
+            }));
+        }
+    }
+
+    @Override
+    public void remove(final @NonNull K key, final @NonNull T record) {
+        final List<T> recordsWithSameKey = this.index.get(key);
+        if (recordsWithSameKey != null && recordsWithSameKey.remove(record) && recordsWithSameKey.isEmpty()) {
+            this.index.remove(key);
+        }
+    }
+
+    @Override
+    public @NonNull Iterator<T> descendingFrom(final @NonNull K key) {
+        return flatten(this.index.headMap(key, true).descendingMap().values());
+    }
+
+    @Override
+    public @NonNull Iterator<T> ascendingFrom(final @NonNull K key) {
+        return flatten(this.index.tailMap(key, true).values());
+    }
+
+    @Override
+    public void writeSnapshot(final @NonNull SnapshotOutput output) throws IOException {
+        output.getData().writeInt(this.index.values().stream().mapToInt(List::size).sum());
+        for (final List<T> recordsWithSameKey : this.index.values()) {
+            for (final T record : recordsWithSameKey) {
+                output.writeRecord(record);
+            }
+        }
+    }
+
+    @Override
+    public void restoreSnapshot(final @NonNull SnapshotInput input,
+            final @NonNull Function<? super T, ? extends K> keyExtractor) throws IOException {
+        // records have been written in key order, such that the index is bulk loaded without sorting
+        final int size = input.getData().readInt();
+        final List<Map.Entry<K, T>> sortedEntries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final T record = input.readRecord();
+            sortedEntries.add(Maps.immutableEntry(keyExtractor.apply(record), record));
+        }
+        this.addAll(sortedEntries);
+    }
+
+    private static <T> Iterator<T> flatten(final Collection<List<T>> recordsWithSameKey) {
+        return Iterators.concat(Iterators.transform(recordsWithSameKey.iterator(), List::iterator));
+    }
+}
@@ -0,0 +1,760 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.candidate_selection.online;
+
+import com.bakdata.dedupe.deduplication.online.SnapshotInput;
+import com.bakdata.dedupe.deduplication.online.SnapshotOutput;
+import com.bakdata.util.MappedBuffers;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+
+
+/**
+ * A disk-based {@link SortedNeighborhoodIndex} in the style of a log-structured merge tree.
+ * <p>The index consists of a small in-memory write buffer and immutable, memory-mapped segment files in the {@link
+ * #directory}. Each segment contains the sorted pairs of encoded key and record handle. Whenever the write buffer
+ * exceeds {@link #writeBufferSize} entries, it is flushed into a new segment.</p>
+ * <p>Segments are merged size-tiered: whenever the {@link #mergeFactor} newest segments have a similar size, they are
+ * merged into one segment. A segment is similar if it is at most twice as large as the largest of the newer segments.
+ * Thus, each entry is rewritten a logarithmic number of times and large, old segments are only merged with segments
+ * of comparable size. The number of segments grows logarithmically with the number of entries.</p>
+ * <p>A window lookup thus only needs one binary search per segment and then lazily merges the segments in key order.
+ * Removed records are marked with tombstones, which are dropped when the oldest segment is merged. Iterators fail
+ * with a {@link ConcurrentModificationException} if they read a segment that has been merged in the meantime, as the
+ * merged segments are unmapped and deleted.</p>
+ * <p>Records are not stored in the index. Instead, the {@link #handleExtractor} assigns a unique handle to each
+ * record, which the {@link #recordResolver} translates back to the record, e.g., by looking it up in a record store.
+ * Records with the same key are sorted by their handle.</p>
+ * <p>All flushed segments are reopened when the index is created on an existing directory, such that restarts do not
+ * require re-indexing. Entries of the write buffer are only persisted on {@link #flush()} and {@link #close()}. For a
+ * point-in-time snapshot, the segments are additionally hard-linked into a snapshot directory.</p>
+ * <p>Keys are sorted by the unsigned lexicographic order of their encoding, such that the {@link #keyEncoder} needs to
+ * be order-preserving, see {@link com.bakdata.dedupe.candidate_selection.SortingKeyEncoders}. A single segment is
+ * limited to 2 GiB. This class is not thread-safe.</p>
+ *
+ * @param <K> the type of the sorting key.
+ * @param <T> the type of the record.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class MappedSortedNeighborhoodIndex<K, T> implements SortedNeighborhoodIndex<K, T>, Closeable {
+    private static final int MAGIC = 0x534E4D49;
+    private static final int FOOTER_SIZE = Long.BYTES + 2 * Integer.BYTES;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".idx";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final int SIZE_RATIO = 2;
+    private static final Comparator<IndexKey> ORDER =
+            Comparator.comparing(IndexKey::getKey, Arrays::compareUnsigned).thenComparingLong(IndexKey::getHandle);
+
+    /**
+     * The directory of the segment files.
+     */
+    @Getter
+    @NonNull Path directory;
+    /**
+     * The order-preserving binary encoding of the keys.
+     */
+    @Getter
+    @NonNull Function<? super K, byte[]> keyEncoder;
+    /**
+     * Extracts the unique handle of a record.
+     */
+    @Getter
+    @NonNull ToLongFunction<? super T> handleExtractor;
+    /**
+     * Resolves a handle to its record.
+     */
+    @Getter
+    @NonNull LongFunction<? extends T> recordResolver;
+    /**
+     * The maximum number of entries in the write buffer. Defaults to 10000.
+     */
+    @Getter
+    int writeBufferSize;
+    /**
+     * The number of similarly sized segments that are merged into one segment. Defaults to 4.
+     */
+    @Getter
+    int mergeFactor;
+    // maps the entries to true for tombstones
+    NavigableMap<IndexKey, Boolean> writeBuffer = new TreeMap<>(ORDER);
+    // newest segment first
+    List<Segment> segments = new ArrayList<>();
+    @NonFinal
+    long nextSegmentId;
+
+    @Builder
+    private MappedSortedNeighborhoodIndex(final @NonNull Path directory,
+            final @NonNull Function<? super K, byte[]> keyEncoder,
+            final @NonNull ToLongFunction<? super T> handleExtractor,
+            final @NonNull LongFunction<? extends T> recordResolver, final Integer writeBufferSize,
+            final Integer mergeFactor) {
+        this.directory = directory;
+        this.keyEncoder = keyEncoder;
+        this.handleExtractor = handleExtractor;
+        this.recordResolver = recordResolver;
+        this.writeBufferSize = writeBufferSize != null ? writeBufferSize : 10_000;
+        this.mergeFactor = mergeFactor != null ? mergeFactor : 4;
+        if (this.mergeFactor < 2) {
+            throw new IllegalArgumentException("Merge factor is < 2: " + this.mergeFactor);
+        }
+        try {
+            Files.createDirectories(directory);
+            this.openSegments();
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot open index in " + directory, e);
+        }
+    }
+
+    @Override
+    public void add(final @NonNull K key, final @NonNull T record) {
+        this.writeBuffer.put(this.toIndexKey(key, record), false);
+        this.flushIfFull();
+    }
+
+    @Override
+    public void addAll(final @NonNull List<? extends Map.Entry<K, ? extends T>> sortedEntries) {
+        if (sortedEntries.size() < this.writeBufferSize) {
+            for (final Map.Entry<K, ? extends T> entry : sortedEntries) {
+                this.writeBuffer.put(this.toIndexKey(entry.getKey(), entry.getValue()), false);
+            }
+            this.flushIfFull();
+            return;
+        }
+        // the buffered entries are older than the loaded entries
+        this.flush();
+        final List<IndexKey> indexKeys = sortedEntries.stream()
+                .map(entry -> this.toIndexKey(entry.getKey(), entry.getValue()))
+                .sorted(ORDER)
+                .collect(Collectors.toList());
+        this.addSegment(Iterators.transform(indexKeys.iterator(), indexKey -> Maps.immutableEntry(indexKey, false)));
+    }
+
+    @Override
+    public void remove(final @NonNull K key, final @NonNull T record) {
+        final IndexKey indexKey = this.toIndexKey(key, record);
+        if (this.segments.isEmpty()) {
+            this.writeBuffer.remove(indexKey);
+        } else {
+            this.writeBuffer.put(indexKey, true);
+            this.flushIfFull();
+        }
+    }
+
+    @Override
+    public @NonNull Iterator<T> descendingFrom(final @NonNull K key) {
+        final byte[] encodedKey = this.keyEncoder.apply(key);
+        final List<Cursor> cursors = new ArrayList<>();
+        cursors.add(new BufferCursor(
+                this.writeBuffer.headMap(new IndexKey(encodedKey, Long.MAX_VALUE), true).descendingMap(), 0));
+        for (int age = 0; age < this.segments.size(); age++) {
+            final Segment segment = this.segments.get(age);
+            cursors.add(new SegmentCursor(segment, segment.upperBound(encodedKey) - 1, -1, age + 1));
+        }
+        return this.resolve(new MergingIterator(cursors, ORDER.reversed()));
+    }
+
+    @Override
+    public @NonNull Iterator<T> ascendingFrom(final @NonNull K key) {
+        final byte[] encodedKey = this.keyEncoder.apply(key);
+        final List<Cursor> cursors = new ArrayList<>();
+        cursors.add(new BufferCursor(this.writeBuffer.tailMap(new IndexKey(encodedKey, Long.MIN_VALUE), true), 0));
+        for (int age = 0; age < this.segments.size(); age++) {
+            final Segment segment = this.segments.get(age);
+            cursors.add(new SegmentCursor(segment, segment.lowerBound(encodedKey), 1, age + 1));
+        }
+        return this.resolve(new MergingIterator(cursors, ORDER));
+    }
+
+    /**
+     * Writes all entries of the write buffer into a new segment.
+     *
+     * @throws UncheckedIOException if the segment cannot be written.
+     */
+    public void flush() {
+        if (this.writeBuffer.isEmpty()) {
+            return;
+        }
+        this.addSegment(this.writeBuffer.entrySet().iterator());
+        this.writeBuffer.clear();
+    }
+
+    /**
+     * Flushes the write buffer and retains the current segments for a later restore.
+     * <p>Since segments are immutable, they are hard-linked into a new snapshot generation directory within the
+     * {@link #directory}, such that subsequent merges do not delete them. The snapshot only contains the generation
+     * and the ids of the segments. The segments of the two most recent generations are retained.</p>
+     */
+    @Override
+    public void writeSnapshot(final @NonNull SnapshotOutput output) throws IOException {
+        this.flush();
+        final List<Long> generations = this.listSnapshotGenerations();
+        final long generation = generations.isEmpty() ? 0 : generations.get(generations.size() - 1) + 1;
+        final Path snapshotDirectory = this.getSnapshotDirectory(generation);
+        Files.createDirectories(snapshotDirectory);
+        for (final Segment segment : this.segments) {
+            linkOrCopy(segment.getPath(), snapshotDirectory.resolve(segment.getPath().getFileName()));
+        }
+        for (final Long oldGeneration : generations.subList(0, Math.max(0, generations.size() - 1))) {
+            deleteDirectory(this.getSnapshotDirectory(oldGeneration));
+        }
+
+        final DataOutput data = output.getData();
+        data.writeLong(generation);
+        data.writeInt(this.segments.size());
+        for (final Segment segment : this.segments) {
+            data.writeLong(segment.getId());
+        }
+    }
+
+    /**
+     * Replaces all segments with the segments of the snapshot. All changes after the snapshot are discarded.
+     *
+     * @throws IllegalStateException if the segments of the snapshot are not retained anymore.
+     */
+    @Override
+    public void restoreSnapshot(final @NonNull SnapshotInput input,
+            final @NonNull Function<? super T, ? extends K> keyExtractor) throws IOException {
+        final DataInput data = input.getData();
+        final Path snapshotDirectory = this.getSnapshotDirectory(data.readLong());
+        final List<Path> paths = new ArrayList<>();
+        for (int count = data.readInt(); count > 0; count--) {
+            final Path snapshotPath = snapshotDirectory.resolve(getSegmentFileName(data.readLong()));
+            if (!Files.exists(snapshotPath)) {
+                throw new IllegalStateException("Snapshot segment has been deleted: " + snapshotPath);
+            }
+            paths.add(snapshotPath);
+        }
+
+        this.writeBuffer.clear();
+        this.segments.forEach(Segment::close);
+        this.segments.clear();
+        try (final Stream<Path> files = Files.list(this.directory)) {
+            for (final Path path : (Iterable<Path>) files::iterator) {
+                if (parseSegmentId(path) >= 0) {
+                    Files.delete(path);
+                }
+            }
+        }
+        for (final Path snapshotPath : paths) {
+            final Path path = this.directory.resolve(snapshotPath.getFileName());
+            linkOrCopy(snapshotPath, path);
+            this.segments.add(Segment.open(path, parseSegmentId(path)));
+        }
+    }
+
+    /**
+     * Returns the number of segment files.
+     */
+    public int getSegmentCount() {
+        return this.segments.size();
+    }
+
+    /**
+     * Flushes the write buffer, such that the index can be reopened from the {@link #directory}, and unmaps all
+     * segments.
+     */
+    @Override
+    public void close() {
+        this.flush();
+        this.segments.forEach(Segment::close);
+        this.segments.clear();
+    }
+
+    private IndexKey toIndexKey(final K key, final T record) {
+        return new IndexKey(this.keyEncoder.apply(key), this.handleExtractor.applyAsLong(record));
+    }
+
+    private Iterator<T> resolve(final Iterator<Map.Entry<IndexKey, Boolean>> entries) {
+        final Iterator<Map.Entry<IndexKey, Boolean>> liveEntries =
+                Iterators.filter(entries, entry -> !entry.getValue());
+        return Iterators.transform(liveEntries, entry -> this.recordResolver.apply(entry.getKey().getHandle()));
+    }
+
+    private void flushIfFull() {
+        if (this.writeBuffer.size() >= this.writeBufferSize) {
+            this.flush();
+        }
+    }
+
+    private void addSegment(final Iterator<? extends Map.Entry<IndexKey, Boolean>> sortedEntries) {
+        try {
+            final long id = this.nextSegmentId;
+            this.segments.add(0, this.writeSegment(sortedEntries, id));
+            int similarSegments;
+            while ((similarSegments = this.countSimilarNewestSegments()) >= this.mergeFactor) {
+                this.mergeNewestSegments(similarSegments);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot write segment in " + this.directory, e);
+        }
+    }
+
+    /**
+     * Counts the newest segments, up to {@link #mergeFactor}, that are at most {@link #SIZE_RATIO} times as large as
+     * the largest newer segment and fit into a single segment together.
+     */
+    private int countSimilarNewestSegments() {
+        if (this.segments.isEmpty()) {
+            return 0;
+        }
+        long largestSize = this.segments.get(0).getFileSize();
+        long mergedSize = largestSize;
+        int count = 1;
+        while (count < this.segments.size() && count < this.mergeFactor) {
+            final long size = this.segments.get(count).getFileSize();
+            if (size > SIZE_RATIO * largestSize || mergedSize + size > Integer.MAX_VALUE) {
+                break;
+            }
+            largestSize = Math.max(largestSize, size);
+            mergedSize += size;
+            count++;
+        }
+        return count;
+    }
+
+    private void mergeNewestSegments(final int count) throws IOException {
+        final List<Segment> merged = new ArrayList<>(this.segments.subList(0, count));
+        final List<Cursor> cursors = new ArrayList<>();
+        for (int age = 0; age < merged.size(); age++) {
+            cursors.add(new SegmentCursor(merged.get(age), 0, 1, age));
+        }
+        Iterator<Map.Entry<IndexKey, Boolean>> entries = new MergingIterator(cursors, ORDER);
+        if (count == this.segments.size()) {
+            // no older segment can contain the removed entries anymore
+            entries = Iterators.filter(entries, entry -> !entry.getValue());
+        }
+        final long coveredFrom = merged.get(merged.size() - 1).getCoveredFrom();
+        final Segment mergedSegment = this.writeSegment(entries, coveredFrom);
+        this.segments.subList(0, count).clear();
+        this.segments.add(0, mergedSegment);
+        for (final Segment segment : merged) {
+            segment.close();
+            Files.deleteIfExists(segment.getPath());
+        }
+    }
+
+    private Segment writeSegment(final Iterator<? extends Map.Entry<IndexKey, Boolean>> sortedEntries,
+            final long coveredFrom) throws IOException {
+        final long id = this.nextSegmentId++;
+        final Path path = this.directory.resolve(getSegmentFileName(id));
+        final Path tempPath = this.directory.resolve(path.getFileName() + TEMP_SUFFIX);
+        final ByteArrayOutputStream offsets = new ByteArrayOutputStream();
+        final DataOutputStream offsetOutput = new DataOutputStream(offsets);
+        try (final DataOutputStream output =
+                new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+            int size = 0;
+            while (sortedEntries.hasNext()) {
+                final Map.Entry<IndexKey, Boolean> entry = sortedEntries.next();
+                offsetOutput.writeInt(output.size());
+                final byte[] key = entry.getKey().getKey();
+                output.writeInt(key.length);
+                output.write(key);
+                output.writeLong(entry.getKey().getHandle());
+                output.writeBoolean(entry.getValue());
+                if (output.size() < 0) {
+                    throw new IllegalStateException("Segment exceeds 2 GiB: " + path);
+                }
+                size++;
+            }
+            offsets.writeTo(output);
+            output.writeLong(coveredFrom);
+            output.writeInt(size);
+            output.writeInt(MAGIC);
+        }
+        try (final FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE);
+        return Segment.open(path, id);
+    }
+
+    private void openSegments() throws IOException {
+        final List<Path> paths;
+        try (final Stream<Path> files = Files.list(this.directory)) {
+            paths = files.collect(Collectors.toList());
+        }
+        final List<Segment> segmentsByAge = new ArrayList<>();
+        for (final Path path : paths) {
+            final String fileName = path.getFileName().toString();
+            if (fileName.endsWith(TEMP_SUFFIX)) {
+                // incomplete segment of a crashed flush or merge
+                Files.delete(path);
+            } else if (parseSegmentId(path) >= 0) {
+                segmentsByAge.add(Segment.open(path, parseSegmentId(path)));
+            }
+        }
+        // ids of retained snapshot segments must not be reused
+        for (final Long generation : this.listSnapshotGenerations()) {
+            try (final Stream<Path> files = Files.list(this.getSnapshotDirectory(generation))) {
+                this.nextSegmentId = files.mapToLong(MappedSortedNeighborhoodIndex::parseSegmentId)
+                        .map(id -> id + 1)
+                        .reduce(this.nextSegmentId, Math::max);
+            }
+        }
+        segmentsByAge.sort(Comparator.comparingLong(Segment::getId).reversed());
+
+        long oldestCoveredId = Long.MAX_VALUE;
+        for (final Segment segment : segmentsByAge) {
+            if (segment.getId() >= oldestCoveredId) {
+                // already merged into a newer segment, but not deleted before a crash
+                segment.close();
+                Files.delete(segment.getPath());
+                continue;
+            }
+            this.segments.add(segment);
+            oldestCoveredId = Math.min(oldestCoveredId, segment.getCoveredFrom());
+            this.nextSegmentId = Math.max(this.nextSegmentId, segment.getId() + 1);
+        }
+    }
+
+    private static String getSegmentFileName(final long id) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Returns the id of the segment file or -1 if it is not a segment file.
+     */
+    private static long parseSegmentId(final Path path) {
+        final String fileName = path.getFileName().toString();
+        if (!fileName.startsWith(SEGMENT_PREFIX) || !fileName.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+        return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private Path getSnapshotDirectory(final long generation) {
+        return this.directory.resolve(SNAPSHOT_PREFIX + generation);
+    }
+
+    /**
+     * Returns the generations of all retained snapshots in ascending order.
+     */
+    private List<Long> listSnapshotGenerations() throws IOException {
+        try (final Stream<Path> files = Files.list(this.directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(fileName -> fileName.startsWith(SNAPSHOT_PREFIX))
+                    .map(fileName -> Long.parseLong(fileName.substring(SNAPSHOT_PREFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static void linkOrCopy(final Path source, final Path target) throws IOException {
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, source);
+        } catch (final UnsupportedOperationException | IOException e) {
+            // file system without hard links
+            Files.copy(source, target);
+        }
+    }
+
+    private static void deleteDirectory(final Path directory) throws IOException {
+        try (final Stream<Path> files = Files.list(directory)) {
+            for (final Path path : (Iterable<Path>) files::iterator) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Value
+    private static class IndexKey {
+        byte[] key;
+        long handle;
+    }
+
+    /**
+     * An immutable, memory-mapped segment file. The entries are followed by their offsets and a footer.
+     */
+    @Getter
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    private static final class Segment {
+        private final long id;
+        private final long coveredFrom;
+        private final Path path;
+        private final long fileSize;
+        private final MappedByteBuffer buffer;
+        private final int size;
+        private boolean closed;
+
+        static Segment open(final Path path, final long id) throws IOException {
+            try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                final long fileSize = channel.size();
+                if (fileSize < FOOTER_SIZE || fileSize > Integer.MAX_VALUE) {
+                    throw new IOException("Invalid segment size " + fileSize + ": " + path);
+                }
+                final MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, fileSize);
+                final int footer = (int) fileSize - FOOTER_SIZE;
+                if (buffer.getInt(footer + Long.BYTES + Integer.BYTES) != MAGIC) {
+                    throw new IOException("Not a segment file: " + path);
+                }
+                return new Segment(id, buffer.getLong(footer), path, fileSize, buffer,
+                        buffer.getInt(footer + Long.BYTES));
+            }
+        }
+
+        private int getOffset(final int index) {
+            // accessing an unmapped buffer would crash the JVM
+            if (this.closed) {
+                throw new ConcurrentModificationException("Segment has been merged: " + this.path);
+            }
+            return this.buffer.getInt((int) this.fileSize - FOOTER_SIZE - (this.size - index) * Integer.BYTES);
+        }
+
+        /**
+         * Unmaps the segment. Cursors on this segment fail afterwards.
+         */
+        void close() {
+            if (!this.closed) {
+                this.closed = true;
+                MappedBuffers.unmap(this.buffer);
+            }
+        }
+
+        IndexKey getIndexKey(final int index) {
+            final int offset = this.getOffset(index);
+            final byte[] key = new byte[this.buffer.getInt(offset)];
+            for (int i = 0; i < key.length; i++) {
+                key[i] = this.buffer.get(offset + Integer.BYTES + i);
+            }
+            return new IndexKey(key, this.buffer.getLong(offset + Integer.BYTES + key.length));
+        }
+
+        boolean isTombstone(final int index) {
+            final int offset = this.getOffset(index);
+            return this.buffer.get(offset + Integer.BYTES + this.buffer.getInt(offset) + Long.BYTES) != 0;
+        }
+
+        /**
+         * Returns the position of the first entry with a key greater than or equal to the given key.
+         */
+        int lowerBound(final byte[] key) {
+            return this.search(key, false);
+        }
+
+        /**
+         * Returns the position of the first entry with a key greater than the given key.
+         */
+        int upperBound(final byte[] key) {
+            return this.search(key, true);
+        }
+
+        private int search(final byte[] key, final boolean includeEqual) {
+            int low = 0;
+            int high = this.size;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                final int result = this.compareKey(mid, key);
+                if (result < 0 || (includeEqual && result == 0)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Compares the key of the entry with the given key without copying it.
+         */
+        private int compareKey(final int index, final byte[] key) {
+            final int offset = this.getOffset(index) + Integer.BYTES;
+            final int length = this.buffer.getInt(offset - Integer.BYTES);
+            final int commonLength = Math.min(length, key.length);
+            for (int i = 0; i < commonLength; i++) {
+                final int result = Byte.compareUnsigned(this.buffer.get(offset + i), key[i]);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return Integer.compare(length, key.length);
+        }
+    }
+
+    private interface Cursor {
+        boolean isValid();
+
+        IndexKey getIndexKey();
+
+        boolean isTombstone();
+
+        /**
+         * The age of the source of this cursor. Entries of younger sources shadow entries of older sources.
+         */
+        int getAge();
+
+        void advance();
+    }
+
+    private static final class BufferCursor implements Cursor {
+        private final Iterator<Map.Entry<IndexKey, Boolean>> entries;
+        @Getter
+        private final int age;
+        private Map.Entry<IndexKey, Boolean> current;
+
+        BufferCursor(final NavigableMap<IndexKey, Boolean> entries, final int age) {
+            this.entries = entries.entrySet().iterator();
+            this.age = age;
+            this.advance();
+        }
+
+        @Override
+        public boolean isValid() {
+            return this.current != null;
+        }
+
+        @Override
+        public IndexKey getIndexKey() {
+            return this.current.getKey();
+        }
+
+        @Override
+        public boolean isTombstone() {
+            return this.current.getValue();
+        }
+
+        @Override
+        public void advance() {
+            this.current = this.entries.hasNext() ? this.entries.next() : null;
+        }
+    }
+
+    private static final class SegmentCursor implements Cursor {
+        private final Segment segment;
+        private final int step;
+        @Getter
+        private final int age;
+        private int position;
+        private IndexKey current;
+
+        SegmentCursor(final Segment segment, final int position, final int step, final int age) {
+            this.segment = segment;
+            this.position = position;
+            this.step = step;
+            this.age = age;
+            this.current = this.isValid() ? segment.getIndexKey(position) : null;
+        }
+
+        @Override
+        public boolean isValid() {
+            return this.position >= 0 && this.position < this.segment.getSize();
+        }
+
+        @Override
+        public IndexKey getIndexKey() {
+            return this.current;
+        }
+
+        @Override
+        public boolean isTombstone() {
+            return this.segment.isTombstone(this.position);
+        }
+
+        @Override
+        public void advance() {
+            this.position += this.step;
+            this.current = this.isValid() ? this.segment.getIndexKey(this.position) : null;
+        }
+    }
+
+    /**
+     * Merges the sorted cursors and only keeps the youngest entry for each key and handle.
+     */
+    private static final class MergingIterator extends AbstractIterator<Map.Entry<IndexKey, Boolean>> {
+        private final PriorityQueue<Cursor> queue;
+        private final Comparator<IndexKey> order;
+
+        MergingIterator(final List<? extends Cursor> cursors, final Comparator<IndexKey> order) {
+            this.order = order;
+            this.queue = new PriorityQueue<>(Math.max(1, cursors.size()),
+                    Comparator.comparing(Cursor::getIndexKey, order).thenComparingInt(Cursor::getAge));
+            cursors.stream().filter(Cursor::isValid).forEach(this.queue::add);
+        }
+
+        @Override
+        protected Map.Entry<IndexKey, Boolean> computeNext() {
+            if (this.queue.isEmpty()) {
+                return this.endOfData();
+            }
+            final Cursor youngest = this.queue.poll();
+            final Map.Entry<IndexKey, Boolean> entry =
+                    Maps.immutableEntry(youngest.getIndexKey(), youngest.isTombstone());
+            this.advance(youngest);
+            // skip shadowed entries of older sources
+            while (!this.queue.isEmpty() && this.order.compare(this.queue.peek().getIndexKey(), entry.getKey()) == 0) {
+                this.advance(this.queue.poll());
+            }
+            return entry;
+        }
+
+        private void advance(final Cursor cursor) {
+            cursor.advance();
+            if (cursor.isValid()) {
+                this.queue.add(cursor);
+            }
+        }
+    }
+}
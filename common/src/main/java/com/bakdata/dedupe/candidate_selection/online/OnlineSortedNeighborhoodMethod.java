@@ -25,10 +25,18 @@ package com.bakdata.dedupe.candidate_selection.online;
 
 import com.bakdata.dedupe.candidate_selection.Candidate;
 import com.bakdata.dedupe.candidate_selection.SortingKey;
-import java.util.LinkedList;
+import com.bakdata.dedupe.deduplication.online.Evictable;
+import com.bakdata.dedupe.deduplication.online.SnapshotInput;
+import com.bakdata.dedupe.deduplication.online.SnapshotOutput;
+import com.bakdata.dedupe.deduplication.online.Snapshottable;
+import com.google.common.collect.Maps;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.TreeMap;
-import java.util.stream.Collectors;
+import java.util.Map;
 import java.util.stream.Stream;
 import lombok.AccessLevel;
 import lombok.Builder;
@@ -58,12 +66,17 @@ import lombok.experimental.FieldDefaults;
  * beginning and in the end of the sort index).</p>
  * <p>Thus, this algorithm still preserves the most reliably properties of offline SNM: A linear amount of comparison
  * to the dataset size and a minimum number of comparisons per record.</p>
+ * <h2>Candidate order:</h2>
+ * <p>Candidates are returned by their estimated likelihood of being a duplicate: Records that are neighbors in more
+ * passes come first and ties are broken by the smallest distance in sort order of any pass. Thus, a consumer with a
+ * limited budget, such as {@link com.bakdata.dedupe.duplicate_detection.ComparisonBudget}, classifies the most
+ * promising candidates first.</p>
  *
  * @param <T> the type of the record.
  */
 @Value
 @Builder
-public class OnlineSortedNeighborhoodMethod<T> implements OnlineCandidateSelection<T> {
+public class OnlineSortedNeighborhoodMethod<T> implements OnlineCandidateSelection<T>, Evictable<T>, Snapshottable {
     /**
      * The different passes used to select the candidates.
      */
@@ -78,7 +91,67 @@ public class OnlineSortedNeighborhoodMethod<T> implements OnlineCandidateSelecti
     int defaultWindowSize = 10;
 
     public @NonNull Stream<Candidate<T>> selectCandidates(final @NonNull T newRecord) {
-        return this.passes.stream().flatMap(pass -> pass.getCandidates(newRecord).stream()).distinct();
+        return this.selectCandidates(newRecord, true);
+    }
+
+    /**
+     * Selects the candidates like {@link #selectCandidates(Object)} without adding the query record to the passes.
+     */
+    @Override
+    public @NonNull Stream<Candidate<T>> lookupCandidates(final @NonNull T queryRecord) {
+        return this.selectCandidates(queryRecord, false);
+    }
+
+    @Override
+    public void add(final @NonNull T newRecord) {
+        for (final Pass<T, ?> pass : this.passes) {
+            pass.add(newRecord);
+        }
+    }
+
+    private Stream<Candidate<T>> selectCandidates(final T record, final boolean add) {
+        final Map<T, Neighbor> neighbors = new LinkedHashMap<>();
+        for (final Pass<T, ?> pass : this.passes) {
+            pass.addNeighbors(record, neighbors, add);
+        }
+        return neighbors.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue())
+                .map(neighbor -> new OnlineCandidate<>(record, neighbor.getKey()));
+    }
+
+    /**
+     * Loads already deduplicated records into all passes without selecting any candidates.
+     * <p>Use this method to bootstrap the online algorithm from a clean dataset. Each pass sorts the records once by
+     * its sorting key, which is considerably faster than invoking {@link #selectCandidates(Object)} for each
+     * record.</p>
+     *
+     * @param records the records to load.
+     */
+    public void bulkLoad(final @NonNull Collection<? extends T> records) {
+        for (final Pass<T, ?> pass : this.passes) {
+            pass.bulkLoad(records);
+        }
+    }
+
+    @Override
+    public void evict(final @NonNull Collection<? extends T> records) {
+        for (final Pass<T, ?> pass : this.passes) {
+            pass.evict(records);
+        }
+    }
+
+    @Override
+    public void writeSnapshot(final @NonNull SnapshotOutput output) throws IOException {
+        for (final Pass<T, ?> pass : this.passes) {
+            pass.index.writeSnapshot(output);
+        }
+    }
+
+    @Override
+    public void restoreSnapshot(final @NonNull SnapshotInput input) throws IOException {
+        for (final Pass<T, ?> pass : this.passes) {
+            pass.restoreSnapshot(input);
+        }
     }
 
     /**
@@ -100,38 +173,114 @@ public class OnlineSortedNeighborhoodMethod<T> implements OnlineCandidateSelecti
          */
         @Getter
         int windowSize;
-        TreeMap<K, List<T>> index = new TreeMap<>();
+        /**
+         * The sort index of this pass. Defaults to an {@link InMemorySortedNeighborhoodIndex}.
+         */
+        @NonNull SortedNeighborhoodIndex<K, T> index;
 
         /**
-         * Creates a pass with the given sorting key and window size.
+         * Creates a pass with the given sorting key and window size that keeps its index in memory.
          *
          * @param sortingKey the sorting key to use in this pass.
          * @param windowSize the window size {@code >= 2}.
          * @throws IllegalArgumentException if {@code windowSize < 2}.
          */
         public Pass(final @NonNull SortingKey<? super T, ? extends K> sortingKey, final int windowSize) {
+            this(sortingKey, windowSize, new InMemorySortedNeighborhoodIndex<>());
+        }
+
+        /**
+         * Creates a pass with the given sorting key, window size, and sort index.
+         *
+         * @param sortingKey the sorting key to use in this pass.
+         * @param windowSize the window size {@code >= 2}.
+         * @param index the sort index of this pass.
+         * @throws IllegalArgumentException if {@code windowSize < 2}.
+         */
+        public Pass(final @NonNull SortingKey<? super T, ? extends K> sortingKey, final int windowSize,
+                final @NonNull SortedNeighborhoodIndex<K, T> index) {
             if (windowSize < 2) {
                 throw new IllegalArgumentException("Window size is < 2: " + windowSize);
             }
             this.sortingKey = sortingKey;
             this.windowSize = windowSize;
+            this.index = index;
         }
 
-        private List<Candidate<T>> getCandidates(final T newRecord) {
+        private void addNeighbors(final T newRecord, final Map<T, Neighbor> neighbors, final boolean add) {
             final K newKey = this.sortingKey.getKeyExtractor().apply(newRecord);
             if (newKey == null) {
-                return List.of();
+                return;
+            }
+            this.addNeighbors(this.index.descendingFrom(newKey), neighbors);
+            this.addNeighbors(this.index.ascendingFrom(newKey), neighbors);
+            if (add) {
+                this.index.add(newKey, newRecord);
+            }
+        }
+
+        private void add(final T newRecord) {
+            final K newKey = this.sortingKey.getKeyExtractor().apply(newRecord);
+            if (newKey != null) {
+                this.index.add(newKey, newRecord);
+            }
+        }
+
+        private void bulkLoad(final Collection<? extends T> records) {
+            final List<Map.Entry<K, T>> keyedRecords = new ArrayList<>(records.size());
+            for (final T record : records) {
+                final K key = this.sortingKey.getKeyExtractor().apply(record);
+                if (key != null) {
+                    keyedRecords.add(Maps.immutableEntry(key, record));
+                }
+            }
+            keyedRecords.sort(Map.Entry.comparingByKey());
+            this.index.addAll(keyedRecords);
+        }
+
+        private void restoreSnapshot(final SnapshotInput input) throws IOException {
+            this.index.restoreSnapshot(input, this.sortingKey.getKeyExtractor());
+        }
+
+        private void evict(final Collection<? extends T> records) {
+            for (final T record : records) {
+                final K key = this.sortingKey.getKeyExtractor().apply(record);
+                if (key != null) {
+                    this.index.remove(key, record);
+                }
+            }
+        }
+
+        private void addNeighbors(final Iterator<T> sortedRecords, final Map<T, Neighbor> neighbors) {
+            for (int distance = 1; distance <= this.windowSize / 2 && sortedRecords.hasNext(); distance++) {
+                neighbors.computeIfAbsent(sortedRecords.next(), r -> new Neighbor()).update(this, distance);
+            }
+        }
+    }
+
+    /**
+     * Aggregates the evidence of all passes for one candidate.
+     */
+    private static final class Neighbor implements Comparable<Neighbor> {
+        private Pass<?, ?> lastPass;
+        private int passes;
+        private int minDistance = Integer.MAX_VALUE;
+
+        private void update(final Pass<?, ?> pass, final int distance) {
+            if (this.lastPass != pass) {
+                this.lastPass = pass;
+                this.passes++;
+            }
+            this.minDistance = Math.min(this.minDistance, distance);
+        }
+
+        @Override
+        public int compareTo(final Neighbor other) {
+            final int passResult = Integer.compare(other.passes, this.passes);
+            if (passResult != 0) {
+                return passResult;
             }
-            final Stream<T> largerRecords = this.index.tailMap(newKey).values().stream().flatMap(List::stream).limit(
-                    this.windowSize / 2);
-            final Stream<T> smallerRecords =
-                    this.index.descendingMap().tailMap(newKey).values().stream().flatMap(List::stream).limit(
-                            this.windowSize / 2);
-            final List<Candidate<T>> candidates = Stream.concat(smallerRecords, largerRecords)
-                    .map(oldRecord -> new OnlineCandidate<>(newRecord, oldRecord))
-                    .collect(Collectors.toList());
-            this.index.computeIfAbsent(newKey, key -> new LinkedList<>()).add(newRecord);
-            return candidates;
+            return Integer.compare(this.minDistance, other.minDistance);
         }
     }
 
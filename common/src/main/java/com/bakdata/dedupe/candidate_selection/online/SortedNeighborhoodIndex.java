@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.candidate_selection.online;
+
+import com.bakdata.dedupe.deduplication.online.SnapshotInput;
+import com.bakdata.dedupe.deduplication.online.SnapshotOutput;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import lombok.NonNull;
+
+
+/**
+ * The sort index of a single {@link OnlineSortedNeighborhoodMethod.Pass}, which keeps all previously seen records
+ * sorted by their sorting key.
+ * <p>Window lookups only need to iterate from the position of a new key into both directions, such that
+ * implementations are free to keep the records on heap or on disk.</p>
+ *
+ * @param <K> the type of the sorting key.
+ * @param <T> the type of the record.
+ * @see InMemorySortedNeighborhoodIndex
+ * @see MappedSortedNeighborhoodIndex
+ */
+public interface SortedNeighborhoodIndex<K, T> {
+    /**
+     * Adds the record with the given key.
+     *
+     * @param key the sorting key of the record.
+     * @param record the record.
+     */
+    void add(@NonNull K key, @NonNull T record);
+
+    /**
+     * Adds all records, which are already sorted by their keys. Implementations should use the order to build the
+     * index faster than through repeated invocations of {@link #add(Object, Object)}.
+     *
+     * @param sortedEntries the records with their keys in ascending key order.
+     */
+    void addAll(@NonNull List<? extends Map.Entry<K, ? extends T>> sortedEntries);
+
+    /**
+     * Removes the record with the given key. Unknown records are ignored.
+     *
+     * @param key the sorting key of the record.
+     * @param record the record.
+     */
+    void remove(@NonNull K key, @NonNull T record);
+
+    /**
+     * Iterates over all records with a key smaller than or equal to the given key in descending key order.
+     *
+     * @param key the key to start from.
+     * @return the records in descending key order.
+     */
+    @NonNull Iterator<T> descendingFrom(@NonNull K key);
+
+    /**
+     * Iterates over all records with a key greater than or equal to the given key in ascending key order.
+     *
+     * @param key the key to start from.
+     * @return the records in ascending key order.
+     */
+    @NonNull Iterator<T> ascendingFrom(@NonNull K key);
+
+    /**
+     * Writes the state of this index into a {@link com.bakdata.dedupe.deduplication.online.DeduplicationSnapshot}.
+     * In-memory indexes write their records in key order without the keys.
+     *
+     * @param output the snapshot output.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    void writeSnapshot(@NonNull SnapshotOutput output) throws IOException;
+
+    /**
+     * Restores the state of this index, which has been written with {@link #writeSnapshot(SnapshotOutput)}.
+     *
+     * @param input the snapshot input.
+     * @param keyExtractor recomputes the sorting keys of the restored records.
+     * @throws IOException if the snapshot cannot be read.
+     */
+    void restoreSnapshot(@NonNull SnapshotInput input, @NonNull Function<? super T, ? extends K> keyExtractor)
+            throws IOException;
+}
@@ -0,0 +1,176 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.candidate_selection.online;
+
+import com.bakdata.dedupe.candidate_selection.Candidate;
+import com.bakdata.dedupe.candidate_selection.PairEncoder;
+import com.bakdata.dedupe.candidate_selection.SortingKey;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Singular;
+import lombok.Value;
+import lombok.extern.java.Log;
+
+
+/**
+ * Learns the passes of an {@link OnlineSortedNeighborhoodMethod} from labeled duplicates.
+ * <p>Each combination of a candidate {@link SortingKey} and window size is replayed over the labeled dataset in the
+ * given order, which exactly reproduces the candidates that an online SNM would generate. Afterwards, passes are added
+ * greedily by the ratio of newly covered gold duplicates to newly introduced comparisons until the {@link
+ * #targetPairCompleteness} is reached or no pass covers additional duplicates. If a larger window of an already
+ * selected sorting key is chosen, the smaller window is replaced.</p>
+ * <p>The gold duplicates may be taken from the gold standard of {@link com.bakdata.dedupe.classifier.OracleClassifier}
+ * or {@link com.bakdata.dedupe.clustering.OracleClustering}.</p>
+ * <p>The learner needs to materialize the candidate pairs of all combinations, which are kept as primitive
+ * longs.</p>
+ *
+ * @param <T> the type of the record.
+ * @param <I> the type of the record id.
+ */
+@Value
+@Builder
+@Log
+public class SortedNeighborhoodLearner<T, I> {
+    /**
+     * The pool of sorting keys to choose from.
+     */
+    @NonNull
+    @Singular
+    List<SortingKey<T, ?>> sortingKeys;
+    /**
+     * The window sizes {@code >= 2} that are evaluated for each sorting key. Defaults to 2, 4, 8, 16, 32.
+     */
+    @NonNull
+    @Builder.Default
+    List<Integer> windowSizes = List.of(2, 4, 8, 16, 32);
+    /**
+     * The fraction of gold duplicates that should be found by the learned scheme. Defaults to 0.95.
+     */
+    @Builder.Default
+    double targetPairCompleteness = 0.95;
+    /**
+     * Extracts the id of the record.
+     */
+    @NonNull
+    Function<? super T, ? extends I> idExtractor;
+
+    /**
+     * Learns the passes for the given labeled dataset.
+     *
+     * @param records the labeled dataset in the order in which an online SNM would receive it.
+     * @param goldDuplicates the real duplicates of the dataset.
+     * @return the learned scheme.
+     */
+    public @NonNull SortedNeighborhoodScheme<T> learn(final @NonNull List<? extends T> records,
+            final @NonNull Collection<? extends Candidate<T>> goldDuplicates) {
+        final PairEncoder<T, I> encoder = PairEncoder.of(records, this.idExtractor);
+        final Set<Long> gold = encoder.encodeCandidates(goldDuplicates.stream());
+
+        final List<Option<T>> options = new ArrayList<>();
+        for (final SortingKey<T, ?> sortingKey : this.sortingKeys) {
+            for (final int windowSize : this.windowSizes) {
+                options.add(this.replay(records, encoder, sortingKey, windowSize));
+            }
+        }
+
+        final Map<SortingKey<T, ?>, Integer> selectedWindows = new LinkedHashMap<>();
+        final Set<Long> comparisons = new HashSet<>();
+        final Set<Long> foundDuplicates = new HashSet<>();
+        while (foundDuplicates.size() < this.targetPairCompleteness * gold.size()) {
+            Option<T> bestOption = null;
+            double bestGain = 0;
+            for (final Option<T> option : options) {
+                final double gain = option.getGain(gold, foundDuplicates, comparisons);
+                if (gain > bestGain) {
+                    bestGain = gain;
+                    bestOption = option;
+                }
+            }
+            if (bestOption == null) {
+                log.fine(() -> "No further pass increases pair completeness");
+                break;
+            }
+
+            final Option<T> selected = bestOption;
+            selectedWindows.put(selected.getSortingKey(), selected.getWindowSize());
+            comparisons.addAll(selected.getPairs());
+            selected.getPairs().stream().filter(gold::contains).forEach(foundDuplicates::add);
+            // smaller or equal windows of the same key are subsumed now
+            options.removeIf(option -> option.getSortingKey() == selected.getSortingKey()
+                    && option.getWindowSize() <= selected.getWindowSize());
+        }
+
+        final List<SortedNeighborhoodScheme.SelectedPass<T>> passes = new ArrayList<>();
+        selectedWindows.forEach((sortingKey, windowSize) ->
+                passes.add(new SortedNeighborhoodScheme.SelectedPass<>(sortingKey, windowSize)));
+        final long numPairs = encoder.getNumPairs();
+        return SortedNeighborhoodScheme.<T>builder()
+                .passes(passes)
+                .pairCompleteness(gold.isEmpty() ? 1 : (double) foundDuplicates.size() / gold.size())
+                .comparisons(comparisons.size())
+                .reductionRatio(numPairs == 0 ? 1 : 1 - (double) comparisons.size() / numPairs)
+                .build();
+    }
+
+    private Option<T> replay(final List<? extends T> records, final PairEncoder<T, I> encoder,
+            final SortingKey<T, ?> sortingKey, final int windowSize) {
+        final OnlineSortedNeighborhoodMethod<T> snm = OnlineSortedNeighborhoodMethod.<T>builder()
+                .sortingKey(sortingKey, windowSize)
+                .build();
+        final Set<Long> pairs = encoder.encodeCandidates(snm.selectCandidates(records.stream()));
+        return new Option<>(sortingKey, windowSize, pairs);
+    }
+
+    @Value
+    private static class Option<T> {
+        SortingKey<T, ?> sortingKey;
+        int windowSize;
+        Set<Long> pairs;
+
+        /**
+         * Newly found duplicates per newly introduced comparison.
+         */
+        double getGain(final Set<Long> gold, final Set<Long> foundDuplicates, final Set<Long> comparisons) {
+            long newDuplicates = 0;
+            long newComparisons = 0;
+            for (final Long pair : this.pairs) {
+                if (!comparisons.contains(pair)) {
+                    newComparisons++;
+                    if (gold.contains(pair) && !foundDuplicates.contains(pair)) {
+                        newDuplicates++;
+                    }
+                }
+            }
+            return (double) newDuplicates / Math.max(1, newComparisons);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.candidate_selection.online;
+
+import com.bakdata.dedupe.candidate_selection.SortingKey;
+import com.bakdata.dedupe.candidate_selection.online.OnlineSortedNeighborhoodMethod.OnlineSortedNeighborhoodMethodBuilder;
+import java.util.List;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+
+/**
+ * The passes of an {@link OnlineSortedNeighborhoodMethod} as learned by {@link SortedNeighborhoodLearner} together
+ * with the quality and cost on the labeled dataset.
+ *
+ * @param <T> the type of the record.
+ */
+@Value
+@Builder
+public class SortedNeighborhoodScheme<T> {
+    /**
+     * The selected passes in the order of selection.
+     */
+    @NonNull
+    List<SelectedPass<T>> passes;
+    /**
+     * The fraction of gold duplicates that are compared by the scheme.
+     */
+    double pairCompleteness;
+    /**
+     * The number of distinct comparisons on the labeled dataset.
+     */
+    long comparisons;
+    /**
+     * The fraction of all pairs that are not compared.
+     */
+    double reductionRatio;
+
+    /**
+     * Returns a builder that is preconfigured with the selected passes, such that further options can be applied.
+     *
+     * @return a builder with the selected passes.
+     */
+    public @NonNull OnlineSortedNeighborhoodMethodBuilder<T> createCandidateSelectionBuilder() {
+        final OnlineSortedNeighborhoodMethodBuilder<T> builder = OnlineSortedNeighborhoodMethod.builder();
+        for (final SelectedPass<T> pass : this.passes) {
+            builder.sortingKey(pass.getSortingKey(), pass.getWindowSize());
+        }
+        return builder;
+    }
+
+    /**
+     * Creates a new, empty {@link OnlineSortedNeighborhoodMethod} with the selected passes.
+     *
+     * @return a ready-to-use candidate selection.
+     */
+    public @NonNull OnlineSortedNeighborhoodMethod<T> createCandidateSelection() {
+        return this.createCandidateSelectionBuilder().build();
+    }
+
+    /**
+     * A selected sorting key with its window size.
+     *
+     * @param <T> the type of the record.
+     */
+    @Value
+    public static class SelectedPass<T> {
+        /**
+         * The selected sorting key.
+         */
+        @NonNull
+        SortingKey<T, ?> sortingKey;
+        /**
+         * The selected window size.
+         */
+        int windowSize;
+    }
+}
@@ -67,14 +67,22 @@ public class OracleClassifier<T> implements Classifier<T> {
      */
     private Set<Candidate<T>> calculateSymmetricDuplicates() {
         return this.getGoldDuplicates().stream()
-                .flatMap(duplicate -> Stream.of(duplicate, new OnlineCandidate<>(duplicate.getRecord2(),
-                        duplicate.getRecord1())))
+                .flatMap(duplicate -> Stream.of(toLookupKey(duplicate.getRecord1(), duplicate.getRecord2()),
+                        toLookupKey(duplicate.getRecord2(), duplicate.getRecord1())))
                 .collect(Collectors.toSet());
     }
 
     @Override
     public ClassificationResult classify(final Candidate<T> candidate) {
         // simple lookup
-        return this.getSymmetricDuplicates().contains(candidate) ? DUPLICATE : NON_DUPLICATE;
+        return this.getSymmetricDuplicates().contains(toLookupKey(candidate.getRecord1(), candidate.getRecord2()))
+                ? DUPLICATE : NON_DUPLICATE;
+    }
+
+    /**
+     * Uses the same candidate implementation for lookups, such that online and offline candidates are treated alike.
+     */
+    private static <T> Candidate<T> toLookupKey(final T record1, final T record2) {
+        return new OnlineCandidate<>(record1, record2);
     }
 }
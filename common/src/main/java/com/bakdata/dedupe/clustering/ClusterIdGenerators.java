@@ -24,9 +24,6 @@
 
 package com.bakdata.dedupe.clustering;
 
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.function.Function;
 import lombok.experimental.UtilityClass;
 
 /**
@@ -37,24 +34,21 @@ public class ClusterIdGenerators {
     /**
      * Returns an id generator that generates ints starting from 0.
      */
-    public static <T> Function<Iterable<T>, Integer> intGenerator() {
-        final AtomicInteger nextId = new AtomicInteger();
-        return objects -> nextId.getAndIncrement();
+    public static <T> SequentialClusterIdGenerator<T, Integer> intGenerator() {
+        return new SequentialClusterIdGenerator<>(Math::toIntExact);
     }
 
     /**
      * Returns an id generator that generates longs starting from 0.
      */
-    public static <T> Function<Iterable<T>, Long> longGenerator() {
-        final AtomicLong nextId = new AtomicLong();
-        return objects -> nextId.getAndIncrement();
+    public static <T> SequentialClusterIdGenerator<T, Long> longGenerator() {
+        return new SequentialClusterIdGenerator<>(Long::valueOf);
     }
 
     /**
      * Returns an id generator that generates strings with a given prefix starting from 0.
      */
-    public static <T> Function<Iterable<T>, String> stringGenerator(final String prefix) {
-        final AtomicLong nextId = new AtomicLong();
-        return objects -> prefix + nextId.getAndIncrement();
+    public static <T> SequentialClusterIdGenerator<T, String> stringGenerator(final String prefix) {
+        return new SequentialClusterIdGenerator<>(id -> prefix + id);
     }
 }
@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.clustering;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+
+/**
+ * A lock-free union-find over the dense handles {@code 0} to {@code size() - 1}.
+ * <p>The parents are kept in an {@link AtomicIntegerArray}. {@link #find(int)} halves the paths with
+ * compare-and-set, and {@link #union(int, int)} links the larger root below the smaller root with compare-and-set,
+ * retrying if another thread linked one of the roots in the meantime. As parents only decrease, no cycles can be
+ * formed. Furthermore, the root of a set is always its smallest handle, such that the final sets and roots do not
+ * depend on the order of concurrent unions.</p>
+ * <p>This class is thread-safe.</p>
+ */
+public class ConcurrentUnionFind {
+    private final AtomicIntegerArray parents;
+
+    /**
+     * Creates a union-find, in which each handle is in its own set.
+     *
+     * @param size the number of handles.
+     */
+    public ConcurrentUnionFind(final int size) {
+        this.parents = new AtomicIntegerArray(size);
+        for (int handle = 0; handle < size; handle++) {
+            this.parents.set(handle, handle);
+        }
+    }
+
+    /**
+     * Returns the number of handles.
+     */
+    public int size() {
+        return this.parents.length();
+    }
+
+    /**
+     * Returns the root of the set of the handle, which is the smallest handle of the set once all concurrent unions
+     * completed.
+     *
+     * @param handle the handle.
+     * @return the root of the set.
+     */
+    public int find(final int handle) {
+        int current = handle;
+        while (true) {
+            final int parent = this.parents.get(current);
+            if (parent == current) {
+                return current;
+            }
+            final int grandparent = this.parents.get(parent);
+            if (parent != grandparent) {
+                // path halving; may fail if another thread already shortened the path
+                this.parents.compareAndSet(current, parent, grandparent);
+            }
+            current = grandparent;
+        }
+    }
+
+    /**
+     * Merges the sets of both handles.
+     *
+     * @param handle1 the first handle.
+     * @param handle2 the second handle.
+     * @return true if two different sets have been merged.
+     */
+    public boolean union(final int handle1, final int handle2) {
+        while (true) {
+            final int root1 = this.find(handle1);
+            final int root2 = this.find(handle2);
+            if (root1 == root2) {
+                return false;
+            }
+            final int smallerRoot = Math.min(root1, root2);
+            final int largerRoot = Math.max(root1, root2);
+            if (this.parents.compareAndSet(largerRoot, largerRoot, smallerRoot)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.clustering;
+
+import com.bakdata.dedupe.candidate_selection.Candidate;
+import com.bakdata.dedupe.classifier.Classification;
+import com.bakdata.dedupe.classifier.ClassifiedCandidate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+
+
+/**
+ * A transitive closure for batch jobs that consumes the classified candidates concurrently into a {@link
+ * ConcurrentUnionFind} over dense record handles, for example, the positions of the records in the dataset or the
+ * handles of a {@link com.bakdata.dedupe.deduplication.online.RecordStore}.
+ * <p>In contrast to {@link TransitiveClosure}, a duplicate pair neither updates any map nor any cluster, but only
+ * performs a compare-and-set on an int array. Thus, the stream of classified candidates can be processed in parallel
+ * without any locks. The handles of the duplicates are marked in a bitset with one bit per handle, such that the
+ * memory does not grow with the number of pairs. The clusters are assembled in a final parallel pass over all
+ * handles.</p>
+ * <p>The clusters contain their records in handle order and are returned in the order of their smallest handle. The
+ * ids of new clusters are generated sequentially in this order, such that the result does not depend on the number of
+ * threads. A cluster keeps its id across invocations when it grows, and merged clusters keep the id of the cluster with
+ * the smallest handle.</p>
+ * <p>The capacity is fixed and each invocation of {@link #cluster(Stream)} scans all handles once, so this clustering
+ * should process large batches of pairs. This class is thread-safe, but the handle extractor needs to be
+ * thread-safe as well.</p>
+ *
+ * @param <C> the type of the cluster id.
+ * @param <T> the type of the record.
+ * @param <I> the type of the record id.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ConcurrentUnionFindClustering<C extends Comparable<C>, T, I> implements Clustering<C, T, I> {
+    /**
+     * Extracts the handle of a record in the range of {@code 0} to {@code capacity - 1}.
+     */
+    @Getter
+    @NonNull ToIntFunction<? super T> handleExtractor;
+    /**
+     * Extracts the id of a record for the {@link #clusterIdGenerator}.
+     */
+    @Getter
+    @NonNull Function<? super T, ? extends I> idExtractor;
+    @Getter
+    @NonNull Function<Iterable<I>, C> clusterIdGenerator;
+    ConcurrentUnionFind unionFind;
+    AtomicReferenceArray<T> records;
+    /**
+     * The ids of the returned clusters indexed by their root.
+     */
+    AtomicReferenceArray<C> clusterIds;
+
+    /**
+     * Creates a concurrent clustering.
+     *
+     * @param handleExtractor extracts the handle of a record.
+     * @param capacity the number of handles.
+     * @param idExtractor extracts the id of a record.
+     * @param clusterIdGenerator the generator for ids of clusters.
+     */
+    @Builder
+    private ConcurrentUnionFindClustering(final @NonNull ToIntFunction<? super T> handleExtractor, final int capacity,
+            final @NonNull Function<? super T, ? extends I> idExtractor,
+            final @NonNull Function<Iterable<I>, C> clusterIdGenerator) {
+        this.handleExtractor = handleExtractor;
+        this.idExtractor = idExtractor;
+        this.clusterIdGenerator = clusterIdGenerator;
+        this.unionFind = new ConcurrentUnionFind(capacity);
+        this.records = new AtomicReferenceArray<>(capacity);
+        this.clusterIds = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Merges the records of all duplicates and returns the clusters of these records. The stream may be parallel.
+     *
+     * @param classifiedCandidates the list of classified candidates.
+     * @return the clusters of all records of duplicate pairs including records of previous invocations.
+     * @throws IllegalArgumentException if a handle is out of range.
+     */
+    @Override
+    public @NonNull Stream<Cluster<C, T>> cluster(final @NonNull Stream<ClassifiedCandidate<T>> classifiedCandidates) {
+        final int capacity = this.unionFind.size();
+        final AtomicLongArray clusteredHandles = createBitSet(capacity);
+        classifiedCandidates
+                .filter(classifiedCandidate -> classifiedCandidate.getClassificationResult().getClassification()
+                        == Classification.DUPLICATE)
+                .map(ClassifiedCandidate::getCandidate)
+                .forEach(duplicate -> setBit(clusteredHandles, this.union(duplicate)));
+
+        final AtomicLongArray changedRoots = createBitSet(capacity);
+        IntStream.range(0, clusteredHandles.length())
+                .parallel()
+                .forEach(word -> {
+                    for (long bits = clusteredHandles.get(word); bits != 0; bits &= bits - 1) {
+                        final int handle = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                        setBit(changedRoots, this.unionFind.find(handle));
+                    }
+                });
+        final Map<Integer, List<Integer>> components = IntStream.range(0, capacity)
+                .parallel()
+                .filter(handle -> this.records.get(handle) != null && getBit(changedRoots, this.unionFind.find(handle)))
+                .boxed()
+                .collect(Collectors.groupingBy(this.unionFind::find, TreeMap::new, Collectors.toList()));
+        final List<Cluster<C, T>> clusters = new ArrayList<>(components.size());
+        synchronized (this.clusterIds) {
+            for (final Map.Entry<Integer, List<Integer>> component : components.entrySet()) {
+                final List<T> elements = component.getValue().stream()
+                        .map(this.records::get)
+                        .collect(Collectors.toList());
+                clusters.add(new Cluster<>(this.getClusterId(component.getKey(), component.getValue(), elements),
+                        elements));
+            }
+        }
+        return clusters.stream();
+    }
+
+    /**
+     * Returns the id of the previous cluster with the smallest root among the handles, or generates a new id. The
+     * previous roots of merged clusters are cleared.
+     */
+    private C getClusterId(final int root, final List<Integer> handles, final List<T> elements) {
+        C clusterId = null;
+        for (final int handle : handles) {
+            final C previousId = this.clusterIds.getAndSet(handle, null);
+            if (clusterId == null) {
+                clusterId = previousId;
+            }
+        }
+        if (clusterId == null) {
+            final List<I> ids = elements.stream().map(this.idExtractor).collect(Collectors.toList());
+            clusterId = this.clusterIdGenerator.apply(ids);
+        }
+        this.clusterIds.set(root, clusterId);
+        return clusterId;
+    }
+
+    private static AtomicLongArray createBitSet(final int size) {
+        return new AtomicLongArray((size + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    private static void setBit(final AtomicLongArray bitSet, final int index) {
+        final long mask = 1L << index;
+        final int word = index / Long.SIZE;
+        // avoids contended writes for handles of large clusters
+        if ((bitSet.get(word) & mask) == 0) {
+            bitSet.getAndAccumulate(word, mask, (bits, bit) -> bits | bit);
+        }
+    }
+
+    private static boolean getBit(final AtomicLongArray bitSet, final int index) {
+        return (bitSet.get(index / Long.SIZE) & (1L << index)) != 0;
+    }
+
+    private int union(final Candidate<T> duplicate) {
+        final int handle1 = this.register(duplicate.getRecord1());
+        final int handle2 = this.register(duplicate.getRecord2());
+        this.unionFind.union(handle1, handle2);
+        return handle1;
+    }
+
+    private int register(final T record) {
+        final int handle = this.handleExtractor.applyAsInt(record);
+        if (handle < 0 || handle >= this.records.length()) {
+            throw new IllegalArgumentException("Handle " + handle + " of " + record + " is out of range");
+        }
+        this.records.set(handle, record);
+        return handle;
+    }
+}
@@ -26,9 +26,14 @@ package com.bakdata.dedupe.clustering;
 import com.bakdata.dedupe.candidate_selection.Candidate;
 import com.bakdata.dedupe.candidate_selection.online.OnlineCandidate;
 import com.bakdata.dedupe.classifier.ClassifiedCandidate;
+import com.bakdata.dedupe.classifier.Classifier;
+import com.bakdata.dedupe.deduplication.online.SnapshotInput;
+import com.bakdata.dedupe.deduplication.online.SnapshotOutput;
+import com.bakdata.dedupe.deduplication.online.Snapshottable;
+import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -53,12 +58,13 @@ import lombok.Value;
  * </p>
  * It thus trades off clustering accuracy to increase reliability of subsequent data processing.
  *
- * @implNote This implementation materializes all clusters returned by {@link Clustering}.
+ * @implNote This implementation materializes all clusters returned by {@link Clustering}. A snapshot contains the
+ * internal closure and the state of the wrapped clustering, if it is {@link Snapshottable}.
  */
 @Value
 @Builder
 public class ConsistentClustering<C extends Comparable<C>, T, I extends Comparable<? super I>>
-        implements Clustering<C, T, I> {
+        implements Clustering<C, T, I>, Snapshottable {
     /**
      * The wrapped clustering.
      */
@@ -108,9 +114,52 @@ public class ConsistentClustering<C extends Comparable<C>, T, I extends Comparab
         return this.clustering.getClusterIdGenerator();
     }
 
+    /**
+     * Returns the cluster of the internal closure, which keeps previously returned clusters together, or the cluster
+     * of the wrapped clustering.
+     *
+     * @param record the record.
+     * @return the cluster of the record or {@link Optional#empty()} if the record is not part of any cluster.
+     */
+    @Override
+    public @NonNull Optional<Cluster<C, T>> getCluster(final @NonNull T record) {
+        final Optional<Cluster<C, T>> keptCluster = this.getInternalClosure().getCluster(record);
+        return keptCluster.isPresent() ? keptCluster : this.clustering.getCluster(record);
+    }
+
+    /**
+     * Removes the record from the wrapped clustering and from the internal closure. As the removal is an explicit
+     * request, the wrapped clustering may split the former cluster.
+     *
+     * @param record the record to remove.
+     * @param classifier the classifier to reevaluate pairs of the remaining records.
+     * @return the parts of the former cluster as returned by the wrapped clustering.
+     */
+    @Override
+    public @NonNull Stream<Cluster<C, T>> remove(final @NonNull T record, final @NonNull Classifier<T> classifier) {
+        this.getInternalClosure().evict(List.of(record));
+        return this.clustering.remove(record, classifier);
+    }
+
+    @Override
+    public void writeSnapshot(final @NonNull SnapshotOutput output) throws IOException {
+        if (this.clustering instanceof Snapshottable) {
+            ((Snapshottable) this.clustering).writeSnapshot(output);
+        }
+        this.getInternalClosure().writeSnapshot(output);
+    }
+
+    @Override
+    public void restoreSnapshot(final @NonNull SnapshotInput input) throws IOException {
+        if (this.clustering instanceof Snapshottable) {
+            ((Snapshottable) this.clustering).restoreSnapshot(input);
+        }
+        this.getInternalClosure().restoreSnapshot(input);
+    }
+
     private boolean noRecordInIndex(final Collection<? extends Cluster<C, T>> clusters) {
-        final Map<I, Cluster<C, T>> clusterIndex = this.getInternalClosure().getClusterIndex();
+        final ClusterStore<C, T, I> clusterStore = this.getInternalClosure().getClusterStore();
         return clusters.stream().flatMap(cluster -> cluster.getElements().stream())
-                .allMatch(element -> clusterIndex.get(this.idExtractor.apply(element)) == null);
+                .allMatch(element -> clusterStore.getCluster(this.idExtractor.apply(element)).isEmpty());
     }
 }
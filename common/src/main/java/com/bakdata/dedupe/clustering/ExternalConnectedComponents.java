@@ -0,0 +1,499 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.clustering;
+
+import com.bakdata.dedupe.candidate_selection.Candidate;
+import com.bakdata.dedupe.classifier.Classification;
+import com.bakdata.dedupe.classifier.ClassifiedCandidate;
+import com.bakdata.util.Codec;
+import com.google.common.collect.PeekingIterator;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+
+
+/**
+ * Computes the connected components of duplicate pairs that do not fit into memory, such as the duplicates of a large
+ * offline deduplication. The resulting clusters are the same as the ones of a {@link TransitiveClosure} over the same
+ * pairs, but the heap usage is bounded by a small multiple of {@link #maxTuplesInMemory} and the size of the largest
+ * cluster.
+ * <p>All intermediate data is kept in sorted files of fixed-size tuples in a temporary subdirectory of {@link
+ * #directory}:</p>
+ * <ul>
+ * <li>The records of all pairs are appended to a record file, unless their id is among the {@link
+ * #maxTuplesInMemory} most recently seen ids. Thus, the file only contains the first occurrences of records that
+ * reoccur while they are recent, which is typical for the pairs of a sorted neighborhood. The position of the first
+ * occurrence of a record id becomes its node, which is found by sorting the 128 bit hashes of the record ids.</li>
+ * <li>The pairs are translated into edges between nodes by two sort-merge joins.</li>
+ * <li>The smallest node of each component is propagated along the sorted edges until no label changes. Only nodes
+ * whose label changed in the previous iteration send their label, such that the number of iterations is bounded by
+ * the diameter of the largest component.</li>
+ * <li>The nodes are sorted by label and read cluster by cluster from the record file.</li>
+ * </ul>
+ * <p>Each sort merges at most {@link #maxFanIn} files at once and uses multiple merge passes for larger inputs.</p>
+ * <p>The clusters are returned in the order of the first occurrence of their first record and contain their records in
+ * the order of first occurrence. The cluster ids are generated in this order. The returned stream reads the clusters
+ * lazily and deletes the temporary files when it is exhausted or closed.</p>
+ * <p>This class is thread-safe, as each invocation works on its own files.</p>
+ *
+ * @param <C> the type of the cluster id.
+ * @param <T> the type of the record.
+ * @param <I> the type of the record id.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ExternalConnectedComponents<C extends Comparable<C>, T, I> implements Clustering<C, T, I> {
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    /**
+     * The directory for temporary files.
+     */
+    @Getter
+    @NonNull Path directory;
+    /**
+     * Extracts the id of the record.
+     */
+    @Getter
+    @NonNull Function<? super T, ? extends I> idExtractor;
+    /**
+     * The binary encoding of the record ids, which is hashed to identify the records.
+     */
+    @Getter
+    @NonNull Codec<I> recordIdCodec;
+    /**
+     * The binary encoding of the records in the record file.
+     */
+    @Getter
+    @NonNull Codec<T> recordCodec;
+    @Getter
+    @NonNull Function<Iterable<I>, C> clusterIdGenerator;
+    /**
+     * The maximum number of tuples of each sort buffer. Defaults to 1048576.
+     */
+    @Getter
+    int maxTuplesInMemory;
+    /**
+     * The maximum number of sorted files that are merged at once. Defaults to 64.
+     */
+    @Getter
+    int maxFanIn;
+
+    @Builder
+    private ExternalConnectedComponents(final @NonNull Path directory,
+            final @NonNull Function<? super T, ? extends I> idExtractor, final @NonNull Codec<I> recordIdCodec,
+            final @NonNull Codec<T> recordCodec, final @NonNull Function<Iterable<I>, C> clusterIdGenerator,
+            final Integer maxTuplesInMemory, final Integer maxFanIn) {
+        this.directory = directory;
+        this.idExtractor = idExtractor;
+        this.recordIdCodec = recordIdCodec;
+        this.recordCodec = recordCodec;
+        this.clusterIdGenerator = clusterIdGenerator;
+        this.maxTuplesInMemory = maxTuplesInMemory != null ? maxTuplesInMemory : 1 << 20;
+        this.maxFanIn = maxFanIn != null ? maxFanIn : 64;
+    }
+
+    @Override
+    public @NonNull Stream<Cluster<C, T>> cluster(final @NonNull Stream<ClassifiedCandidate<T>> classifiedCandidates) {
+        final Stream<Candidate<T>> duplicates = classifiedCandidates
+                .filter(classifiedCandidate -> classifiedCandidate.getClassificationResult().getClassification()
+                        == Classification.DUPLICATE)
+                .map(ClassifiedCandidate::getCandidate);
+        return this.clusterDuplicates(duplicates::iterator);
+    }
+
+    /**
+     * Computes the connected components of the duplicates, which are only traversed once.
+     *
+     * @param duplicates the duplicate pairs.
+     * @return the clusters of all records of the duplicates, which should be closed if not fully consumed.
+     * @throws UncheckedIOException if the temporary files cannot be written.
+     */
+    public @NonNull Stream<Cluster<C, T>> clusterDuplicates(
+            final @NonNull Iterable<? extends Candidate<T>> duplicates) {
+        final Computation computation;
+        try {
+            computation = new Computation(Files.createTempDirectory(this.directory, "components"));
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot create temporary directory in " + this.directory, e);
+        }
+        try {
+            final Iterator<Cluster<C, T>> clusters = computation.compute(duplicates);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(clusters, Spliterator.ORDERED), false)
+                    .onClose(computation::close);
+        } catch (final RuntimeException e) {
+            computation.close();
+            throw e;
+        }
+    }
+
+    private static boolean hasSameKey(final long[] tuple, final long[] other) {
+        return tuple[0] == other[0] && tuple[1] == other[1];
+    }
+
+    /**
+     * The 128 bit hash of a record id.
+     */
+    @Value
+    private static class HashedId {
+        long high;
+        long low;
+    }
+
+    /**
+     * The files of a single invocation.
+     */
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    private class Computation implements Closeable {
+        Path workDirectory;
+        Path recordFile;
+        List<ExternalTupleSorter> sorters = new ArrayList<>();
+        /**
+         * The most recently seen record ids, which are not appended to the record file again.
+         */
+        Map<HashedId, Boolean> recentIds = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<HashedId, Boolean> eldest) {
+                return this.size() > ExternalConnectedComponents.this.maxTuplesInMemory;
+            }
+        };
+        @NonFinal
+        FileChannel recordReader;
+        @NonFinal
+        boolean closed;
+
+        Computation(final Path workDirectory) {
+            this.workDirectory = workDirectory;
+            this.recordFile = workDirectory.resolve("records.bin");
+        }
+
+        Iterator<Cluster<C, T>> compute(final Iterable<? extends Candidate<T>> duplicates) {
+            // (hash of record id, record position)
+            final ExternalTupleSorter occurrences = this.createSorter(3);
+            // (hash of first record id, hash of second record id)
+            final ExternalTupleSorter hashedPairs = this.createSorter(4);
+            try (final RecordWriter writer = new RecordWriter()) {
+                for (final Candidate<T> duplicate : duplicates) {
+                    final HashedId hash1 = this.addOccurrence(duplicate.getRecord1(), writer, occurrences);
+                    final HashedId hash2 = this.addOccurrence(duplicate.getRecord2(), writer, occurrences);
+                    hashedPairs.add(hash1.getHigh(), hash1.getLow(), hash2.getHigh(), hash2.getLow());
+                }
+            }
+            this.recentIds.clear();
+
+            // (hash of record id, node)
+            final ExternalTupleSorter nodes = this.createSorter(3);
+            long[] previous = null;
+            for (final Iterator<long[]> iterator = occurrences.sorted(); iterator.hasNext(); ) {
+                final long[] occurrence = iterator.next();
+                if (previous == null || !hasSameKey(previous, occurrence)) {
+                    nodes.add(occurrence);
+                    previous = occurrence;
+                }
+            }
+            this.close(occurrences);
+
+            // (hash of second record id, first node)
+            final ExternalTupleSorter halfTranslatedPairs = this.createSorter(3);
+            joinNodes(hashedPairs.sorted(), nodes.sorted(),
+                    (pair, node) -> halfTranslatedPairs.add(pair[2], pair[3], node));
+            this.close(hashedPairs);
+            // (source node, target node) in both directions
+            final ExternalTupleSorter edges = this.createSorter(2);
+            joinNodes(halfTranslatedPairs.sorted(), nodes.sorted(), (pair, node) -> {
+                edges.add(pair[2], node);
+                edges.add(node, pair[2]);
+            });
+            this.close(halfTranslatedPairs);
+            this.close(nodes);
+
+            final ExternalTupleSorter labels = this.propagateLabels(edges);
+            this.close(edges);
+            // (label, node)
+            final ExternalTupleSorter members = this.createSorter(2);
+            for (final Iterator<long[]> iterator = labels.sorted(); iterator.hasNext(); ) {
+                final long[] label = iterator.next();
+                members.add(label[1], label[0]);
+            }
+            this.close(labels);
+            try {
+                this.recordReader = FileChannel.open(this.recordFile);
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Cannot read " + this.recordFile, e);
+            }
+            return new ClusterIterator(members.sorted());
+        }
+
+        /**
+         * Returns the (node, smallest node of component, changed flag) tuples.
+         */
+        private ExternalTupleSorter propagateLabels(final ExternalTupleSorter edges) {
+            ExternalTupleSorter labels = this.createSorter(3);
+            final PeekingIterator<long[]> initialEdges = edges.sorted();
+            while (initialEdges.hasNext()) {
+                final long node = initialEdges.peek()[0];
+                long label = node;
+                while (initialEdges.hasNext() && initialEdges.peek()[0] == node) {
+                    label = Math.min(label, initialEdges.next()[1]);
+                }
+                labels.add(node, label, 1);
+            }
+
+            boolean changed = true;
+            while (changed) {
+                // (target node, label of changed source node)
+                final ExternalTupleSorter messages = this.createSorter(2);
+                final PeekingIterator<long[]> labelIterator = labels.sorted();
+                for (final Iterator<long[]> iterator = edges.sorted(); iterator.hasNext(); ) {
+                    final long[] edge = iterator.next();
+                    while (labelIterator.peek()[0] < edge[0]) {
+                        labelIterator.next();
+                    }
+                    final long[] sourceLabel = labelIterator.peek();
+                    if (sourceLabel[2] != 0 && sourceLabel[1] < edge[1]) {
+                        messages.add(edge[1], sourceLabel[1]);
+                    }
+                }
+
+                changed = false;
+                final ExternalTupleSorter updatedLabels = this.createSorter(3);
+                final PeekingIterator<long[]> messageIterator = messages.sorted();
+                for (final Iterator<long[]> iterator = labels.sorted(); iterator.hasNext(); ) {
+                    final long[] label = iterator.next();
+                    long updatedLabel = label[1];
+                    while (messageIterator.hasNext() && messageIterator.peek()[0] == label[0]) {
+                        updatedLabel = Math.min(updatedLabel, messageIterator.next()[1]);
+                    }
+                    final boolean labelChanged = updatedLabel < label[1];
+                    changed |= labelChanged;
+                    updatedLabels.add(label[0], updatedLabel, labelChanged ? 1 : 0);
+                }
+                this.close(messages);
+                this.close(labels);
+                labels = updatedLabels;
+            }
+            return labels;
+        }
+
+        private HashedId addOccurrence(final T record, final RecordWriter writer,
+                final ExternalTupleSorter occurrences) {
+            final ByteBuffer hash = ByteBuffer.wrap(HASH_FUNCTION.hashBytes(
+                    ExternalConnectedComponents.this.recordIdCodec.toBytes(
+                            ExternalConnectedComponents.this.idExtractor.apply(record))).asBytes());
+            final HashedId hashedId = new HashedId(hash.getLong(), hash.getLong());
+            // a recent id has already been written and its first occurrence is known
+            if (this.recentIds.put(hashedId, Boolean.TRUE) == null) {
+                occurrences.add(hashedId.getHigh(), hashedId.getLow(), writer.append(record));
+            }
+            return hashedId;
+        }
+
+        /**
+         * Joins tuples that start with a hashed record id with the node of that record id.
+         */
+        private void joinNodes(final Iterator<long[]> tuples, final PeekingIterator<long[]> nodes,
+                final BiConsumer<long[], Long> consumer) {
+            final Comparator<long[]> keyOrder = Comparator.<long[]>comparingLong(tuple -> tuple[0])
+                    .thenComparingLong(tuple -> tuple[1]);
+            while (tuples.hasNext()) {
+                final long[] tuple = tuples.next();
+                while (keyOrder.compare(nodes.peek(), tuple) < 0) {
+                    nodes.next();
+                }
+                consumer.accept(tuple, nodes.peek()[2]);
+            }
+        }
+
+        private ExternalTupleSorter createSorter(final int width) {
+            final ExternalTupleSorter sorter = new ExternalTupleSorter(this.workDirectory, width,
+                    ExternalConnectedComponents.this.maxTuplesInMemory, ExternalConnectedComponents.this.maxFanIn);
+            this.sorters.add(sorter);
+            return sorter;
+        }
+
+        private void close(final ExternalTupleSorter sorter) {
+            try {
+                sorter.close();
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Cannot delete temporary files in " + this.workDirectory, e);
+            }
+            this.sorters.remove(sorter);
+        }
+
+        private T readRecord(final long position) {
+            try {
+                final ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+                this.readFully(length, position);
+                final ByteBuffer payload = ByteBuffer.allocate(length.getInt(0));
+                this.readFully(payload, position + Integer.BYTES);
+                return ExternalConnectedComponents.this.recordCodec.read(
+                        new DataInputStream(new ByteArrayInputStream(payload.array())));
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Cannot read " + this.recordFile, e);
+            }
+        }
+
+        private void readFully(final ByteBuffer buffer, final long offset) throws IOException {
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                final int read = this.recordReader.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of record file at " + position);
+                }
+                position += read;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            try {
+                for (final ExternalTupleSorter sorter : this.sorters) {
+                    sorter.close();
+                }
+                this.sorters.clear();
+                if (this.recordReader != null) {
+                    this.recordReader.close();
+                }
+                Files.deleteIfExists(this.recordFile);
+                Files.deleteIfExists(this.workDirectory);
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Cannot delete temporary files in " + this.workDirectory, e);
+            }
+        }
+
+        /**
+         * Appends length-prefixed records to the record file.
+         */
+        private class RecordWriter implements Closeable {
+            private final DataOutputStream output;
+            private long position;
+
+            RecordWriter() {
+                try {
+                    this.output = new DataOutputStream(new BufferedOutputStream(
+                            Files.newOutputStream(Computation.this.recordFile)));
+                } catch (final IOException e) {
+                    throw new UncheckedIOException("Cannot write " + Computation.this.recordFile, e);
+                }
+            }
+
+            long append(final T record) {
+                final byte[] bytes = ExternalConnectedComponents.this.recordCodec.toBytes(record);
+                final long recordPosition = this.position;
+                try {
+                    this.output.writeInt(bytes.length);
+                    this.output.write(bytes);
+                } catch (final IOException e) {
+                    throw new UncheckedIOException("Cannot write " + Computation.this.recordFile, e);
+                }
+                this.position += Integer.BYTES + bytes.length;
+                return recordPosition;
+            }
+
+            @Override
+            public void close() {
+                try {
+                    this.output.close();
+                } catch (final IOException e) {
+                    throw new UncheckedIOException("Cannot write " + Computation.this.recordFile, e);
+                }
+            }
+        }
+
+        /**
+         * Reads the records of the (label, node) tuples cluster by cluster.
+         */
+        private class ClusterIterator implements Iterator<Cluster<C, T>> {
+            private final PeekingIterator<long[]> members;
+            // the members must not be accessed after closing, as closing clears in-memory tuples
+            private boolean exhausted;
+
+            ClusterIterator(final PeekingIterator<long[]> members) {
+                this.members = members;
+                this.closeIfExhausted();
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !this.exhausted;
+            }
+
+            @Override
+            public Cluster<C, T> next() {
+                if (this.exhausted) {
+                    throw new NoSuchElementException();
+                }
+                final long label = this.members.peek()[0];
+                final List<T> elements = new ArrayList<>();
+                while (this.members.hasNext() && this.members.peek()[0] == label) {
+                    elements.add(Computation.this.readRecord(this.members.next()[1]));
+                }
+                this.closeIfExhausted();
+                final List<I> ids = elements.stream()
+                        .map(ExternalConnectedComponents.this.idExtractor)
+                        .collect(Collectors.toList());
+                return new Cluster<>(ExternalConnectedComponents.this.clusterIdGenerator.apply(ids), elements);
+            }
+
+            private void closeIfExhausted() {
+                if (!this.members.hasNext()) {
+                    this.exhausted = true;
+                    Computation.this.close();
+                }
+            }
+        }
+    }
+}
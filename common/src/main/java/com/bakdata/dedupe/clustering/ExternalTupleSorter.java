@@ -0,0 +1,242 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.clustering;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+
+
+/**
+ * Sorts tuples of a fixed number of longs lexicographically with a bounded heap.
+ * <p>The tuples are buffered until {@link #maxTuplesInMemory} tuples are reached. Then, the buffer is sorted and
+ * spilled as a run into a temporary file. The sorted tuples are obtained by merging all runs, which may be repeated
+ * multiple times after all tuples have been added.</p>
+ * <p>At most {@link #maxFanIn} runs are read at the same time to bound the number of open files and read buffers. If
+ * there are more runs, groups of runs are merged into larger runs in multiple passes until the remaining runs can be
+ * merged at once.</p>
+ * <p>This class is not thread-safe.</p>
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+class ExternalTupleSorter implements Closeable {
+    private static final Comparator<long[]> TUPLE_ORDER = Arrays::compare;
+    @NonNull Path directory;
+    int width;
+    int maxTuplesInMemory;
+    int maxFanIn;
+    List<Path> runs = new ArrayList<>();
+    List<Closeable> openReaders = new ArrayList<>();
+    List<long[]> buffer = new ArrayList<>();
+    @NonFinal
+    boolean sorted;
+
+    ExternalTupleSorter(final @NonNull Path directory, final int width, final int maxTuplesInMemory,
+            final int maxFanIn) {
+        if (maxTuplesInMemory < 1) {
+            throw new IllegalArgumentException("At least one tuple needs to fit into memory: " + maxTuplesInMemory);
+        }
+        if (maxFanIn < 2) {
+            throw new IllegalArgumentException("At least two runs need to be merged at once: " + maxFanIn);
+        }
+        this.directory = directory;
+        this.width = width;
+        this.maxTuplesInMemory = maxTuplesInMemory;
+        this.maxFanIn = maxFanIn;
+    }
+
+    void add(final long... tuple) {
+        if (this.sorted) {
+            throw new IllegalStateException("Tuples have already been sorted");
+        }
+        if (tuple.length != this.width) {
+            throw new IllegalArgumentException("Expected " + this.width + " values, but got " + tuple.length);
+        }
+        this.buffer.add(tuple);
+        if (this.buffer.size() >= this.maxTuplesInMemory) {
+            this.spill();
+        }
+    }
+
+    /**
+     * Returns all added tuples in lexicographical order. No tuples may be added afterwards.
+     */
+    PeekingIterator<long[]> sorted() {
+        if (!this.sorted) {
+            if (this.runs.isEmpty()) {
+                this.buffer.sort(TUPLE_ORDER);
+            } else if (!this.buffer.isEmpty()) {
+                this.spill();
+            }
+            this.mergeRuns();
+            this.sorted = true;
+        }
+        if (this.runs.isEmpty()) {
+            return Iterators.peekingIterator(this.buffer.iterator());
+        }
+        return Iterators.peekingIterator(this.merge(this.runs));
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (final Closeable reader : this.openReaders) {
+            reader.close();
+        }
+        this.openReaders.clear();
+        for (final Path run : this.runs) {
+            Files.deleteIfExists(run);
+        }
+        this.runs.clear();
+        this.buffer.clear();
+    }
+
+    private void spill() {
+        this.buffer.sort(TUPLE_ORDER);
+        this.writeRun(this.buffer.iterator());
+        this.buffer.clear();
+    }
+
+    /**
+     * Merges groups of {@link #maxFanIn} runs into new runs until all runs can be merged at once.
+     */
+    private void mergeRuns() {
+        while (this.runs.size() > this.maxFanIn) {
+            final List<Path> pass = new ArrayList<>(this.runs);
+            for (int start = 0; start < pass.size(); start += this.maxFanIn) {
+                final List<Path> group = pass.subList(start, Math.min(start + this.maxFanIn, pass.size()));
+                if (group.size() > 1) {
+                    this.writeRun(this.merge(group));
+                    this.delete(group);
+                }
+            }
+        }
+    }
+
+    private Iterator<long[]> merge(final List<Path> runs) {
+        final List<Iterator<long[]>> readers = new ArrayList<>(runs.size());
+        for (final Path run : runs) {
+            readers.add(this.read(run));
+        }
+        return Iterators.mergeSorted(readers, TUPLE_ORDER);
+    }
+
+    private void writeRun(final Iterator<long[]> tuples) {
+        try {
+            final Path run = Files.createTempFile(this.directory, "run", ".bin");
+            this.runs.add(run);
+            try (final DataOutputStream output =
+                    new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+                while (tuples.hasNext()) {
+                    for (final long value : tuples.next()) {
+                        output.writeLong(value);
+                    }
+                }
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot spill tuples to " + this.directory, e);
+        }
+    }
+
+    private void delete(final List<Path> mergedRuns) {
+        for (final Path run : mergedRuns) {
+            try {
+                Files.deleteIfExists(run);
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Cannot delete run " + run, e);
+            }
+            this.runs.remove(run);
+        }
+    }
+
+    private Iterator<long[]> read(final Path run) {
+        final DataInputStream input;
+        try {
+            input = new DataInputStream(new BufferedInputStream(Files.newInputStream(run)));
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot read run " + run, e);
+        }
+        this.openReaders.add(input);
+        return new Iterator<>() {
+            private long[] next = this.readNext();
+
+            @Override
+            public boolean hasNext() {
+                return this.next != null;
+            }
+
+            @Override
+            public long[] next() {
+                if (this.next == null) {
+                    throw new NoSuchElementException();
+                }
+                final long[] current = this.next;
+                this.next = this.readNext();
+                return current;
+            }
+
+            private long[] readNext() {
+                final long[] tuple = new long[ExternalTupleSorter.this.width];
+                try {
+                    tuple[0] = input.readLong();
+                    for (int index = 1; index < tuple.length; index++) {
+                        tuple[index] = input.readLong();
+                    }
+                    return tuple;
+                } catch (final EOFException e) {
+                    this.close();
+                    return null;
+                } catch (final IOException e) {
+                    throw new UncheckedIOException("Cannot read run " + run, e);
+                }
+            }
+
+            private void close() {
+                try {
+                    input.close();
+                } catch (final IOException e) {
+                    throw new UncheckedIOException("Cannot close run " + run, e);
+                }
+                ExternalTupleSorter.this.openReaders.remove(input);
+            }
+        };
+    }
+}
@@ -0,0 +1,612 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.clustering;
+
+import com.bakdata.dedupe.deduplication.online.SnapshotInput;
+import com.bakdata.dedupe.deduplication.online.SnapshotOutput;
+import com.bakdata.util.Codec;
+import com.bakdata.util.MappedLongArray;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+
+
+/**
+ * A {@link ClusterStore} on local disk with bounded heap usage, which scales to hundreds of millions of records.
+ * <p>The store consists of three files in the {@link #directory}:</p>
+ * <ul>
+ * <li>A memory-mapped hash table from the 128 bit hash of each record id to the internal handle of its cluster.</li>
+ * <li>A memory-mapped array from cluster handle to the latest position of the cluster in the cluster log.</li>
+ * <li>An append-only cluster log of compactly encoded member lists. Records added to an existing cluster are appended
+ * as a small delta that points to the previous part of the cluster, such that clusters are not rewritten on each
+ * change. Long chains of deltas are compacted into a single entry on the next write.</li>
+ * </ul>
+ * <p>Recently used clusters are kept in a write-back cache of {@link #cacheSize} clusters, which are only written to
+ * the cluster log when they are evicted from the cache or on {@link #flush()}. Thus, the store is only consistent on
+ * disk after {@link #flush()} or {@link #close()}. The cluster log is never compacted, such that it grows with each
+ * merge of clusters.</p>
+ * <p>A snapshot only contains the indexes and the length of the cluster log, which is truncated on restore.</p>
+ * <p>This class is thread-safe. All operations are serialized, as even lookups modify the access order of the cache
+ * and may write back evicted clusters.</p>
+ *
+ * @param <C> the type of the cluster id.
+ * @param <T> the type of the record.
+ * @param <I> the type of the record id.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class FileClusterStore<C extends Comparable<C>, T, I> implements ClusterStore<C, T, I>, Closeable {
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    private static final String RECORD_INDEX = "records.idx";
+    private static final String CLUSTER_INDEX = "clusters.idx";
+    private static final String CLUSTER_LOG = "clusters.log";
+    private static final int SLOT_LENGTH = 3;
+    private static final int HEADER_LENGTH = 3;
+    private static final long EMPTY = 0;
+    private static final long DELETED = -1;
+    private static final long NO_HANDLE = -1;
+    private static final int CHECKSUM_LENGTH = 4096;
+
+    /**
+     * The directory of the store files.
+     */
+    @Getter
+    @NonNull Path directory;
+    /**
+     * Extracts the id of the record.
+     */
+    @Getter
+    @NonNull Function<? super T, ? extends I> idExtractor;
+    /**
+     * The binary encoding of the record ids, which is hashed for the record index.
+     */
+    @Getter
+    @NonNull Codec<I> recordIdCodec;
+    /**
+     * The binary encoding of the cluster ids.
+     */
+    @Getter
+    @NonNull Codec<C> clusterIdCodec;
+    /**
+     * The binary encoding of the records.
+     */
+    @Getter
+    @NonNull Codec<T> recordCodec;
+    /**
+     * The maximum number of clusters in the write-back cache. Defaults to 10000.
+     */
+    @Getter
+    int cacheSize;
+    /**
+     * The maximum number of deltas of a cluster in the cluster log before it is compacted. Defaults to 8.
+     */
+    @Getter
+    int maxChainLength;
+    @NonFinal
+    MappedLongArray recordIndex;
+    MappedLongArray clusterIndex;
+    FileChannel clusterLog;
+    Map<Long, CachedCluster> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    @Builder
+    private FileClusterStore(final @NonNull Path directory, final @NonNull Function<? super T, ? extends I> idExtractor,
+            final @NonNull Codec<I> recordIdCodec, final @NonNull Codec<C> clusterIdCodec,
+            final @NonNull Codec<T> recordCodec, final Integer cacheSize, final Integer maxChainLength,
+            final Integer initialCapacity) {
+        this.directory = directory;
+        this.idExtractor = idExtractor;
+        this.recordIdCodec = recordIdCodec;
+        this.clusterIdCodec = clusterIdCodec;
+        this.recordCodec = recordCodec;
+        this.cacheSize = cacheSize != null ? cacheSize : 10_000;
+        this.maxChainLength = maxChainLength != null ? maxChainLength : 8;
+        try {
+            Files.createDirectories(directory);
+            this.recordIndex = MappedLongArray.open(directory.resolve(RECORD_INDEX));
+            if (this.recordIndex.get(0) == 0) {
+                initRecordIndex(this.recordIndex,
+                        Long.highestOneBit(Math.max(16, initialCapacity != null ? initialCapacity : 1 << 16)));
+            }
+            this.clusterIndex = MappedLongArray.open(directory.resolve(CLUSTER_INDEX));
+            if (this.clusterIndex.get(0) == 0) {
+                // handle 0 is reserved for the next handle
+                this.clusterIndex.set(0, 1);
+            }
+            this.clusterLog = FileChannel.open(directory.resolve(CLUSTER_LOG), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot open cluster store in " + directory, e);
+        }
+    }
+
+    @Override
+    public synchronized @NonNull Optional<Cluster<C, T>> getCluster(final @NonNull I recordId) {
+        final long handle = this.findHandle(recordId);
+        if (handle == NO_HANDLE) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(this.load(handle)).map(CachedCluster::getCluster);
+    }
+
+    @Override
+    public synchronized void saveCluster(final @NonNull Cluster<C, T> cluster) {
+        final Set<I> recordIds = new HashSet<>();
+        CachedCluster previous = null;
+        for (final T element : cluster.getElements()) {
+            final I recordId = this.idExtractor.apply(element);
+            recordIds.add(recordId);
+            final long handle = this.findHandle(recordId);
+            if (previous == null && handle != NO_HANDLE) {
+                final CachedCluster candidate = this.load(handle);
+                if (candidate != null && candidate.getCluster().getId().equals(cluster.getId())) {
+                    previous = candidate;
+                }
+            }
+        }
+
+        final CachedCluster saved;
+        if (previous != null) {
+            for (final T element : previous.getCluster().getElements()) {
+                final I recordId = this.idExtractor.apply(element);
+                if (!recordIds.contains(recordId)) {
+                    this.removeRecord(recordId, previous.getHandle());
+                }
+            }
+            saved = previous;
+            saved.replace(cluster);
+        } else {
+            final long handle = this.clusterIndex.get(0);
+            this.clusterIndex.ensureLength(handle + 1);
+            this.clusterIndex.set(0, handle + 1);
+            saved = new CachedCluster(handle, cluster, 0, true);
+            this.cache.put(handle, saved);
+        }
+        for (final I recordId : recordIds) {
+            this.putHandle(recordId, saved.getHandle());
+        }
+        this.evictFromCache();
+    }
+
+    @Override
+    public synchronized void addToCluster(final @NonNull Cluster<C, T> cluster, final @NonNull T record) {
+        final CachedCluster stored = this.getStoredCluster(cluster)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown cluster " + cluster.getId()));
+        cluster.add(record);
+        if (stored.getCluster() != cluster) {
+            // the given instance has been evicted from the cache in the meantime
+            stored.getCluster().add(record);
+        }
+        this.putHandle(this.idExtractor.apply(record), stored.getHandle());
+        this.evictFromCache();
+    }
+
+    @Override
+    public synchronized void removeCluster(final @NonNull Cluster<C, ? extends T> cluster) {
+        final Optional<CachedCluster> stored = this.getStoredCluster(cluster);
+        if (stored.isEmpty()) {
+            return;
+        }
+        final long handle = stored.get().getHandle();
+        for (final T element : stored.get().getCluster().getElements()) {
+            this.removeRecord(this.idExtractor.apply(element), handle);
+        }
+        for (final T element : cluster.getElements()) {
+            this.removeRecord(this.idExtractor.apply(element), handle);
+        }
+        this.clusterIndex.set(handle, 0);
+        this.cache.remove(handle);
+    }
+
+    /**
+     * Writes all changed clusters of the cache to the cluster log and forces all files to the storage device.
+     *
+     * @throws UncheckedIOException if the files cannot be written.
+     */
+    public synchronized void flush() {
+        for (final CachedCluster cachedCluster : this.cache.values()) {
+            this.persist(cachedCluster);
+        }
+        try {
+            this.clusterLog.force(true);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot flush cluster log", e);
+        }
+        this.recordIndex.force();
+        this.clusterIndex.force();
+    }
+
+    /**
+     * Flushes the store and writes the current length of the cluster log together with the occupied entries of both
+     * indexes.
+     * <p>As the cluster log is append-only, the clusters themselves are not part of the snapshot. Instead, the log is
+     * truncated to the recorded length on restore. A checksum of the end of the log ensures that the log in the {@link
+     * #directory} still contains the state of the snapshot.</p>
+     */
+    @Override
+    public synchronized void writeSnapshot(final @NonNull SnapshotOutput output) throws IOException {
+        this.flush();
+        final DataOutput data = output.getData();
+        final long logSize = this.clusterLog.size();
+        data.writeLong(logSize);
+        data.writeLong(this.checksumLog(logSize));
+        final long nextHandle = this.clusterIndex.get(0);
+        data.writeLong(nextHandle);
+        for (long handle = 1; handle < nextHandle; handle++) {
+            data.writeLong(this.clusterIndex.get(handle));
+        }
+        final long capacity = this.recordIndex.get(0);
+        data.writeLong(capacity);
+        data.writeLong(this.recordIndex.get(1));
+        for (long slot = 0; slot < capacity; slot++) {
+            final long base = HEADER_LENGTH + slot * SLOT_LENGTH;
+            final long value = this.recordIndex.get(base + 2);
+            if (value != EMPTY && value != DELETED) {
+                data.writeLong(this.recordIndex.get(base));
+                data.writeLong(this.recordIndex.get(base + 1));
+                data.writeLong(value);
+            }
+        }
+    }
+
+    /**
+     * Truncates the cluster log to the state of the snapshot and rebuilds both indexes. All changes after the
+     * snapshot are discarded.
+     *
+     * @throws IllegalStateException if the cluster log does not contain the state of the snapshot.
+     */
+    @Override
+    public synchronized void restoreSnapshot(final @NonNull SnapshotInput input) throws IOException {
+        final DataInput data = input.getData();
+        final long logSize = data.readLong();
+        final long checksum = data.readLong();
+        if (this.clusterLog.size() < logSize || this.checksumLog(logSize) != checksum) {
+            throw new IllegalStateException("Cluster log in " + this.directory + " does not match the snapshot");
+        }
+        this.cache.clear();
+        this.clusterLog.truncate(logSize);
+
+        final long previousNextHandle = this.clusterIndex.get(0);
+        final long nextHandle = data.readLong();
+        this.clusterIndex.ensureLength(nextHandle);
+        this.clusterIndex.set(0, nextHandle);
+        for (long handle = 1; handle < nextHandle; handle++) {
+            this.clusterIndex.set(handle, data.readLong());
+        }
+        for (long handle = nextHandle; handle < previousNextHandle; handle++) {
+            this.clusterIndex.set(handle, 0);
+        }
+
+        final long capacity = data.readLong();
+        final long size = data.readLong();
+        final Path path = this.directory.resolve(RECORD_INDEX);
+        this.recordIndex.close();
+        Files.delete(path);
+        this.recordIndex = MappedLongArray.open(path);
+        initRecordIndex(this.recordIndex, capacity);
+        for (long entry = 0; entry < size; entry++) {
+            final long[] hash = {data.readLong(), data.readLong()};
+            insert(this.recordIndex, hash, data.readLong() - 1);
+        }
+        this.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.flush();
+        this.recordIndex.close();
+        this.clusterIndex.close();
+        this.clusterLog.close();
+    }
+
+    /**
+     * Computes a checksum of the last bytes of the cluster log up to the given size.
+     */
+    private long checksumLog(final long size) throws IOException {
+        final ByteBuffer tail = ByteBuffer.allocate((int) Math.min(size, CHECKSUM_LENGTH));
+        this.readFully(tail, size - tail.capacity());
+        final CRC32 checksum = new CRC32();
+        checksum.update(tail.array());
+        return checksum.getValue();
+    }
+
+    private Optional<CachedCluster> getStoredCluster(final Cluster<C, ? extends T> cluster) {
+        if (cluster.getElements().isEmpty()) {
+            return Optional.empty();
+        }
+        final long handle = this.findHandle(this.idExtractor.apply(cluster.get(0)));
+        return handle == NO_HANDLE ? Optional.empty() : Optional.ofNullable(this.load(handle));
+    }
+
+    private CachedCluster load(final long handle) {
+        final CachedCluster cachedCluster = this.cache.get(handle);
+        if (cachedCluster != null) {
+            return cachedCluster;
+        }
+        final long head = this.clusterIndex.get(handle);
+        if (head == 0) {
+            return null;
+        }
+        final CachedCluster loaded = this.readCluster(handle, head - 1);
+        this.cache.put(handle, loaded);
+        this.evictFromCache();
+        return loaded;
+    }
+
+    private void evictFromCache() {
+        final Iterator<CachedCluster> iterator = this.cache.values().iterator();
+        while (this.cache.size() > this.cacheSize) {
+            this.persist(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    private void persist(final CachedCluster cachedCluster) {
+        if (!cachedCluster.isDirty()) {
+            return;
+        }
+        final List<T> elements = cachedCluster.getCluster().getElements();
+        final long offset;
+        if (cachedCluster.isRewrite() || elements.size() < cachedCluster.getPersistedSize()) {
+            offset = this.appendChunk(cachedCluster, NO_HANDLE, elements);
+        } else {
+            final long previous = this.clusterIndex.get(cachedCluster.getHandle()) - 1;
+            offset = this.appendChunk(cachedCluster, previous,
+                    elements.subList(cachedCluster.getPersistedSize(), elements.size()));
+        }
+        this.clusterIndex.set(cachedCluster.getHandle(), offset + 1);
+        cachedCluster.persisted();
+    }
+
+    private long appendChunk(final CachedCluster cachedCluster, final long previous,
+            final List<? extends T> elements) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(0);
+            output.writeLong(previous);
+            this.clusterIdCodec.write(cachedCluster.getCluster().getId(), output);
+            output.writeInt(elements.size());
+            for (final T element : elements) {
+                this.recordCodec.write(element, output);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot encode cluster " + cachedCluster.getCluster().getId(), e);
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        buffer.putInt(0, buffer.capacity() - Integer.BYTES);
+        try {
+            final long offset = this.clusterLog.size();
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                position += this.clusterLog.write(buffer, position);
+            }
+            return offset;
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot write cluster log", e);
+        }
+    }
+
+    private CachedCluster readCluster(final long handle, final long head) {
+        final List<List<T>> chunks = new ArrayList<>();
+        C clusterId = null;
+        long offset = head;
+        try {
+            while (offset != NO_HANDLE) {
+                final ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+                this.readFully(length, offset);
+                final ByteBuffer payload = ByteBuffer.allocate(length.getInt(0));
+                this.readFully(payload, offset + Integer.BYTES);
+                final DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload.array()));
+                offset = input.readLong();
+                clusterId = this.clusterIdCodec.read(input);
+                final int size = input.readInt();
+                final List<T> elements = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    elements.add(this.recordCodec.read(input));
+                }
+                chunks.add(elements);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot read cluster log", e);
+        }
+        Collections.reverse(chunks);
+        final List<T> elements = new ArrayList<>();
+        chunks.forEach(elements::addAll);
+        return new CachedCluster(handle, new Cluster<>(clusterId, elements), elements.size(),
+                chunks.size() > this.maxChainLength);
+    }
+
+    private void readFully(final ByteBuffer buffer, final long offset) throws IOException {
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            final int read = this.clusterLog.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of cluster log at " + position);
+            }
+            position += read;
+        }
+    }
+
+    // record index: open addressing hash table with linear probing over the 128 bit hash of the record id
+
+    private static void initRecordIndex(final MappedLongArray index, final long capacity) {
+        index.ensureLength(HEADER_LENGTH + capacity * SLOT_LENGTH);
+        index.set(0, capacity);
+        index.set(1, 0);
+        index.set(2, 0);
+    }
+
+    private long[] hash(final I recordId) {
+        final byte[] recordIdBytes = this.recordIdCodec.toBytes(recordId);
+        final ByteBuffer hash = ByteBuffer.wrap(HASH_FUNCTION.hashBytes(recordIdBytes).asBytes());
+        return new long[]{hash.getLong(), hash.getLong()};
+    }
+
+    private static long findSlot(final MappedLongArray index, final long[] hash) {
+        final long mask = index.get(0) - 1;
+        for (long slot = hash[0] & mask; ; slot = (slot + 1) & mask) {
+            final long base = HEADER_LENGTH + slot * SLOT_LENGTH;
+            final long value = index.get(base + 2);
+            if (value == EMPTY) {
+                return -1;
+            }
+            if (value != DELETED && index.get(base) == hash[0] && index.get(base + 1) == hash[1]) {
+                return slot;
+            }
+        }
+    }
+
+    private long findHandle(final I recordId) {
+        final long slot = findSlot(this.recordIndex, this.hash(recordId));
+        return slot < 0 ? NO_HANDLE : this.recordIndex.get(HEADER_LENGTH + slot * SLOT_LENGTH + 2) - 1;
+    }
+
+    private void putHandle(final I recordId, final long handle) {
+        final long[] hash = this.hash(recordId);
+        final long slot = findSlot(this.recordIndex, hash);
+        if (slot >= 0) {
+            this.recordIndex.set(HEADER_LENGTH + slot * SLOT_LENGTH + 2, handle + 1);
+            return;
+        }
+        insert(this.recordIndex, hash, handle);
+        if (this.recordIndex.get(2) * 4 > this.recordIndex.get(0) * 3) {
+            this.resizeRecordIndex();
+        }
+    }
+
+    private static void insert(final MappedLongArray index, final long[] hash, final long handle) {
+        final long mask = index.get(0) - 1;
+        for (long slot = hash[0] & mask; ; slot = (slot + 1) & mask) {
+            final long base = HEADER_LENGTH + slot * SLOT_LENGTH;
+            final long value = index.get(base + 2);
+            if (value == EMPTY || value == DELETED) {
+                index.set(base, hash[0]);
+                index.set(base + 1, hash[1]);
+                index.set(base + 2, handle + 1);
+                index.set(1, index.get(1) + 1);
+                if (value == EMPTY) {
+                    index.set(2, index.get(2) + 1);
+                }
+                return;
+            }
+        }
+    }
+
+    private void removeRecord(final I recordId, final long handle) {
+        final long slot = findSlot(this.recordIndex, this.hash(recordId));
+        final long base = HEADER_LENGTH + slot * SLOT_LENGTH;
+        if (slot >= 0 && this.recordIndex.get(base + 2) - 1 == handle) {
+            this.recordIndex.set(base + 2, DELETED);
+            this.recordIndex.set(1, this.recordIndex.get(1) - 1);
+        }
+    }
+
+    private void resizeRecordIndex() {
+        final Path path = this.directory.resolve(RECORD_INDEX);
+        final Path tempPath = this.directory.resolve(RECORD_INDEX + ".tmp");
+        try {
+            Files.deleteIfExists(tempPath);
+            final long capacity = this.recordIndex.get(0);
+            final long size = this.recordIndex.get(1);
+            try (final MappedLongArray resized = MappedLongArray.open(tempPath)) {
+                initRecordIndex(resized, Long.highestOneBit(Math.max(16, size * 4)));
+                for (long slot = 0; slot < capacity; slot++) {
+                    final long base = HEADER_LENGTH + slot * SLOT_LENGTH;
+                    final long value = this.recordIndex.get(base + 2);
+                    if (value != EMPTY && value != DELETED) {
+                        insert(resized, new long[]{this.recordIndex.get(base), this.recordIndex.get(base + 1)},
+                                value - 1);
+                    }
+                }
+            }
+            this.recordIndex.close();
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            this.recordIndex = MappedLongArray.open(path);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot resize record index", e);
+        }
+    }
+
+    /**
+     * A cluster in the write-back cache.
+     */
+    @Getter
+    private final class CachedCluster {
+        private final long handle;
+        private Cluster<C, T> cluster;
+        private int persistedSize;
+        private boolean rewrite;
+
+        private CachedCluster(final long handle, final Cluster<C, T> cluster, final int persistedSize,
+                final boolean rewrite) {
+            this.handle = handle;
+            this.cluster = cluster;
+            this.persistedSize = persistedSize;
+            this.rewrite = rewrite;
+        }
+
+        boolean isDirty() {
+            return this.rewrite || this.cluster.size() != this.persistedSize;
+        }
+
+        void replace(final Cluster<C, T> cluster) {
+            this.cluster = cluster;
+            this.rewrite = true;
+        }
+
+        void persisted() {
+            this.persistedSize = this.cluster.size();
+            this.rewrite = false;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.clustering;
+
+import com.bakdata.dedupe.deduplication.online.RecordStore;
+import com.bakdata.dedupe.deduplication.online.SnapshotInput;
+import com.bakdata.dedupe.deduplication.online.SnapshotOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Optional;
+import java.util.Set;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+
+/**
+ * A {@link ClusterStore} that maps the handles of a {@link RecordStore} to their clusters in a plain array.
+ * <p>Compared to {@link InMemoryClusterStore}, the lookup of a cluster neither hashes the record id nor keeps a map
+ * entry per record. The clustered records are added to the {@link #recordStore} if they are not already known.</p>
+ * <p>This class is not thread-safe.</p>
+ *
+ * @param <C> the type of the cluster id.
+ * @param <T> the type of the record.
+ * @param <I> the type of the record id.
+ */
+@RequiredArgsConstructor
+public class HandleClusterStore<C extends Comparable<C>, T, I> implements ClusterStore<C, T, I> {
+    private final @NonNull RecordStore<T, I> recordStore;
+    private Cluster<?, ?>[] clusters = new Cluster<?, ?>[1024];
+
+    @Override
+    public @NonNull Optional<Cluster<C, T>> getCluster(final @NonNull I recordId) {
+        return Optional.ofNullable(this.get(this.recordStore.getHandle(recordId)));
+    }
+
+    @Override
+    public void saveCluster(final @NonNull Cluster<C, T> cluster) {
+        final Set<Cluster<C, T>> replacedClusters = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (final T element : cluster.getElements()) {
+            final int handle = this.recordStore.put(element);
+            final Cluster<C, T> previous = this.get(handle);
+            if (previous != null && previous != cluster && previous.getId().equals(cluster.getId())) {
+                replacedClusters.add(previous);
+            }
+            this.set(handle, cluster);
+        }
+        for (final Cluster<C, T> replacedCluster : replacedClusters) {
+            for (final T element : replacedCluster.getElements()) {
+                final int handle = this.recordStore.getHandleOf(element);
+                if (this.get(handle) == replacedCluster) {
+                    this.set(handle, null);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void addToCluster(final @NonNull Cluster<C, T> cluster, final @NonNull T record) {
+        cluster.add(record);
+        this.set(this.recordStore.put(record), cluster);
+    }
+
+    @Override
+    public void removeCluster(final @NonNull Cluster<C, ? extends T> cluster) {
+        for (final T element : cluster.getElements()) {
+            final int handle = this.recordStore.getHandleOf(element);
+            if (handle != RecordStore.NO_HANDLE) {
+                this.set(handle, null);
+            }
+        }
+    }
+
+    @Override
+    public void writeSnapshot(final @NonNull SnapshotOutput output) throws IOException {
+        final Set<Cluster<?, ?>> distinctClusters = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (final Cluster<?, ?> cluster : this.clusters) {
+            if (cluster != null) {
+                distinctClusters.add(cluster);
+            }
+        }
+        output.getData().writeInt(distinctClusters.size());
+        for (final Cluster<?, ?> cluster : distinctClusters) {
+            output.writeCluster(cluster);
+        }
+    }
+
+    @Override
+    public void restoreSnapshot(final @NonNull SnapshotInput input) throws IOException {
+        final int clusterCount = input.getData().readInt();
+        for (int i = 0; i < clusterCount; i++) {
+            this.saveCluster(input.readCluster());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cluster<C, T> get(final int handle) {
+        return handle >= 0 && handle < this.clusters.length ? (Cluster<C, T>) this.clusters[handle] : null;
+    }
+
+    private void set(final int handle, final Cluster<C, T> cluster) {
+        if (handle >= this.clusters.length) {
+            this.clusters = Arrays.copyOf(this.clusters, Math.max(handle + 1, this.clusters.length * 2));
+        }
+        this.clusters[handle] = cluster;
+    }
+}
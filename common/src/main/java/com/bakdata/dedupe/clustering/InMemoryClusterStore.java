@@ -0,0 +1,114 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.clustering;
+
+import com.bakdata.dedupe.deduplication.online.SnapshotInput;
+import com.bakdata.dedupe.deduplication.online.SnapshotOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+
+/**
+ * A {@link ClusterStore} that maps each record id directly to the shared cluster instance in a {@link Map}.
+ *
+ * @param <C> the type of the cluster id.
+ * @param <T> the type of the record.
+ * @param <I> the type of the record id.
+ */
+@Value
+@Builder
+public class InMemoryClusterStore<C extends Comparable<C>, T, I> implements ClusterStore<C, T, I> {
+    /**
+     * Extracts the id of the record. Used for {@link #clusterIndex}.
+     */
+    @NonNull
+    Function<? super T, ? extends I> idExtractor;
+    /**
+     * A backing map from record id to cluster. Defaults to an in-memory map.
+     */
+    @NonNull
+    @Builder.Default
+    Map<I, Cluster<C, T>> clusterIndex = new HashMap<>();
+
+    @Override
+    public @NonNull Optional<Cluster<C, T>> getCluster(final @NonNull I recordId) {
+        return Optional.ofNullable(this.clusterIndex.get(recordId));
+    }
+
+    @Override
+    public void saveCluster(final @NonNull Cluster<C, T> cluster) {
+        final Set<Cluster<C, T>> replacedClusters = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (final T element : cluster.getElements()) {
+            final Cluster<C, T> previous = this.clusterIndex.put(this.idExtractor.apply(element), cluster);
+            if (previous != null && previous != cluster && previous.getId().equals(cluster.getId())) {
+                replacedClusters.add(previous);
+            }
+        }
+        for (final Cluster<C, T> replacedCluster : replacedClusters) {
+            for (final T element : replacedCluster.getElements()) {
+                this.clusterIndex.remove(this.idExtractor.apply(element), replacedCluster);
+            }
+        }
+    }
+
+    @Override
+    public void addToCluster(final @NonNull Cluster<C, T> cluster, final @NonNull T record) {
+        cluster.add(record);
+        this.clusterIndex.put(this.idExtractor.apply(record), cluster);
+    }
+
+    @Override
+    public void writeSnapshot(final @NonNull SnapshotOutput output) throws IOException {
+        final Set<Cluster<C, T>> clusters = Collections.newSetFromMap(new IdentityHashMap<>());
+        clusters.addAll(this.clusterIndex.values());
+        output.getData().writeInt(clusters.size());
+        for (final Cluster<C, T> cluster : clusters) {
+            output.writeCluster(cluster);
+        }
+    }
+
+    @Override
+    public void restoreSnapshot(final @NonNull SnapshotInput input) throws IOException {
+        final int clusterCount = input.getData().readInt();
+        for (int i = 0; i < clusterCount; i++) {
+            this.saveCluster(input.readCluster());
+        }
+    }
+
+    @Override
+    public void removeCluster(final @NonNull Cluster<C, ? extends T> cluster) {
+        for (final T element : cluster.getElements()) {
+            this.clusterIndex.remove(this.idExtractor.apply(element));
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.clustering;
+
+import com.bakdata.dedupe.candidate_selection.online.OnlineCandidate;
+import com.bakdata.dedupe.classifier.ClassifiedCandidate;
+import com.bakdata.dedupe.classifier.Classifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+
+/**
+ * Splits large clusters into smaller clusters with randomized pivot-based correlation clustering (KwikCluster).
+ * <p>A random unassigned record is picked as a pivot and forms a new cluster together with all unassigned records that
+ * have a positive weight to it. The process is repeated until all records are assigned. Hence, only the edges
+ * incident to the pivots need to be classified, which are linear in the size of the cluster if the refined clusters
+ * are large.</p>
+ * <p>The clustering is repeated {@link #repetitions} times with different random orders of pivots. The clustering
+ * with the fewest disagreements is chosen, where a disagreement is a negative weight within a cluster or a positive
+ * weight between clusters. The disagreements are only counted on the known and classified edges.</p>
+ * <p>The edges are weighted by the confidence score of a {@link Classifier} in the same way as in {@link
+ * RefineClusterImpl}. In contrast to {@link RefineClusterImpl}, the result does not depend on the absolute value of
+ * the weights but only on their signs when building the clusters. This algorithm is thus considerably faster but
+ * usually less precise for ambiguous clusters.</p>
+ *
+ * @param <C> the type of the cluster id.
+ * @param <T> the type of the record.
+ * @param <I> the type of the record id.
+ */
+@Value
+@Builder
+public class PivotRefineCluster<C extends Comparable<C>, T, I> implements RefineCluster<C, T, I> {
+    /**
+     * The number of random pivot orders that are tried for each cluster.
+     */
+    @Builder.Default
+    int repetitions = 10;
+    /**
+     * The seed for the random pivot orders. Each cluster is refined with the same seed, such that the result does not
+     * depend on the order of the clusters.
+     */
+    @Builder.Default
+    long seed = 0;
+    /**
+     * The classifier used to score the edges.
+     */
+    @NonNull
+    Classifier<T> classifier;
+    /**
+     * A function to generate the id for newly split clusters.
+     */
+    @NonNull
+    Function<Iterable<I>, C> clusterIdGenerator;
+    /**
+     * A function to extract the id of a record.
+     */
+    @NonNull
+    Function<T, I> idExtractor;
+
+    private static long getPairKey(final int index1, final int index2) {
+        return ((long) Math.min(index1, index2) << Integer.SIZE) | Math.max(index1, index2);
+    }
+
+    private static double getDisagreements(final int[] clustering, final Map<Long, Double> weights) {
+        double disagreements = 0;
+        for (final Map.Entry<Long, Double> entry : weights.entrySet()) {
+            final long pairKey = entry.getKey();
+            final double weight = entry.getValue();
+            final boolean sameCluster = clustering[(int) (pairKey >>> Integer.SIZE)] == clustering[(int) pairKey];
+            if (sameCluster ? weight < 0 : weight > 0) {
+                disagreements += Math.abs(weight);
+            }
+        }
+        return disagreements;
+    }
+
+    @Override
+    public Stream<Cluster<C, T>> refine(final Stream<? extends Cluster<C, T>> clusters,
+            final @NonNull Stream<ClassifiedCandidate<T>> knownClassifications) {
+        final Map<T, List<ClassifiedCandidate<T>>> relevantClassificationIndex = knownClassifications
+                .collect(Collectors.groupingBy(classification -> classification.getCandidate().getRecord1()));
+        return clusters.flatMap(cluster -> this.refineCluster(cluster, relevantClassificationIndex));
+    }
+
+    private Stream<Cluster<C, T>> refineCluster(final Cluster<C, T> cluster,
+            final Map<T, List<ClassifiedCandidate<T>>> relevantClassificationIndex) {
+        if (cluster.size() <= 2) {
+            return Stream.of(cluster);
+        }
+
+        final Map<Long, Double> weights = this.getKnownWeights(cluster, relevantClassificationIndex);
+        final Random random = new Random(this.seed);
+        final List<int[]> clusterings = new ArrayList<>(this.repetitions);
+        for (int repetition = 0; repetition < this.repetitions; repetition++) {
+            clusterings.add(this.pivotCluster(cluster, weights, random));
+        }
+
+        // count the disagreements on all edges that are known at the end
+        int[] bestClustering = clusterings.get(0);
+        double bestDisagreements = Double.POSITIVE_INFINITY;
+        for (final int[] clustering : clusterings) {
+            final double disagreements = getDisagreements(clustering, weights);
+            if (disagreements < bestDisagreements) {
+                bestDisagreements = disagreements;
+                bestClustering = clustering;
+            }
+        }
+        return this.getSubClusters(bestClustering, cluster);
+    }
+
+    private Map<Long, Double> getKnownWeights(final Cluster<C, T> cluster,
+            final Map<T, List<ClassifiedCandidate<T>>> relevantClassificationIndex) {
+        final Map<T, Integer> clusterIndex = IntStream.range(0, cluster.size())
+                .boxed()
+                .collect(Collectors.toMap(cluster::get, i -> i, (i, j) -> i));
+        final Map<Long, Double> weights = new HashMap<>();
+        for (final T element : cluster.getElements()) {
+            for (final ClassifiedCandidate<T> classifiedCandidate :
+                    relevantClassificationIndex.getOrDefault(element, List.of())) {
+                final Integer index1 = clusterIndex.get(classifiedCandidate.getCandidate().getRecord1());
+                final Integer index2 = clusterIndex.get(classifiedCandidate.getCandidate().getRecord2());
+                if (index2 != null && !index1.equals(index2)) {
+                    weights.put(getPairKey(index1, index2),
+                            RefineClusterImpl.getWeight(classifiedCandidate.getClassificationResult()));
+                }
+            }
+        }
+        return weights;
+    }
+
+    private int[] pivotCluster(final Cluster<C, ? extends T> cluster, final Map<Long, Double> weights,
+            final Random random) {
+        final int n = cluster.size();
+        final List<Integer> pivots = IntStream.range(0, n).boxed().collect(Collectors.toList());
+        Collections.shuffle(pivots, random);
+
+        final int[] clustering = new int[n];
+        final boolean[] assigned = new boolean[n];
+        // list of unassigned records for a linear scan with each pivot
+        final List<Integer> unassigned = new ArrayList<>(pivots);
+        int numClusters = 0;
+        for (final int pivot : pivots) {
+            if (assigned[pivot]) {
+                continue;
+            }
+            final int clusterId = numClusters++;
+            clustering[pivot] = clusterId;
+            assigned[pivot] = true;
+            final List<Integer> remaining = new ArrayList<>(unassigned.size());
+            for (final int record : unassigned) {
+                if (assigned[record]) {
+                    continue;
+                }
+                if (this.getWeight(cluster, weights, pivot, record) > 0) {
+                    clustering[record] = clusterId;
+                    assigned[record] = true;
+                } else {
+                    remaining.add(record);
+                }
+            }
+            unassigned.clear();
+            unassigned.addAll(remaining);
+        }
+        return clustering;
+    }
+
+    private double getWeight(final Cluster<C, ? extends T> cluster, final Map<Long, Double> weights,
+            final int index1, final int index2) {
+        return weights.computeIfAbsent(getPairKey(index1, index2), key -> RefineClusterImpl.getWeight(
+                this.classifier.classify(new OnlineCandidate<>(cluster.get(index1), cluster.get(index2)))));
+    }
+
+    private Stream<Cluster<C, T>> getSubClusters(final int[] clustering, final Cluster<C, ? extends T> cluster) {
+        final List<List<T>> subClusters = new ArrayList<>();
+        for (int index = 0; index < clustering.length; index++) {
+            while (subClusters.size() <= clustering[index]) {
+                subClusters.add(new ArrayList<>());
+            }
+            subClusters.get(clustering[index]).add(cluster.get(index));
+        }
+        return subClusters.stream()
+                .map(records -> new Cluster<>(this.clusterIdGenerator.apply(this.getElementIds(records)), records));
+    }
+
+    private List<I> getElementIds(final List<? extends T> records) {
+        return records.stream()
+                .map(this.idExtractor)
+                .collect(Collectors.toList());
+    }
+}
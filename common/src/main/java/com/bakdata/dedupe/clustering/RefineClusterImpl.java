@@ -27,28 +27,29 @@ import com.bakdata.dedupe.candidate_selection.online.OnlineCandidate;
 import com.bakdata.dedupe.classifier.ClassificationResult;
 import com.bakdata.dedupe.classifier.ClassifiedCandidate;
 import com.bakdata.dedupe.classifier.Classifier;
+import com.bakdata.util.StreamUtil;
 import com.google.common.annotations.VisibleForTesting;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
-import java.util.PriorityQueue;
 import java.util.Random;
 import java.util.Set;
-import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
@@ -56,6 +57,7 @@ import lombok.NonNull;
 import lombok.Value;
 import lombok.With;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
 import org.apache.commons.lang3.tuple.Pair;
 
 
@@ -68,6 +70,9 @@ import org.apache.commons.lang3.tuple.Pair;
  * <p>If all scores within a cluster are positive, the cluster will remain intact.</p>
  * <p>Note, this algorithm implements a perfect clustering for small clusters and a heuristic for large clusters. Small
  * clusters are below {@link #maxSmallClusterSize}.</p>
+ * <p>If an {@link #executor} is set, the clusters are refined concurrently and the missing edges of large clusters are
+ * classified concurrently. The sub-clusters and their ids are still created in the order of the input clusters, so
+ * that the result is the same as in sequential refinement. The classifier then needs to be thread-safe.</p>
  *
  * @param <C> the type of the cluster id.
  * @param <T> the type of the record.
@@ -83,7 +88,7 @@ public class RefineClusterImpl<C extends Comparable<C>, T, I> implements RefineC
      * (max - 1) / 2}.
      */
     @Builder.Default
-    final int maxSmallClusterSize = 10;
+    final int maxSmallClusterSize = 15;
     /**
      * The classifier used to score the edges. Please note that binary classifiers (confidence always 1) can be used but
      * will not unleash the full potential.
@@ -100,8 +105,19 @@ public class RefineClusterImpl<C extends Comparable<C>, T, I> implements RefineC
      */
     @NonNull
     Function<T, I> idExtractor;
+    /**
+     * The executor that refines the clusters and classifies the missing edges of large clusters. If null, the clusters
+     * are refined sequentially in the thread consuming the refined clusters.
+     */
+    Executor executor;
+    /**
+     * The maximum number of clusters that are refined ahead of the consumer of the refined clusters if an {@link
+     * #executor} is set.
+     */
+    @Builder.Default
+    int lookahead = 2 * Runtime.getRuntime().availableProcessors();
 
-    private static double getWeight(final ClassificationResult classificationResult) {
+    static double getWeight(final ClassificationResult classificationResult) {
         switch (classificationResult.getClassification()) {
             case DUPLICATE:
                 return classificationResult.getConfidence();
@@ -114,7 +130,8 @@ public class RefineClusterImpl<C extends Comparable<C>, T, I> implements RefineC
         }
     }
 
-    private static double scoreClustering(final int[] partitions, final double[][] weightMatrix) {
+    @VisibleForTesting
+    static double scoreClustering(final int[] partitions, final double[][] weightMatrix) {
         final int n = partitions.length;
         final int[] partitionSizes = new int[n];
         for (final int clustering : partitions) {
@@ -165,9 +182,10 @@ public class RefineClusterImpl<C extends Comparable<C>, T, I> implements RefineC
 
     private List<ClassifiedCandidate<T>> getRelevantClassifications(final Cluster<C, ? super T> cluster,
             final @NonNull Map<T, List<ClassifiedCandidate<T>>> relevantClassificationIndex) {
+        final Set<Object> elements = new HashSet<>(cluster.getElements());
         return cluster.getElements().stream()
                 .flatMap(element -> relevantClassificationIndex.getOrDefault(element, List.of()).stream()
-                        .filter(classifiedCandidate -> cluster
+                        .filter(classifiedCandidate -> elements
                                 .contains(classifiedCandidate.getCandidate().getRecord2())))
                 .collect(Collectors.toList());
     }
@@ -176,8 +194,16 @@ public class RefineClusterImpl<C extends Comparable<C>, T, I> implements RefineC
             final @NonNull Stream<ClassifiedCandidate<T>> knownClassifications) {
         final Map<T, List<ClassifiedCandidate<T>>> relevantClassificationIndex =
                 this.getRelevantClassificationIndex(knownClassifications);
-        return clusters.flatMap(cluster -> this.refineCluster(cluster,
-                this.getRelevantClassifications(cluster, relevantClassificationIndex)));
+        if (this.executor == null) {
+            return clusters.flatMap(cluster -> this.refineCluster(cluster,
+                    this.getRelevantClassifications(cluster, relevantClassificationIndex)));
+        }
+        if (this.lookahead < 1) {
+            throw new IllegalArgumentException("Lookahead must be positive: " + this.lookahead);
+        }
+        return StreamUtil.mapAsyncOrdered(clusters, cluster -> this.refineClusterAsync(cluster,
+                this.getRelevantClassifications(cluster, relevantClassificationIndex)), this.lookahead)
+                .flatMap(Supplier::get);
     }
 
     private Map<T, List<ClassifiedCandidate<T>>> getRelevantClassificationIndex(
@@ -199,7 +225,8 @@ public class RefineClusterImpl<C extends Comparable<C>, T, I> implements RefineC
      * Performs perfect clustering by maximizing intra-cluster similarity and minimizing inter-cluster similarity.<br>
      * Quite compute-heavy for larger clusters as we perform
      * <li>a complete pair-wise comparison (expensive and quadratic)</li>
-     * <li>and compare EACH possible clustering (cheap and exponential).</li>
+     * <li>and search the best clustering with {@link BranchAndBoundClustering} (cheap and exponential in the worst
+     * case).</li>
      *
      * @return the best clustering
      */
@@ -218,12 +245,7 @@ public class RefineClusterImpl<C extends Comparable<C>, T, I> implements RefineC
             }
         }
 
-        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new ClusteringGenerator(n), 0), false)
-                .map(clustering -> new AbstractMap.SimpleEntry<>(clustering.clone(),
-                        scoreClustering(clustering, weightMatrix)))
-                .max(Comparator.comparingDouble(Map.Entry::getValue))
-                .map(Map.Entry::getKey)
-                .orElseThrow(() -> new IllegalStateException("Non-empty clusters should have one valid clustering"));
+        return new BranchAndBoundClustering(weightMatrix).cluster();
     }
 
     private List<WeightedEdge> toWeightedEdges(final Collection<ClassifiedCandidate<T>> knownClassifications,
@@ -249,6 +271,43 @@ public class RefineClusterImpl<C extends Comparable<C>, T, I> implements RefineC
         return this.getSubClusters(bestClustering, cluster);
     }
 
+    /**
+     * Computes the best clustering on the {@link #executor}. The returned supplier creates the sub-clusters, such that
+     * the cluster ids are generated in the thread consuming the refined clusters and thus in order.
+     */
+    private CompletableFuture<Supplier<Stream<Cluster<C, T>>>> refineClusterAsync(final Cluster<C, T> cluster,
+            final @NonNull Collection<ClassifiedCandidate<T>> knownClassifications) {
+        if (cluster.size() <= 2) {
+            return CompletableFuture.completedFuture(() -> Stream.of(cluster));
+        }
+
+        return this.getBestClusteringAsync(cluster, knownClassifications)
+                .thenApply(bestClustering -> () -> this.getSubClusters(bestClustering, cluster));
+    }
+
+    private CompletableFuture<int[]> getBestClusteringAsync(final Cluster<C, T> cluster,
+            final @NonNull Collection<ClassifiedCandidate<T>> knownClassifications) {
+        if (cluster.size() <= this.maxSmallClusterSize) {
+            return CompletableFuture.supplyAsync(() -> this.refineSmallCluster(cluster, knownClassifications),
+                    this.executor);
+        }
+
+        // sample the edges in the calling thread, so that the random edges are drawn in the same order as sequentially
+        final List<WeightedEdge> duplicates = this.toWeightedEdges(knownClassifications, cluster);
+        final List<CompletableFuture<WeightedEdge>> weightedEdges =
+                this.getEdges(cluster, duplicates, triangularNumber(this.maxSmallClusterSize)).stream()
+                        .map(edge -> Double.isNaN(edge.getWeight())
+                                ? CompletableFuture.supplyAsync(() -> this.calculateWeightIfNeeded(cluster, edge),
+                                this.executor)
+                                : CompletableFuture.completedFuture(edge))
+                        .collect(Collectors.toList());
+        // do not block a thread of the executor while waiting for the classifications
+        return CompletableFuture.allOf(weightedEdges.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> new GreedyClustering<C, T>().greedyCluster(cluster, weightedEdges.stream()
+                        .map(CompletableFuture::join)
+                        .collect(Collectors.toList())));
+    }
+
     private int[] getBestClustering(final Cluster<C, T> cluster,
             final @NonNull Collection<ClassifiedCandidate<T>> knownClassifications) {
         if (cluster.size() > this.maxSmallClusterSize) {
@@ -296,24 +355,55 @@ public class RefineClusterImpl<C extends Comparable<C>, T, I> implements RefineC
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Adds edges with distance 2..n of known edges (e.g., neighbors of known edges) until the desired number of edges
+     * is reached. Each round extends the edges of the previous round by one known edge, so only the neighborhoods of
+     * the added edges are visited.
+     */
     private List<WeightedEdge> addRandomEdges(final @NonNull List<WeightedEdge> edges,
             final int desiredNumEdges) {
-        final Set<WeightedEdge> weightedEdges = new LinkedHashSet<>(edges);
-        for (int distance = 2; distance < this.maxSmallClusterSize && weightedEdges.size() < desiredNumEdges;
-                distance++) {
-            // add random edges with distance 2..n of known edges (e.g., neighbors of known edges).
-            final List<WeightedEdge> lastAddedEdges = edges.stream()
-                    .flatMap(edge -> edges.stream().filter(edge::overlaps).map(edge::getTriangleEdge))
-                    .filter(edge -> !weightedEdges.contains(edge))
-                    .limit((long) desiredNumEdges - edges.size())
-                    .collect(Collectors.toList());
-            Collections.shuffle(lastAddedEdges);
-            weightedEdges.addAll(lastAddedEdges);
+        final Map<Integer, List<Integer>> neighbors = new HashMap<>();
+        final Set<Long> pairs = new HashSet<>();
+        for (final WeightedEdge edge : edges) {
+            if (pairs.add(edge.getPairKey())) {
+                neighbors.computeIfAbsent(edge.getLeft(), left -> new ArrayList<>()).add(edge.getRight());
+                neighbors.computeIfAbsent(edge.getRight(), right -> new ArrayList<>()).add(edge.getLeft());
+            }
         }
-        if (weightedEdges.size() < desiredNumEdges) {
+
+        final List<WeightedEdge> weightedEdges = new ArrayList<>(edges);
+        List<WeightedEdge> lastAddedEdges = edges;
+        while (pairs.size() < desiredNumEdges && !lastAddedEdges.isEmpty()) {
+            final List<WeightedEdge> addedEdges = new ArrayList<>();
+            for (final Iterator<WeightedEdge> iterator = lastAddedEdges.iterator();
+                    iterator.hasNext() && pairs.size() < desiredNumEdges; ) {
+                final WeightedEdge edge = iterator.next();
+                this.extendEdge(edge.getLeft(), edge.getRight(), neighbors, pairs, addedEdges, desiredNumEdges);
+                this.extendEdge(edge.getRight(), edge.getLeft(), neighbors, pairs, addedEdges, desiredNumEdges);
+            }
+            Collections.shuffle(addedEdges);
+            weightedEdges.addAll(addedEdges);
+            lastAddedEdges = addedEdges;
+        }
+        if (pairs.size() < desiredNumEdges) {
             throw new IllegalStateException("We have a connected component, so we should get a fully connected graph");
         }
-        return new ArrayList<>(weightedEdges);
+        return weightedEdges;
+    }
+
+    private void extendEdge(final int start, final int end, final Map<Integer, List<Integer>> neighbors,
+            final Set<Long> pairs, final Collection<WeightedEdge> addedEdges, final int desiredNumEdges) {
+        for (final int neighbor : neighbors.getOrDefault(end, List.of())) {
+            if (pairs.size() >= desiredNumEdges) {
+                return;
+            }
+            if (neighbor != start) {
+                final WeightedEdge edge = WeightedEdge.of(start, neighbor, Double.NaN);
+                if (pairs.add(edge.getPairKey())) {
+                    addedEdges.add(edge);
+                }
+            }
+        }
     }
 
     private List<WeightedEdge> getWeightedEdges(final @NonNull Cluster<C, ? extends T> cluster,
@@ -349,49 +439,183 @@ public class RefineClusterImpl<C extends Comparable<C>, T, I> implements RefineC
         return weightedEdge;
     }
 
-    @FieldDefaults(level = AccessLevel.PRIVATE)
-    private static final class ClusteringGenerator implements Iterator<int[]> {
+    /**
+     * Finds the clustering with the highest {@link #scoreClustering(int[], double[][])} with branch and bound.
+     * <p>The score is the sum of the contributions of all records. A record contributes the sum of weights to the other
+     * records in its cluster divided by twice the cluster size and subtracts the sum of weights to the records outside
+     * of its cluster divided by their number.</p>
+     * <p>The records are assigned one after another to an existing or a new cluster. Thus, each clustering is visited
+     * at most once and in the same order as in a complete enumeration. The intra- and inter-cluster weights of each
+     * record are updated incrementally with each assignment. The contribution of an assigned record is bounded by
+     * letting the unassigned records with the highest weights join its cluster, while the contribution of an unassigned
+     * record is bounded likewise for each cluster that it may join. Partial clusterings that cannot improve the best
+     * clustering found so far are pruned.</p>
+     * <p>All state is allocated once per cluster; no memory is allocated per visited clustering.</p>
+     */
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    static final class BranchAndBoundClustering {
+        /**
+         * Tolerance for rounding errors of the upper bound, so that no optimal clustering is pruned.
+         */
+        private static final double EPSILON = 1.0e-9;
         final int n;
-        final @NonNull int[] clustering;
-        boolean hasNext = true;
+        final double[][] weights;
+        final double[] totalWeights;
+        final int[][] neighborsByWeight;
+        final int[] clustering;
+        final int[] bestClustering;
+        // the following arrays hold the state per depth (number of assigned records) and cluster or record
+        final int[][] sizes;
+        final double[][] intraWeights;
+        final double[][] interWeights;
+        // scratch space for the weights of an unassigned record to the records of each cluster
+        final double[] clusterWeights;
+        @NonFinal
+        double bestScore = Double.NEGATIVE_INFINITY;
+
+        /**
+         * @param weightMatrix the weights of all pairs {@code i < j} in the upper triangle.
+         */
+        BranchAndBoundClustering(final @NonNull double[][] weightMatrix) {
+            this.n = weightMatrix.length;
+            this.weights = new double[this.n][this.n];
+            this.totalWeights = new double[this.n];
+            for (int rowIndex = 0; rowIndex < this.n; rowIndex++) {
+                for (int colIndex = rowIndex + 1; colIndex < this.n; colIndex++) {
+                    final double weight = weightMatrix[rowIndex][colIndex];
+                    this.weights[rowIndex][colIndex] = weight;
+                    this.weights[colIndex][rowIndex] = weight;
+                    this.totalWeights[rowIndex] += weight;
+                    this.totalWeights[colIndex] += weight;
+                }
+            }
+            this.neighborsByWeight = IntStream.range(0, this.n)
+                    .mapToObj(record -> IntStream.range(0, this.n)
+                            .filter(neighbor -> neighbor != record)
+                            .boxed()
+                            .sorted(Comparator.comparingDouble(neighbor -> -this.weights[record][neighbor]))
+                            .mapToInt(Integer::intValue)
+                            .toArray())
+                    .toArray(int[][]::new);
+            this.clustering = new int[this.n];
+            this.bestClustering = new int[this.n];
+            this.sizes = new int[this.n + 1][this.n];
+            this.intraWeights = new double[this.n + 1][this.n];
+            this.interWeights = new double[this.n + 1][this.n];
+            this.clusterWeights = new double[this.n];
+        }
+
+        int[] cluster() {
+            if (this.n == 0) {
+                throw new IllegalStateException("Non-empty clusters should have one valid clustering");
+            }
+            // seed the search with a heuristic clustering, which is usually close to the optimum and thus allows early
+            // pruning; the tolerance ensures that the first optimal clustering in enumeration order is returned
+            this.bestScore = scoreClustering(this.getGreedyClustering(), this.weights) - EPSILON;
+            this.search(0, 0);
+            return this.bestClustering.clone();
+        }
 
-        private ClusteringGenerator(final int n) {
-            this.n = n;
-            this.clustering = new int[n];
+        private int[] getGreedyClustering() {
+            final List<WeightedEdge> edges = new ArrayList<>(triangularNumber(this.n - 1));
+            for (int rowIndex = 0; rowIndex < this.n; rowIndex++) {
+                for (int colIndex = rowIndex + 1; colIndex < this.n; colIndex++) {
+                    edges.add(WeightedEdge.of(rowIndex, colIndex, this.weights[rowIndex][colIndex]));
+                }
+            }
+            return new GreedyClustering<>().greedyCluster(this.n, edges);
         }
 
-        @Override
-        public boolean hasNext() {
-            if (this.hasNext) {
-                return true;
+        private void search(final int depth, final int numClusters) {
+            double bound = 0;
+            for (int record = 0; record < depth; record++) {
+                bound += this.getUpperBound(depth, record, this.sizes[depth][this.clustering[record]],
+                        this.intraWeights[depth][record], this.interWeights[depth][record]);
+            }
+            for (int record = depth; record < this.n; record++) {
+                bound += this.getUnassignedUpperBound(depth, record, numClusters);
             }
-            for (byte i = (byte) (this.n - (byte) 1); i > 0; i--) {
-                if (this.clustering[i] < this.n && !this.incrementWouldResultInSkippedInteger(i)) {
-                    this.clustering[i]++;
-                    Arrays.fill(this.clustering, i + 1, this.n, (byte) 0);
-                    this.hasNext = true;
-                    return true;
+            if (depth == this.n) {
+                // the bound of a complete clustering is its score
+                if (bound > this.bestScore) {
+                    this.bestScore = bound;
+                    System.arraycopy(this.clustering, 0, this.bestClustering, 0, this.n);
                 }
+                return;
+            }
+            if (bound + EPSILON < this.bestScore) {
+                return;
+            }
+            for (int clusterId = 0; clusterId <= numClusters; clusterId++) {
+                this.assign(depth, clusterId, numClusters);
+                this.search(depth + 1, clusterId == numClusters ? numClusters + 1 : numClusters);
             }
-            return false;
         }
 
-        @Override
-        public @NonNull int[] next() {
-            if (!this.hasNext()) {
-                throw new NoSuchElementException();
+        private void assign(final int depth, final int clusterId, final int numClusters) {
+            final int next = depth + 1;
+            System.arraycopy(this.sizes[depth], 0, this.sizes[next], 0, numClusters);
+            System.arraycopy(this.intraWeights[depth], 0, this.intraWeights[next], 0, depth);
+            System.arraycopy(this.interWeights[depth], 0, this.interWeights[next], 0, depth);
+            this.sizes[next][clusterId] = clusterId == numClusters ? 1 : this.sizes[next][clusterId] + 1;
+            this.intraWeights[next][depth] = 0;
+            this.interWeights[next][depth] = 0;
+
+            this.clustering[depth] = clusterId;
+            for (int record = 0; record < depth; record++) {
+                final double weight = this.weights[record][depth];
+                final double[] recordWeights =
+                        this.clustering[record] == clusterId ? this.intraWeights[next] : this.interWeights[next];
+                recordWeights[record] += weight;
+                recordWeights[depth] += weight;
+            }
+        }
+
+        /**
+         * Bounds the contribution of an unassigned record by assigning it to each existing cluster or a new cluster.
+         */
+        private double getUnassignedUpperBound(final int depth, final int record, final int numClusters) {
+            Arrays.fill(this.clusterWeights, 0, numClusters + 1, 0);
+            double assignedWeight = 0;
+            for (int other = 0; other < depth; other++) {
+                final double weight = this.weights[record][other];
+                this.clusterWeights[this.clustering[other]] += weight;
+                assignedWeight += weight;
+            }
+            double bound = Double.NEGATIVE_INFINITY;
+            for (int clusterId = 0; clusterId <= numClusters; clusterId++) {
+                final int size = clusterId == numClusters ? 1 : this.sizes[depth][clusterId] + 1;
+                final double intraWeight = this.clusterWeights[clusterId];
+                bound = Math.max(bound,
+                        this.getUpperBound(depth, record, size, intraWeight, assignedWeight - intraWeight));
             }
-            this.hasNext = false;
-            return this.clustering;
+            return bound;
         }
 
-        private boolean incrementWouldResultInSkippedInteger(final int i) {
-            for (int j = i - 1; j >= 0; j--) {
-                if (this.clustering[i] <= this.clustering[j]) {
-                    return false;
+        /**
+         * Bounds the contribution of a record by trying all numbers of unassigned records joining its cluster. For a
+         * given number, the contribution is maximal if the records with the highest weights join.
+         */
+        private double getUpperBound(final int depth, final int record, final int size, final double intraWeight,
+                final double interWeight) {
+            final double unassignedWeight = this.totalWeights[record] - intraWeight - interWeight;
+            double bound = this.getContribution(size, intraWeight, interWeight + unassignedWeight);
+            int joined = 0;
+            double joinedWeight = 0;
+            for (final int neighbor : this.neighborsByWeight[record]) {
+                if (neighbor >= depth && neighbor != record) {
+                    joined++;
+                    joinedWeight += this.weights[record][neighbor];
+                    bound = Math.max(bound, this.getContribution(size + joined, intraWeight + joinedWeight,
+                            interWeight + unassignedWeight - joinedWeight));
                 }
             }
-            return true;
+            return bound;
+        }
+
+        private double getContribution(final int size, final double intraWeight, final double interWeight) {
+            final double contribution = intraWeight / (2 * size);
+            return size < this.n ? contribution - interWeight / (this.n - size) : contribution;
         }
     }
 
@@ -408,53 +632,98 @@ public class RefineClusterImpl<C extends Comparable<C>, T, I> implements RefineC
             return new WeightedEdge(Math.min(leftIndex, rightIndex), Math.max(leftIndex, rightIndex), weight);
         }
 
-        private @NonNull WeightedEdge getTriangleEdge(final @NonNull WeightedEdge e) {
-            if (this.left < e.left) {
-                return new WeightedEdge(this.left, e.left + e.right - this.right, Double.NaN);
-            } else if (this.left == e.left) {
-                return new WeightedEdge(Math.min(this.right, e.right), Math.max(this.right, e.right), Double.NaN);
-            }
-            return new WeightedEdge(e.left, this.left + this.getRight() - e.getRight(), Double.NaN);
-        }
-
-        private boolean overlaps(final @NonNull WeightedEdge e) {
-            return e.getLeft() == this.getLeft() || e.getLeft() == this.getRight() || e.getRight() == this.getLeft()
-                    || e.getRight() == this
-                    .getRight();
+        private long getPairKey() {
+            return ((long) this.left << Integer.SIZE) | this.right;
         }
     }
 
+    /**
+     * Agglomerates clusters along the edges in descending order of their weights as long as the score ({@link
+     * #scoreClustering(int[], double[][])}) improves.
+     * <p>The records of a cluster are tracked in a {@link ConcurrentUnionFind}. For each cluster, the size, the sum of
+     * intra-cluster weights, the sum of inter-cluster weights, and a sparse map of the summed weights to each adjacent
+     * cluster are maintained. Thus, the score delta of a merge can be computed in constant time. When merging, the
+     * smaller adjacency map is merged into the larger one, so that each edge is moved only a logarithmic number of
+     * times.</p>
+     */
     static class GreedyClustering<C extends Comparable<C>, T> {
 
-        int[] greedyCluster(final Cluster<C, T> cluster, final @NonNull Collection<WeightedEdge> edges) {
+        private static double getContribution(final int n, final int size, final double intraWeight,
+                final double interWeight) {
+            final double contribution = intraWeight / size;
+            return size < n ? contribution - interWeight / (n - size) : contribution;
+        }
 
-            final Collection<WeightedEdge> queue = new PriorityQueue<>(Comparator.comparing(WeightedEdge::getWeight));
-            queue.addAll(edges);
+        int[] greedyCluster(final Cluster<C, T> cluster, final @NonNull Collection<WeightedEdge> edges) {
+            return this.greedyCluster(cluster.size(), edges);
+        }
 
-            final double[][] weightMatrix = new double[cluster.size()][cluster.size()];
+        int[] greedyCluster(final int n, final @NonNull Collection<WeightedEdge> edges) {
+            // the state of a cluster is stored in the slot of the record with the largest adjacency map
+            final int[] slots = IntStream.range(0, n).toArray();
+            final int[] sizes = new int[n];
+            Arrays.fill(sizes, 1);
+            final double[] intraWeights = new double[n];
+            final double[] interWeights = new double[n];
+            final List<Map<Integer, Double>> adjacentWeights = new ArrayList<>(n);
+            for (int record = 0; record < n; record++) {
+                adjacentWeights.add(new HashMap<>());
+            }
             for (final WeightedEdge edge : edges) {
-                weightMatrix[edge.getLeft()][edge.getRight()] = edge.getWeight();
+                if (edge.getLeft() != edge.getRight()) {
+                    adjacentWeights.get(edge.getLeft()).put(edge.getRight(), edge.getWeight());
+                    adjacentWeights.get(edge.getRight()).put(edge.getLeft(), edge.getWeight());
+                }
+            }
+            for (int record = 0; record < n; record++) {
+                for (final double weight : adjacentWeights.get(record).values()) {
+                    interWeights[record] += weight;
+                }
             }
 
+            final List<WeightedEdge> sortedEdges = new ArrayList<>(edges);
+            sortedEdges.sort(Comparator.comparingDouble(WeightedEdge::getWeight).reversed());
             // start with each publication in its own cluster
-            int[] clustering = IntStream.range(0, cluster.size()).toArray();
-            double score = scoreClustering(clustering, weightMatrix);
-            for (final WeightedEdge edge : queue) {
-                final int[] newClustering = clustering.clone();
-                final int newClusterId = newClustering[edge.getLeft()];
-                final int oldClusterId = newClustering[edge.getRight()];
-                for (int i = 0; i < newClustering.length; i++) {
-                    if (newClustering[i] == oldClusterId) {
-                        newClustering[i] = newClusterId;
-                    }
+            final ConcurrentUnionFind unionFind = new ConcurrentUnionFind(n);
+            for (final WeightedEdge edge : sortedEdges) {
+                final int leftRoot = unionFind.find(edge.getLeft());
+                final int rightRoot = unionFind.find(edge.getRight());
+                if (leftRoot == rightRoot) {
+                    continue;
                 }
-                final double newScore = scoreClustering(newClustering, weightMatrix);
-                if (newScore > score) {
-                    score = newScore;
-                    clustering = newClustering;
+                final int leftSlot = slots[leftRoot];
+                final int rightSlot = slots[rightRoot];
+                final double weight = adjacentWeights.get(leftSlot).getOrDefault(rightSlot, 0.0);
+                final int size = sizes[leftSlot] + sizes[rightSlot];
+                final double intraWeight = intraWeights[leftSlot] + intraWeights[rightSlot] + weight;
+                final double interWeight = interWeights[leftSlot] + interWeights[rightSlot] - 2 * weight;
+                final double delta = getContribution(n, size, intraWeight, interWeight)
+                        - getContribution(n, sizes[leftSlot], intraWeights[leftSlot], interWeights[leftSlot])
+                        - getContribution(n, sizes[rightSlot], intraWeights[rightSlot], interWeights[rightSlot]);
+                if (delta > 0) {
+                    final boolean leftIsLarger =
+                            adjacentWeights.get(leftSlot).size() >= adjacentWeights.get(rightSlot).size();
+                    final int largerSlot = leftIsLarger ? leftSlot : rightSlot;
+                    final int smallerSlot = leftIsLarger ? rightSlot : leftSlot;
+                    final Map<Integer, Double> largerWeights = adjacentWeights.get(largerSlot);
+                    largerWeights.remove(smallerSlot);
+                    for (final Map.Entry<Integer, Double> entry : adjacentWeights.get(smallerSlot).entrySet()) {
+                        final int adjacentSlot = entry.getKey();
+                        if (adjacentSlot != largerSlot) {
+                            largerWeights.merge(adjacentSlot, entry.getValue(), Double::sum);
+                            final Map<Integer, Double> neighborWeights = adjacentWeights.get(adjacentSlot);
+                            neighborWeights.merge(largerSlot, neighborWeights.remove(smallerSlot), Double::sum);
+                        }
+                    }
+                    adjacentWeights.set(smallerSlot, null);
+                    sizes[largerSlot] = size;
+                    intraWeights[largerSlot] = intraWeight;
+                    interWeights[largerSlot] = interWeight;
+                    unionFind.union(leftRoot, rightRoot);
+                    slots[unionFind.find(leftRoot)] = largerSlot;
                 }
             }
-            return clustering;
+            return IntStream.range(0, n).map(unionFind::find).toArray();
         }
     }
 }
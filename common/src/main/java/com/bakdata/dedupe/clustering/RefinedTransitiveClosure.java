@@ -24,11 +24,16 @@
 package com.bakdata.dedupe.clustering;
 
 import com.bakdata.dedupe.classifier.ClassifiedCandidate;
+import com.bakdata.dedupe.classifier.Classifier;
+import com.bakdata.dedupe.deduplication.online.Evictable;
+import com.bakdata.dedupe.deduplication.online.SnapshotInput;
+import com.bakdata.dedupe.deduplication.online.SnapshotOutput;
+import com.bakdata.dedupe.deduplication.online.Snapshottable;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -47,7 +52,7 @@ import lombok.Value;
 @Value
 @Builder
 public class RefinedTransitiveClosure<C extends Comparable<C>, T, I extends Comparable<? super I>>
-        implements Clustering<C, T, I> {
+        implements Clustering<C, T, I>, Evictable<T>, Snapshottable {
     /**
      * The configured refineCluster.
      */
@@ -55,10 +60,10 @@ public class RefinedTransitiveClosure<C extends Comparable<C>, T, I extends Comp
     RefineCluster<C, T, I> refineCluster;
 
     /**
-     * A backing map for old clusters. Defaults to an in-memory map if null during construction.
+     * A backing store for old clusters. Defaults to an {@link InMemoryClusterStore} if null during construction.
      */
     @NonNull
-    Map<I, Cluster<C, T>> oldClusterIndex;
+    ClusterStore<C, T, I> oldClusterStore;
 
     /**
      * The underlying transitive closure implementation.
@@ -67,7 +72,7 @@ public class RefinedTransitiveClosure<C extends Comparable<C>, T, I extends Comp
     TransitiveClosure<C, T, I> closure;
 
     /**
-     * Extracts the id of the record. Used for {@link #oldClusterIndex}.
+     * Extracts the id of the record. Used for {@link #oldClusterStore}.
      */
     @NonNull
     Function<? super T, ? extends I> idExtractor;
@@ -78,14 +83,18 @@ public class RefinedTransitiveClosure<C extends Comparable<C>, T, I extends Comp
     @NonNull
     ClusterSplitHandler splitHandler;
 
-    @java.beans.ConstructorProperties({"refineCluster", "oldClusterIndex", "closure", "idExtractor", "splitHandler"})
+    @java.beans.ConstructorProperties({"refineCluster", "oldClusterStore", "closure", "idExtractor", "splitHandler"})
     RefinedTransitiveClosure(final @NonNull RefineCluster<C, T, I> refineCluster,
-            final Map<I, Cluster<C, T>> oldClusterIndex, final TransitiveClosure<C, T, I> closure,
+            final ClusterStore<C, T, I> oldClusterStore, final TransitiveClosure<C, T, I> closure,
             final @NonNull Function<? super T, ? extends I> idExtractor, final ClusterSplitHandler splitHandler) {
         this.refineCluster = refineCluster;
-        this.oldClusterIndex = oldClusterIndex != null ? oldClusterIndex : new HashMap<>();
+        this.oldClusterStore = oldClusterStore != null ? oldClusterStore
+                : InMemoryClusterStore.<C, T, I>builder().idExtractor(idExtractor).build();
         this.closure = closure != null ? closure
-                : new TransitiveClosure<>(idExtractor, refineCluster.getClusterIdGenerator(), new HashMap<>());
+                : TransitiveClosure.<C, T, I>builder()
+                        .idExtractor(idExtractor)
+                        .clusterIdGenerator(refineCluster.getClusterIdGenerator())
+                        .build();
         this.idExtractor = idExtractor;
         this.splitHandler = splitHandler != null ? splitHandler : ClusterSplitHandler.ignore();
     }
@@ -100,12 +109,15 @@ public class RefinedTransitiveClosure<C extends Comparable<C>, T, I extends Comp
         final Collection<Cluster<C, T>> changedClusters = new ArrayList<>();
         refinedClusters.forEach(refinedCluster -> {
             for (final T element : refinedCluster.getElements()) {
-                final I id = this.idExtractor.apply(element);
-                final Cluster<C, T> oldCluster = this.oldClusterIndex.put(id, refinedCluster);
-                if (oldCluster == null || !this.getClusterId(oldCluster).equals(this.getClusterId(refinedCluster))) {
+                final Optional<Cluster<C, T>> oldCluster =
+                        this.oldClusterStore.getCluster(this.idExtractor.apply(element));
+                if (oldCluster.isEmpty()
+                        || !this.getClusterId(oldCluster.get()).equals(this.getClusterId(refinedCluster))) {
                     changedClusters.add(refinedCluster);
+                    break;
                 }
             }
+            this.oldClusterStore.saveCluster(refinedCluster);
         });
 
         // return the changed clusters but remove multiple occurences of the same cluster
@@ -116,6 +128,80 @@ public class RefinedTransitiveClosure<C extends Comparable<C>, T, I extends Comp
                 .map(clusters -> clusters.get(0));
     }
 
+    /**
+     * Loads precomputed, already refined clusters into the {@link #closure} and the {@link #oldClusterStore}.
+     *
+     * @param clusters the precomputed clusters.
+     * @throws IllegalArgumentException if a record is already part of another cluster.
+     * @see TransitiveClosure#bulkLoad(Iterable)
+     */
+    public void bulkLoad(final @NonNull Collection<? extends Cluster<C, T>> clusters) {
+        this.closure.bulkLoad(clusters);
+        for (final Cluster<C, T> cluster : clusters) {
+            this.oldClusterStore.saveCluster(new Cluster<>(cluster.getId(), new ArrayList<>(cluster.getElements())));
+        }
+    }
+
+    @Override
+    public void evict(final @NonNull Collection<? extends T> records) {
+        this.closure.evict(records);
+        for (final T record : records) {
+            final I id = this.idExtractor.apply(record);
+            this.oldClusterStore.getCluster(id).ifPresent(cluster -> {
+                this.oldClusterStore.removeCluster(cluster);
+                cluster.getElements().removeIf(element -> id.equals(this.idExtractor.apply(element)));
+                if (!cluster.getElements().isEmpty()) {
+                    this.oldClusterStore.saveCluster(cluster);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the last refined cluster of the record.
+     *
+     * @param record the record.
+     * @return the refined cluster of the record or {@link Optional#empty()} if the record is not part of any cluster.
+     */
+    @Override
+    public @NonNull Optional<Cluster<C, T>> getCluster(final @NonNull T record) {
+        return this.oldClusterStore.getCluster(this.idExtractor.apply(record));
+    }
+
+    /**
+     * Removes the record from the {@link #closure}, which splits the former transitive cluster if necessary, and
+     * refines the remaining parts again.
+     *
+     * @param record the record to remove.
+     * @param classifier the classifier to reevaluate pairs of the remaining records.
+     * @return the refined parts of the former cluster including singleton clusters.
+     */
+    @Override
+    public @NonNull Stream<Cluster<C, T>> remove(final @NonNull T record, final @NonNull Classifier<T> classifier) {
+        final List<Cluster<C, T>> parts = this.closure.remove(record, classifier).collect(Collectors.toList());
+        this.oldClusterStore.getCluster(this.idExtractor.apply(record)).ifPresent(this.oldClusterStore::removeCluster);
+        final List<Cluster<C, T>> refinedParts =
+                this.refineCluster.refine(parts.stream(), Stream.empty()).collect(Collectors.toList());
+        for (final Cluster<C, T> refinedPart : refinedParts) {
+            if (refinedPart.size() > 1) {
+                this.oldClusterStore.saveCluster(refinedPart);
+            }
+        }
+        return refinedParts.stream();
+    }
+
+    @Override
+    public void writeSnapshot(final @NonNull SnapshotOutput output) throws IOException {
+        this.closure.writeSnapshot(output);
+        this.oldClusterStore.writeSnapshot(output);
+    }
+
+    @Override
+    public void restoreSnapshot(final @NonNull SnapshotInput input) throws IOException {
+        this.closure.restoreSnapshot(input);
+        this.oldClusterStore.restoreSnapshot(input);
+    }
+
     private I getClusterId(final Cluster<C, ? extends T> cluster) {
         return this.idExtractor.apply(cluster.get(0));
     }
@@ -0,0 +1,64 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.clustering;
+
+import com.bakdata.dedupe.deduplication.online.SnapshotInput;
+import com.bakdata.dedupe.deduplication.online.SnapshotOutput;
+import com.bakdata.dedupe.deduplication.online.Snapshottable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+
+/**
+ * A cluster id generator that derives the ids from a sequence number starting from 0. The sequence is part of the
+ * snapshot, such that restored deduplications do not reuse cluster ids.
+ *
+ * @param <T> the type of the record ids.
+ * @param <C> the type of the cluster id.
+ * @see ClusterIdGenerators
+ */
+@RequiredArgsConstructor
+public class SequentialClusterIdGenerator<T, C> implements Function<Iterable<T>, C>, Snapshottable {
+    private final @NonNull LongFunction<? extends C> idFunction;
+    private final AtomicLong nextId = new AtomicLong();
+
+    @Override
+    public C apply(final Iterable<T> recordIds) {
+        return this.idFunction.apply(this.nextId.getAndIncrement());
+    }
+
+    @Override
+    public void writeSnapshot(final @NonNull SnapshotOutput output) throws IOException {
+        output.getData().writeLong(this.nextId.get());
+    }
+
+    @Override
+    public void restoreSnapshot(final @NonNull SnapshotInput input) throws IOException {
+        this.nextId.set(input.getData().readLong());
+    }
+}
@@ -24,14 +24,23 @@
 package com.bakdata.dedupe.clustering;
 
 import com.bakdata.dedupe.candidate_selection.Candidate;
+import com.bakdata.dedupe.candidate_selection.online.OnlineCandidate;
 import com.bakdata.dedupe.classifier.Classification;
 import com.bakdata.dedupe.classifier.ClassifiedCandidate;
+import com.bakdata.dedupe.classifier.Classifier;
+import com.bakdata.dedupe.deduplication.online.Evictable;
+import com.bakdata.dedupe.deduplication.online.SnapshotInput;
+import com.bakdata.dedupe.deduplication.online.SnapshotOutput;
+import com.bakdata.dedupe.deduplication.online.Snapshottable;
 import com.google.common.collect.Lists;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -42,17 +51,18 @@ import lombok.Value;
 
 /**
  * An amortized linear transitive closure implementation over the number of pairs.
+ * <p>The clusters are kept in a {@link ClusterStore}, which is on heap by default, but may be persisted with {@link
+ * FileClusterStore} for large datasets.</p>
  *
  * @param <C> the type of the cluster id.
  * @param <T> the type of the record.
  * @param <I> the type of the record id.
  */
 @Value
-@Builder
 public class TransitiveClosure<C extends Comparable<C>, T, I extends Comparable<? super I>>
-        implements Clustering<C, T, I> {
+        implements Clustering<C, T, I>, Evictable<T>, Snapshottable {
     /**
-     * Extracts the id of the record. Used for {@link #clusterIndex}.
+     * Extracts the id of the record. Used for {@link #clusterStore}.
      */
     @NonNull
     Function<? super T, ? extends I> idExtractor;
@@ -62,11 +72,26 @@ public class TransitiveClosure<C extends Comparable<C>, T, I extends Comparable<
     @NonNull
     Function<Iterable<I>, C> clusterIdGenerator;
     /**
-     * A backing map for old clusters. Defaults to an in-memory map if null during construction.
+     * A backing store for old clusters. Defaults to an {@link InMemoryClusterStore} if null during construction.
      */
     @NonNull
-    @Builder.Default
-    Map<I, Cluster<C, T>> clusterIndex = new HashMap<>();
+    ClusterStore<C, T, I> clusterStore;
+
+    /**
+     * Creates a transitive closure.
+     *
+     * @param idExtractor extracts the id of a record.
+     * @param clusterIdGenerator the generator for ids of new clusters.
+     * @param clusterStore the store of the clusters. Defaults to an {@link InMemoryClusterStore}.
+     */
+    @Builder
+    private TransitiveClosure(final @NonNull Function<? super T, ? extends I> idExtractor,
+            final @NonNull Function<Iterable<I>, C> clusterIdGenerator, final ClusterStore<C, T, I> clusterStore) {
+        this.idExtractor = idExtractor;
+        this.clusterIdGenerator = clusterIdGenerator;
+        this.clusterStore = clusterStore != null ? clusterStore
+                : InMemoryClusterStore.<C, T, I>builder().idExtractor(idExtractor).build();
+    }
 
     @Override
     public @NonNull Stream<Cluster<C, T>> cluster(final @NonNull Stream<ClassifiedCandidate<T>> classifiedCandidates) {
@@ -83,45 +108,164 @@ public class TransitiveClosure<C extends Comparable<C>, T, I extends Comparable<
 
         // apply in-memory transitive closure
         for (final Candidate<T> candidate : duplicates) {
-            final Cluster<C, T> leftCluster = this.clusterIndex.get(this.idExtractor.apply(candidate.getRecord1()));
-            final Cluster<C, T> rightCluster = this.clusterIndex.get(this.idExtractor.apply(candidate.getRecord2()));
+            final Cluster<C, T> leftCluster = this.getCluster(candidate.getRecord1()).orElse(null);
+            final Cluster<C, T> rightCluster = this.getCluster(candidate.getRecord2()).orElse(null);
             if (leftCluster == null && rightCluster == null) {
                 final List<T> elements = Lists.newArrayList(candidate.getRecord1(), candidate.getRecord2());
                 final List<I> ids = this.getElementIds(elements);
                 final Cluster<C, T> newCluster = new Cluster<>(this.clusterIdGenerator.apply(ids), elements);
-                this.clusterIndex.put(this.idExtractor.apply(candidate.getRecord1()), newCluster);
-                this.clusterIndex.put(this.idExtractor.apply(candidate.getRecord2()), newCluster);
+                this.clusterStore.saveCluster(newCluster);
                 changedClusters.add(newCluster);
             } else if (leftCluster == rightCluster) {
                 // nothing to do; already known duplicate
                 // still mark it as changed so that downstream processes can work with it
                 changedClusters.add(leftCluster);
             } else if (leftCluster == null) {
-                rightCluster.add(candidate.getRecord1());
-                this.clusterIndex.put(this.idExtractor.apply(candidate.getRecord1()), rightCluster);
+                this.clusterStore.addToCluster(rightCluster, candidate.getRecord1());
                 changedClusters.add(rightCluster);
             } else if (rightCluster == null) {
-                leftCluster.add(candidate.getRecord2());
-                this.clusterIndex.put(this.idExtractor.apply(candidate.getRecord2()), leftCluster);
+                this.clusterStore.addToCluster(leftCluster, candidate.getRecord2());
                 changedClusters.add(leftCluster);
             } else { // merge
                 final Cluster<C, T> merged = leftCluster.merge(this.clusterIdGenerator, this.idExtractor, rightCluster);
-                for (final T person : merged.getElements()) {
-                    this.clusterIndex.put(this.idExtractor.apply(person), merged);
-                }
+                this.clusterStore.removeCluster(leftCluster);
+                this.clusterStore.removeCluster(rightCluster);
+                this.clusterStore.saveCluster(merged);
                 changedClusters.add(merged);
             }
         }
 
         // return the changed clusters but remove multiple occurrences of the same cluster
+        // and clusters that have been merged into another cluster afterwards
         return changedClusters.stream()
                 .collect(Collectors.groupingBy(Cluster::getId))
                 .values()
                 .stream()
                 .map(l -> l.get(0))
+                .filter(cluster -> this.getCluster(cluster.get(0)).map(Cluster::getId)
+                        .equals(Optional.of(cluster.getId())))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Loads precomputed clusters into the {@link #clusterStore} without reevaluating any pairs.
+     * <p>Use this method to bootstrap the online clustering from an already deduplicated dataset. Singleton clusters
+     * are skipped as records without a cluster are implicitly treated as singletons. The loaded clusters are copied,
+     * such that subsequent clustering does not modify the given clusters.</p>
+     *
+     * @param clusters the precomputed clusters.
+     * @throws IllegalArgumentException if a record is already part of another cluster.
+     */
+    public void bulkLoad(final @NonNull Iterable<? extends Cluster<C, ? extends T>> clusters) {
+        for (final Cluster<C, ? extends T> cluster : clusters) {
+            if (cluster.size() < 2) {
+                continue;
+            }
+            for (final T element : cluster.getElements()) {
+                final Optional<Cluster<C, T>> previous = this.getCluster(element);
+                if (previous.isPresent()) {
+                    throw new IllegalArgumentException("Record " + element + " is already part of " + previous.get());
+                }
+            }
+            this.clusterStore.saveCluster(new Cluster<>(cluster.getId(), new ArrayList<>(cluster.getElements())));
+        }
+    }
+
+    /**
+     * Removes the given records from their clusters. A cluster that is reduced to a single record is removed from the
+     * {@link #clusterStore} as records without a cluster are implicitly treated as singletons.
+     * <p>Previously returned clusters are not modified; the remaining records are stored in a new cluster with the
+     * same id.</p>
+     *
+     * @param records the records to evict.
+     */
+    @Override
+    public void evict(final @NonNull Collection<? extends T> records) {
+        for (final T record : records) {
+            final I id = this.idExtractor.apply(record);
+            final Optional<Cluster<C, T>> cluster = this.clusterStore.getCluster(id);
+            if (cluster.isEmpty()) {
+                continue;
+            }
+            this.clusterStore.removeCluster(cluster.get());
+            final List<T> remaining = cluster.get().getElements().stream()
+                    .filter(element -> !id.equals(this.idExtractor.apply(element)))
+                    .collect(Collectors.toList());
+            if (remaining.size() > 1) {
+                this.clusterStore.saveCluster(new Cluster<>(cluster.get().getId(), remaining));
+            }
+        }
+    }
+
+    /**
+     * Removes the record from its cluster and splits the remaining records into connected components of duplicates.
+     * <p>The components are found with a breadth-first search that only classifies pairs of a component member with a
+     * record that has not been assigned to any component yet. Thus, a cluster that stays connected is reevaluated with
+     * few classifications, while a split costs at most a quadratic number of classifications in the size of the
+     * former cluster. The largest part keeps the id of the former cluster, if it is found first.</p>
+     * <p>Previously returned clusters are not modified.</p>
+     *
+     * @param record the record to remove.
+     * @param classifier the classifier to reevaluate pairs of the remaining records.
+     * @return the parts of the former cluster including singleton clusters.
+     */
+    @Override
+    public @NonNull Stream<Cluster<C, T>> remove(final @NonNull T record, final @NonNull Classifier<T> classifier) {
+        final I id = this.idExtractor.apply(record);
+        final Optional<Cluster<C, T>> formerCluster = this.clusterStore.getCluster(id);
+        if (formerCluster.isEmpty()) {
+            return Stream.empty();
+        }
+        this.clusterStore.removeCluster(formerCluster.get());
+        final List<T> unassigned = new LinkedList<>(formerCluster.get().getElements());
+        unassigned.removeIf(element -> id.equals(this.idExtractor.apply(element)));
+
+        final List<Cluster<C, T>> parts = new ArrayList<>();
+        while (!unassigned.isEmpty()) {
+            final List<T> component = this.findComponent(unassigned, classifier);
+            final C clusterId = parts.isEmpty() ? formerCluster.get().getId()
+                    : this.clusterIdGenerator.apply(this.getElementIds(component));
+            final Cluster<C, T> part = new Cluster<>(clusterId, component);
+            if (component.size() > 1) {
+                this.clusterStore.saveCluster(part);
+            }
+            parts.add(part);
+        }
+        return parts.stream();
+    }
+
+    @Override
+    public void writeSnapshot(final @NonNull SnapshotOutput output) throws IOException {
+        this.clusterStore.writeSnapshot(output);
+    }
+
+    @Override
+    public void restoreSnapshot(final @NonNull SnapshotInput input) throws IOException {
+        this.clusterStore.restoreSnapshot(input);
+    }
+
+    private List<T> findComponent(final List<T> unassigned, final Classifier<T> classifier) {
+        final List<T> component = new ArrayList<>(List.of(unassigned.remove(0)));
+        for (int index = 0; index < component.size(); index++) {
+            final T member = component.get(index);
+            for (final Iterator<T> iterator = unassigned.iterator(); iterator.hasNext(); ) {
+                final T other = iterator.next();
+                final Classification classification =
+                        classifier.classify(new OnlineCandidate<>(member, other)).getClassification();
+                if (classification == Classification.DUPLICATE) {
+                    iterator.remove();
+                    component.add(other);
+                }
+            }
+        }
+        return component;
+    }
+
+    @Override
+    public @NonNull Optional<Cluster<C, T>> getCluster(final @NonNull T record) {
+        return this.clusterStore.getCluster(this.idExtractor.apply(record));
+    }
+
     private List<I> getElementIds(final Collection<? extends T> elements) {
         return elements.stream()
                 .map(this.idExtractor)
@@ -131,11 +275,12 @@ public class TransitiveClosure<C extends Comparable<C>, T, I extends Comparable<
     public void removeCluster(final Cluster<C, ? extends T> cluster) {
         final List<I> recordIds = this.getElementIds(cluster.getElements());
         final Map<C, List<Cluster<C, T>>> referredCluster = recordIds.stream()
-                .map(this.clusterIndex::get)
+                .map(id -> this.clusterStore.getCluster(id)
+                        .orElseThrow(() -> new IllegalArgumentException("Provided cluster is not known " + cluster)))
                 .collect(Collectors.groupingBy(Cluster::getId));
         if (referredCluster.size() != 1 || !referredCluster.values().iterator().next().get(0).equals(cluster)) {
             throw new IllegalArgumentException("Provided cluster is not known " + cluster);
         }
-        this.clusterIndex.keySet().removeAll(recordIds);
+        this.clusterStore.removeCluster(cluster);
     }
 }
@@ -0,0 +1,344 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import com.bakdata.dedupe.candidate_selection.Candidate;
+import com.bakdata.dedupe.candidate_selection.online.OnlineCandidateSelection;
+import com.bakdata.dedupe.classifier.Classification;
+import com.bakdata.dedupe.classifier.ClassificationResult;
+import com.bakdata.dedupe.classifier.ClassifiedCandidate;
+import com.bakdata.dedupe.classifier.Classifier;
+import com.bakdata.dedupe.clustering.Cluster;
+import com.bakdata.dedupe.clustering.InMemoryClusterStore;
+import com.bakdata.dedupe.clustering.TransitiveClosure;
+import com.bakdata.dedupe.duplicate_detection.PossibleDuplicateHandler;
+import com.bakdata.dedupe.fusion.FusedValue;
+import com.bakdata.dedupe.fusion.Fusion;
+import com.bakdata.dedupe.fusion.IncompleteFusionHandler;
+import com.bakdata.util.StreamUtil;
+import com.google.common.util.concurrent.Striped;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+
+
+/**
+ * An online deduplication that processes records concurrently on a thread pool.
+ * <p>Each record passes three phases:</p>
+ * <ul>
+ * <li>Candidate selection: The candidates of the current index are looked up under a shared lock and speculatively
+ * classified without any lock. The record is then inserted into the index under a short exclusive lock. If no other
+ * record has been inserted in the meantime, the looked up candidates are exact. Otherwise, the lookup is repeated a
+ * few times, classifying only new candidates, before the candidates are finally selected under the exclusive
+ * lock.</li>
+ * <li>Clustering: The transitive closure only locks the clusters that are touched by the record. The locks are
+ * {@link Striped} by record id; mutating a cluster requires the stripes of all of its members. The stripes are
+ * acquired in ascending stripe order, such that concurrent records cannot deadlock. If the clusters changed between
+ * choosing and acquiring the stripes, the stripes are released and the affected clusters are locked again.</li>
+ * <li>Fusion: The cluster is copied under the locks and fused without holding any lock.</li>
+ * </ul>
+ * <p>The classification of a record is based on exactly the candidates that the sequential {@link
+ * com.bakdata.dedupe.duplicate_detection.online.OnlinePairBasedDuplicateDetection} would select when processing the
+ * records in the order of their insertion into the index. Hence, records whose candidates are not processed
+ * concurrently end up in the same clusters as in sequential processing. Only the cluster ids may differ, as they are
+ * generated in the order of the concurrent merges.</p>
+ * <p>The classifier and the cluster id generator must be thread-safe. The candidate selection must support
+ * concurrent {@link OnlineCandidateSelection#lookupCandidates(Object) lookups} as long as no modification happens at
+ * the same time; its modifications are serialized by this class. Cluster refinement is not supported, as it
+ * reevaluates whole clusters that may be modified concurrently.</p>
+ *
+ * @param <C> the type of the cluster id.
+ * @param <T> the type of the record.
+ * @param <I> the type of the record id.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ConcurrentOnlineDeduplication<C extends Comparable<C>, T, I extends Comparable<? super I>>
+        implements OnlineDeduplication<T>, Closeable {
+    /**
+     * The default number of lock stripes.
+     */
+    public static final int DEFAULT_STRIPES = 1024;
+    private static final int MAX_SPECULATIVE_LOOKUPS = 3;
+    @Getter
+    @NonNull OnlineCandidateSelection<T> candidateSelection;
+    @Getter
+    @NonNull Classifier<T> classifier;
+    @Getter
+    @NonNull PossibleDuplicateHandler<T> possibleDuplicateHandler;
+    @Getter
+    @NonNull Fusion<T> fusion;
+    @Getter
+    @NonNull IncompleteFusionHandler<T> incompleteFusionHandler;
+    @Getter
+    @NonNull Function<? super T, ? extends I> idExtractor;
+    /**
+     * The transitive closure of all detected duplicates.
+     */
+    @Getter
+    @NonNull TransitiveClosure<C, T, I> closure;
+    /**
+     * The number of threads that process records.
+     */
+    @Getter
+    int parallelism;
+    ExecutorService executor;
+    ReadWriteLock indexLock = new ReentrantReadWriteLock();
+    Striped<Lock> clusterLocks;
+    // the number of inserted records, guarded by the index lock
+    @NonFinal
+    long indexVersion;
+
+    /**
+     * Creates a concurrent online deduplication.
+     *
+     * @param candidateSelection the candidate selection that supports concurrent lookups, such as {@link
+     * com.bakdata.dedupe.candidate_selection.online.OnlineSortedNeighborhoodMethod}.
+     * @param classifier the thread-safe classifier.
+     * @param possibleDuplicateHandler the callback for possible duplicates. Defaults to {@link
+     * PossibleDuplicateHandler#keep()}.
+     * @param fusion the fusion that reconciles the clusters into new records.
+     * @param incompleteFusionHandler the callback for incomplete fusions. Defaults to {@link
+     * IncompleteFusionHandler#dontFuse()}.
+     * @param idExtractor extracts the id of a record.
+     * @param clusterIdGenerator the thread-safe generator for ids of newly formed clusters.
+     * @param parallelism the number of threads. Defaults to the number of available processors.
+     * @param stripes the number of lock stripes. Defaults to {@value #DEFAULT_STRIPES}.
+     */
+    @Builder
+    private ConcurrentOnlineDeduplication(final @NonNull OnlineCandidateSelection<T> candidateSelection,
+            final @NonNull Classifier<T> classifier, final PossibleDuplicateHandler<T> possibleDuplicateHandler,
+            final @NonNull Fusion<T> fusion, final IncompleteFusionHandler<T> incompleteFusionHandler,
+            final @NonNull Function<? super T, ? extends I> idExtractor,
+            final @NonNull Function<Iterable<I>, C> clusterIdGenerator, final Integer parallelism,
+            final Integer stripes) {
+        this.candidateSelection = candidateSelection;
+        this.classifier = classifier;
+        this.possibleDuplicateHandler =
+                possibleDuplicateHandler != null ? possibleDuplicateHandler : PossibleDuplicateHandler.keep();
+        this.fusion = fusion;
+        this.incompleteFusionHandler =
+                incompleteFusionHandler != null ? incompleteFusionHandler : IncompleteFusionHandler.dontFuse();
+        this.idExtractor = idExtractor;
+        this.closure = TransitiveClosure.<C, T, I>builder()
+                .idExtractor(idExtractor)
+                .clusterIdGenerator(clusterIdGenerator)
+                .clusterStore(InMemoryClusterStore.<C, T, I>builder()
+                        .idExtractor(idExtractor)
+                        .clusterIndex(new ConcurrentHashMap<>())
+                        .build())
+                .build();
+        this.parallelism = parallelism != null ? parallelism : Runtime.getRuntime().availableProcessors();
+        if (this.parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + this.parallelism);
+        }
+        this.executor = Executors.newFixedThreadPool(this.parallelism);
+        this.clusterLocks = Striped.lock(stripes != null ? stripes : DEFAULT_STRIPES);
+    }
+
+    /**
+     * Deduplicates the record on the thread pool.
+     *
+     * @param newRecord the record that should be processed with all previously seen records.
+     * @return a future of the result of {@link #deduplicate(Object)}.
+     */
+    public @NonNull CompletableFuture<T> submit(final @NonNull T newRecord) {
+        return CompletableFuture.supplyAsync(() -> this.deduplicate(newRecord), this.executor);
+    }
+
+    /**
+     * Deduplicates the record in the calling thread. This method may be invoked concurrently.
+     */
+    @Override
+    public @NonNull T deduplicate(final @NonNull T newRecord) {
+        final List<Candidate<T>> duplicates = this.detectDuplicates(newRecord);
+        if (duplicates.isEmpty()) {
+            return newRecord;
+        }
+        final Cluster<C, T> cluster = this.cluster(newRecord, duplicates);
+        final FusedValue<T> fusedValue = this.fusion.fuse(cluster);
+        return this.incompleteFusionHandler.apply(fusedValue)
+                .map(FusedValue::getValue)
+                .orElse(newRecord);
+    }
+
+    /**
+     * Deduplicates the records on the thread pool and returns the results in the order of the records. At most twice
+     * as many records as threads are processed ahead of the consumer of the result stream.
+     */
+    @Override
+    public @NonNull Stream<T> deduplicate(final @NonNull Stream<? extends T> records) {
+        return StreamUtil.mapAsyncOrdered(records, this::submit, 2 * this.parallelism);
+    }
+
+    /**
+     * Stops the thread pool after all submitted records have been processed.
+     */
+    @Override
+    public void close() {
+        this.executor.shutdown();
+    }
+
+    private List<Candidate<T>> detectDuplicates(final T newRecord) {
+        final Map<T, ClassificationResult> speculativeResults = new IdentityHashMap<>();
+        List<Candidate<T>> candidates = null;
+        for (int lookup = 1; candidates == null; lookup++) {
+            final Lock readLock = this.indexLock.readLock();
+            final long version;
+            final List<Candidate<T>> speculativeCandidates;
+            readLock.lock();
+            try {
+                version = this.indexVersion;
+                speculativeCandidates =
+                        this.candidateSelection.lookupCandidates(newRecord).collect(Collectors.toList());
+            } finally {
+                readLock.unlock();
+            }
+            for (final Candidate<T> candidate : speculativeCandidates) {
+                speculativeResults.computeIfAbsent(candidate.getRecord2(), r -> this.classifier.classify(candidate));
+            }
+            candidates = this.insert(newRecord, speculativeCandidates, version, lookup == MAX_SPECULATIVE_LOOKUPS);
+        }
+
+        final List<Candidate<T>> duplicates = new ArrayList<>();
+        for (final Candidate<T> candidate : candidates) {
+            final ClassificationResult speculativeResult = speculativeResults.get(candidate.getRecord2());
+            final ClassifiedCandidate<T> classifiedCandidate = speculativeResult != null
+                    ? new ClassifiedCandidate<>(candidate, speculativeResult)
+                    : this.classifier.classifyCandidate(candidate);
+            final Classification classification = this.handlePossibleDuplicate(classifiedCandidate)
+                    .getClassificationResult().getClassification();
+            if (classification == Classification.DUPLICATE) {
+                duplicates.add(candidate);
+            }
+        }
+        return duplicates;
+    }
+
+    /**
+     * Inserts the record into the index if the speculative candidates are still exact or if the candidates should be
+     * selected under the exclusive lock.
+     *
+     * @return the exact candidates or null if the record has not been inserted.
+     */
+    private List<Candidate<T>> insert(final T newRecord, final List<Candidate<T>> speculativeCandidates,
+            final long version, final boolean force) {
+        final Lock writeLock = this.indexLock.writeLock();
+        writeLock.lock();
+        try {
+            final List<Candidate<T>> candidates;
+            if (this.indexVersion == version) {
+                this.candidateSelection.add(newRecord);
+                candidates = speculativeCandidates;
+            } else if (force) {
+                candidates = this.candidateSelection.selectCandidates(newRecord).collect(Collectors.toList());
+            } else {
+                return null;
+            }
+            this.indexVersion++;
+            return candidates;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private ClassifiedCandidate<T> handlePossibleDuplicate(final ClassifiedCandidate<T> classifiedCandidate) {
+        if (classifiedCandidate.getClassificationResult().getClassification() == Classification.POSSIBLE_DUPLICATE) {
+            return this.possibleDuplicateHandler.possibleDuplicateFound(classifiedCandidate);
+        }
+        return classifiedCandidate;
+    }
+
+    private Cluster<C, T> cluster(final T newRecord, final List<Candidate<T>> duplicates) {
+        final List<T> involvedRecords = new ArrayList<>(duplicates.size() + 1);
+        involvedRecords.add(newRecord);
+        duplicates.forEach(duplicate -> involvedRecords.add(duplicate.getRecord2()));
+
+        Set<I> lockedIds = this.getAffectedIds(involvedRecords);
+        while (true) {
+            final List<Lock> locks = new ArrayList<>();
+            // bulkGet returns the stripes in a consistent order, which prevents deadlocks
+            this.clusterLocks.bulkGet(lockedIds).forEach(locks::add);
+            locks.forEach(Lock::lock);
+            try {
+                final Set<I> affectedIds = this.getAffectedIds(involvedRecords);
+                if (lockedIds.containsAll(affectedIds)) {
+                    this.closure.clusterDuplicates(duplicates);
+                    final Cluster<C, T> cluster = this.closure.getCluster(newRecord)
+                            .orElseThrow(() -> new IllegalStateException("Record has not been clustered"));
+                    return new Cluster<>(cluster.getId(), new ArrayList<>(cluster.getElements()));
+                }
+                // a concurrent merge extended the clusters in the meantime
+                affectedIds.addAll(lockedIds);
+                lockedIds = affectedIds;
+            } finally {
+                for (int index = locks.size() - 1; index >= 0; index--) {
+                    locks.get(index).unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the ids of the given records and all members of their current clusters. Without holding the
+     * corresponding locks, the result is only a guess, as the clusters may be modified concurrently.
+     */
+    @SuppressWarnings("unchecked")
+    private Set<I> getAffectedIds(final Iterable<? extends T> records) {
+        final Set<I> ids = new HashSet<>();
+        for (final T record : records) {
+            ids.add(this.idExtractor.apply(record));
+            final Optional<Cluster<C, T>> cluster = this.closure.getCluster(record);
+            if (cluster.isPresent()) {
+                // toArray does not fail on concurrent modifications, but may contain null slots
+                for (final Object element : cluster.get().getElements().toArray()) {
+                    if (element != null) {
+                        ids.add(this.idExtractor.apply((T) element));
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,474 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import com.bakdata.util.Codec;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+
+
+/**
+ * A {@link WriteAheadLog} in append-only segment files on local disk.
+ * <p>Records are buffered and forced to the storage device in groups (group commit): after {@link #syncInterval}
+ * records or when the oldest unforced record is older than {@link #syncDelay}, whichever comes first. A background
+ * thread forces the last group after the delay even if no further records are appended. Thus, a crash loses at most
+ * the records of the current group, while the costly force is amortized over many records. {@link #sync()} forces
+ * the log explicitly, e.g., before the deduplicated results are acknowledged to the upstream system.</p>
+ * <p>Each entry consists of its length, a sequence number, the operation, the encoded record, and a checksum, such
+ * that a torn write at the end of the log is detected and truncated when the log is reopened. An invalid entry
+ * anywhere else, e.g., on a corrupted disk, fails the recovery instead of silently skipping the following records.</p>
+ * <h2>Recovery:</h2>
+ * <p>The log is part of the {@link DeduplicationSnapshot}, where it only stores the sequence number of the next
+ * record. On startup, the application restores the snapshot and then invokes {@link #replay(OnlineDeduplication)},
+ * which only reprocesses the records that have been logged after the snapshot. After a snapshot has been written
+ * successfully, {@link #truncate()} deletes all segments that are fully covered by it.</p>
+ * <p>All methods are synchronized with the background sync. The log should nevertheless be used by a single
+ * deduplication, which defines the order of the entries.</p>
+ *
+ * @param <T> the type of the record.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class FileWriteAheadLog<T> implements WriteAheadLog<T>, Snapshottable, Closeable {
+    private static final String SEGMENT_SUFFIX = ".wal";
+    // length, sequence, and checksum
+    private static final int ENTRY_OVERHEAD = Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final byte APPEND = 0;
+    private static final byte DELETION = 1;
+
+    /**
+     * The directory of the segment files.
+     */
+    @Getter
+    @NonNull Path directory;
+    /**
+     * The binary encoding of the records.
+     */
+    @Getter
+    @NonNull Codec<T> recordCodec;
+    /**
+     * The maximum number of records in a group before it is forced. Defaults to 1000.
+     */
+    @Getter
+    int syncInterval;
+    /**
+     * The maximum time a record remains unforced before the group is forced in the background. Defaults to 100 ms.
+     */
+    @Getter
+    @NonNull Duration syncDelay;
+    /**
+     * The size in bytes after which a new segment is started. Defaults to 64 MiB.
+     */
+    @Getter
+    long segmentSize;
+    List<Segment> segments = new ArrayList<>();
+    ByteArrayOutputStream entryBuffer = new ByteArrayOutputStream();
+    ByteArrayOutputStream groupBuffer = new ByteArrayOutputStream();
+    CRC32 checksum = new CRC32();
+    ScheduledExecutorService syncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "write-ahead-log-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+    @NonFinal
+    FileChannel channel;
+    @NonFinal
+    long nextSequence;
+    @NonFinal
+    long checkpointSequence;
+    @NonFinal
+    int groupSize;
+    @NonFinal
+    long groupStartNanos;
+    @NonFinal
+    boolean replaying;
+    @NonFinal
+    UncheckedIOException backgroundSyncFailure;
+
+    @Builder
+    private FileWriteAheadLog(final @NonNull Path directory, final @NonNull Codec<T> recordCodec,
+            final Integer syncInterval, final Duration syncDelay, final Long segmentSize) {
+        this.directory = directory;
+        this.recordCodec = recordCodec;
+        this.syncInterval = syncInterval != null ? syncInterval : 1000;
+        this.syncDelay = syncDelay != null ? syncDelay : Duration.ofMillis(100);
+        this.segmentSize = segmentSize != null ? segmentSize : 64L << 20;
+        try {
+            Files.createDirectories(directory);
+            try (final Stream<Path> files = Files.list(directory)) {
+                this.segments.addAll(files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                        .map(Segment::new)
+                        .sorted((s1, s2) -> Long.compare(s1.getFirstSequence(), s2.getFirstSequence()))
+                        .collect(Collectors.toList()));
+            }
+            if (this.segments.isEmpty()) {
+                this.startSegment();
+            } else {
+                this.openLastSegment();
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot open write-ahead log in " + directory, e);
+        }
+    }
+
+    @Override
+    public synchronized void append(final @NonNull T record) {
+        this.append(APPEND, record);
+    }
+
+    @Override
+    public synchronized void appendDeletion(final @NonNull T record) {
+        this.append(DELETION, record);
+    }
+
+    private void append(final byte operation, final T record) {
+        this.rethrowBackgroundSyncFailure();
+        if (this.replaying) {
+            // record is already logged
+            return;
+        }
+        try {
+            this.entryBuffer.reset();
+            final DataOutputStream entry = new DataOutputStream(this.entryBuffer);
+            entry.writeLong(this.nextSequence);
+            entry.writeByte(operation);
+            this.recordCodec.write(record, entry);
+            this.checksum.reset();
+            this.checksum.update(this.entryBuffer.toByteArray());
+
+            final DataOutputStream group = new DataOutputStream(this.groupBuffer);
+            group.writeInt(this.entryBuffer.size() - Long.BYTES);
+            this.entryBuffer.writeTo(group);
+            group.writeInt((int) this.checksum.getValue());
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot encode " + record, e);
+        }
+        this.nextSequence++;
+        if (this.groupSize++ == 0) {
+            final long groupStartNanos = System.nanoTime();
+            this.groupStartNanos = groupStartNanos;
+            this.syncExecutor.schedule(() -> this.syncIdleGroup(groupStartNanos), this.syncDelay.toNanos(),
+                    TimeUnit.NANOSECONDS);
+        }
+        final long groupNanos = System.nanoTime() - this.groupStartNanos;
+        if (this.groupSize >= this.syncInterval || groupNanos >= this.syncDelay.toNanos()) {
+            this.sync();
+        }
+    }
+
+    /**
+     * Writes all buffered records and forces them to the storage device.
+     *
+     * @throws UncheckedIOException if the log cannot be written.
+     */
+    public synchronized void sync() {
+        this.rethrowBackgroundSyncFailure();
+        if (this.groupSize == 0) {
+            return;
+        }
+        try {
+            final ByteBuffer buffer = ByteBuffer.wrap(this.groupBuffer.toByteArray());
+            while (buffer.hasRemaining()) {
+                this.channel.write(buffer);
+            }
+            this.channel.force(false);
+            this.groupBuffer.reset();
+            this.groupSize = 0;
+            if (this.channel.size() >= this.segmentSize) {
+                this.channel.close();
+                this.startSegment();
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot write to write-ahead log in " + this.directory, e);
+        }
+    }
+
+    /**
+     * Reprocesses all records that have been logged after the last restored snapshot or all records if no snapshot
+     * has been restored. Deletions are replayed with {@link OnlineDeduplication#delete(Object)}. The replayed records
+     * are not logged again.
+     *
+     * @param deduplication the deduplication, which uses this log.
+     * @return the number of replayed records.
+     * @throws UncheckedIOException if the log cannot be read or contains a corrupted entry.
+     */
+    public synchronized long replay(final @NonNull OnlineDeduplication<T> deduplication) {
+        this.sync();
+        long replayed = 0;
+        this.replaying = true;
+        try {
+            for (int index = 0; index < this.segments.size(); index++) {
+                if (index + 1 < this.segments.size()
+                        && this.segments.get(index + 1).getFirstSequence() <= this.checkpointSequence) {
+                    continue;
+                }
+                final Path path = this.segments.get(index).getPath();
+                try (final SegmentReader reader = new SegmentReader(path, index == this.segments.size() - 1)) {
+                    Entry<T> entry;
+                    while ((entry = reader.next()) != null) {
+                        if (entry.getSequence() < this.checkpointSequence) {
+                            continue;
+                        }
+                        if (entry.getOperation() == DELETION) {
+                            deduplication.delete(entry.getRecord());
+                        } else {
+                            deduplication.deduplicate(entry.getRecord());
+                        }
+                        replayed++;
+                    }
+                }
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot replay write-ahead log in " + this.directory, e);
+        } finally {
+            this.replaying = false;
+        }
+        return replayed;
+    }
+
+    /**
+     * Deletes all segments that only contain records before the last written or restored snapshot. Invoke this
+     * method only after the snapshot has been successfully written.
+     *
+     * @throws UncheckedIOException if a segment cannot be deleted.
+     */
+    public synchronized void truncate() {
+        try {
+            while (this.segments.size() > 1 && this.segments.get(1).getFirstSequence() <= this.checkpointSequence) {
+                Files.delete(this.segments.remove(0).getPath());
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot truncate write-ahead log in " + this.directory, e);
+        }
+    }
+
+    /**
+     * Returns the sequence number of the next appended record.
+     */
+    public synchronized long getNextSequence() {
+        return this.nextSequence;
+    }
+
+    /**
+     * Forces all buffered records and stores the position of the snapshot in the log.
+     */
+    @Override
+    public synchronized void writeSnapshot(final @NonNull SnapshotOutput output) throws IOException {
+        this.sync();
+        output.getData().writeLong(this.nextSequence);
+        this.checkpointSequence = this.nextSequence;
+    }
+
+    @Override
+    public synchronized void restoreSnapshot(final @NonNull SnapshotInput input) throws IOException {
+        this.checkpointSequence = input.getData().readLong();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.syncExecutor.shutdownNow();
+        this.sync();
+        this.channel.close();
+    }
+
+    private synchronized void syncIdleGroup(final long groupStartNanos) {
+        // the group may have been forced already and a new group may have been started since
+        if (this.groupSize == 0 || this.groupStartNanos != groupStartNanos || !this.channel.isOpen()) {
+            return;
+        }
+        try {
+            this.sync();
+        } catch (final UncheckedIOException e) {
+            this.backgroundSyncFailure = e;
+        }
+    }
+
+    private void rethrowBackgroundSyncFailure() {
+        if (this.backgroundSyncFailure != null) {
+            final UncheckedIOException failure = this.backgroundSyncFailure;
+            this.backgroundSyncFailure = null;
+            throw failure;
+        }
+    }
+
+    private void startSegment() throws IOException {
+        final Segment segment = new Segment(this.directory.resolve(
+                String.format("%020d%s", this.nextSequence, SEGMENT_SUFFIX)));
+        this.segments.add(segment);
+        this.channel = FileChannel.open(segment.getPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    private void openLastSegment() throws IOException {
+        final Segment lastSegment = this.segments.get(this.segments.size() - 1);
+        this.nextSequence = lastSegment.getFirstSequence();
+        final long validLength;
+        try (final SegmentReader reader = new SegmentReader(lastSegment.getPath(), true)) {
+            Entry<T> entry;
+            while ((entry = reader.next()) != null) {
+                this.nextSequence = entry.getSequence() + 1;
+            }
+            validLength = reader.getOffset();
+        }
+        this.channel = FileChannel.open(lastSegment.getPath(), StandardOpenOption.WRITE);
+        // drop a torn write of the last group
+        this.channel.truncate(validLength);
+        this.channel.position(validLength);
+    }
+
+    /**
+     * Reads the entries of a segment. An incomplete entry or an invalid entry that is only followed by zero bytes is a
+     * torn write, which ends the last segment. Any other invalid entry is reported as corruption.
+     */
+    private class SegmentReader implements Closeable {
+        private final Path path;
+        private final boolean lastSegment;
+        private final long length;
+        private final DataInputStream input;
+        @Getter
+        private long offset;
+
+        SegmentReader(final Path path, final boolean lastSegment) throws IOException {
+            this.path = path;
+            this.lastSegment = lastSegment;
+            this.length = Files.size(path);
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+        }
+
+        /**
+         * Returns the next entry or null at the end of the segment.
+         *
+         * @throws IOException if the entry is corrupted.
+         */
+        Entry<T> next() throws IOException {
+            if (this.offset == this.length) {
+                return null;
+            }
+            try {
+                final int entryLength = this.input.readInt();
+                // a torn length must not result in a huge allocation
+                if (entryLength > this.length - this.offset - ENTRY_OVERHEAD) {
+                    return this.tornEntry("exceeds the segment");
+                }
+                if (entryLength < 0) {
+                    return this.invalidEntry("has a negative length");
+                }
+                final byte[] entry = new byte[Long.BYTES + entryLength];
+                this.input.readFully(entry);
+                final int expectedChecksum = this.input.readInt();
+                FileWriteAheadLog.this.checksum.reset();
+                FileWriteAheadLog.this.checksum.update(entry);
+                if ((int) FileWriteAheadLog.this.checksum.getValue() != expectedChecksum) {
+                    return this.invalidEntry("has an invalid checksum");
+                }
+                final DataInputStream entryInput = new DataInputStream(new ByteArrayInputStream(entry));
+                final long sequence = entryInput.readLong();
+                final byte operation = entryInput.readByte();
+                final T record = FileWriteAheadLog.this.recordCodec.read(entryInput);
+                this.offset += ENTRY_OVERHEAD + entryLength;
+                return new Entry<>(sequence, operation, record);
+            } catch (final EOFException e) {
+                return this.tornEntry("is incomplete");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.input.close();
+        }
+
+        private Entry<T> tornEntry(final String reason) throws IOException {
+            if (!this.lastSegment) {
+                throw this.corruption(reason);
+            }
+            return null;
+        }
+
+        private Entry<T> invalidEntry(final String reason) throws IOException {
+            if (!this.lastSegment || !this.isFollowedByZerosOnly()) {
+                throw this.corruption(reason);
+            }
+            return null;
+        }
+
+        private boolean isFollowedByZerosOnly() throws IOException {
+            int value;
+            while ((value = this.input.read()) >= 0) {
+                if (value != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private IOException corruption(final String reason) {
+            return new IOException("Entry at offset " + this.offset + " of " + this.path + " " + reason);
+        }
+    }
+
+    @Value
+    private static class Segment {
+        Path path;
+        long firstSequence;
+
+        Segment(final Path path) {
+            this.path = path;
+            final String fileName = path.getFileName().toString();
+            this.firstSequence = Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length()));
+        }
+    }
+
+    @Value
+    private static class Entry<T> {
+        long sequence;
+        byte operation;
+        T record;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import com.bakdata.dedupe.clustering.Cluster;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+
+/**
+ * An {@link ExactDuplicateIndex} over normalized content fingerprints of the records.
+ * <p>The {@link #fingerprintFunction} renders the relevant content of a record into a normalized string; for example,
+ * by concatenating all fields except the record id with a separator that does not appear in the values. Two records
+ * are exact duplicates iff their fingerprints are equal.</p>
+ * <p>The index only keeps a 64 bit hash of each fingerprint together with the record and its last result. Hash
+ * collisions are resolved by recomputing the fingerprint of the indexed record on a hit, such that no fingerprint
+ * strings need to be kept in memory.</p>
+ *
+ * @param <T> the type of the record.
+ */
+@Value
+@Builder
+public class FingerprintIndex<T> implements ExactDuplicateIndex<T>, Evictable<T>, Snapshottable {
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    /**
+     * Renders the content of a record into a normalized fingerprint.
+     */
+    @NonNull
+    Function<? super T, ? extends CharSequence> fingerprintFunction;
+    /**
+     * A backing map from fingerprint hash to the last known result. Defaults to an in-memory map.
+     */
+    @NonNull
+    @Builder.Default
+    Map<Long, Entry<T>> index = new HashMap<>();
+
+    @Override
+    public @NonNull Optional<T> lookup(final @NonNull T newRecord) {
+        final CharSequence fingerprint = this.fingerprintFunction.apply(newRecord);
+        final Entry<T> entry = this.index.get(hash(fingerprint));
+        if (entry == null) {
+            return Optional.empty();
+        }
+        // verify fingerprint to rule out hash collisions
+        if (CharSequence.compare(fingerprint, this.fingerprintFunction.apply(entry.getRecord())) != 0) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.getResult());
+    }
+
+    @Override
+    public void update(final @NonNull T newRecord, final @NonNull T result,
+            final @NonNull Collection<? extends Cluster<?, T>> changedClusters) {
+        if (changedClusters.isEmpty()) {
+            this.index.put(this.getHash(newRecord), new Entry<>(newRecord, result));
+            return;
+        }
+        for (final Cluster<?, T> changedCluster : changedClusters) {
+            if (changedCluster.contains(newRecord)) {
+                // all members of the cluster now share the new result
+                for (final T element : changedCluster.getElements()) {
+                    this.index.put(this.getHash(element), new Entry<>(element, result));
+                }
+            } else {
+                // the result of the split parts has not been fused yet
+                for (final T element : changedCluster.getElements()) {
+                    this.index.remove(this.getHash(element));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void remove(final @NonNull T record) {
+        this.evict(List.of(record));
+    }
+
+    /**
+     * Removes the entries of the given records, such that re-deliveries of evicted records are fully deduplicated.
+     *
+     * @param records the records to evict.
+     */
+    @Override
+    public void evict(final @NonNull Collection<? extends T> records) {
+        for (final T record : records) {
+            final long hash = this.getHash(record);
+            final Entry<T> entry = this.index.get(hash);
+            if (entry != null && entry.getRecord().equals(record)) {
+                this.index.remove(hash);
+            }
+        }
+    }
+
+    @Override
+    public void writeSnapshot(final @NonNull SnapshotOutput output) throws IOException {
+        output.getData().writeInt(this.index.size());
+        for (final Map.Entry<Long, Entry<T>> entry : this.index.entrySet()) {
+            output.getData().writeLong(entry.getKey());
+            output.writeRecord(entry.getValue().getRecord());
+            output.writeRecord(entry.getValue().getResult());
+        }
+    }
+
+    @Override
+    public void restoreSnapshot(final @NonNull SnapshotInput input) throws IOException {
+        final int size = input.getData().readInt();
+        for (int i = 0; i < size; i++) {
+            final long hash = input.getData().readLong();
+            this.index.put(hash, new Entry<>(input.readRecord(), input.readRecord()));
+        }
+    }
+
+    private long getHash(final T record) {
+        return hash(this.fingerprintFunction.apply(record));
+    }
+
+    private static long hash(final CharSequence fingerprint) {
+        return HASH_FUNCTION.hashUnencodedChars(fingerprint).asLong();
+    }
+
+    /**
+     * The last known result for a record.
+     *
+     * @param <T> the type of the record.
+     */
+    @Value
+    public static class Entry<T> {
+        /**
+         * The record that has been deduplicated. Used to verify the fingerprint on hash collisions.
+         */
+        @NonNull
+        T record;
+        /**
+         * The last result of the deduplication of the record.
+         */
+        @NonNull
+        T result;
+    }
+}
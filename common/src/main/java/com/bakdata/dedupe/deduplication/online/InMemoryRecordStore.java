@@ -0,0 +1,158 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+
+
+/**
+ * A {@link RecordStore} that keeps the records in an array indexed by their handles.
+ * <p>An optional {@link #compactor} is applied to each stored record, for example, to share the values of
+ * low-cardinality fields through a {@link com.bakdata.util.Dictionary}.</p>
+ * <p>As an {@link Evictable}, the store should be the last target of an {@link EvictionPolicy}, such that the other
+ * targets can still resolve the handles of the evicted records. This class is not thread-safe.</p>
+ *
+ * @param <T> the type of the record.
+ * @param <I> the type of the record id.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class InMemoryRecordStore<T, I> implements RecordStore<T, I>, Evictable<T>, Snapshottable {
+    /**
+     * Extracts the id of the record.
+     */
+    @Getter
+    @NonNull Function<? super T, ? extends I> idExtractor;
+    /**
+     * Compacts the record before it is stored. Defaults to the identity.
+     */
+    @Getter
+    @NonNull UnaryOperator<T> compactor;
+    Map<I, Integer> handles = new HashMap<>();
+    @NonFinal
+    Object[] records;
+    @NonFinal
+    int nextHandle;
+
+    @Builder
+    private InMemoryRecordStore(final @NonNull Function<? super T, ? extends I> idExtractor,
+            final UnaryOperator<T> compactor, final Integer initialCapacity) {
+        this.idExtractor = idExtractor;
+        this.compactor = compactor != null ? compactor : UnaryOperator.identity();
+        this.records = new Object[initialCapacity != null ? initialCapacity : 1024];
+    }
+
+    @Override
+    public int put(final @NonNull T record) {
+        final I id = this.idExtractor.apply(record);
+        final int handle = this.handles.computeIfAbsent(id, i -> this.nextHandle++);
+        this.set(handle, this.compactor.apply(record));
+        return handle;
+    }
+
+    @Override
+    public int getHandle(final @NonNull I recordId) {
+        return this.handles.getOrDefault(recordId, NO_HANDLE);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public @NonNull T get(final int handle) {
+        if (!this.contains(handle)) {
+            throw new IllegalArgumentException("Unknown handle " + handle);
+        }
+        return (T) this.records[handle];
+    }
+
+    @Override
+    public boolean contains(final int handle) {
+        return handle >= 0 && handle < this.records.length && this.records[handle] != null;
+    }
+
+    @Override
+    public void remove(final int handle) {
+        if (handle < 0 || handle >= this.records.length || this.records[handle] == null) {
+            return;
+        }
+        this.handles.remove(this.idExtractor.apply(this.get(handle)));
+        this.records[handle] = null;
+    }
+
+    /**
+     * Returns the number of stored records.
+     */
+    public int size() {
+        return this.handles.size();
+    }
+
+    @Override
+    public void evict(final @NonNull Collection<? extends T> records) {
+        for (final T record : records) {
+            this.remove(this.getHandleOf(record));
+        }
+    }
+
+    /**
+     * Writes all records with their handles, such that handles that are persisted elsewhere remain valid.
+     */
+    @Override
+    public void writeSnapshot(final @NonNull SnapshotOutput output) throws IOException {
+        output.getData().writeInt(this.nextHandle);
+        output.getData().writeInt(this.handles.size());
+        for (final int handle : this.handles.values()) {
+            output.getData().writeInt(handle);
+            output.writeRecord(this.records[handle]);
+        }
+    }
+
+    @Override
+    public void restoreSnapshot(final @NonNull SnapshotInput input) throws IOException {
+        this.nextHandle = input.getData().readInt();
+        final int size = input.getData().readInt();
+        for (int i = 0; i < size; i++) {
+            final int handle = input.getData().readInt();
+            final T record = input.readRecord();
+            this.handles.put(this.idExtractor.apply(record), handle);
+            this.set(handle, record);
+        }
+    }
+
+    private void set(final int handle, final T record) {
+        if (handle >= this.records.length) {
+            this.records = Arrays.copyOf(this.records, Math.max(handle + 1, this.records.length * 2));
+        }
+        this.records[handle] = record;
+    }
+}
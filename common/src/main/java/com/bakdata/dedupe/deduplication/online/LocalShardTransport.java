@@ -0,0 +1,88 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import com.bakdata.dedupe.clustering.Cluster;
+import com.bakdata.dedupe.duplicate_detection.online.OnlineDuplicateDetection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Singular;
+import lombok.experimental.FieldDefaults;
+
+
+/**
+ * A {@link ShardTransport} that runs all shards in the current JVM, for example, for tests or to partition the index
+ * of a single machine.
+ * <p>Each shard is processed by its own thread. The returned clusters are copied, as if they had been sent over the
+ * network, such that the shards do not share any mutable state with the caller.</p>
+ *
+ * @param <C> the type of the cluster id.
+ * @param <T> the type of the record.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class LocalShardTransport<C extends Comparable<C>, T> implements ShardTransport<C, T> {
+    /**
+     * The duplicate detections of the shards, which do not need to be thread-safe.
+     */
+    @Getter
+    @NonNull List<OnlineDuplicateDetection<C, T>> shards;
+    List<ExecutorService> executors;
+
+    @Builder
+    private LocalShardTransport(final @Singular @NonNull List<OnlineDuplicateDetection<C, T>> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = shards;
+        this.executors = shards.stream()
+                .map(shard -> Executors.newSingleThreadExecutor())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public int getShardCount() {
+        return this.shards.size();
+    }
+
+    @Override
+    public @NonNull CompletableFuture<List<Cluster<C, T>>> send(final int shard, final @NonNull T record) {
+        final OnlineDuplicateDetection<C, T> duplicateDetection = this.shards.get(shard);
+        return CompletableFuture.supplyAsync(() -> duplicateDetection.detectDuplicates(record)
+                .map(cluster -> new Cluster<>(cluster.getId(), new ArrayList<>(cluster.getElements())))
+                .collect(Collectors.toList()), this.executors.get(shard));
+    }
+
+    @Override
+    public void close() {
+        this.executors.forEach(ExecutorService::shutdown);
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import com.bakdata.dedupe.candidate_selection.Candidate;
+import com.bakdata.dedupe.candidate_selection.online.OnlineCandidateSelection;
+import com.bakdata.dedupe.classifier.Classification;
+import com.bakdata.dedupe.classifier.ClassifiedCandidate;
+import com.bakdata.dedupe.classifier.Classifier;
+import com.bakdata.dedupe.clustering.Cluster;
+import com.bakdata.dedupe.clustering.Clustering;
+import com.bakdata.dedupe.clustering.Clusters;
+import com.bakdata.dedupe.duplicate_detection.PossibleDuplicateHandler;
+import com.bakdata.dedupe.fusion.FusedValue;
+import com.bakdata.dedupe.fusion.Fusion;
+import com.bakdata.dedupe.fusion.IncompleteFusionHandler;
+import com.bakdata.util.StreamUtil;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+
+
+/**
+ * An online deduplication that processes records in an asynchronous pipeline of stages, such that the classification
+ * of a record overlaps with the index maintenance and clustering of other records.
+ * <ul>
+ * <li>{@link Stage#CANDIDATE_SELECTION}: Inserts the record into the candidate selection on a single thread in
+ * submission order.</li>
+ * <li>{@link Stage#CLASSIFICATION}: Classifies the candidates of a record on the worker pool. Records are classified
+ * concurrently.</li>
+ * <li>{@link Stage#CLUSTERING}: Passes possible duplicates to the {@link PossibleDuplicateHandler} and applies the
+ * clustering on a single thread in submission order.</li>
+ * <li>{@link Stage#FUSION}: Fuses a copy of the cluster of the record on the worker pool.</li>
+ * </ul>
+ * <p>As the ordering-sensitive stages are serialized in submission order, the results are the same as the ones of a
+ * sequential {@link FusingOnlineDeduplication} with an unlimited {@link
+ * com.bakdata.dedupe.duplicate_detection.online.OnlinePairBasedDuplicateDetection}. The classifier needs to be
+ * thread-safe, while the possible duplicate handler is invoked sequentially in submission order.</p>
+ * <p>At most {@link #getCapacity()} records are in the pipeline at any time. {@link #submit(Object)} blocks until a
+ * record leaves the pipeline, which propagates backpressure to the producer. {@link #getQueueDepth(Stage)} reports
+ * the number of records waiting for each stage to find the bottleneck.</p>
+ *
+ * @param <C> the type of the cluster id.
+ * @param <T> the type of the record.
+ * @param <I> the type of the record id.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PipelinedOnlineDeduplication<C extends Comparable<C>, T, I> implements OnlineDeduplication<T>, Closeable {
+    /**
+     * The default maximum number of records in the pipeline.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+    @Getter
+    @NonNull OnlineCandidateSelection<T> candidateSelection;
+    @Getter
+    @NonNull Classifier<T> classifier;
+    @Getter
+    @NonNull PossibleDuplicateHandler<T> possibleDuplicateHandler;
+    @Getter
+    @NonNull Clustering<C, T, I> clustering;
+    @Getter
+    @NonNull Fusion<T> fusion;
+    @Getter
+    @NonNull IncompleteFusionHandler<T> incompleteFusionHandler;
+    /**
+     * The number of worker threads for classification and fusion.
+     */
+    @Getter
+    int parallelism;
+    /**
+     * The maximum number of records in the pipeline.
+     */
+    @Getter
+    int capacity;
+    ExecutorService candidateSelectionExecutor = Executors.newSingleThreadExecutor();
+    ExecutorService clusteringExecutor = Executors.newSingleThreadExecutor();
+    ExecutorService workers;
+    Semaphore permits;
+    Map<Stage, AtomicInteger> queueDepths = new EnumMap<>(Stage.class);
+    @NonFinal
+    CompletableFuture<?> lastClustering = CompletableFuture.completedFuture(null);
+
+    /**
+     * Creates a pipelined online deduplication.
+     *
+     * @param candidateSelection the candidate selection.
+     * @param classifier the thread-safe classifier.
+     * @param possibleDuplicateHandler the callback for possible duplicates, which is invoked in submission order.
+     * Defaults to {@link PossibleDuplicateHandler#keep()}.
+     * @param clustering the clustering that forms clusters of the classified candidates.
+     * @param fusion the fusion that reconciles the clusters into new records.
+     * @param incompleteFusionHandler the callback for incomplete fusions. Defaults to {@link
+     * IncompleteFusionHandler#dontFuse()}.
+     * @param parallelism the number of worker threads. Defaults to the number of available processors.
+     * @param capacity the maximum number of records in the pipeline. Defaults to {@value #DEFAULT_CAPACITY}.
+     */
+    @Builder
+    private PipelinedOnlineDeduplication(final @NonNull OnlineCandidateSelection<T> candidateSelection,
+            final @NonNull Classifier<T> classifier, final PossibleDuplicateHandler<T> possibleDuplicateHandler,
+            final @NonNull Clustering<C, T, I> clustering, final @NonNull Fusion<T> fusion,
+            final IncompleteFusionHandler<T> incompleteFusionHandler, final Integer parallelism,
+            final Integer capacity) {
+        this.candidateSelection = candidateSelection;
+        this.classifier = classifier;
+        this.possibleDuplicateHandler =
+                possibleDuplicateHandler != null ? possibleDuplicateHandler : PossibleDuplicateHandler.keep();
+        this.clustering = clustering;
+        this.fusion = fusion;
+        this.incompleteFusionHandler =
+                incompleteFusionHandler != null ? incompleteFusionHandler : IncompleteFusionHandler.dontFuse();
+        this.parallelism = parallelism != null ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.capacity = capacity != null ? capacity : DEFAULT_CAPACITY;
+        if (this.parallelism < 1 || this.capacity < 1) {
+            throw new IllegalArgumentException(
+                    "Parallelism and capacity must be positive: " + this.parallelism + ", " + this.capacity);
+        }
+        this.workers = Executors.newFixedThreadPool(this.parallelism);
+        this.permits = new Semaphore(this.capacity);
+        for (final Stage stage : Stage.values()) {
+            this.queueDepths.put(stage, new AtomicInteger());
+        }
+    }
+
+    /**
+     * Enqueues the record into the pipeline. Blocks while the pipeline is at its capacity.
+     *
+     * @param newRecord the record that should be processed with all previously submitted records.
+     * @return a future of the record or a representation of its duplicate cluster.
+     * @throws CancellationException if the thread is interrupted while waiting for capacity.
+     */
+    public @NonNull CompletableFuture<T> submit(final @NonNull T newRecord) {
+        try {
+            this.permits.acquire();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for capacity");
+        }
+        return this.enqueue(newRecord).whenComplete((fused, exception) -> this.permits.release());
+    }
+
+    @Override
+    public @NonNull T deduplicate(final @NonNull T newRecord) {
+        return this.submit(newRecord).join();
+    }
+
+    /**
+     * Submits the records to the pipeline and returns the results in the order of the records. At most {@link
+     * #getCapacity()} records are processed ahead of the consumer of the result stream.
+     */
+    @Override
+    public @NonNull Stream<T> deduplicate(final @NonNull Stream<? extends T> records) {
+        return StreamUtil.mapAsyncOrdered(records, this::submit, this.capacity);
+    }
+
+    /**
+     * Returns the number of records that wait for the given stage.
+     *
+     * @param stage the stage of the pipeline.
+     * @return the current queue depth of the stage.
+     */
+    public int getQueueDepth(final @NonNull Stage stage) {
+        return this.queueDepths.get(stage).get();
+    }
+
+    /**
+     * Returns the number of records that are currently in the pipeline.
+     */
+    public int getInFlight() {
+        return this.capacity - this.permits.availablePermits();
+    }
+
+    /**
+     * Stops all stages after all submitted records have been processed.
+     */
+    @Override
+    public void close() {
+        this.candidateSelectionExecutor.shutdown();
+        this.clusteringExecutor.shutdown();
+        this.workers.shutdown();
+    }
+
+    private synchronized CompletableFuture<T> enqueue(final T newRecord) {
+        this.queueDepths.get(Stage.CANDIDATE_SELECTION).incrementAndGet();
+        final CompletableFuture<List<ClassifiedCandidate<T>>> classified = CompletableFuture
+                .supplyAsync(() -> this.selectCandidates(newRecord), this.candidateSelectionExecutor)
+                .thenApplyAsync(this::classify, this.workers);
+        // a failed clustering must not block the clustering of subsequent records
+        final CompletableFuture<?> previousClustering = this.lastClustering.handle((clusters, exception) -> null);
+        final CompletableFuture<Cluster<C, T>> clustered =
+                classified.thenCombineAsync(previousClustering, (candidates, ignored) -> this.cluster(newRecord,
+                        candidates), this.clusteringExecutor);
+        this.lastClustering = clustered;
+        return clustered.thenApplyAsync(cluster -> this.fuse(newRecord, cluster), this.workers);
+    }
+
+    private List<Candidate<T>> selectCandidates(final T newRecord) {
+        this.queueDepths.get(Stage.CANDIDATE_SELECTION).decrementAndGet();
+        // always materialize all candidates, such that the candidate selection can fully update its state
+        final List<Candidate<T>> candidates =
+                this.candidateSelection.selectCandidates(newRecord).collect(Collectors.toList());
+        this.queueDepths.get(Stage.CLASSIFICATION).incrementAndGet();
+        return candidates;
+    }
+
+    private List<ClassifiedCandidate<T>> classify(final List<Candidate<T>> candidates) {
+        this.queueDepths.get(Stage.CLASSIFICATION).decrementAndGet();
+        final List<ClassifiedCandidate<T>> classified = new ArrayList<>(candidates.size());
+        for (final Candidate<T> candidate : candidates) {
+            classified.add(this.classifier.classifyCandidate(candidate));
+        }
+        this.queueDepths.get(Stage.CLUSTERING).incrementAndGet();
+        return classified;
+    }
+
+    private Cluster<C, T> cluster(final T newRecord, final List<ClassifiedCandidate<T>> classified) {
+        this.queueDepths.get(Stage.CLUSTERING).decrementAndGet();
+        // the handler may have side effects and thus sees the possible duplicates in submission order
+        final List<ClassifiedCandidate<T>> handled = classified.stream()
+                .map(classifiedCandidate -> classifiedCandidate.getClassificationResult().getClassification()
+                        == Classification.POSSIBLE_DUPLICATE
+                        ? this.possibleDuplicateHandler.possibleDuplicateFound(classifiedCandidate)
+                        : classifiedCandidate)
+                .collect(Collectors.toList());
+        final List<Cluster<C, T>> clusters = this.clustering.cluster(handled.stream()).collect(Collectors.toList());
+        this.queueDepths.get(Stage.FUSION).incrementAndGet();
+        if (clusters.isEmpty()) {
+            return null;
+        }
+        // copy the cluster, as subsequent records modify it while it is fused
+        final Cluster<C, T> cluster = Clusters.getContainingCluster(clusters.iterator(), newRecord);
+        return new Cluster<>(cluster.getId(), new ArrayList<>(cluster.getElements()));
+    }
+
+    private T fuse(final T newRecord, final Cluster<C, T> cluster) {
+        this.queueDepths.get(Stage.FUSION).decrementAndGet();
+        if (cluster == null) {
+            return newRecord;
+        }
+        return this.incompleteFusionHandler.apply(this.fusion.fuse(cluster))
+                .map(FusedValue::getValue)
+                .orElse(newRecord);
+    }
+
+    /**
+     * The stages of the pipeline.
+     */
+    public enum Stage {
+        CANDIDATE_SELECTION,
+        CLASSIFICATION,
+        CLUSTERING,
+        FUSION
+    }
+}
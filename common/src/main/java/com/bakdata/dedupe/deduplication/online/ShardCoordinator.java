@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import com.bakdata.dedupe.candidate_selection.Candidate;
+import com.bakdata.dedupe.candidate_selection.online.OnlineCandidate;
+import com.bakdata.dedupe.clustering.Cluster;
+import com.bakdata.dedupe.clustering.ClusterStore;
+import com.bakdata.dedupe.clustering.TransitiveClosure;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+
+
+/**
+ * Reconciles the clusters that the shards of a {@link ShardedOnlineDeduplication} detect independently into global
+ * clusters.
+ * <p>A record that is routed to multiple shards may end up in a different cluster on each shard. As all records of a
+ * shard cluster are connected through duplicate pairs, the coordinator links the record with all records of its shard
+ * clusters in a {@link TransitiveClosure}. Hence, the global clusters are the connected components of the duplicate
+ * pairs of all shards, while the coordinator only processes clusters and never classifies any candidate.</p>
+ * <p>The global clusters are bounded by a {@link SlidingWindowEviction} over the reconciled records, which evicts the
+ * oldest records from the {@link #closure}. The window should be at least as large as the windows of the shards;
+ * otherwise, a record that is still returned by a shard rejoins the global clusters without being evicted again.</p>
+ * <p>This class is thread-safe.</p>
+ *
+ * @param <C> the type of the cluster id.
+ * @param <T> the type of the record.
+ * @param <I> the type of the record id.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ShardCoordinator<C extends Comparable<C>, T, I extends Comparable<? super I>> {
+    @Getter
+    @NonNull Function<? super T, ? extends I> idExtractor;
+    /**
+     * The transitive closure of the global clusters.
+     */
+    @Getter
+    @NonNull TransitiveClosure<C, T, I> closure;
+    /**
+     * The window of reconciled records that are kept in the {@link #closure}.
+     */
+    @NonNull SlidingWindowEviction<T> window;
+
+    /**
+     * Creates a coordinator.
+     *
+     * @param idExtractor extracts the id of a record.
+     * @param clusterIdGenerator the generator for ids of global clusters.
+     * @param clusterStore the store of the global clusters. Defaults to an {@link
+     * com.bakdata.dedupe.clustering.InMemoryClusterStore}.
+     * @param maxRecords the maximum number of recent records that are kept in the global clusters. Defaults to
+     * unlimited.
+     * @param timeToLive the maximum ingestion age of records in the global clusters. Defaults to unlimited.
+     */
+    @Builder
+    private ShardCoordinator(final @NonNull Function<? super T, ? extends I> idExtractor,
+            final @NonNull Function<Iterable<I>, C> clusterIdGenerator, final ClusterStore<C, T, I> clusterStore,
+            final Long maxRecords, final Duration timeToLive) {
+        this.idExtractor = idExtractor;
+        final TransitiveClosure.TransitiveClosureBuilder<C, T, I> closure = TransitiveClosure.<C, T, I>builder()
+                .idExtractor(idExtractor)
+                .clusterIdGenerator(clusterIdGenerator);
+        if (clusterStore != null) {
+            closure.clusterStore(clusterStore);
+        }
+        this.closure = closure.build();
+        final SlidingWindowEviction.SlidingWindowEvictionBuilder<T> window =
+                SlidingWindowEviction.<T>builder().target(this.closure);
+        if (maxRecords != null) {
+            window.maxSize(maxRecords);
+        }
+        if (timeToLive != null) {
+            window.timeToLive(timeToLive);
+        }
+        this.window = window.build();
+    }
+
+    /**
+     * Merges the shard clusters of the record into its global cluster.
+     *
+     * @param record the new record.
+     * @param shardClusters the clusters of the record on all shards that it has been routed to.
+     * @return a copy of the global cluster of the record or {@link Optional#empty()} if the record has no duplicates.
+     */
+    public synchronized @NonNull Optional<Cluster<C, T>> reconcile(final @NonNull T record,
+            final @NonNull Collection<? extends Cluster<?, ? extends T>> shardClusters) {
+        final I id = this.idExtractor.apply(record);
+        final List<Candidate<T>> links = new ArrayList<>();
+        for (final Cluster<?, ? extends T> shardCluster : shardClusters) {
+            for (final T element : shardCluster.getElements()) {
+                if (!id.equals(this.idExtractor.apply(element))) {
+                    links.add(new OnlineCandidate<>(record, element));
+                }
+            }
+        }
+        this.closure.clusterDuplicates(links);
+        // records without duplicates are tracked as well, as they may be linked by later records of other shards
+        this.window.recordAdded(record);
+        return this.getCluster(record);
+    }
+
+    /**
+     * Returns the current global cluster of the record.
+     *
+     * @param record the record.
+     * @return a copy of the global cluster of the record or {@link Optional#empty()} if the record has no duplicates.
+     */
+    public synchronized @NonNull Optional<Cluster<C, T>> getCluster(final @NonNull T record) {
+        return this.closure.getCluster(record)
+                .map(cluster -> new Cluster<>(cluster.getId(), new ArrayList<>(cluster.getElements())));
+    }
+
+    /**
+     * Evicts all records that are expired or exceed the maximum number of records, e.g., during idle times. Otherwise,
+     * eviction is performed in batches while reconciling.
+     *
+     * @return the number of evicted records.
+     */
+    public synchronized int cleanUp() {
+        return this.window.cleanUp();
+    }
+
+    /**
+     * Returns the number of records in the window of the coordinator.
+     *
+     * @return the number of tracked records.
+     */
+    public synchronized int getRecordCount() {
+        return this.window.getWindowSize();
+    }
+}
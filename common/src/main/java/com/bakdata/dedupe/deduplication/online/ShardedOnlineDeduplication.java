@@ -0,0 +1,197 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import com.bakdata.dedupe.clustering.Cluster;
+import com.bakdata.dedupe.fusion.FusedValue;
+import com.bakdata.dedupe.fusion.Fusion;
+import com.bakdata.dedupe.fusion.IncompleteFusionHandler;
+import com.bakdata.util.StreamUtil;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Singular;
+import lombok.experimental.FieldDefaults;
+
+
+/**
+ * An online deduplication that partitions the records over independent shards to scale beyond a single index.
+ * <ul>
+ * <li>Routing: Each record is sent to the shards of its {@link #getBlockingKeys()}, where a key belongs to the shard
+ * {@code floorMod(key.hashCode(), shardCount)}. Thus, records with an equal blocking key always meet on one shard,
+ * while records with different keys may meet on multiple shards.</li>
+ * <li>Duplicate detection: Each shard detects the duplicates of the record among the records of its partition, for
+ * example, with an {@link com.bakdata.dedupe.duplicate_detection.online.OnlinePairBasedDuplicateDetection}. The records
+ * and the resulting clusters are exchanged through a pluggable {@link ShardTransport}.</li>
+ * <li>Reconciliation: The {@link ShardCoordinator} merges the clusters of all shards into global clusters on a
+ * dedicated thread, such that the threads of the transport only detect duplicates.</li>
+ * <li>Fusion: The global cluster of the record is fused on a separate pool of {@code fusionParallelism} threads.</li>
+ * </ul>
+ * <p>Candidates are only compared within a shard, such that the candidate selection of each shard should be keyed by
+ * the same attributes as the blocking keys. The hash codes of the blocking keys need to be stable across processes
+ * if the shards run remotely.</p>
+ * <p>Records are replicated to the shards of all of their blocking keys instead of exchanging candidates between the
+ * shards. A record is thus indexed up to once per blocking key, but each shard only needs its local partition to
+ * detect the duplicates.</p>
+ * <p>Records should be submitted from a single thread, such that all shards see them in the same order. The
+ * reconciliation happens in the order in which the shards reply. Removals are not supported. The fusion needs to be
+ * thread-safe.</p>
+ *
+ * @param <C> the type of the cluster id.
+ * @param <T> the type of the record.
+ * @param <I> the type of the record id.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ShardedOnlineDeduplication<C extends Comparable<C>, T, I extends Comparable<? super I>>
+        implements OnlineDeduplication<T>, Closeable {
+    @Getter
+    @NonNull ShardTransport<C, T> transport;
+    @Getter
+    @NonNull List<Function<? super T, ?>> blockingKeys;
+    @Getter
+    @NonNull ShardCoordinator<C, T, I> coordinator;
+    @Getter
+    @NonNull Fusion<T> fusion;
+    @Getter
+    @NonNull IncompleteFusionHandler<T> incompleteFusionHandler;
+    ExecutorService coordinatorExecutor = Executors.newSingleThreadExecutor();
+    ExecutorService fusionExecutor;
+    Set<CompletableFuture<T>> pendingResults = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a sharded online deduplication.
+     *
+     * @param transport the transport to the shards.
+     * @param blockingKeys the keys that determine the shards of a record. Records without any non-null key are not
+     * sent to any shard.
+     * @param coordinator the coordinator of the global clusters.
+     * @param fusion the fusion that reconciles the clusters into new records.
+     * @param incompleteFusionHandler the callback for incomplete fusions. Defaults to {@link
+     * IncompleteFusionHandler#dontFuse()}.
+     * @param fusionParallelism the number of threads for fusion. Defaults to the number of available processors.
+     */
+    @Builder
+    private ShardedOnlineDeduplication(final @NonNull ShardTransport<C, T> transport,
+            final @Singular @NonNull List<Function<? super T, ?>> blockingKeys,
+            final @NonNull ShardCoordinator<C, T, I> coordinator, final @NonNull Fusion<T> fusion,
+            final IncompleteFusionHandler<T> incompleteFusionHandler, final Integer fusionParallelism) {
+        if (blockingKeys.isEmpty()) {
+            throw new IllegalArgumentException("At least one blocking key is required");
+        }
+        this.transport = transport;
+        this.blockingKeys = blockingKeys;
+        this.coordinator = coordinator;
+        this.fusion = fusion;
+        this.incompleteFusionHandler =
+                incompleteFusionHandler != null ? incompleteFusionHandler : IncompleteFusionHandler.dontFuse();
+        this.fusionExecutor = Executors.newFixedThreadPool(
+                fusionParallelism != null ? fusionParallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Sends the record to its shards and fuses its global cluster once all shards replied.
+     *
+     * @param newRecord the record that should be processed with all previously seen records.
+     * @return a future of the result of {@link #deduplicate(Object)}.
+     */
+    public @NonNull CompletableFuture<T> submit(final @NonNull T newRecord) {
+        final List<CompletableFuture<List<Cluster<C, T>>>> replies = this.getShards(newRecord)
+                .mapToObj(shard -> this.transport.send(shard, newRecord))
+                .collect(Collectors.toList());
+        final CompletableFuture<T> result = CompletableFuture.allOf(replies.toArray(CompletableFuture[]::new))
+                .thenApplyAsync(done -> {
+                    final List<Cluster<C, T>> shardClusters = new ArrayList<>();
+                    replies.forEach(reply -> shardClusters.addAll(reply.join()));
+                    return this.coordinator.reconcile(newRecord, shardClusters);
+                }, this.coordinatorExecutor)
+                .thenCompose(cluster -> this.fuse(newRecord, cluster));
+        this.pendingResults.add(result);
+        result.whenComplete((fused, exception) -> this.pendingResults.remove(result));
+        return result;
+    }
+
+    @Override
+    public @NonNull T deduplicate(final @NonNull T newRecord) {
+        return this.submit(newRecord).join();
+    }
+
+    /**
+     * Deduplicates the records on the shards and returns the results in the order of the records. At most twice as
+     * many records as shards are processed ahead of the consumer of the result stream.
+     */
+    @Override
+    public @NonNull Stream<T> deduplicate(final @NonNull Stream<? extends T> records) {
+        return StreamUtil.mapAsyncOrdered(records, this::submit, 2 * this.transport.getShardCount());
+    }
+
+    /**
+     * Waits until all submitted records have been processed and closes the transport and the threads of the
+     * coordinator and the fusion.
+     */
+    @Override
+    public void close() {
+        CompletableFuture.allOf(this.pendingResults.toArray(CompletableFuture[]::new))
+                .exceptionally(exception -> null)
+                .join();
+        this.transport.close();
+        this.coordinatorExecutor.shutdown();
+        this.fusionExecutor.shutdown();
+    }
+
+    private IntStream getShards(final T record) {
+        final int shardCount = this.transport.getShardCount();
+        return this.blockingKeys.stream()
+                .map(blockingKey -> blockingKey.apply(record))
+                .filter(Objects::nonNull)
+                .mapToInt(key -> Math.floorMod(key.hashCode(), shardCount))
+                .distinct();
+    }
+
+    private CompletableFuture<T> fuse(final T newRecord, final Optional<Cluster<C, T>> cluster) {
+        if (cluster.isEmpty()) {
+            return CompletableFuture.completedFuture(newRecord);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            final FusedValue<T> fusedValue = this.fusion.fuse(cluster.get());
+            return this.incompleteFusionHandler.apply(fusedValue)
+                    .map(FusedValue::getValue)
+                    .orElse(newRecord);
+        }, this.fusionExecutor);
+    }
+}
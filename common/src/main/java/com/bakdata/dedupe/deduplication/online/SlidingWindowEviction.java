@@ -0,0 +1,214 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Singular;
+import lombok.Value;
+
+
+/**
+ * An {@link EvictionPolicy} that only keeps a sliding window of the most recent records in all {@link #targets}.
+ * <p>A record is evicted if it is older than the {@link #timeToLive} or if more than {@link #maxSize} records are
+ * kept. The age of a record is determined by the {@link #timestampExtractor}, for example, the last modification of the
+ * record, or by the ingestion time if no extractor is given. The oldest records are evicted first. Records that are
+ * added again replace their previous entry, and removed records, e.g., the old versions of corrected records, leave
+ * the window immediately.</p>
+ * <p>To amortize the cost, eviction is performed in batches after every {@link #cleanUpInterval} added records, such
+ * that the window may temporarily exceed its bounds by that amount. Applications may additionally invoke {@link
+ * #cleanUp()} periodically, e.g., to evict expired records during idle times.</p>
+ * <p>The window is part of a {@link DeduplicationSnapshot}, such that restored records are evicted in time. A window
+ * with a {@link #timeToLive} depends on the wall clock and thus cannot be combined with a {@link WriteAheadLog}; a
+ * window that is only bounded by {@link #maxSize} is deterministic as long as {@link #cleanUp()} is only triggered by
+ * the {@link #cleanUpInterval}.</p>
+ * <p>This class is not thread-safe and should be accessed by the same thread as the deduplication.</p>
+ *
+ * @param <T> the type of the record.
+ */
+@Value
+@Builder
+@EqualsAndHashCode(exclude = {"window", "entries", "sequence", "addedSinceCleanUp"})
+public class SlidingWindowEviction<T> implements EvictionPolicy<T>, Snapshottable {
+    /**
+     * The components from which the records are evicted; typically, the candidate selection and the clustering. The
+     * targets are evicted in the given order, such that a {@link RecordStore} should be the last target.
+     */
+    @NonNull
+    @Singular
+    List<Evictable<? super T>> targets;
+    /**
+     * The maximum age of a record. Defaults to unlimited.
+     */
+    @NonNull
+    @Builder.Default
+    Duration timeToLive = Duration.ofSeconds(Long.MAX_VALUE);
+    /**
+     * The maximum number of records in the window. Defaults to unlimited.
+     */
+    @Builder.Default
+    long maxSize = Long.MAX_VALUE;
+    /**
+     * Extracts the timestamp of a record. Defaults to the ingestion time as given by the {@link #clock}, if null.
+     */
+    Function<? super T, Instant> timestampExtractor;
+    /**
+     * The clock to determine the ingestion time and the current time for the {@link #timeToLive}.
+     */
+    @NonNull
+    @Builder.Default
+    Clock clock = Clock.systemUTC();
+    /**
+     * The number of added records after which the window is cleaned up. Defaults to 1000.
+     */
+    @Builder.Default
+    int cleanUpInterval = 1000;
+    @Getter(AccessLevel.NONE)
+    NavigableSet<WindowEntry<T>> window = new TreeSet<>(Comparator.comparing(WindowEntry<T>::getTimestamp)
+            .thenComparingLong(WindowEntry::getSequence));
+    @Getter(AccessLevel.NONE)
+    Map<T, WindowEntry<T>> entries = new HashMap<>();
+    @Getter(AccessLevel.NONE)
+    AtomicLong sequence = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    AtomicInteger addedSinceCleanUp = new AtomicInteger();
+
+    @Override
+    public void recordAdded(final @NonNull T record) {
+        final Instant timestamp =
+                this.timestampExtractor != null ? this.timestampExtractor.apply(record) : this.clock.instant();
+        this.addEntry(new WindowEntry<>(record, timestamp, this.sequence.getAndIncrement()));
+        if (this.addedSinceCleanUp.incrementAndGet() >= this.cleanUpInterval) {
+            this.cleanUp();
+        }
+    }
+
+    /**
+     * Removes the record from the window, such that it is neither evicted later nor counted towards the {@link
+     * #maxSize}.
+     */
+    @Override
+    public void recordRemoved(final @NonNull T record) {
+        final WindowEntry<T> entry = this.entries.remove(record);
+        if (entry != null) {
+            this.window.remove(entry);
+        }
+    }
+
+    /**
+     * Evicts all records that are expired or exceed the maximum size from all targets.
+     *
+     * @return the number of evicted records.
+     */
+    public int cleanUp() {
+        this.addedSinceCleanUp.set(0);
+        final Instant now = this.clock.instant();
+        final List<T> evicted = new ArrayList<>();
+        while (!this.window.isEmpty()
+                && (this.window.size() > this.maxSize || this.isExpired(this.window.first().getTimestamp(), now))) {
+            final T record = this.window.pollFirst().getRecord();
+            this.entries.remove(record);
+            evicted.add(record);
+        }
+        if (!evicted.isEmpty()) {
+            for (final Evictable<? super T> target : this.targets) {
+                target.evict(evicted);
+            }
+        }
+        return evicted.size();
+    }
+
+    /**
+     * Returns the number of records that are currently in the window.
+     */
+    public int getWindowSize() {
+        return this.window.size();
+    }
+
+    @Override
+    public void writeSnapshot(final @NonNull SnapshotOutput output) throws IOException {
+        output.getData().writeLong(this.sequence.get());
+        output.getData().writeInt(this.addedSinceCleanUp.get());
+        output.getData().writeInt(this.window.size());
+        for (final WindowEntry<T> entry : this.window) {
+            output.writeRecord(entry.getRecord());
+            output.getData().writeLong(entry.getTimestamp().getEpochSecond());
+            output.getData().writeInt(entry.getTimestamp().getNano());
+            output.getData().writeLong(entry.getSequence());
+        }
+    }
+
+    @Override
+    public void restoreSnapshot(final @NonNull SnapshotInput input) throws IOException {
+        this.sequence.set(input.getData().readLong());
+        this.addedSinceCleanUp.set(input.getData().readInt());
+        final int size = input.getData().readInt();
+        for (int i = 0; i < size; i++) {
+            final T record = input.readRecord();
+            final Instant timestamp = Instant.ofEpochSecond(input.getData().readLong(), input.getData().readInt());
+            this.addEntry(new WindowEntry<>(record, timestamp, input.getData().readLong()));
+        }
+    }
+
+    @Override
+    public boolean isDeterministic() {
+        return this.timeToLive.equals(Duration.ofSeconds(Long.MAX_VALUE));
+    }
+
+    private void addEntry(final WindowEntry<T> entry) {
+        final WindowEntry<T> previous = this.entries.put(entry.getRecord(), entry);
+        if (previous != null) {
+            this.window.remove(previous);
+        }
+        this.window.add(entry);
+    }
+
+    private boolean isExpired(final Instant timestamp, final Instant now) {
+        return Duration.between(timestamp, now).compareTo(this.timeToLive) > 0;
+    }
+
+    @Value
+    private static class WindowEntry<T> {
+        T record;
+        Instant timestamp;
+        long sequence;
+    }
+}
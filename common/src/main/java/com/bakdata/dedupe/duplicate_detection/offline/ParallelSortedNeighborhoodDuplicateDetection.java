@@ -0,0 +1,269 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.duplicate_detection.offline;
+
+import com.bakdata.dedupe.candidate_selection.PairEncoder;
+import com.bakdata.dedupe.candidate_selection.SortingKey;
+import com.bakdata.dedupe.candidate_selection.offline.OfflineCandidate;
+import com.bakdata.dedupe.classifier.Classification;
+import com.bakdata.dedupe.classifier.ClassifiedCandidate;
+import com.bakdata.dedupe.classifier.Classifier;
+import com.bakdata.dedupe.clustering.Cluster;
+import com.bakdata.dedupe.clustering.ConcurrentUnionFind;
+import com.bakdata.dedupe.clustering.RefineCluster;
+import com.bakdata.dedupe.duplicate_detection.PossibleDuplicateHandler;
+import com.bakdata.util.IntArrays;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Singular;
+import lombok.Value;
+
+
+/**
+ * A multi-pass sorted neighborhood method for offline duplicate detection that parallelizes all phases over a {@link
+ * ForkJoinPool} of {@link #parallelism} threads.
+ * <ul>
+ * <li>Candidate generation: Each pass sorts the records by its {@link SortingKey} with a parallel sort and pairs all
+ * records within the {@link #windowSize}. The pairs of all passes are encoded as primitive longs with the {@link
+ * PairEncoder} scheme and deduplicated, such that each pair is classified once.</li>
+ * <li>Classification: The distinct pairs are classified in parallel by splitting the pair array.</li>
+ * <li>Clustering: The duplicate pairs are merged while they are classified with a lock-free {@link
+ * ConcurrentUnionFind} over the dense record positions. The clusters are assembled in a final parallel pass.</li>
+ * <li>Refinement: If a {@link #refineCluster} is configured, the connected components are refined in parallel. Each
+ * component is refined with the classifications of the pairs within the component, which are kept for this step.</li>
+ * </ul>
+ * <p>All clusters including singletons are returned ordered by the position of their first record in the dataset.
+ * Cluster ids are generated in this order after the refinement, such that the result, including the cluster ids of a
+ * fresh sequential {@link #clusterIdGenerator}, does not depend on the number of threads. The ids that the refinement
+ * assigns are replaced. The classifier and the refinement need to be thread-safe.</p>
+ * <p>The dataset is materialized and traversed once per pass.</p>
+ *
+ * @param <C> the type of the cluster id.
+ * @param <T> the type of the record.
+ * @param <I> the type of the record id.
+ */
+@Value
+@Builder
+public class ParallelSortedNeighborhoodDuplicateDetection<C extends Comparable<C>, T, I>
+        implements OfflineDuplicateDetection<C, T> {
+    /**
+     * The sorting keys of the different passes.
+     */
+    @NonNull
+    @Singular
+    List<SortingKey<T, ?>> sortingKeys;
+    /**
+     * The window {@code >= 2}; that is, records up to rank distance {@code windowSize - 1} are compared. Defaults to
+     * 10.
+     */
+    @Builder.Default
+    int windowSize = 10;
+    /**
+     * Classifier to label the candidates.
+     */
+    @NonNull
+    Classifier<T> classifier;
+    /**
+     * A callback for {@link Classification#POSSIBLE_DUPLICATE}s.
+     */
+    @Builder.Default
+    @NonNull
+    PossibleDuplicateHandler<T> possibleDuplicateHandler = PossibleDuplicateHandler.keep();
+    /**
+     * Extracts the id of the record.
+     */
+    @NonNull
+    Function<? super T, ? extends I> idExtractor;
+    /**
+     * A function to generate the id for the clusters. It is invoked sequentially in the order of the clusters.
+     */
+    @NonNull
+    Function<Iterable<I>, C> clusterIdGenerator;
+    /**
+     * The number of threads. Defaults to the number of available processors.
+     */
+    @Builder.Default
+    int parallelism = Runtime.getRuntime().availableProcessors();
+    /**
+     * Splits the connected components of the duplicate pairs if their classifications are inconsistent. Defaults to
+     * null, such that the connected components are returned without refinement.
+     */
+    RefineCluster<C, T, I> refineCluster;
+
+    @Override
+    public @NonNull Stream<Cluster<C, T>> detectDuplicates(final @NonNull Stream<? extends T> records) {
+        final List<T> dataset = records.collect(Collectors.toList());
+        final ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+        try {
+            return pool.submit(() -> this.detectDuplicates(dataset)).join().stream();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private List<Cluster<C, T>> detectDuplicates(final List<T> records) {
+        final long[] candidates = this.selectCandidates(records);
+        final ConcurrentUnionFind components = new ConcurrentUnionFind(records.size());
+        final List<PositionedCandidate<T>> classifiedCandidates = Arrays.stream(candidates)
+                .parallel()
+                .mapToObj(pair -> this.classify(records, pair, components))
+                // the classifications are only needed for the refinement
+                .filter(candidate -> this.refineCluster != null)
+                .collect(Collectors.toList());
+        final Map<Integer, List<Integer>> positionsPerRoot = this.getConnectedComponents(records, components);
+        final Map<Integer, List<ClassifiedCandidate<T>>> classificationsPerRoot = classifiedCandidates.parallelStream()
+                .filter(candidate -> components.find(candidate.getLeftPosition())
+                        == components.find(candidate.getRightPosition()))
+                .collect(Collectors.groupingByConcurrent(candidate -> components.find(candidate.getLeftPosition()),
+                        Collectors.mapping(PositionedCandidate::getCandidate, Collectors.toList())));
+        final List<List<Integer>> clusteredPositions = positionsPerRoot.entrySet().parallelStream()
+                .flatMap(component -> this.refine(records, component.getValue(),
+                        classificationsPerRoot.getOrDefault(component.getKey(), List.of())))
+                .collect(Collectors.toList());
+        if (this.refineCluster != null) {
+            // refined parts are ordered by their first record
+            clusteredPositions.sort(Comparator.comparing(positions -> positions.get(0)));
+        }
+        final List<Cluster<C, T>> clusters = new ArrayList<>(clusteredPositions.size());
+        for (final List<Integer> positions : clusteredPositions) {
+            final List<T> elements = positions.stream().map(records::get).collect(Collectors.toList());
+            final List<I> ids = elements.stream().map(this.idExtractor).collect(Collectors.toList());
+            clusters.add(new Cluster<>(this.clusterIdGenerator.apply(ids), elements));
+        }
+        return clusters;
+    }
+
+    /**
+     * Returns the sorted, distinct pairs of all passes.
+     */
+    private long[] selectCandidates(final List<T> records) {
+        final long[] pairs = this.sortingKeys.stream()
+                .map(sortingKey -> this.selectCandidates(records, sortingKey))
+                .flatMapToLong(Arrays::stream)
+                .toArray();
+        Arrays.parallelSort(pairs);
+        int distinctPairs = 0;
+        for (int index = 0; index < pairs.length; index++) {
+            if (index == 0 || pairs[index] != pairs[index - 1]) {
+                pairs[distinctPairs++] = pairs[index];
+            }
+        }
+        return Arrays.copyOf(pairs, distinctPairs);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <K extends Comparable<K>> long[] selectCandidates(final List<T> records,
+            final SortingKey<T, ?> sortingKey) {
+        final Function<T, K> keyExtractor = (Function<T, K>) sortingKey.getKeyExtractor();
+        final List<K> keys = records.parallelStream().map(keyExtractor).collect(Collectors.toList());
+        // records without key are excluded from the pass
+        final int[] sortedPositions = IntStream.range(0, records.size())
+                .parallel()
+                .filter(position -> keys.get(position) != null)
+                .toArray();
+        // the stable sort breaks ties by position for a deterministic order
+        IntArrays.parallelSort(sortedPositions, (position1, position2) ->
+                keys.get(position1).compareTo(keys.get(position2)));
+        final int maxDistance = this.windowSize - 1;
+        return IntStream.range(0, sortedPositions.length)
+                .parallel()
+                .mapToObj(rank -> LongStream.rangeClosed(1, Math.min(maxDistance, sortedPositions.length - 1 - rank))
+                        .map(distance -> PairEncoder.pack(sortedPositions[rank],
+                                sortedPositions[rank + (int) distance])))
+                .flatMapToLong(Function.identity())
+                .toArray();
+    }
+
+    /**
+     * Classifies the pair and merges the components of duplicates.
+     */
+    private PositionedCandidate<T> classify(final List<T> records, final long pair,
+            final ConcurrentUnionFind components) {
+        final int leftPosition = PairEncoder.getLeftPosition(pair);
+        final int rightPosition = PairEncoder.getRightPosition(pair);
+        final OfflineCandidate<T> candidate =
+                new OfflineCandidate<>(records.get(leftPosition), records.get(rightPosition));
+        final ClassifiedCandidate<T> classified = this.classifier.classifyCandidate(candidate);
+        final ClassifiedCandidate<T> handled =
+                classified.getClassificationResult().getClassification() == Classification.POSSIBLE_DUPLICATE
+                        ? this.possibleDuplicateHandler.possibleDuplicateFound(classified)
+                        : classified;
+        if (handled.getClassificationResult().getClassification() == Classification.DUPLICATE) {
+            components.union(leftPosition, rightPosition);
+        }
+        return new PositionedCandidate<>(leftPosition, rightPosition, handled);
+    }
+
+    /**
+     * Returns the ascending positions of each connected component ordered by the root of the component, which is its
+     * smallest position.
+     */
+    private Map<Integer, List<Integer>> getConnectedComponents(final List<T> records,
+            final ConcurrentUnionFind components) {
+        return IntStream.range(0, records.size())
+                .parallel()
+                .boxed()
+                .collect(Collectors.groupingBy(components::find, TreeMap::new, Collectors.toList()));
+    }
+
+    private Stream<List<Integer>> refine(final List<T> records, final List<Integer> positions,
+            final List<ClassifiedCandidate<T>> classifications) {
+        if (this.refineCluster == null || positions.size() <= 2) {
+            return Stream.of(positions);
+        }
+        final Map<T, Integer> positionOfRecord = new IdentityHashMap<>();
+        for (final Integer position : positions) {
+            positionOfRecord.put(records.get(position), position);
+        }
+        final List<T> elements = positions.stream().map(records::get).collect(Collectors.toList());
+        final List<I> ids = elements.stream().map(this.refineCluster.getIdExtractor()).collect(Collectors.toList());
+        // the preliminary id is replaced after the refinement
+        final Cluster<C, T> component = new Cluster<>(this.refineCluster.getClusterIdGenerator().apply(ids), elements);
+        return this.refineCluster.refine(Stream.of(component), classifications.stream())
+                .map(part -> part.getElements().stream()
+                        .map(positionOfRecord::get)
+                        .sorted()
+                        .collect(Collectors.toList()));
+    }
+
+    @Value
+    private static class PositionedCandidate<T> {
+        int leftPosition;
+        int rightPosition;
+        ClassifiedCandidate<T> candidate;
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.duplicate_detection.offline;
+
+import com.bakdata.dedupe.candidate_selection.PairEncoder;
+import com.bakdata.dedupe.candidate_selection.SortingKey;
+import com.bakdata.dedupe.candidate_selection.offline.OfflineCandidate;
+import com.bakdata.dedupe.classifier.Classification;
+import com.bakdata.dedupe.classifier.ClassifiedCandidate;
+import com.bakdata.dedupe.classifier.Classifier;
+import com.bakdata.dedupe.clustering.Cluster;
+import com.bakdata.dedupe.clustering.TransitiveClosure;
+import com.bakdata.dedupe.duplicate_detection.PossibleDuplicateHandler;
+import com.bakdata.util.StreamUtil;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Singular;
+import lombok.Value;
+
+
+/**
+ * A progressive sorted neighborhood method (PSNM) for offline duplicate detection, which reports duplicates as early
+ * as possible.
+ * <p>The dataset is sorted once per {@link SortingKey}. Instead of sliding a full window over each sort order, the
+ * records are compared in increasing rank distance: first all direct neighbors of all passes, then all records with
+ * distance 2, and so on until the {@link #windowSize} is reached. Since close records in sort order are most likely
+ * duplicates, most duplicates are found in the first iterations.</p>
+ * <p>Duplicate pairs are immediately clustered with a {@link TransitiveClosure} and the changed clusters are emitted
+ * lazily. Thus, downstream consumers may start processing right away and the run may be stopped at any time by
+ * closing the stream or through the {@link #timeBudget}. Similar to online duplicate detection, a cluster is emitted
+ * repeatedly whenever it grows. The emitted clusters are snapshots that are not changed afterwards.</p>
+ * <p>When all distances have been processed or the time budget is exhausted, all records without duplicates are
+ * emitted as singleton clusters.</p>
+ * <p>Records are compared at most once, even if they are close in multiple passes. The compared pairs are kept as
+ * encoded pair keys in a hash set.</p>
+ *
+ * @param <C> the type of the cluster id.
+ * @param <T> the type of the record.
+ * @param <I> the type of the record id.
+ */
+@Value
+@Builder
+public class ProgressiveSortedNeighborhoodDuplicateDetection<C extends Comparable<C>, T,
+        I extends Comparable<? super I>> implements OfflineDuplicateDetection<C, T> {
+    /**
+     * The sorting keys of the different passes.
+     */
+    @NonNull
+    @Singular
+    List<SortingKey<T, ?>> sortingKeys;
+    /**
+     * The window {@code >= 2}; that is, records up to rank distance {@code windowSize - 1} are compared. Defaults to
+     * 10.
+     */
+    @Builder.Default
+    int windowSize = 10;
+    /**
+     * Classifier to label the candidates.
+     */
+    @NonNull
+    Classifier<T> classifier;
+    /**
+     * A callback for {@link Classification#POSSIBLE_DUPLICATE}s.
+     */
+    @Builder.Default
+    @NonNull
+    PossibleDuplicateHandler<T> possibleDuplicateHandler = PossibleDuplicateHandler.keep();
+    /**
+     * Extracts the id of the record.
+     */
+    @NonNull
+    Function<? super T, ? extends I> idExtractor;
+    /**
+     * A function to generate the id for newly formed clusters.
+     */
+    @NonNull
+    Function<Iterable<I>, C> clusterIdGenerator;
+    /**
+     * The maximum time spent on comparisons. Defaults to unlimited.
+     */
+    @Builder.Default
+    @NonNull
+    Duration timeBudget = Duration.ofNanos(Long.MAX_VALUE);
+
+    @Override
+    public @NonNull Stream<Cluster<C, T>> detectDuplicates(final @NonNull Stream<? extends T> records) {
+        final Run run = new Run(records.collect(Collectors.toList()));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(run, Spliterator.ORDERED | Spliterator.NONNULL),
+                false);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Since clusters are emitted whenever they grow, the emitted clusters overlap: the clusters that have been
+     * merged are still emitted under their own id. Hence, the result consists of the last emitted cluster of each
+     * record.</p>
+     */
+    @Override
+    public @NonNull Collection<Cluster<C, T>> materializeDuplicates(final @NonNull Iterable<? extends T> records) {
+        final Map<I, Cluster<C, T>> latestClusters = new HashMap<>();
+        this.detectDuplicates(StreamUtil.stream(records))
+                .forEach(cluster -> cluster.getElements()
+                        .forEach(record -> latestClusters.put(this.idExtractor.apply(record), cluster)));
+        final Set<Cluster<C, T>> distinctClusters = Collections.newSetFromMap(new IdentityHashMap<>());
+        distinctClusters.addAll(latestClusters.values());
+        return new ArrayList<>(distinctClusters);
+    }
+
+    private static <T, K extends Comparable<K>> int[] sortPositions(final List<? extends T> records,
+            final SortingKey<T, K> sortingKey) {
+        final List<K> keys = records.stream()
+                .map(sortingKey.getKeyExtractor())
+                .collect(Collectors.toList());
+        // records without key are excluded from the pass
+        return IntStream.range(0, records.size())
+                .filter(position -> keys.get(position) != null)
+                .boxed()
+                .sorted((position1, position2) -> keys.get(position1).compareTo(keys.get(position2)))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * The state of a single, lazily evaluated run.
+     */
+    private final class Run implements Iterator<Cluster<C, T>> {
+        private final List<T> records;
+        private final List<int[]> passes;
+        private final Set<Long> comparedPairs = new HashSet<>();
+        private final Deque<Cluster<C, T>> pendingClusters = new ArrayDeque<>();
+        private final TransitiveClosure<C, T, I> closure;
+        private final long start = System.nanoTime();
+        private final long maxNanos;
+        private int distance = 1;
+        private int passIndex;
+        private int position;
+        private boolean finished;
+
+        private Run(final List<T> records) {
+            this.records = records;
+            this.passes = ProgressiveSortedNeighborhoodDuplicateDetection.this.sortingKeys.stream()
+                    .map(sortingKey -> sortPositions(records, sortingKey))
+                    .collect(Collectors.toList());
+            this.closure = TransitiveClosure.<C, T, I>builder()
+                    .idExtractor(ProgressiveSortedNeighborhoodDuplicateDetection.this.idExtractor)
+                    .clusterIdGenerator(ProgressiveSortedNeighborhoodDuplicateDetection.this.clusterIdGenerator)
+                    .build();
+            this.maxNanos = ProgressiveSortedNeighborhoodDuplicateDetection.this.timeBudget.toNanos();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (this.pendingClusters.isEmpty() && !this.finished) {
+                if (!this.compareNext()) {
+                    this.emitSingletons();
+                    this.finished = true;
+                }
+            }
+            return !this.pendingClusters.isEmpty();
+        }
+
+        @Override
+        public Cluster<C, T> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return this.pendingClusters.poll();
+        }
+
+        /**
+         * Performs the next comparison in progressive order.
+         *
+         * @return false iff all comparisons have been performed or the time budget is exhausted.
+         */
+        private boolean compareNext() {
+            while (this.distance < ProgressiveSortedNeighborhoodDuplicateDetection.this.windowSize) {
+                if (System.nanoTime() - this.start > this.maxNanos) {
+                    return false;
+                }
+                if (this.passIndex >= this.passes.size()) {
+                    this.passIndex = 0;
+                    this.distance++;
+                    continue;
+                }
+                final int[] sortedPositions = this.passes.get(this.passIndex);
+                if (this.position + this.distance >= sortedPositions.length) {
+                    this.position = 0;
+                    this.passIndex++;
+                    continue;
+                }
+                final int leftPosition = sortedPositions[this.position];
+                final int rightPosition = sortedPositions[this.position + this.distance];
+                this.position++;
+                if (this.comparedPairs.add(PairEncoder.pack(leftPosition, rightPosition))) {
+                    this.compare(this.records.get(leftPosition), this.records.get(rightPosition));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void compare(final T left, final T right) {
+            final OfflineCandidate<T> candidate = new OfflineCandidate<>(left, right);
+            final ClassifiedCandidate<T> classified = ProgressiveSortedNeighborhoodDuplicateDetection.this.classifier
+                    .classifyCandidate(candidate);
+            final ClassifiedCandidate<T> handled =
+                    classified.getClassificationResult().getClassification() == Classification.POSSIBLE_DUPLICATE
+                            ? ProgressiveSortedNeighborhoodDuplicateDetection.this.possibleDuplicateHandler
+                            .possibleDuplicateFound(classified)
+                            : classified;
+            this.closure.cluster(Stream.of(handled))
+                    .map(cluster -> new Cluster<>(cluster.getId(), new ArrayList<>(cluster.getElements())))
+                    .forEach(this.pendingClusters::add);
+        }
+
+        private void emitSingletons() {
+            for (final T record : this.records) {
+                final I id = ProgressiveSortedNeighborhoodDuplicateDetection.this.idExtractor.apply(record);
+                if (this.closure.getClusterStore().getCluster(id).isEmpty()) {
+                    final C clusterId =
+                            ProgressiveSortedNeighborhoodDuplicateDetection.this.clusterIdGenerator.apply(List.of(id));
+                    this.pendingClusters.add(new Cluster<>(clusterId, new ArrayList<>(List.of(record))));
+                }
+            }
+        }
+    }
+}
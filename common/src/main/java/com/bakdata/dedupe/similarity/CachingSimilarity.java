@@ -24,8 +24,10 @@
 
 package com.bakdata.dedupe.similarity;
 
+import com.bakdata.dedupe.deduplication.online.RecordStore;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
 import java.util.function.Function;
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -36,15 +38,18 @@ import lombok.Value;
 /**
  * A light-weight caching layer over {@link SimilarityMeasure} to allow implementations to repeatedly calculate
  * expensive similarities without implementing a cache on their own.
+ * <p>Records for which the {@link #idExtractor} returns null are compared without caching.</p>
+ * <p>This class is thread-safe if the wrapped measure is thread-safe. Concurrent comparisons of the same pair may both
+ * calculate the similarity.</p>
  *
  * @param <T> the type of the record
  */
 @Value
 public class CachingSimilarity<T, I> implements SimilarityMeasure<T> {
     @NonNull SimilarityMeasure<T> measure;
-    @NonNull Function<@NonNull T, @NonNull I> idExtractor;
+    @NonNull Function<@NonNull T, I> idExtractor;
     @Getter(AccessLevel.PRIVATE)
-    Table<I, I, Double> cache = HashBasedTable.create();
+    Table<I, I, Double> cache = Tables.synchronizedTable(HashBasedTable.create());
 
     /**
      * Creates a cache based on the object identity; that is, the cache only triggers if the exact same instances are
@@ -69,12 +74,33 @@ public class CachingSimilarity<T, I> implements SimilarityMeasure<T> {
         return new CachingSimilarity<>(measure, Function.identity());
     }
 
+    /**
+     * Creates a cache based on the handles of the given record store; that is, the cache triggers if two records with
+     * the same ids are compared. Records that are not stored, such as query records of lookups, are compared without
+     * caching and are not added to the store.
+     * <p>Compared to {@link #equality(SimilarityMeasure)}, the records' {@link #equals(Object)} is never invoked and
+     * the cache does not keep references to the records.</p>
+     *
+     * @param <T> the type of the record
+     * @return a cache based on the record handles
+     */
+    public static <T> CachingSimilarity<T, Integer> handles(final SimilarityMeasure<T> measure,
+            final RecordStore<T, ?> recordStore) {
+        return new CachingSimilarity<>(measure, record -> {
+            final int handle = recordStore.getHandleOf(record);
+            return handle != RecordStore.NO_HANDLE ? handle : null;
+        });
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public double getNonNullSimilarity(final @NonNull T left, final @NonNull T right,
             final @NonNull SimilarityContext context) {
         I leftId = this.idExtractor.apply(left);
         I rightId = this.idExtractor.apply(right);
+        if (leftId == null || rightId == null) {
+            return this.measure.getNonNullSimilarity(left, right, context);
+        }
         if (this.measure.isSymmetric() && (leftId instanceof Comparable
                 && ((Comparable) leftId).compareTo(rightId) > 0)) {
             final I temp = leftId;
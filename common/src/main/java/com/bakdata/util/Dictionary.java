@@ -0,0 +1,85 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.NonNull;
+
+
+/**
+ * Encodes the values of a low-cardinality field, such as a gender or the source system, as dense int codes.
+ * <p>Records that are kept in memory for a long time can use {@link #intern(Object)} to share one instance per
+ * distinct value, or store the {@link #encode(Object) code} directly in a primitive field.</p>
+ * <p>This class is not thread-safe.</p>
+ *
+ * @param <V> the type of the values.
+ */
+public class Dictionary<V> {
+    private final Map<V, Integer> codes = new HashMap<>();
+    private final List<V> values = new ArrayList<>();
+
+    /**
+     * Returns the code of the value, assigning the next code to a new value.
+     *
+     * @param value the value to encode.
+     * @return the code of the value.
+     */
+    public int encode(final @NonNull V value) {
+        return this.codes.computeIfAbsent(value, v -> {
+            this.values.add(v);
+            return this.values.size() - 1;
+        });
+    }
+
+    /**
+     * Returns the value of the given code.
+     *
+     * @param code the code of the value.
+     * @return the value.
+     * @throws IndexOutOfBoundsException if the code has not been assigned.
+     */
+    public @NonNull V decode(final int code) {
+        return this.values.get(code);
+    }
+
+    /**
+     * Returns the canonical instance of the value.
+     *
+     * @param value the value.
+     * @return the canonical instance that is equal to the value or null if the value is null.
+     */
+    public V intern(final V value) {
+        return value == null ? null : this.decode(this.encode(value));
+    }
+
+    /**
+     * Returns the number of distinct values.
+     */
+    public int size() {
+        return this.values.size();
+    }
+}
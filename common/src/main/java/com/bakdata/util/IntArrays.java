@@ -0,0 +1,151 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+
+/**
+ * Sorts primitive int arrays with a custom order without boxing the elements, for example, to sort record positions by
+ * the keys of the records.
+ */
+@UtilityClass
+public class IntArrays {
+    // ranges below are sorted by a single thread
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+    // ranges below are sorted by insertion sort
+    private static final int INSERTION_THRESHOLD = 32;
+
+    /**
+     * Sorts the array with a stable merge sort, such that equal elements keep their relative order. Halves of large
+     * arrays are sorted in parallel in the current {@link ForkJoinPool} or in the common pool.
+     *
+     * @param array the array to sort.
+     * @param comparator the order of the elements.
+     */
+    public static void parallelSort(final @NonNull int[] array, final @NonNull IntComparator comparator) {
+        final int[] buffer = new int[array.length];
+        new SortAction(array, buffer, 0, array.length, comparator).invoke();
+    }
+
+    /**
+     * Sorts the array with a stable merge sort in the calling thread.
+     *
+     * @param array the array to sort.
+     * @param comparator the order of the elements.
+     */
+    public static void sort(final @NonNull int[] array, final @NonNull IntComparator comparator) {
+        mergeSort(array, new int[array.length], 0, array.length, comparator);
+    }
+
+    private static void mergeSort(final int[] array, final int[] buffer, final int from, final int to,
+            final IntComparator comparator) {
+        if (to - from < INSERTION_THRESHOLD) {
+            insertionSort(array, from, to, comparator);
+            return;
+        }
+        final int middle = (from + to) >>> 1;
+        mergeSort(array, buffer, from, middle, comparator);
+        mergeSort(array, buffer, middle, to, comparator);
+        merge(array, buffer, from, middle, to, comparator);
+    }
+
+    private static void insertionSort(final int[] array, final int from, final int to,
+            final IntComparator comparator) {
+        for (int i = from + 1; i < to; i++) {
+            final int element = array[i];
+            int j = i - 1;
+            for (; j >= from && comparator.compare(array[j], element) > 0; j--) {
+                array[j + 1] = array[j];
+            }
+            array[j + 1] = element;
+        }
+    }
+
+    private static void merge(final int[] array, final int[] buffer, final int from, final int middle, final int to,
+            final IntComparator comparator) {
+        if (comparator.compare(array[middle - 1], array[middle]) <= 0) {
+            // already in order
+            return;
+        }
+        System.arraycopy(array, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int index = from; index < to; index++) {
+            // taking the left element on ties keeps the sort stable
+            if (right >= to || left < middle && comparator.compare(buffer[left], buffer[right]) <= 0) {
+                array[index] = buffer[left++];
+            } else {
+                array[index] = buffer[right++];
+            }
+        }
+    }
+
+    /**
+     * Compares two primitive ints.
+     */
+    @FunctionalInterface
+    public interface IntComparator {
+        /**
+         * Compares the two elements.
+         *
+         * @return a negative integer, zero, or a positive integer as the left element is less than, equal to, or
+         * greater than the right element.
+         */
+        int compare(int left, int right);
+    }
+
+    private static final class SortAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int[] array;
+        private final int[] buffer;
+        private final int from;
+        private final int to;
+        private final IntComparator comparator;
+
+        private SortAction(final int[] array, final int[] buffer, final int from, final int to,
+                final IntComparator comparator) {
+            this.array = array;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from < PARALLEL_THRESHOLD) {
+                mergeSort(this.array, this.buffer, this.from, this.to, this.comparator);
+                return;
+            }
+            final int middle = (this.from + this.to) >>> 1;
+            invokeAll(new SortAction(this.array, this.buffer, this.from, middle, this.comparator),
+                    new SortAction(this.array, this.buffer, middle, this.to, this.comparator));
+            merge(this.array, this.buffer, this.from, middle, this.to, this.comparator);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.NonNull;
+
+
+/**
+ * A growable array of longs in a memory-mapped file, which is split into chunks of 8 MiB to overcome the size limit
+ * of a single {@link MappedByteBuffer}. New elements are initialized with 0.
+ * <p>The content is persisted by the operating system and explicitly with {@link #force()}. This class is not
+ * thread-safe.</p>
+ */
+public class MappedLongArray implements Closeable {
+    private static final int CHUNK_BITS = 20;
+    private static final long CHUNK_LENGTH = 1L << CHUNK_BITS;
+    private static final long CHUNK_MASK = CHUNK_LENGTH - 1;
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+
+    private MappedLongArray(final FileChannel channel) throws IOException {
+        this.channel = channel;
+        final long existingLength = channel.size() / Long.BYTES;
+        this.ensureLength(Math.max(1, existingLength));
+    }
+
+    /**
+     * Opens or creates the array in the given file.
+     *
+     * @param path the file of the array.
+     * @return the opened array.
+     * @throws UncheckedIOException if the file cannot be opened.
+     */
+    public static @NonNull MappedLongArray open(final @NonNull Path path) {
+        try {
+            return new MappedLongArray(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE));
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot open " + path, e);
+        }
+    }
+
+    /**
+     * Returns the number of currently addressable elements, which is a multiple of the chunk size.
+     */
+    public long getLength() {
+        return this.chunks.size() * CHUNK_LENGTH;
+    }
+
+    public long get(final long index) {
+        return this.getChunk(index).getLong((int) (index & CHUNK_MASK) * Long.BYTES);
+    }
+
+    public void set(final long index, final long value) {
+        this.getChunk(index).putLong((int) (index & CHUNK_MASK) * Long.BYTES, value);
+    }
+
+    /**
+     * Grows the array to at least the given length.
+     *
+     * @param length the minimum length.
+     * @throws UncheckedIOException if the file cannot be extended.
+     */
+    public void ensureLength(final long length) {
+        try {
+            while (this.getLength() < length) {
+                final long position = this.getLength() * Long.BYTES;
+                this.chunks.add(this.channel.map(MapMode.READ_WRITE, position, CHUNK_LENGTH * Long.BYTES));
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot extend array", e);
+        }
+    }
+
+    /**
+     * Writes all changes to the storage device.
+     */
+    public void force() {
+        this.chunks.forEach(MappedByteBuffer::force);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.force();
+        this.channel.close();
+    }
+
+    private MappedByteBuffer getChunk(final long index) {
+        if (index < 0 || index >= this.getLength()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + this.getLength());
+        }
+        return this.chunks.get((int) (index >>> CHUNK_BITS));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.candidate_selection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import com.bakdata.dedupe.candidate_selection.CandidateSelectionEvaluation.Result;
+import com.bakdata.dedupe.candidate_selection.online.OnlineCandidate;
+import com.bakdata.dedupe.candidate_selection.online.OnlineCandidateSelection;
+import com.bakdata.dedupe.clustering.Cluster;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+class CandidateSelectionEvaluationTest {
+    // 6 records = 15 pairs, of which a1-a2, a1-a3, a2-a3, and b1-b2 are duplicates
+    private static final List<String> RECORDS = List.of("a1", "a2", "a3", "b1", "b2", "c");
+    private static final List<Cluster<Long, String>> GOLD_CLUSTERS = List.of(
+            new Cluster<>(0L, List.of("a1", "a2", "a3")),
+            new Cluster<>(1L, List.of("b1", "b2")),
+            new Cluster<>(2L, List.of("c")));
+
+    private static Supplier<CandidateSelection<String>> offlineSelection() {
+        // a2-a1 repeats a1-a2 and is only counted once
+        return () -> records -> Stream.of(new OnlineCandidate<>("a1", "a2"), new OnlineCandidate<>("a2", "a3"),
+                new OnlineCandidate<>("b1", "c"), new OnlineCandidate<>("a2", "a1"));
+    }
+
+    private static Supplier<CandidateSelection<String>> previousRecordSelection() {
+        return () -> {
+            final AtomicReference<String> previous = new AtomicReference<>();
+            return (OnlineCandidateSelection<String>) newRecord -> {
+                final String previousRecord = previous.getAndSet(newRecord);
+                return previousRecord == null ? Stream.empty()
+                        : Stream.of(new OnlineCandidate<>(newRecord, previousRecord));
+            };
+        };
+    }
+
+    @Test
+    void shouldEvaluateOfflineCandidateSelection() {
+        final CandidateSelectionEvaluation<String, String> evaluation =
+                CandidateSelectionEvaluation.forClusters(RECORDS, GOLD_CLUSTERS, Function.identity());
+
+        final Result result = evaluation.evaluate("offline", offlineSelection());
+
+        assertThat(result.getName()).isEqualTo("offline");
+        assertThat(result.getComparisons()).isEqualTo(3);
+        assertThat(result.getComparisonsPerRecord()).isCloseTo(0.5, within(1e-9));
+        assertThat(result.getMaxComparisonsPerRecord()).isEqualTo(-1);
+        // found a1-a2 and a2-a3 out of 4 duplicates
+        assertThat(result.getPairCompleteness()).isCloseTo(0.5, within(1e-9));
+        assertThat(result.getPairsQuality()).isCloseTo(2.0 / 3, within(1e-9));
+        assertThat(result.getReductionRatio()).isCloseTo(1 - 3.0 / 15, within(1e-9));
+    }
+
+    @Test
+    void shouldEvaluateOnlineCandidateSelection() {
+        final CandidateSelectionEvaluation<String, String> evaluation =
+                CandidateSelectionEvaluation.forClusters(RECORDS, GOLD_CLUSTERS, Function.identity());
+
+        final Result result = evaluation.evaluate("previous", previousRecordSelection());
+
+        // a2-a1, a3-a2, b1-a3, b2-b1, c-b2
+        assertThat(result.getComparisons()).isEqualTo(5);
+        assertThat(result.getMaxComparisonsPerRecord()).isEqualTo(1);
+        assertThat(result.getPairCompleteness()).isCloseTo(0.75, within(1e-9));
+        assertThat(result.getPairsQuality()).isCloseTo(0.6, within(1e-9));
+        assertThat(result.getReductionRatio()).isCloseTo(1 - 5.0 / 15, within(1e-9));
+    }
+
+    @Test
+    void shouldEvaluateAgainstGoldDuplicates() {
+        final CandidateSelectionEvaluation<String, String> evaluation = CandidateSelectionEvaluation.forDuplicates(
+                RECORDS, List.of(new OnlineCandidate<>("a1", "a2"), new OnlineCandidate<>("b2", "b1")),
+                Function.identity());
+
+        final Result result = evaluation.evaluate("previous", previousRecordSelection());
+
+        assertThat(result.getPairCompleteness()).isCloseTo(1, within(1e-9));
+        assertThat(result.getPairsQuality()).isCloseTo(0.4, within(1e-9));
+    }
+
+    @Test
+    void shouldPrintTableOfAllConfigurations() {
+        final CandidateSelectionEvaluation<String, String> evaluation =
+                CandidateSelectionEvaluation.forClusters(RECORDS, GOLD_CLUSTERS, Function.identity());
+        final Map<String, Supplier<CandidateSelection<String>>> configurations = new LinkedHashMap<>();
+        configurations.put("offline", offlineSelection());
+        configurations.put("previous", previousRecordSelection());
+
+        final List<Result> results = evaluation.evaluateAll(configurations);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CandidateSelectionEvaluation.printTable(new PrintStream(output, true, StandardCharsets.UTF_8), results);
+
+        assertThat(results).extracting(Result::getName).containsExactly("offline", "previous");
+        assertThat(output.toString(StandardCharsets.UTF_8).lines())
+                .hasSize(3)
+                .anySatisfy(line -> assertThat(line).startsWith("offline").contains("0.5000", "0.8000"))
+                .anySatisfy(line -> assertThat(line).startsWith("previous").contains("0.7500", "0.6667"));
+    }
+}
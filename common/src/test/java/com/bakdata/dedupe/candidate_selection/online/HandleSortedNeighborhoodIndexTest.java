@@ -0,0 +1,115 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.candidate_selection.online;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bakdata.dedupe.candidate_selection.Candidate;
+import com.bakdata.dedupe.candidate_selection.SortingKey;
+import com.bakdata.dedupe.candidate_selection.online.OnlineSortedNeighborhoodMethod.Pass;
+import com.bakdata.dedupe.deduplication.online.InMemoryRecordStore;
+import com.bakdata.dedupe.deduplication.online.RecordStore;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class HandleSortedNeighborhoodIndexTest {
+    private static OnlineSortedNeighborhoodMethod<String> createSnm(final RecordStore<String, String> recordStore) {
+        final SortingKey<String, Character> first = new SortingKey<>("first", s -> s.charAt(0));
+        final SortingKey<String, Character> second = new SortingKey<>("second", s -> s.charAt(1));
+        return OnlineSortedNeighborhoodMethod.<String>builder()
+                .pass(recordStore == null ? new Pass<>(first, 4)
+                        : new Pass<>(first, 4, new HandleSortedNeighborhoodIndex<>(recordStore)))
+                .pass(recordStore == null ? new Pass<>(second, 4)
+                        : new Pass<>(second, 4, new HandleSortedNeighborhoodIndex<>(recordStore)))
+                .build();
+    }
+
+    private static List<Candidate<String>> selectCandidates(final OnlineSortedNeighborhoodMethod<String> snm,
+            final String record) {
+        return snm.selectCandidates(record).collect(Collectors.toList());
+    }
+
+    @Test
+    void shouldSelectSameCandidatesAsInMemoryIndex() {
+        final InMemoryRecordStore<String, String> recordStore =
+                InMemoryRecordStore.<String, String>builder().idExtractor(Function.identity()).build();
+        final OnlineSortedNeighborhoodMethod<String> handleSnm = createSnm(recordStore);
+        final OnlineSortedNeighborhoodMethod<String> inMemorySnm = createSnm(null);
+        final List<String> records = List.of("ax", "bx", "ay", "cz", "by", "az", "cx");
+        handleSnm.bulkLoad(records.subList(0, 3));
+        inMemorySnm.bulkLoad(records.subList(0, 3));
+
+        for (final String record : records.subList(3, records.size())) {
+            assertThat(selectCandidates(handleSnm, record)).isEqualTo(selectCandidates(inMemorySnm, record));
+        }
+        // each record is stored once for both passes
+        assertThat(recordStore.size()).isEqualTo(records.size());
+    }
+
+    @Test
+    void shouldEvictRecordsBeforeRecordStore() {
+        final InMemoryRecordStore<String, String> recordStore =
+                InMemoryRecordStore.<String, String>builder().idExtractor(Function.identity()).build();
+        final OnlineSortedNeighborhoodMethod<String> snm = createSnm(recordStore);
+        List.of("ax", "ay", "bx").forEach(snm::selectCandidates);
+
+        snm.evict(List.of("ax"));
+        recordStore.evict(List.of("ax"));
+
+        assertThat(selectCandidates(snm, "az")).extracting(Candidate::getRecord2).containsExactly("ay", "bx");
+        assertThat(recordStore.getHandle("ax")).isEqualTo(RecordStore.NO_HANDLE);
+    }
+
+    @Test
+    void shouldReplacePreviousVersionOfRecord() {
+        final InMemoryRecordStore<String, String> recordStore =
+                InMemoryRecordStore.<String, String>builder().idExtractor(record -> record.substring(1)).build();
+        final HandleSortedNeighborhoodIndex<String, String> index = new HandleSortedNeighborhoodIndex<>(recordStore);
+        index.add("a", "a1");
+        index.add("b", "b2");
+        // new version of record 1 with a different key
+        index.add("c", "c1");
+
+        assertThat(ImmutableList.copyOf(index.ascendingFrom("a"))).containsExactly("b2", "c1");
+        index.remove("c", "c1");
+        assertThat(ImmutableList.copyOf(index.ascendingFrom("a"))).containsExactly("b2");
+    }
+
+    @Test
+    void shouldSkipRecordsThatHaveBeenEvictedFromRecordStore() {
+        final InMemoryRecordStore<String, String> recordStore =
+                InMemoryRecordStore.<String, String>builder().idExtractor(Function.identity()).build();
+        final HandleSortedNeighborhoodIndex<String, String> index = new HandleSortedNeighborhoodIndex<>(recordStore);
+        index.addAll(List.of(Map.entry("a", "a1"), Map.entry("a", "a2"), Map.entry("b", "b1")));
+
+        recordStore.evict(List.of("a2"));
+
+        assertThat(ImmutableList.copyOf(index.ascendingFrom("a"))).containsExactly("a1", "b1");
+        assertThat(ImmutableList.copyOf(index.descendingFrom("b"))).containsExactly("b1", "a1");
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.candidate_selection.online;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.bakdata.dedupe.candidate_selection.Candidate;
+import com.bakdata.dedupe.candidate_selection.SortingKey;
+import com.bakdata.dedupe.candidate_selection.SortingKeyEncoders;
+import com.bakdata.dedupe.candidate_selection.online.OnlineSortedNeighborhoodMethod.Pass;
+import com.bakdata.dedupe.deduplication.online.DeduplicationSnapshot;
+import com.bakdata.util.Codec;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedSortedNeighborhoodIndexTest {
+    private static final List<String> RECORDS = IntStream.range(0, 100)
+            .mapToObj(i -> String.format("%02d", i))
+            .collect(Collectors.toList());
+
+    private static MappedSortedNeighborhoodIndex<String, String> createIndex(final Path directory) {
+        return MappedSortedNeighborhoodIndex.<String, String>builder()
+                .directory(directory)
+                .keyEncoder(SortingKeyEncoders.string())
+                .handleExtractor(Long::parseLong)
+                .recordResolver(handle -> RECORDS.get((int) handle))
+                .writeBufferSize(7)
+                .mergeFactor(3)
+                .build();
+    }
+
+    private static String key(final String record) {
+        // two records per key
+        return String.valueOf(record.charAt(0)) + (record.charAt(1) < '5' ? 'a' : 'b');
+    }
+
+    @Test
+    void shouldIterateInKeyOrderAcrossSegments(@TempDir final Path directory) {
+        final MappedSortedNeighborhoodIndex<String, String> index = createIndex(directory);
+        for (int i = RECORDS.size() - 1; i >= 0; i--) {
+            index.add(key(RECORDS.get(i)), RECORDS.get(i));
+        }
+        index.remove(key("41"), "41");
+        index.remove(key("45"), "45");
+
+        // 14 flushed segments are merged in tiers of 3
+        assertThat(index.getSegmentCount()).isLessThanOrEqualTo(4);
+        assertThat(ImmutableList.copyOf(index.ascendingFrom("4b")).subList(0, 6))
+                .containsExactly("46", "47", "48", "49", "50", "51");
+        assertThat(ImmutableList.copyOf(index.descendingFrom("4b")).subList(0, 10))
+                .containsExactly("49", "48", "47", "46", "44", "43", "42", "40", "39", "38");
+    }
+
+    @Test
+    void shouldReopenFlushedSegments(@TempDir final Path directory) {
+        try (final MappedSortedNeighborhoodIndex<String, String> index = createIndex(directory)) {
+            final List<Map.Entry<String, String>> entries = RECORDS.stream()
+                    .map(record -> Maps.immutableEntry(key(record), record))
+                    .collect(Collectors.toList());
+            index.addAll(entries);
+            index.remove(key("00"), "00");
+        }
+
+        final MappedSortedNeighborhoodIndex<String, String> reopened = createIndex(directory);
+        assertThat(ImmutableList.copyOf(reopened.ascendingFrom("0")))
+                .hasSize(99)
+                .startsWith("01", "02")
+                .endsWith("99");
+        assertThat(ImmutableList.copyOf(reopened.descendingFrom("0"))).isEmpty();
+    }
+
+    @Test
+    void shouldOnlyMergeSimilarSizedSegments(@TempDir final Path directory) throws IOException {
+        final MappedSortedNeighborhoodIndex<String, String> index =
+                MappedSortedNeighborhoodIndex.<String, String>builder()
+                        .directory(directory)
+                        .keyEncoder(SortingKeyEncoders.string())
+                        .handleExtractor(Long::parseLong)
+                        .recordResolver(handle -> RECORDS.get((int) handle))
+                        .writeBufferSize(1)
+                        .mergeFactor(3)
+                        .build();
+        for (int i = 0; i < 9; i++) {
+            index.add(key(RECORDS.get(i)), RECORDS.get(i));
+        }
+        // 9 segments with one entry each have been merged into 3 segments and then into a single segment
+        assertThat(index.getSegmentCount()).isEqualTo(1);
+        final List<Path> oldestSegment = listFiles(directory);
+
+        for (int i = 9; i < 17; i++) {
+            index.add(key(RECORDS.get(i)), RECORDS.get(i));
+        }
+
+        // 8 new segments are merged into 2 segments with 3 entries, which are too small to be merged with the oldest
+        assertThat(index.getSegmentCount()).isEqualTo(5);
+        assertThat(listFiles(directory)).containsAll(oldestSegment);
+        assertThat(ImmutableList.copyOf(index.ascendingFrom("0"))).isEqualTo(RECORDS.subList(0, 17));
+    }
+
+    @Test
+    void shouldFailIteratorsOnMergedSegments(@TempDir final Path directory) {
+        final MappedSortedNeighborhoodIndex<String, String> index = createIndex(directory);
+        for (int i = 0; i < 14; i++) {
+            index.add(key(RECORDS.get(i)), RECORDS.get(i));
+        }
+        final Iterator<String> iterator = index.ascendingFrom("0");
+
+        for (int i = 14; i < 21; i++) {
+            index.add(key(RECORDS.get(i)), RECORDS.get(i));
+        }
+
+        assertThatThrownBy(() -> Iterators.size(iterator)).isInstanceOf(ConcurrentModificationException.class);
+    }
+
+    @Test
+    void shouldRestoreSnapshotAfterChanges(@TempDir final Path directory) {
+        final Path indexDirectory = directory.resolve("index");
+        final Path snapshot = directory.resolve("snapshot");
+        final OnlineSortedNeighborhoodMethod<String> snm = createSnm(indexDirectory);
+        RECORDS.subList(0, 30).forEach(record -> snm.selectCandidates(record).forEach(candidate -> { }));
+        createSnapshot(snm).write(snapshot);
+
+        RECORDS.subList(30, 60).forEach(record -> snm.selectCandidates(record).forEach(candidate -> { }));
+        snm.evict(RECORDS.subList(0, 10));
+        createSnapshot(snm).restore(snapshot);
+
+        assertThat(lookupNeighbors(snm, "50")).containsExactly("29", "28", "27", "26");
+        assertThat(lookupNeighbors(snm, "05")).contains("04", "06");
+        assertThat(lookupNeighbors(createSnm(indexDirectory), "50")).containsExactly("29", "28", "27", "26");
+    }
+
+    private static OnlineSortedNeighborhoodMethod<String> createSnm(final Path directory) {
+        return OnlineSortedNeighborhoodMethod.<String>builder()
+                .pass(new Pass<String, String>(new SortingKey<>("record", record -> record), 8, createIndex(directory)))
+                .build();
+    }
+
+    private static DeduplicationSnapshot<Long, String> createSnapshot(
+            final OnlineSortedNeighborhoodMethod<String> snm) {
+        return DeduplicationSnapshot.<Long, String>builder()
+                .recordCodec(Codec.string())
+                .clusterIdCodec(Codec.longValue())
+                .component(snm)
+                .build();
+    }
+
+    private static List<String> lookupNeighbors(final OnlineSortedNeighborhoodMethod<String> snm,
+            final String record) {
+        return snm.lookupCandidates(record)
+                .map(Candidate::getRecord2)
+                .collect(Collectors.toList());
+    }
+
+    private static List<Path> listFiles(final Path directory) throws IOException {
+        try (final Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.candidate_selection.online;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bakdata.dedupe.candidate_selection.Candidate;
+import com.bakdata.dedupe.candidate_selection.SortingKey;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class OnlineSortedNeighborhoodMethodTest {
+    @Test
+    void shouldOrderCandidatesByAgreeingPassesAndDistance() {
+        final OnlineSortedNeighborhoodMethod<String> snm = OnlineSortedNeighborhoodMethod.<String>builder()
+                .defaultWindowSize(4)
+                .sortingKey(new SortingKey<>("first", s -> s.charAt(0)))
+                .sortingKey(new SortingKey<>("second", s -> s.charAt(1)))
+                .build();
+        snm.selectCandidates("ax");
+        snm.selectCandidates("bz");
+        snm.selectCandidates("cy");
+
+        assertThat(snm.selectCandidates("ay").map(Candidate::getRecord2).collect(Collectors.toList()))
+                // ax and bz are neighbors in both passes, cy only in the second pass
+                .containsExactly("ax", "bz", "cy");
+    }
+
+    @Test
+    void shouldSelectSameCandidatesAfterBulkLoad() {
+        final List<String> records = List.of("dx", "ay", "cz", "bx", "ax", "ez");
+        final OnlineSortedNeighborhoodMethod<String> incremental = createSnm();
+        records.forEach(incremental::selectCandidates);
+        final OnlineSortedNeighborhoodMethod<String> bulkLoaded = createSnm();
+        bulkLoaded.bulkLoad(records);
+
+        assertThat(bulkLoaded.selectCandidates("by").collect(Collectors.toList()))
+                .containsExactlyInAnyOrderElementsOf(incremental.selectCandidates("by").collect(Collectors.toList()));
+    }
+
+    private static OnlineSortedNeighborhoodMethod<String> createSnm() {
+        return OnlineSortedNeighborhoodMethod.<String>builder()
+                .defaultWindowSize(4)
+                .sortingKey(new SortingKey<>("first", s -> s.charAt(0)))
+                .sortingKey(new SortingKey<>("second", s -> s.charAt(1)))
+                .build();
+    }
+}
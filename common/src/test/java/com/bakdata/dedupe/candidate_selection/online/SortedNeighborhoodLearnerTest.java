@@ -0,0 +1,66 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.candidate_selection.online;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bakdata.dedupe.candidate_selection.Candidate;
+import com.bakdata.dedupe.candidate_selection.SortingKey;
+import java.util.List;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+class SortedNeighborhoodLearnerTest {
+    private static final SortingKey<String, String> PREFIX = new SortingKey<>("prefix", s -> s.substring(0, 2));
+    private static final SortingKey<String, String> SUFFIX = new SortingKey<>("suffix", s -> s.substring(2));
+
+    @Test
+    void shouldSelectDiscriminatingKeyWithSmallestWindow() {
+        final List<String> records = List.of("aa1", "bb1", "cc1", "dd1", "ee1", "bb2", "aa2", "ee2", "cc2", "dd2");
+        final List<Candidate<String>> goldDuplicates = List.of(
+                new OnlineCandidate<>("aa2", "aa1"),
+                new OnlineCandidate<>("bb2", "bb1"),
+                new OnlineCandidate<>("cc2", "cc1"),
+                new OnlineCandidate<>("dd2", "dd1"),
+                new OnlineCandidate<>("ee2", "ee1"));
+
+        final SortedNeighborhoodLearner<String, String> learner = SortedNeighborhoodLearner.<String, String>builder()
+                .sortingKey(SUFFIX)
+                .sortingKey(PREFIX)
+                .idExtractor(Function.identity())
+                .targetPairCompleteness(1)
+                .build();
+        final SortedNeighborhoodScheme<String> scheme = learner.learn(records, goldDuplicates);
+
+        assertThat(scheme.getPasses())
+                .containsExactly(new SortedNeighborhoodScheme.SelectedPass<>(PREFIX, 2));
+        assertThat(scheme.getPairCompleteness()).isEqualTo(1);
+        assertThat(scheme.getComparisons()).isLessThan(records.size() * (records.size() - 1) / 2);
+
+        final OnlineSortedNeighborhoodMethod<String> snm = scheme.createCandidateSelection();
+        assertThat(snm.getPasses()).hasSize(1);
+        assertThat(snm.selectCandidates("aa1")).isEmpty();
+        assertThat(snm.selectCandidates("aa2")).containsExactly(new OnlineCandidate<>("aa2", "aa1"));
+    }
+}
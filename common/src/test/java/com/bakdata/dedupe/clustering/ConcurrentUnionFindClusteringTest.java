@@ -0,0 +1,131 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.clustering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.bakdata.dedupe.candidate_selection.online.OnlineCandidate;
+import com.bakdata.dedupe.classifier.Classification;
+import com.bakdata.dedupe.classifier.ClassificationResult;
+import com.bakdata.dedupe.classifier.ClassifiedCandidate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentUnionFindClusteringTest {
+    private static final int RECORDS = 10_000;
+
+    private static ConcurrentUnionFindClustering<Long, Integer, Integer> createClustering() {
+        return ConcurrentUnionFindClustering.<Long, Integer, Integer>builder()
+                .handleExtractor(Integer::intValue)
+                .capacity(RECORDS)
+                .idExtractor(Function.identity())
+                .clusterIdGenerator(ClusterIdGenerators.longGenerator())
+                .build();
+    }
+
+    private static ClassifiedCandidate<Integer> createCandidate(final int record1, final int record2,
+            final Classification classification) {
+        return new ClassifiedCandidate<>(new OnlineCandidate<>(record1, record2),
+                ClassificationResult.builder().classification(classification).confidence(1).build());
+    }
+
+    @Test
+    void shouldClusterDuplicates() {
+        final List<Cluster<Long, Integer>> clusters = createClustering().cluster(Stream.of(
+                createCandidate(5, 3, Classification.DUPLICATE),
+                createCandidate(1, 2, Classification.NON_DUPLICATE),
+                createCandidate(7, 1, Classification.DUPLICATE),
+                createCandidate(3, 9, Classification.DUPLICATE)))
+                .collect(Collectors.toList());
+
+        assertThat(clusters).extracting(Cluster::getElements)
+                .containsExactly(List.of(1, 7), List.of(3, 5, 9));
+        assertThat(clusters).extracting(Cluster::getId).containsExactly(0L, 1L);
+    }
+
+    @Test
+    void shouldKeepClusterIdsAcrossInvocations() {
+        final ConcurrentUnionFindClustering<Long, Integer, Integer> clustering = createClustering();
+        assertThat(clustering.cluster(Stream.of(
+                createCandidate(1, 2, Classification.DUPLICATE),
+                createCandidate(5, 6, Classification.DUPLICATE))))
+                .extracting(Cluster::getId)
+                .containsExactly(0L, 1L);
+
+        // the grown cluster keeps its id, even if it gets a smaller root
+        assertThat(clustering.cluster(Stream.of(createCandidate(0, 6, Classification.DUPLICATE))))
+                .containsExactly(new Cluster<>(1L, List.of(0, 5, 6)));
+        // merged clusters keep the id of the cluster with the smallest handle
+        assertThat(clustering.cluster(Stream.of(
+                createCandidate(2, 5, Classification.DUPLICATE),
+                createCandidate(8, 9, Classification.DUPLICATE))))
+                .containsExactly(new Cluster<>(1L, List.of(0, 1, 2, 5, 6)), new Cluster<>(2L, List.of(8, 9)));
+    }
+
+    @Test
+    void shouldFindSameClustersAsTransitiveClosure() {
+        final Random random = new Random(42);
+        final List<ClassifiedCandidate<Integer>> duplicates = new ArrayList<>();
+        for (int i = 0; i < RECORDS; i++) {
+            final int record1 = random.nextInt(RECORDS);
+            final int record2 = random.nextInt(RECORDS);
+            if (record1 != record2) {
+                duplicates.add(createCandidate(record1, record2, Classification.DUPLICATE));
+            }
+        }
+        final TransitiveClosure<Long, Integer, Integer> closure = TransitiveClosure.<Long, Integer, Integer>builder()
+                .idExtractor(Function.identity())
+                .clusterIdGenerator(ClusterIdGenerators.longGenerator())
+                .build();
+        final Set<Set<Integer>> expected = closure.cluster(duplicates.stream())
+                .map(cluster -> Set.copyOf(cluster.getElements()))
+                .collect(Collectors.toSet());
+
+        final List<Cluster<Long, Integer>> sequential =
+                createClustering().cluster(duplicates.stream()).collect(Collectors.toList());
+        final List<Cluster<Long, Integer>> parallel =
+                createClustering().cluster(duplicates.parallelStream()).collect(Collectors.toList());
+
+        assertThat(sequential.stream().map(cluster -> (Set<Integer>) new HashSet<>(cluster.getElements())))
+                .containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(parallel).isEqualTo(sequential);
+    }
+
+    @Test
+    void shouldRejectHandlesOutOfRange() {
+        final ConcurrentUnionFindClustering<Long, Integer, Integer> clustering = createClustering();
+        final Stream<ClassifiedCandidate<Integer>> candidates =
+                Stream.of(createCandidate(1, RECORDS, Classification.DUPLICATE));
+
+        assertThatThrownBy(() -> clustering.cluster(candidates)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.clustering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bakdata.dedupe.candidate_selection.Candidate;
+import com.bakdata.dedupe.candidate_selection.online.OnlineCandidate;
+import com.bakdata.util.Codec;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ExternalConnectedComponentsTest {
+    @TempDir
+    Path directory;
+
+    private ExternalConnectedComponents<Long, String, String> createComponents(final int maxTuplesInMemory) {
+        return this.createComponents(maxTuplesInMemory, 64, Codec.string());
+    }
+
+    private ExternalConnectedComponents<Long, String, String> createComponents(final int maxTuplesInMemory,
+            final int maxFanIn, final Codec<String> recordCodec) {
+        return ExternalConnectedComponents.<Long, String, String>builder()
+                .directory(this.directory)
+                .idExtractor(Function.identity())
+                .recordIdCodec(Codec.string())
+                .recordCodec(recordCodec)
+                .clusterIdGenerator(ClusterIdGenerators.longGenerator())
+                .maxTuplesInMemory(maxTuplesInMemory)
+                .maxFanIn(maxFanIn)
+                .build();
+    }
+
+    private static List<Candidate<String>> createChains() {
+        final Random random = new Random(42);
+        final List<Candidate<String>> duplicates = new ArrayList<>();
+        // long chains of duplicates require multiple iterations of the label propagation
+        for (int i = 0; i < 3000; i++) {
+            final int record = random.nextInt(2000);
+            duplicates.add(new OnlineCandidate<>("r" + record, "r" + (record + 1 + random.nextInt(3))));
+        }
+        return duplicates;
+    }
+
+    @Test
+    void shouldClusterInOrderOfFirstOccurrence() throws IOException {
+        final List<Candidate<String>> duplicates = List.of(new OnlineCandidate<>("d", "a"),
+                new OnlineCandidate<>("b", "c"), new OnlineCandidate<>("e", "a"), new OnlineCandidate<>("c", "f"));
+
+        final List<Cluster<Long, String>> clusters =
+                this.createComponents(2).clusterDuplicates(duplicates).collect(Collectors.toList());
+
+        assertThat(clusters).extracting(Cluster::getElements)
+                .containsExactly(List.of("d", "a", "e"), List.of("b", "c", "f"));
+        assertThat(clusters).extracting(Cluster::getId).containsExactly(0L, 1L);
+        try (final Stream<Path> files = Files.list(this.directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void shouldFindSameClustersAsTransitiveClosure() throws IOException {
+        final List<Candidate<String>> duplicates = createChains();
+        final TransitiveClosure<Long, String, String> closure = TransitiveClosure.<Long, String, String>builder()
+                .idExtractor(Function.identity())
+                .clusterIdGenerator(ClusterIdGenerators.longGenerator())
+                .build();
+        final Set<Set<String>> expected = closure.clusterDuplicates(duplicates).stream()
+                .map(cluster -> Set.copyOf(cluster.getElements()))
+                .collect(Collectors.toSet());
+
+        try (final Stream<Cluster<Long, String>> clusters = this.createComponents(100).clusterDuplicates(duplicates)) {
+            assertThat(clusters.map(cluster -> Set.copyOf(cluster.getElements())))
+                    .containsExactlyInAnyOrderElementsOf(expected);
+        }
+        try (final Stream<Path> files = Files.list(this.directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void shouldMergeRunsInMultiplePasses() throws IOException {
+        final List<Candidate<String>> duplicates = createChains();
+        final List<Cluster<Long, String>> expected =
+                this.createComponents(1 << 20).clusterDuplicates(duplicates).collect(Collectors.toList());
+
+        // hundreds of runs per sort with at most 3 runs merged at once
+        try (final Stream<Cluster<Long, String>> clusters =
+                this.createComponents(10, 3, Codec.string()).clusterDuplicates(duplicates)) {
+            assertThat(clusters).containsExactlyElementsOf(expected);
+        }
+        try (final Stream<Path> files = Files.list(this.directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void shouldOnlyWriteFirstOccurrencesOfRecentRecords() {
+        final AtomicInteger writtenRecords = new AtomicInteger();
+        final Codec<String> countingCodec = new Codec<>() {
+            @Override
+            public void write(final String value, final DataOutput output) throws IOException {
+                writtenRecords.incrementAndGet();
+                Codec.string().write(value, output);
+            }
+
+            @Override
+            public String read(final DataInput input) throws IOException {
+                return Codec.string().read(input);
+            }
+        };
+        final List<Candidate<String>> duplicates = createChains();
+        final long distinctRecords = duplicates.stream()
+                .flatMap(duplicate -> Stream.of(duplicate.getRecord1(), duplicate.getRecord2()))
+                .distinct()
+                .count();
+
+        try (final Stream<Cluster<Long, String>> clusters =
+                this.createComponents(1 << 20, 64, countingCodec).clusterDuplicates(duplicates)) {
+            assertThat(clusters.mapToInt(Cluster::size).sum()).isEqualTo(distinctRecords);
+        }
+        assertThat(writtenRecords).hasValue((int) distinctRecords);
+    }
+}
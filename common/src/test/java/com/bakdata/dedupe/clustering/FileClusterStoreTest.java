@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.clustering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bakdata.dedupe.candidate_selection.Candidate;
+import com.bakdata.dedupe.candidate_selection.online.OnlineCandidate;
+import com.bakdata.dedupe.deduplication.online.DeduplicationSnapshot;
+import com.bakdata.util.Codec;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileClusterStoreTest {
+    private static final int RECORDS = 2000;
+
+    private static FileClusterStore<Long, String, String> createStore(final Path directory) {
+        return FileClusterStore.<Long, String, String>builder()
+                .directory(directory)
+                .idExtractor(Function.identity())
+                .recordIdCodec(Codec.string())
+                .clusterIdCodec(Codec.longValue())
+                .recordCodec(Codec.string())
+                .cacheSize(10)
+                .maxChainLength(2)
+                .initialCapacity(16)
+                .build();
+    }
+
+    private static TransitiveClosure<Long, String, String> createClosure(
+            final ClusterStore<Long, String, String> store) {
+        return TransitiveClosure.<Long, String, String>builder()
+                .idExtractor(Function.identity())
+                .clusterIdGenerator(ClusterIdGenerators.longGenerator())
+                .clusterStore(store)
+                .build();
+    }
+
+    @Test
+    void shouldClusterLikeInMemoryStore(@TempDir final Path directory) throws IOException {
+        final Random random = new Random(42);
+        final List<Candidate<String>> duplicates = new ArrayList<>();
+        for (int i = 0; i < RECORDS; i++) {
+            duplicates.add(new OnlineCandidate<>("r" + random.nextInt(RECORDS), "r" + random.nextInt(RECORDS)));
+        }
+        final TransitiveClosure<Long, String, String> expected =
+                createClosure(InMemoryClusterStore.<Long, String, String>builder()
+                        .idExtractor(Function.identity())
+                        .build());
+        expected.clusterDuplicates(duplicates);
+
+        try (final FileClusterStore<Long, String, String> store = createStore(directory)) {
+            createClosure(store).clusterDuplicates(duplicates);
+        }
+
+        try (final FileClusterStore<Long, String, String> reopened = createStore(directory)) {
+            for (int i = 0; i < RECORDS; i++) {
+                final String id = "r" + i;
+                final Optional<Cluster<Long, String>> expectedCluster = expected.getClusterStore().getCluster(id);
+                final Optional<Cluster<Long, String>> actualCluster = reopened.getCluster(id);
+                assertThat(actualCluster.isPresent()).as(id).isEqualTo(expectedCluster.isPresent());
+                expectedCluster.ifPresent(cluster -> assertThat(actualCluster.orElseThrow().getElements())
+                        .containsExactlyInAnyOrderElementsOf(cluster.getElements()));
+            }
+        }
+    }
+
+    @Test
+    void shouldRestoreSnapshotAfterChanges(@TempDir final Path directory) throws IOException {
+        final Path snapshot = directory.resolve("snapshot");
+        try (final FileClusterStore<Long, String, String> store = createStore(directory.resolve("store"))) {
+            final TransitiveClosure<Long, String, String> closure = createClosure(store);
+            closure.clusterDuplicates(List.of(new OnlineCandidate<>("a", "b"), new OnlineCandidate<>("c", "d")));
+            createSnapshot(store).write(snapshot);
+
+            closure.clusterDuplicates(List.of(new OnlineCandidate<>("b", "c"), new OnlineCandidate<>("e", "f")));
+            // enforce that the changes are written to the cluster log
+            for (int i = 0; i < 50; i++) {
+                closure.clusterDuplicates(List.of(new OnlineCandidate<>("x" + i, "y" + i)));
+            }
+            store.flush();
+
+            createSnapshot(store).restore(snapshot);
+
+            assertThat(store.getCluster("a").orElseThrow().getElements()).containsExactly("a", "b");
+            assertThat(store.getCluster("d").orElseThrow().getElements()).containsExactly("c", "d");
+            assertThat(store.getCluster("e")).isEmpty();
+            assertThat(store.getCluster("x0")).isEmpty();
+            closure.clusterDuplicates(List.of(new OnlineCandidate<>("e", "a")));
+        }
+
+        try (final FileClusterStore<Long, String, String> reopened = createStore(directory.resolve("store"))) {
+            assertThat(reopened.getCluster("e").orElseThrow().getElements()).containsExactly("a", "b", "e");
+            assertThat(reopened.getCluster("f")).isEmpty();
+        }
+    }
+
+    private static DeduplicationSnapshot<Long, String> createSnapshot(
+            final FileClusterStore<Long, String, String> store) {
+        return DeduplicationSnapshot.<Long, String>builder()
+                .recordCodec(Codec.string())
+                .clusterIdCodec(Codec.longValue())
+                .component(store)
+                .build();
+    }
+}
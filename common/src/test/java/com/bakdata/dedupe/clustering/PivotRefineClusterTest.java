@@ -0,0 +1,137 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.clustering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bakdata.dedupe.candidate_selection.Candidate;
+import com.bakdata.dedupe.candidate_selection.online.OnlineCandidate;
+import com.bakdata.dedupe.classifier.ClassificationResult;
+import com.bakdata.dedupe.classifier.ClassifiedCandidate;
+import com.bakdata.dedupe.classifier.Classifier;
+import com.bakdata.dedupe.clustering.RefineClusterImplTest.CustomClassifier;
+import com.bakdata.dedupe.clustering.RefineClusterImplTest.Person;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import lombok.NonNull;
+import org.junit.jupiter.api.Test;
+
+class PivotRefineClusterTest {
+
+    private static PivotRefineCluster<Long, Person, String> createRefineCluster(final Classifier<Person> classifier) {
+        final AtomicLong atomicLong = new AtomicLong();
+        return PivotRefineCluster.<Long, Person, String>builder()
+                .classifier(classifier)
+                .clusterIdGenerator(personList -> atomicLong.getAndIncrement())
+                .idExtractor(Person::getId)
+                .build();
+    }
+
+    @Test
+    void shouldKeepCluster() {
+        final Cluster<Long, Person> personCluster = new Cluster<>(0L, List.of(
+                new Person("1", "Joanna"),
+                new Person("2", "Joanna"),
+                new Person("3", "Joanna"),
+                new Person("4", "Joanna")
+        ));
+
+        final Stream<Cluster<Long, Person>> actual = createRefineCluster(new CustomClassifier())
+                .refine(Stream.of(personCluster), Stream.empty());
+        assertThat(actual)
+                .hasSize(1)
+                .allSatisfy(cluster -> assertThat(cluster.getElements()).isEqualTo(personCluster.getElements()));
+    }
+
+    @Test
+    void shouldRefineCluster() {
+        final Cluster<Long, Person> personCluster = new Cluster<>(0L, List.of(
+                new Person("1", "Joanna"),
+                new Person("2", "Joanna"),
+                new Person("3", "Johanna"),
+                new Person("4", "Johanna"),
+                new Person("5", "Johanna")
+        ));
+
+        final Stream<Cluster<Long, Person>> actual = createRefineCluster(new CustomClassifier())
+                .refine(Stream.of(personCluster), Stream.empty());
+        assertThat(actual)
+                .extracting(Cluster::getElements)
+                .containsExactlyInAnyOrder(
+                        List.of(new Person("1", "Joanna"), new Person("2", "Joanna")),
+                        List.of(new Person("3", "Johanna"), new Person("4", "Johanna"), new Person("5", "Johanna")));
+    }
+
+    @Test
+    void shouldOnlyClassifyEdgesIncidentToPivots() {
+        final int n = 1000;
+        final List<Person> persons = IntStream.range(0, n)
+                .mapToObj(i -> new Person(Integer.toString(i), i % 2 == 0 ? "Joanna" : "Johanna"))
+                .collect(Collectors.toList());
+        final CountingClassifier classifier = new CountingClassifier();
+        final PivotRefineCluster<Long, Person, String> refineCluster = createRefineCluster(classifier);
+
+        final Stream<Cluster<Long, Person>> actual =
+                refineCluster.refine(Stream.of(new Cluster<>(0L, persons)), Stream.empty());
+        assertThat(actual).hasSize(2);
+        // each repetition classifies at most the edges of two pivots
+        assertThat(classifier.getCount()).isLessThanOrEqualTo(refineCluster.getRepetitions() * 2 * n);
+    }
+
+    @Test
+    void shouldUseKnownClassifications() {
+        final List<Person> persons = List.of(
+                new Person("1", "Joanna"),
+                new Person("2", "Joanna"),
+                new Person("3", "Joanna"));
+        final CountingClassifier classifier = new CountingClassifier();
+        final List<ClassifiedCandidate<Person>> knownClassifications = List.of(
+                classifier.classifyCandidate(new OnlineCandidate<>(persons.get(0), persons.get(1))),
+                classifier.classifyCandidate(new OnlineCandidate<>(persons.get(1), persons.get(2))),
+                classifier.classifyCandidate(new OnlineCandidate<>(persons.get(0), persons.get(2))));
+
+        final Stream<Cluster<Long, Person>> actual = createRefineCluster(classifier)
+                .refine(Stream.of(new Cluster<>(0L, persons)), knownClassifications.stream());
+        assertThat(actual).hasSize(1);
+        assertThat(classifier.getCount()).isZero();
+    }
+
+    private static class CountingClassifier extends CustomClassifier {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public @NonNull ClassificationResult classify(final @NonNull Candidate<Person> candidate) {
+            this.count.incrementAndGet();
+            return super.classify(candidate);
+        }
+
+        int getCount() {
+            return this.count.get();
+        }
+    }
+}
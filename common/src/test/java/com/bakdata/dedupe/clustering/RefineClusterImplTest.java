@@ -2,22 +2,33 @@ package com.bakdata.dedupe.clustering;
 
 import static com.bakdata.dedupe.clustering.RefineClusterImpl.createGaussPair;
 import static com.bakdata.dedupe.clustering.RefineClusterImpl.getRandomEdges;
+import static com.bakdata.dedupe.clustering.RefineClusterImpl.scoreClustering;
 import static com.bakdata.dedupe.clustering.RefineClusterImpl.triangularNumber;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.bakdata.dedupe.candidate_selection.Candidate;
+import com.bakdata.dedupe.candidate_selection.online.OnlineCandidate;
 import com.bakdata.dedupe.classifier.Classification;
 import com.bakdata.dedupe.classifier.ClassificationResult;
 import com.bakdata.dedupe.classifier.ClassificationResult.ClassificationResultBuilder;
 import com.bakdata.dedupe.classifier.ClassifiedCandidate;
 import com.bakdata.dedupe.classifier.Classifier;
+import com.bakdata.dedupe.clustering.RefineClusterImpl.BranchAndBoundClustering;
 import com.bakdata.dedupe.clustering.RefineClusterImpl.WeightedEdge;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -216,6 +227,175 @@ class RefineClusterImplTest {
         assertThat(actual).isEqualTo(List.of(0, 0, 2, 0, 2));
     }
 
+    private static double enumerateClusterings(final int[] clustering, final int index, final int numClusters,
+            final double[][] weightMatrix, final int[] bestClustering, final double bestScore) {
+        if (index == clustering.length) {
+            final double score = scoreClustering(clustering, weightMatrix);
+            if (score > bestScore) {
+                System.arraycopy(clustering, 0, bestClustering, 0, clustering.length);
+                return score;
+            }
+            return bestScore;
+        }
+        double score = bestScore;
+        for (int clusterId = 0; clusterId <= numClusters; clusterId++) {
+            clustering[index] = clusterId;
+            score = enumerateClusterings(clustering, index + 1, Math.max(numClusters, clusterId + 1), weightMatrix,
+                    bestClustering, score);
+        }
+        return score;
+    }
+
+    @Test
+    void shouldFindSameClusteringAsCompleteEnumeration() {
+        final Random random = new Random(42);
+        for (int n = 1; n <= 9; n++) {
+            for (int run = 0; run < 10; run++) {
+                final double[][] weightMatrix = new double[n][n];
+                for (int rowIndex = 0; rowIndex < n; rowIndex++) {
+                    for (int colIndex = rowIndex + 1; colIndex < n; colIndex++) {
+                        weightMatrix[rowIndex][colIndex] = random.nextDouble() * 2 - 1;
+                    }
+                }
+                final int[] expected = new int[n];
+                enumerateClusterings(new int[n], 0, 0, weightMatrix, expected, Double.NEGATIVE_INFINITY);
+
+                assertThat(new BranchAndBoundClustering(weightMatrix).cluster()).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void shouldRefineHugeClusterAlongKnownClassifications() {
+        final int n = 20_000;
+        final List<Person> persons = IntStream.range(0, n)
+                .mapToObj(i -> new Person(Integer.toString(i), i < n / 2 ? "Joanna" : "Johanna"))
+                .collect(Collectors.toList());
+        final CustomClassifier classifier = new CustomClassifier();
+        // a long chain of duplicates, which is only connected through a single non-duplicate
+        final List<ClassifiedCandidate<Person>> knownClassifications = IntStream.range(1, n)
+                .mapToObj(i -> classifier.classifyCandidate(new OnlineCandidate<>(persons.get(i - 1), persons.get(i))))
+                .collect(Collectors.toList());
+
+        final RefineClusterImpl<Long, Person, String> refineCluster = RefineClusterImpl.<Long, Person, String>builder()
+                .classifier(classifier)
+                .clusterIdGenerator(list -> 0L)
+                .idExtractor(Person::getId)
+                .build();
+
+        final List<Cluster<Long, Person>> actual =
+                refineCluster.refine(Stream.of(new Cluster<>(0L, persons)), knownClassifications.stream())
+                        .collect(Collectors.toList());
+        assertThat(actual.stream().mapToInt(Cluster::size).sum()).isEqualTo(n);
+        assertThat(actual).allSatisfy(cluster -> assertThat(cluster.getElements())
+                .extracting(Person::getName)
+                .containsOnly(cluster.get(0).getName()));
+    }
+
+    private static int[] greedyClusterDensely(final int n, final List<WeightedEdge> edges) {
+        final double[][] weightMatrix = new double[n][n];
+        for (final WeightedEdge edge : edges) {
+            weightMatrix[edge.getLeft()][edge.getRight()] = edge.getWeight();
+        }
+        int[] clustering = IntStream.range(0, n).toArray();
+        double score = scoreClustering(clustering, weightMatrix);
+        for (final WeightedEdge edge : edges) {
+            final int[] newClustering = clustering.clone();
+            final int newClusterId = Math.min(clustering[edge.getLeft()], clustering[edge.getRight()]);
+            final int oldClusterId = Math.max(clustering[edge.getLeft()], clustering[edge.getRight()]);
+            for (int i = 0; i < n; i++) {
+                if (newClustering[i] == oldClusterId) {
+                    newClustering[i] = newClusterId;
+                }
+            }
+            final double newScore = scoreClustering(newClustering, weightMatrix);
+            if (newScore > score) {
+                score = newScore;
+                clustering = newClustering;
+            }
+        }
+        return clustering;
+    }
+
+    @Test
+    void shouldFindSameClusteringAsDenseGreedyClustering() {
+        final Random random = new Random(42);
+        final int n = 100;
+        for (int run = 0; run < 10; run++) {
+            final List<WeightedEdge> edges = random.ints(4 * n, 0, triangularNumber(n - 1))
+                    .distinct()
+                    .mapToObj(RefineClusterImpl::createGaussPair)
+                    .map(pair -> WeightedEdge.of(pair.getLeft() + 1, pair.getRight(), random.nextDouble() * 2 - 1))
+                    .sorted(Comparator.comparingDouble(WeightedEdge::getWeight).reversed())
+                    .collect(Collectors.toList());
+
+            assertThat(new RefineClusterImpl.GreedyClustering<>().greedyCluster(n, edges))
+                    .isEqualTo(greedyClusterDensely(n, edges));
+        }
+    }
+
+    private static RefineClusterImpl<Long, Person, String> createRefineCluster(final Classifier<Person> classifier,
+            final Executor executor) {
+        final AtomicLong atomicLong = new AtomicLong();
+        return RefineClusterImpl.<Long, Person, String>builder()
+                .classifier(classifier)
+                .clusterIdGenerator(personList -> atomicLong.getAndIncrement())
+                .idExtractor(Person::getId)
+                .executor(executor)
+                .build();
+    }
+
+    @Test
+    void shouldRefineConcurrentlyLikeSequentially() {
+        final Random random = new Random(42);
+        final List<String> names = List.of("Joanna", "Johanna", "Jo");
+        final List<Cluster<Long, Person>> clusters = LongStream.range(0, 200)
+                .mapToObj(clusterId -> new Cluster<>(clusterId, IntStream.range(0, 1 + random.nextInt(12))
+                        .mapToObj(i -> new Person(clusterId + "-" + i, names.get(random.nextInt(names.size()))))
+                        .collect(Collectors.toList())))
+                .collect(Collectors.toList());
+        final List<Cluster<Long, Person>> expected = createRefineCluster(new CustomClassifier(), null)
+                .refine(clusters.stream(), Stream.empty())
+                .collect(Collectors.toList());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Cluster<Long, Person>> actual = createRefineCluster(new CustomClassifier(), executor)
+                    .refine(clusters.stream(), Stream.empty())
+                    .collect(Collectors.toList());
+            assertThat(actual).isEqualTo(expected);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void shouldClassifyMissingEdgesOfLargeClusterOnExecutor() {
+        final List<Person> persons = IntStream.range(0, 30)
+                .mapToObj(i -> new Person(Integer.toString(i), "Joanna"))
+                .collect(Collectors.toList());
+        final Set<Thread> classifyingThreads = ConcurrentHashMap.newKeySet();
+        final CustomClassifier customClassifier = new CustomClassifier();
+        final Classifier<Person> classifier = candidate -> {
+            classifyingThreads.add(Thread.currentThread());
+            return customClassifier.classify(candidate);
+        };
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Stream<Cluster<Long, Person>> actual = createRefineCluster(classifier, executor)
+                    .refine(Stream.of(new Cluster<>(0L, persons)), Stream.empty());
+            assertThat(actual)
+                    .flatExtracting(Cluster::getElements)
+                    .containsExactlyInAnyOrderElementsOf(persons);
+            assertThat(classifyingThreads)
+                    .isNotEmpty()
+                    .doesNotContain(Thread.currentThread());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     void shouldRefineClusterWithMoreThan128Elements() {
         final List<Person> firstCluster = IntStream.range(0, 130)
@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.clustering;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.bakdata.dedupe.candidate_selection.online.OnlineCandidate;
+import com.bakdata.dedupe.classifier.Classification;
+import com.bakdata.dedupe.classifier.ClassificationResult;
+import com.bakdata.dedupe.classifier.Classifier;
+import com.bakdata.dedupe.deduplication.online.InMemoryRecordStore;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class TransitiveClosureTest {
+    private static TransitiveClosure<Long, String, String> createClosure() {
+        return TransitiveClosure.<Long, String, String>builder()
+                .idExtractor(Function.identity())
+                .clusterIdGenerator(ClusterIdGenerators.longGenerator())
+                .build();
+    }
+
+    @Test
+    void shouldExtendBulkLoadedClusters() {
+        final TransitiveClosure<Long, String, String> closure = createClosure();
+        final Cluster<Long, String> loaded = new Cluster<>(42L, List.of("a", "b"));
+        closure.bulkLoad(List.of(loaded, new Cluster<>(43L, List.of("c"))));
+
+        final List<Cluster<Long, String>> changed = closure.clusterDuplicates(List.of(new OnlineCandidate<>("d", "a")));
+
+        assertThat(changed).hasSize(1);
+        assertThat(changed.get(0).getId()).isEqualTo(42L);
+        assertThat(changed.get(0).getElements()).containsExactly("a", "b", "d");
+        assertThat(closure.getClusterStore().getCluster("c")).isEmpty();
+        // the given cluster is not modified
+        assertThat(loaded.getElements()).containsExactly("a", "b");
+    }
+
+    @Test
+    void shouldRejectOverlappingClusters() {
+        final TransitiveClosure<Long, String, String> closure = createClosure();
+        final List<Cluster<Long, String>> clusters =
+                List.of(new Cluster<>(1L, List.of("a", "b")), new Cluster<>(2L, List.of("b", "c")));
+
+        assertThatThrownBy(() -> closure.bulkLoad(clusters)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldMergeClustersInHandleStore() {
+        final InMemoryRecordStore<String, String> recordStore =
+                InMemoryRecordStore.<String, String>builder().idExtractor(Function.identity()).build();
+        final TransitiveClosure<Long, String, String> closure = TransitiveClosure.<Long, String, String>builder()
+                .idExtractor(Function.identity())
+                .clusterIdGenerator(ClusterIdGenerators.longGenerator())
+                .clusterStore(new HandleClusterStore<>(recordStore))
+                .build();
+
+        closure.clusterDuplicates(List.of(new OnlineCandidate<>("a", "b"), new OnlineCandidate<>("c", "d")));
+        final List<Cluster<Long, String>> changed = closure.clusterDuplicates(List.of(new OnlineCandidate<>("b", "c")));
+
+        assertThat(changed).hasSize(1);
+        assertThat(changed.get(0).getElements()).containsExactlyInAnyOrder("a", "b", "c", "d");
+        assertThat(closure.getClusterStore().getCluster("d")).containsSame(changed.get(0));
+        assertThat(recordStore.size()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldSplitClusterOnRemoval() {
+        final TransitiveClosure<Long, String, String> closure = createClosure();
+        closure.clusterDuplicates(List.of(new OnlineCandidate<>("a1", "b"), new OnlineCandidate<>("a2", "b"),
+                new OnlineCandidate<>("c", "b")));
+        final Long formerId = closure.getClusterStore().getCluster("b").orElseThrow().getId();
+        // only records with the same prefix are duplicates without b
+        final Classifier<String> classifier = candidate -> ClassificationResult.builder()
+                .classification(candidate.getRecord1().charAt(0) == candidate.getRecord2().charAt(0)
+                        ? Classification.DUPLICATE : Classification.NON_DUPLICATE)
+                .confidence(1)
+                .build();
+
+        final List<Cluster<Long, String>> parts = closure.remove("b", classifier).collect(Collectors.toList());
+
+        assertThat(parts).extracting(Cluster::getElements)
+                .containsExactlyInAnyOrder(List.of("a1", "a2"), List.of("c"));
+        assertThat(parts.get(0).getId()).isEqualTo(formerId);
+        assertThat(closure.getClusterStore().getCluster("a2")).containsSame(parts.get(0));
+        assertThat(closure.getClusterStore().getCluster("b")).isEmpty();
+        assertThat(closure.getClusterStore().getCluster("c")).isEmpty();
+    }
+
+    @Test
+    void shouldNotModifyEmittedClustersOnEviction() {
+        final TransitiveClosure<Long, String, String> closure = createClosure();
+        final List<Cluster<Long, String>> emitted = closure.clusterDuplicates(
+                List.of(new OnlineCandidate<>("a", "b"), new OnlineCandidate<>("c", "b")));
+
+        closure.evict(List.of("a"));
+
+        assertThat(emitted.get(0).getElements()).containsExactlyInAnyOrder("a", "b", "c");
+        final Cluster<Long, String> remaining = closure.getClusterStore().getCluster("b").orElseThrow();
+        assertThat(remaining.getId()).isEqualTo(emitted.get(0).getId());
+        assertThat(remaining.getElements()).containsExactlyInAnyOrder("b", "c");
+        assertThat(closure.getClusterStore().getCluster("a")).isEmpty();
+    }
+}
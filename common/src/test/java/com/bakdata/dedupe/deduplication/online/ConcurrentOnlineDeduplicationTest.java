@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bakdata.dedupe.candidate_selection.SortingKey;
+import com.bakdata.dedupe.candidate_selection.online.OnlineSortedNeighborhoodMethod;
+import com.bakdata.dedupe.classifier.Classification;
+import com.bakdata.dedupe.classifier.ClassificationResult;
+import com.bakdata.dedupe.classifier.Classifier;
+import com.bakdata.dedupe.clustering.ClusterIdGenerators;
+import com.bakdata.dedupe.fusion.FusedValue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentOnlineDeduplicationTest {
+    private static final int GROUPS = 100;
+    private static final int GROUP_SIZE = 8;
+
+    private static String group(final String record) {
+        return record.substring(0, record.indexOf('-'));
+    }
+
+    private static int index(final String record) {
+        return Integer.parseInt(record.substring(record.indexOf('-') + 1));
+    }
+
+    private static List<String> createRecords() {
+        final List<String> records = new ArrayList<>();
+        for (int group = 0; group < GROUPS; group++) {
+            for (int index = 0; index < GROUP_SIZE; index++) {
+                records.add("g" + group + "-" + index);
+            }
+        }
+        Collections.shuffle(records, new Random(42));
+        return records;
+    }
+
+    private static ConcurrentOnlineDeduplication<Long, String, String> createDeduplication(final int parallelism) {
+        // the window covers all records of a group, but only neighboring indexes are duplicates, such that larger
+        // clusters require transitivity
+        final Classifier<String> classifier = candidate -> ClassificationResult.builder()
+                .classification(group(candidate.getRecord1()).equals(group(candidate.getRecord2()))
+                        && Math.abs(index(candidate.getRecord1()) - index(candidate.getRecord2())) <= 1
+                        ? Classification.DUPLICATE : Classification.NON_DUPLICATE)
+                .confidence(1)
+                .build();
+        return ConcurrentOnlineDeduplication.<Long, String, String>builder()
+                .candidateSelection(OnlineSortedNeighborhoodMethod.<String>builder()
+                        .sortingKey(new SortingKey<>("group", ConcurrentOnlineDeduplicationTest::group),
+                                4 * GROUP_SIZE)
+                        .build())
+                .classifier(classifier)
+                .fusion(cluster -> new FusedValue<>(Collections.min(cluster.getElements()), cluster, List.of()))
+                .incompleteFusionHandler(Optional::of)
+                .idExtractor(Function.identity())
+                .clusterIdGenerator(ClusterIdGenerators.longGenerator())
+                .parallelism(parallelism)
+                .stripes(16)
+                .build();
+    }
+
+    private static Set<Set<String>> getClusters(final ConcurrentOnlineDeduplication<Long, String, String> deduplication,
+            final List<String> records) {
+        return records.stream()
+                .map(record -> deduplication.getClosure().getCluster(record)
+                        .map(cluster -> Set.copyOf(cluster.getElements()))
+                        .orElse(Set.of(record)))
+                .collect(Collectors.toSet());
+    }
+
+    @Test
+    void shouldClusterLikeSequentialProcessing() {
+        final List<String> records = createRecords();
+        try (final ConcurrentOnlineDeduplication<Long, String, String> sequential = createDeduplication(1);
+                final ConcurrentOnlineDeduplication<Long, String, String> concurrent = createDeduplication(8)) {
+            records.forEach(sequential::deduplicate);
+            final List<String> results = concurrent.deduplicate(records.stream()).collect(Collectors.toList());
+
+            final Set<Set<String>> clusters = getClusters(concurrent, records);
+            assertThat(clusters)
+                    .hasSize(GROUPS)
+                    .isEqualTo(getClusters(sequential, records));
+            assertThat(results).hasSameSizeAs(records);
+            for (int i = 0; i < records.size(); i++) {
+                assertThat(group(results.get(i))).isEqualTo(group(records.get(i)));
+            }
+        }
+    }
+
+    @Test
+    void shouldFuseCompleteClusterAfterConcurrentMerges() {
+        final List<String> records = createRecords();
+        try (final ConcurrentOnlineDeduplication<Long, String, String> deduplication = createDeduplication(8)) {
+            records.stream()
+                    .map(deduplication::submit)
+                    .collect(Collectors.toList())
+                    .forEach(future -> assertThat(future.join()).isNotNull());
+
+            for (int group = 0; group < GROUPS; group++) {
+                assertThat(deduplication.deduplicate("g" + group + "-" + GROUP_SIZE)).isEqualTo("g" + group + "-0");
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.bakdata.dedupe.candidate_selection.Candidate;
+import com.bakdata.dedupe.candidate_selection.SortingKey;
+import com.bakdata.dedupe.candidate_selection.online.OnlineCandidate;
+import com.bakdata.dedupe.candidate_selection.online.OnlineSortedNeighborhoodMethod;
+import com.bakdata.dedupe.clustering.Cluster;
+import com.bakdata.dedupe.clustering.ClusterIdGenerators;
+import com.bakdata.dedupe.clustering.SequentialClusterIdGenerator;
+import com.bakdata.dedupe.clustering.TransitiveClosure;
+import com.bakdata.util.Codec;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DeduplicationSnapshotTest {
+    @TempDir
+    Path directory;
+
+    private static List<String> selectCandidates(final Deduplication deduplication, final String record) {
+        return deduplication.snm.selectCandidates(record)
+                .map(Candidate::getRecord2)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void shouldRestoreCompleteState() {
+        final Deduplication original = new Deduplication();
+        for (final String record : List.of("a1", "a2", "b1", "b2", "c1")) {
+            original.add(record);
+        }
+        original.closure.clusterDuplicates(
+                List.of(new OnlineCandidate<>("a1", "a2"), new OnlineCandidate<>("b1", "b2")));
+        final Path snapshot = this.directory.resolve("snapshot");
+        original.createSnapshot().write(snapshot);
+
+        final Deduplication restored = new Deduplication();
+        restored.createSnapshot().restore(snapshot);
+
+        assertThat(selectCandidates(restored, "a3")).isEqualTo(selectCandidates(original, "a3"));
+        final Cluster<Long, String> restoredCluster = restored.closure.getClusterStore().getCluster("a1").orElseThrow();
+        assertThat(restoredCluster.getElements()).containsExactly("a1", "a2");
+        assertThat(restored.closure.clusterDuplicates(List.of(new OnlineCandidate<>("c1", "b1"))))
+                .isEqualTo(original.closure.clusterDuplicates(List.of(new OnlineCandidate<>("c1", "b1"))));
+        assertThat(restored.eviction.getWindowSize()).isEqualTo(5);
+        // the window evicts the oldest restored record first
+        restored.add("d1");
+        assertThat(selectCandidates(restored, "a4")).doesNotContain("a1");
+    }
+
+    @Test
+    void shouldRejectMismatchingComponents() {
+        final Path snapshot = this.directory.resolve("snapshot");
+        new Deduplication().createSnapshot().write(snapshot);
+
+        final DeduplicationSnapshot<Long, String> mismatching = DeduplicationSnapshot.<Long, String>builder()
+                .recordCodec(Codec.string())
+                .clusterIdCodec(Codec.longValue())
+                .component(ClusterIdGenerators.longGenerator())
+                .build();
+        assertThatThrownBy(() -> mismatching.restore(snapshot)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static class Deduplication {
+        private final OnlineSortedNeighborhoodMethod<String> snm = OnlineSortedNeighborhoodMethod.<String>builder()
+                .sortingKey(new SortingKey<>("first", s -> s.charAt(0)), 4)
+                .sortingKey(new SortingKey<>("second", s -> s.charAt(1)), 4)
+                .build();
+        private final SequentialClusterIdGenerator<String, Long> clusterIdGenerator =
+                ClusterIdGenerators.longGenerator();
+        private final TransitiveClosure<Long, String, String> closure =
+                TransitiveClosure.<Long, String, String>builder()
+                        .idExtractor(Function.identity())
+                        .clusterIdGenerator(this.clusterIdGenerator)
+                        .build();
+        private final SlidingWindowEviction<String> eviction = SlidingWindowEviction.<String>builder()
+                .target(this.snm)
+                .target(this.closure)
+                .maxSize(5)
+                .cleanUpInterval(1)
+                .build();
+
+        private void add(final String record) {
+            this.snm.selectCandidates(record).forEach(candidate -> { });
+            this.eviction.recordAdded(record);
+        }
+
+        private DeduplicationSnapshot<Long, String> createSnapshot() {
+            return DeduplicationSnapshot.<Long, String>builder()
+                    .recordCodec(Codec.string())
+                    .clusterIdCodec(Codec.longValue())
+                    .component(this.snm)
+                    .component(this.clusterIdGenerator)
+                    .component(this.closure)
+                    .component(this.eviction)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.bakdata.util.Codec;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileWriteAheadLogTest {
+    @TempDir
+    Path directory;
+
+    private FileWriteAheadLog<String> openLog() {
+        return FileWriteAheadLog.<String>builder()
+                .directory(this.directory.resolve("wal"))
+                .recordCodec(Codec.string())
+                .syncInterval(2)
+                .segmentSize(32L)
+                .build();
+    }
+
+    private static List<String> replay(final FileWriteAheadLog<String> log) {
+        final List<String> replayed = new ArrayList<>();
+        log.replay(record -> {
+            // the deduplication appends each record again
+            log.append(record);
+            replayed.add(record);
+            return record;
+        });
+        return replayed;
+    }
+
+    private static void flipLastByte(final Path path) throws IOException {
+        final byte[] content = Files.readAllBytes(path);
+        content[content.length - 1] ^= 1;
+        Files.write(path, content);
+    }
+
+    @Test
+    void shouldReplayAllRecordsAfterReopen() throws IOException {
+        try (final FileWriteAheadLog<String> log = this.openLog()) {
+            List.of("a", "b", "c").forEach(log::append);
+        }
+
+        try (final FileWriteAheadLog<String> log = this.openLog()) {
+            assertThat(replay(log)).containsExactly("a", "b", "c");
+            assertThat(log.getNextSequence()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void shouldOnlyReplayTailAfterSnapshot() throws IOException {
+        final Path snapshotPath = this.directory.resolve("snapshot");
+        try (final FileWriteAheadLog<String> log = this.openLog()) {
+            List.of("a", "b", "c").forEach(log::append);
+            createSnapshot(log).write(snapshotPath);
+            log.truncate();
+            List.of("d", "e").forEach(log::append);
+        }
+
+        try (final FileWriteAheadLog<String> log = this.openLog()) {
+            createSnapshot(log).restore(snapshotPath);
+            assertThat(replay(log)).containsExactly("d", "e");
+        }
+        try (final Stream<Path> segments = Files.list(this.directory.resolve("wal"))) {
+            assertThat(segments.map(path -> path.getFileName().toString()))
+                    .noneMatch(name -> name.startsWith(String.format("%020d", 0)));
+        }
+    }
+
+    @Test
+    void shouldTruncateTornWrite() throws IOException {
+        try (final FileWriteAheadLog<String> log = this.openLog()) {
+            List.of("a", "b").forEach(log::append);
+        }
+        final Path lastSegment;
+        try (final Stream<Path> segments = Files.list(this.directory.resolve("wal"))) {
+            lastSegment = segments.max(Path::compareTo).orElseThrow();
+        }
+        Files.write(lastSegment, new byte[]{0, 0, 0, 5, 0, 0}, StandardOpenOption.APPEND);
+
+        try (final FileWriteAheadLog<String> log = this.openLog()) {
+            log.append("c");
+        }
+        try (final FileWriteAheadLog<String> log = this.openLog()) {
+            assertThat(replay(log)).containsExactly("a", "b", "c");
+        }
+    }
+
+    @Test
+    void shouldFailOnCorruptedEntryInEarlierSegment() throws IOException {
+        try (final FileWriteAheadLog<String> log = this.openLog()) {
+            List.of("a", "b", "c", "d", "e").forEach(log::append);
+        }
+        final Path firstSegment;
+        try (final Stream<Path> segments = Files.list(this.directory.resolve("wal"))) {
+            firstSegment = segments.min(Path::compareTo).orElseThrow();
+        }
+        flipLastByte(firstSegment);
+
+        try (final FileWriteAheadLog<String> log = this.openLog()) {
+            assertThatThrownBy(() -> replay(log)).isInstanceOf(UncheckedIOException.class);
+        }
+    }
+
+    @Test
+    void shouldFailOnCorruptedEntryFollowedByMoreEntries() throws IOException {
+        final Path walDirectory = this.directory.resolve("wal");
+        try (final FileWriteAheadLog<String> log = FileWriteAheadLog.<String>builder()
+                .directory(walDirectory)
+                .recordCodec(Codec.string())
+                .build()) {
+            List.of("a", "b", "c").forEach(log::append);
+        }
+        final Path segment;
+        try (final Stream<Path> segments = Files.list(walDirectory)) {
+            segment = segments.findFirst().orElseThrow();
+        }
+        final byte[] content = Files.readAllBytes(segment);
+        // flips a bit of the sequence number of the first entry
+        content[Integer.BYTES + Long.BYTES - 1] ^= 1;
+        Files.write(segment, content);
+
+        assertThatThrownBy(this::openLog).isInstanceOf(UncheckedIOException.class);
+    }
+
+    @Test
+    void shouldSyncIdleGroupInBackground() throws IOException, InterruptedException {
+        final Path walDirectory = this.directory.resolve("wal");
+        try (final FileWriteAheadLog<String> log = FileWriteAheadLog.<String>builder()
+                .directory(walDirectory)
+                .recordCodec(Codec.string())
+                .syncInterval(100)
+                .syncDelay(Duration.ofMillis(10))
+                .build()) {
+            log.append("a");
+            final Path segment;
+            try (final Stream<Path> segments = Files.list(walDirectory)) {
+                segment = segments.findFirst().orElseThrow();
+            }
+            final long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (Files.size(segment) == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertThat(Files.size(segment)).isPositive();
+        }
+    }
+
+    private static DeduplicationSnapshot<Long, String> createSnapshot(final FileWriteAheadLog<String> log) {
+        return DeduplicationSnapshot.<Long, String>builder()
+                .recordCodec(Codec.string())
+                .clusterIdCodec(Codec.longValue())
+                .component(log)
+                .build();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bakdata.dedupe.candidate_selection.SortingKey;
+import com.bakdata.dedupe.candidate_selection.online.OnlineSortedNeighborhoodMethod;
+import com.bakdata.dedupe.classifier.Classification;
+import com.bakdata.dedupe.classifier.ClassificationResult;
+import com.bakdata.dedupe.clustering.ClusterIdGenerators;
+import com.bakdata.dedupe.clustering.TransitiveClosure;
+import com.bakdata.dedupe.duplicate_detection.online.OnlinePairBasedDuplicateDetection;
+import com.bakdata.dedupe.fusion.FusedValue;
+import com.bakdata.dedupe.fusion.IncompleteFusionHandler;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+class FingerprintIndexTest {
+    private static FusingOnlineDeduplication<Long, String> createDeduplication(
+            final IncompleteFusionHandler<String> incompleteFusionHandler) {
+        return FusingOnlineDeduplication.<Long, String>builder()
+                .duplicateDetection(OnlinePairBasedDuplicateDetection.<Long, String, String>builder()
+                        .candidateSelection(OnlineSortedNeighborhoodMethod.<String>builder()
+                                .sortingKey(new SortingKey<>("first", s -> s.charAt(0)), 10)
+                                .build())
+                        .classifier(candidate -> ClassificationResult.builder()
+                                .classification(candidate.getRecord1().charAt(0) == candidate.getRecord2().charAt(0)
+                                        ? Classification.DUPLICATE : Classification.NON_DUPLICATE)
+                                .confidence(1)
+                                .build())
+                        .clustering(TransitiveClosure.<Long, String, String>builder()
+                                .idExtractor(Function.identity())
+                                .clusterIdGenerator(ClusterIdGenerators.longGenerator())
+                                .build())
+                        .build())
+                .fusion(cluster -> new FusedValue<>(String.join("+", cluster.getElements()), cluster, List.of()))
+                .incompleteFusionHandler(incompleteFusionHandler)
+                .exactDuplicateIndex(FingerprintIndex.<String>builder()
+                        .fingerprintFunction(Function.identity())
+                        .build())
+                .build();
+    }
+
+    @Test
+    void shouldReturnFusedResultForReDeliveries() {
+        final FusingOnlineDeduplication<Long, String> deduplication = createDeduplication(Optional::of);
+        assertThat(deduplication.deduplicate("a1")).isEqualTo("a1");
+        assertThat(deduplication.deduplicate("a2")).isEqualTo("a2+a1");
+
+        assertThat(deduplication.deduplicate("a1")).isEqualTo("a2+a1");
+    }
+
+    @Test
+    void shouldReturnOwnRecordForReDeliveriesOfIncompleteFusions() {
+        final FusingOnlineDeduplication<Long, String> deduplication =
+                createDeduplication(IncompleteFusionHandler.dontFuse());
+        assertThat(deduplication.deduplicate("a1")).isEqualTo("a1");
+        assertThat(deduplication.deduplicate("a2")).isEqualTo("a2");
+
+        assertThat(deduplication.deduplicate("a1")).isEqualTo("a1");
+        assertThat(deduplication.deduplicate("a2")).isEqualTo("a2");
+    }
+
+    @Test
+    void shouldReturnOwnRecordForReDeliveriesOfIncompleteFusionsInBatch() {
+        final FusingOnlineDeduplication<Long, String> deduplication =
+                createDeduplication(IncompleteFusionHandler.dontFuse());
+        assertThat(deduplication.deduplicateBatch(List.of("b1", "b2"))).containsExactly("b1", "b2");
+
+        assertThat(deduplication.deduplicateBatch(List.of("b2", "b1"))).containsExactly("b2", "b1");
+        assertThat(deduplication.deduplicate("b2")).isEqualTo("b2");
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bakdata.dedupe.candidate_selection.SortingKey;
+import com.bakdata.dedupe.candidate_selection.online.OnlineSortedNeighborhoodMethod;
+import com.bakdata.dedupe.classifier.Classification;
+import com.bakdata.dedupe.classifier.ClassificationResult;
+import com.bakdata.dedupe.classifier.Classifier;
+import com.bakdata.dedupe.clustering.ClusterIdGenerators;
+import com.bakdata.dedupe.clustering.FileClusterStore;
+import com.bakdata.dedupe.clustering.TransitiveClosure;
+import com.bakdata.dedupe.duplicate_detection.online.Match;
+import com.bakdata.dedupe.duplicate_detection.online.OnlinePairBasedDuplicateDetection;
+import com.bakdata.dedupe.fusion.FusedValue;
+import com.bakdata.dedupe.similarity.CachingSimilarity;
+import com.bakdata.dedupe.similarity.SimilarityContext;
+import com.bakdata.dedupe.similarity.SimilarityMeasure;
+import com.bakdata.util.Codec;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FusingOnlineDeduplicationTest {
+    private static final SimilarityMeasure<String> FIRST_CHARACTER =
+            CachingSimilarity.equality((left, right, context) -> left.charAt(0) == right.charAt(0) ? 1 : 0);
+
+    @TempDir
+    Path directory;
+
+    private static Classifier<String> createClassifier() {
+        return candidate -> ClassificationResult.builder()
+                .classification(FIRST_CHARACTER.getSimilarity(candidate.getRecord1(), candidate.getRecord2(),
+                        SimilarityContext.builder().build()) >= 1
+                        ? Classification.DUPLICATE : Classification.NON_DUPLICATE)
+                .confidence(1)
+                .build();
+    }
+
+    private FileClusterStore<Long, String, String> createClusterStore() {
+        return FileClusterStore.<Long, String, String>builder()
+                .directory(this.directory)
+                .idExtractor(Function.identity())
+                .recordIdCodec(Codec.string())
+                .clusterIdCodec(Codec.longValue())
+                .recordCodec(Codec.string())
+                // lookups constantly evict clusters from the small cache
+                .cacheSize(4)
+                .build();
+    }
+
+    private static FusingOnlineDeduplication<Long, String> createDeduplication(final Classifier<String> classifier,
+            final FileClusterStore<Long, String, String> clusterStore) {
+        return FusingOnlineDeduplication.<Long, String>builder()
+                .duplicateDetection(OnlinePairBasedDuplicateDetection.<Long, String, String>builder()
+                        .candidateSelection(OnlineSortedNeighborhoodMethod.<String>builder()
+                                .sortingKey(new SortingKey<>("first", s -> s.charAt(0)), 4)
+                                .sortingKey(new SortingKey<>("second", s -> s.charAt(1)), 4)
+                                .build())
+                        .classifier(classifier)
+                        .clustering(TransitiveClosure.<Long, String, String>builder()
+                                .idExtractor(Function.identity())
+                                .clusterIdGenerator(ClusterIdGenerators.longGenerator())
+                                .clusterStore(clusterStore)
+                                .build())
+                        .build())
+                .fusion(cluster -> new FusedValue<>(String.join("+", cluster.getElements()), cluster, List.of()))
+                .incompleteFusionHandler(Optional::of)
+                .build();
+    }
+
+    private static String randomRecord(final String suffix) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        return "" + (char) ('a' + random.nextInt(26)) + (char) ('a' + random.nextInt(26)) + suffix;
+    }
+
+    @Test
+    void shouldLookUpConcurrentlyWithIngestion() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try (final FileClusterStore<Long, String, String> clusterStore = this.createClusterStore()) {
+            final FusingOnlineDeduplication<Long, String> deduplication =
+                    createDeduplication(createClassifier(), clusterStore);
+            final AtomicBoolean ingesting = new AtomicBoolean(true);
+            final AtomicInteger lookups = new AtomicInteger();
+            final List<CompletableFuture<Void>> lookupThreads = new ArrayList<>();
+            for (int thread = 0; thread < 3; thread++) {
+                lookupThreads.add(CompletableFuture.runAsync(() -> {
+                    while (ingesting.get()) {
+                        final String query = randomRecord("q");
+                        for (final Match<Long, String> match : deduplication.findMatches(query, 5)) {
+                            // each lookup sees the clusters of completely processed records
+                            assertThat(match.getRecords()).contains(match.getBestMatch())
+                                    .allMatch(record -> record.charAt(0) == query.charAt(0));
+                        }
+                        lookups.incrementAndGet();
+                    }
+                }, executor));
+            }
+
+            for (int i = 0; i < 2000; i++) {
+                deduplication.deduplicate(randomRecord(String.valueOf(i)));
+            }
+            ingesting.set(false);
+            CompletableFuture.allOf(lookupThreads.toArray(CompletableFuture[]::new)).get(1, TimeUnit.MINUTES);
+
+            assertThat(lookups).hasPositiveValue();
+            // the query records have not been added
+            assertThat(clusterStore.getCluster("aaq")).isEmpty();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void shouldRunLookupsConcurrently() throws Exception {
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        final Set<Thread> waitingThreads = ConcurrentHashMap.newKeySet();
+        final Classifier<String> classifier = createClassifier();
+        final Classifier<String> barrierClassifier = candidate -> {
+            // both lookups need to be classifying at the same time to pass the barrier
+            if (candidate.getRecord1().endsWith("q") && waitingThreads.add(Thread.currentThread())) {
+                try {
+                    barrier.await(10, TimeUnit.SECONDS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                } catch (final BrokenBarrierException | TimeoutException e) {
+                    throw new IllegalStateException("Lookups have been serialized", e);
+                }
+            }
+            return classifier.classify(candidate);
+        };
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (final FileClusterStore<Long, String, String> clusterStore = this.createClusterStore()) {
+            final FusingOnlineDeduplication<Long, String> deduplication =
+                    createDeduplication(barrierClassifier, clusterStore);
+            List.of("ab", "ac", "bd").forEach(deduplication::deduplicate);
+
+            final CompletableFuture<List<Match<Long, String>>> first =
+                    CompletableFuture.supplyAsync(() -> deduplication.findMatches("aeq", 5), executor);
+            final CompletableFuture<List<Match<Long, String>>> second =
+                    CompletableFuture.supplyAsync(() -> deduplication.findMatches("aeq", 5), executor);
+
+            assertThat(first.get(1, TimeUnit.MINUTES)).isNotEmpty().isEqualTo(second.get(1, TimeUnit.MINUTES));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bakdata.dedupe.candidate_selection.SortingKey;
+import com.bakdata.dedupe.candidate_selection.online.OnlineSortedNeighborhoodMethod;
+import com.bakdata.dedupe.classifier.Classification;
+import com.bakdata.dedupe.classifier.ClassificationResult;
+import com.bakdata.dedupe.classifier.ClassifiedCandidate;
+import com.bakdata.dedupe.classifier.Classifier;
+import com.bakdata.dedupe.clustering.ClusterIdGenerators;
+import com.bakdata.dedupe.clustering.TransitiveClosure;
+import com.bakdata.dedupe.deduplication.online.PipelinedOnlineDeduplication.Stage;
+import com.bakdata.dedupe.duplicate_detection.PossibleDuplicateHandler;
+import com.bakdata.dedupe.duplicate_detection.online.OnlinePairBasedDuplicateDetection;
+import com.bakdata.dedupe.fusion.FusedValue;
+import com.bakdata.dedupe.fusion.Fusion;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class PipelinedOnlineDeduplicationTest {
+    private static final Classifier<String> CLASSIFIER = candidate -> ClassificationResult.builder()
+            .classification(candidate.getRecord1().charAt(0) == candidate.getRecord2().charAt(0)
+                    ? Classification.DUPLICATE : Classification.NON_DUPLICATE)
+            .confidence(1)
+            .build();
+    private static final Fusion<String> FUSION =
+            cluster -> new FusedValue<>(String.join("+", cluster.getElements()), cluster, List.of());
+
+    private static OnlineSortedNeighborhoodMethod<String> createCandidateSelection() {
+        return OnlineSortedNeighborhoodMethod.<String>builder()
+                .sortingKey(new SortingKey<>("first", s -> s.charAt(0)), 4)
+                .sortingKey(new SortingKey<>("second", s -> s.charAt(1)), 4)
+                .build();
+    }
+
+    private static TransitiveClosure<Long, String, String> createClustering() {
+        return TransitiveClosure.<Long, String, String>builder()
+                .idExtractor(Function.identity())
+                .clusterIdGenerator(ClusterIdGenerators.longGenerator())
+                .build();
+    }
+
+    private static PipelinedOnlineDeduplication<Long, String, String> createPipeline(
+            final Classifier<String> classifier, final int parallelism, final int capacity) {
+        return PipelinedOnlineDeduplication.<Long, String, String>builder()
+                .candidateSelection(createCandidateSelection())
+                .classifier(classifier)
+                .clustering(createClustering())
+                .fusion(FUSION)
+                .incompleteFusionHandler(Optional::of)
+                .parallelism(parallelism)
+                .capacity(capacity)
+                .build();
+    }
+
+    @Test
+    void shouldProduceSequentialResults() {
+        final Random random = new Random(42);
+        final List<String> records = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            records.add("" + (char) ('a' + random.nextInt(26)) + (char) ('a' + random.nextInt(26)) + i);
+        }
+        final OnlineDeduplication<String> sequential = FusingOnlineDeduplication.<Long, String>builder()
+                .duplicateDetection(OnlinePairBasedDuplicateDetection.<Long, String, String>builder()
+                        .candidateSelection(createCandidateSelection())
+                        .classifier(CLASSIFIER)
+                        .clustering(createClustering())
+                        .build())
+                .fusion(FUSION)
+                .incompleteFusionHandler(Optional::of)
+                .build();
+        final List<String> expected = records.stream().map(sequential::deduplicate).collect(Collectors.toList());
+
+        try (final PipelinedOnlineDeduplication<Long, String, String> pipeline = createPipeline(CLASSIFIER, 4, 16)) {
+            assertThat(pipeline.deduplicate(records.stream()).collect(Collectors.toList())).isEqualTo(expected);
+            assertThat(pipeline.getInFlight()).isZero();
+        }
+    }
+
+    @Test
+    void shouldApplyBackpressure() throws InterruptedException {
+        final CountDownLatch classificationBlocked = new CountDownLatch(1);
+        final Classifier<String> blockingClassifier = candidate -> {
+            try {
+                classificationBlocked.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return CLASSIFIER.classify(candidate);
+        };
+        try (final PipelinedOnlineDeduplication<Long, String, String> pipeline =
+                createPipeline(blockingClassifier, 1, 3)) {
+            final List<CompletableFuture<String>> results = new ArrayList<>();
+            // the first record has no candidates and thus passes the classifier
+            results.add(pipeline.submit("ab"));
+            results.get(0).join();
+            results.add(pipeline.submit("ac"));
+            results.add(pipeline.submit("ad"));
+            results.add(pipeline.submit("ae"));
+            final CompletableFuture<CompletableFuture<String>> blocked =
+                    CompletableFuture.supplyAsync(() -> pipeline.submit("af"));
+
+            TimeUnit.MILLISECONDS.sleep(200);
+            assertThat(blocked).isNotDone();
+            assertThat(pipeline.getInFlight()).isEqualTo(3);
+            assertThat(pipeline.getQueueDepth(Stage.CLASSIFICATION)).isEqualTo(2);
+
+            classificationBlocked.countDown();
+            results.add(blocked.join());
+            assertThat(results.stream().map(CompletableFuture::join).collect(Collectors.toList()))
+                    .containsExactly("ab", "ac+ab", "ac+ab+ad", "ac+ab+ad+ae", "ac+ab+ad+ae+af");
+            for (final Stage stage : Stage.values()) {
+                assertThat(pipeline.getQueueDepth(stage)).isZero();
+            }
+        }
+    }
+
+    @Test
+    void shouldHandlePossibleDuplicatesInSubmissionOrder() {
+        final Classifier<String> possibleDuplicateClassifier = candidate -> ClassificationResult.builder()
+                .classification(candidate.getRecord1().charAt(0) == candidate.getRecord2().charAt(0)
+                        ? Classification.POSSIBLE_DUPLICATE : Classification.NON_DUPLICATE)
+                .confidence(0.5)
+                .build();
+        final Classifier<String> slowClassifier = candidate -> {
+            // shuffles the completion order of the classification
+            try {
+                TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextInt(3));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return possibleDuplicateClassifier.classify(candidate);
+        };
+        final List<String> records = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            records.add("" + (char) ('a' + i % 3) + (char) ('a' + i % 7) + i);
+        }
+
+        final List<ClassifiedCandidate<String>> expected = new ArrayList<>();
+        final OnlineDeduplication<String> sequential = FusingOnlineDeduplication.<Long, String>builder()
+                .duplicateDetection(OnlinePairBasedDuplicateDetection.<Long, String, String>builder()
+                        .candidateSelection(createCandidateSelection())
+                        .classifier(possibleDuplicateClassifier)
+                        .possibleDuplicateHandler(recordingHandler(expected))
+                        .clustering(createClustering())
+                        .build())
+                .fusion(FUSION)
+                .incompleteFusionHandler(Optional::of)
+                .build();
+        records.forEach(sequential::deduplicate);
+
+        // the handler is not thread-safe on purpose
+        final List<ClassifiedCandidate<String>> handled = new ArrayList<>();
+        try (final PipelinedOnlineDeduplication<Long, String, String> pipeline =
+                PipelinedOnlineDeduplication.<Long, String, String>builder()
+                        .candidateSelection(createCandidateSelection())
+                        .classifier(slowClassifier)
+                        .possibleDuplicateHandler(recordingHandler(handled))
+                        .clustering(createClustering())
+                        .fusion(FUSION)
+                        .incompleteFusionHandler(Optional::of)
+                        .parallelism(4)
+                        .capacity(16)
+                        .build()) {
+            pipeline.deduplicate(records.stream()).forEach(fused -> {
+            });
+        }
+        assertThat(handled).isNotEmpty().isEqualTo(expected);
+    }
+
+    private static PossibleDuplicateHandler<String> recordingHandler(final List<ClassifiedCandidate<String>> handled) {
+        return classifiedCandidate -> {
+            handled.add(classifiedCandidate);
+            return classifiedCandidate;
+        };
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bakdata.dedupe.candidate_selection.SortingKey;
+import com.bakdata.dedupe.candidate_selection.online.OnlineSortedNeighborhoodMethod;
+import com.bakdata.dedupe.classifier.Classification;
+import com.bakdata.dedupe.classifier.ClassificationResult;
+import com.bakdata.dedupe.classifier.Classifier;
+import com.bakdata.dedupe.clustering.Cluster;
+import com.bakdata.dedupe.clustering.ClusterIdGenerators;
+import com.bakdata.dedupe.clustering.TransitiveClosure;
+import com.bakdata.dedupe.duplicate_detection.online.OnlinePairBasedDuplicateDetection;
+import com.bakdata.dedupe.fusion.FusedValue;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class ShardedOnlineDeduplicationTest {
+    // records are of the form "first-second-index" and duplicates share the first or the second part
+    private static final Function<String, String> FIRST = s -> s.split("-")[0];
+    private static final Function<String, String> SECOND = s -> s.split("-")[1];
+    private static final Classifier<String> CLASSIFIER = candidate -> ClassificationResult.builder()
+            .classification(FIRST.apply(candidate.getRecord1()).equals(FIRST.apply(candidate.getRecord2()))
+                    || SECOND.apply(candidate.getRecord1()).equals(SECOND.apply(candidate.getRecord2()))
+                    ? Classification.DUPLICATE : Classification.NON_DUPLICATE)
+            .confidence(1)
+            .build();
+
+    private static OnlinePairBasedDuplicateDetection<Long, String, String> createDuplicateDetection() {
+        return OnlinePairBasedDuplicateDetection.<Long, String, String>builder()
+                .candidateSelection(OnlineSortedNeighborhoodMethod.<String>builder()
+                        .sortingKey(new SortingKey<>("first", FIRST), 20)
+                        .sortingKey(new SortingKey<>("second", SECOND), 20)
+                        .build())
+                .classifier(CLASSIFIER)
+                .clustering(TransitiveClosure.<Long, String, String>builder()
+                        .idExtractor(Function.identity())
+                        .clusterIdGenerator(ClusterIdGenerators.longGenerator())
+                        .build())
+                .build();
+    }
+
+    private static ShardedOnlineDeduplication<Long, String, String> createDeduplication(final int shards) {
+        final LocalShardTransport.LocalShardTransportBuilder<Long, String> transport = LocalShardTransport.builder();
+        for (int shard = 0; shard < shards; shard++) {
+            transport.shard(createDuplicateDetection());
+        }
+        return ShardedOnlineDeduplication.<Long, String, String>builder()
+                .transport(transport.build())
+                .blockingKey(FIRST)
+                .blockingKey(SECOND)
+                .coordinator(ShardCoordinator.<Long, String, String>builder()
+                        .idExtractor(Function.identity())
+                        .clusterIdGenerator(ClusterIdGenerators.longGenerator())
+                        .build())
+                .fusion(cluster -> new FusedValue<>(String.join("+", cluster.getElements()), cluster, List.of()))
+                .incompleteFusionHandler(Optional::of)
+                .build();
+    }
+
+    private static Set<String> getElements(final Optional<? extends Cluster<?, String>> cluster,
+            final String record) {
+        return cluster.map(c -> (Set<String>) new HashSet<>(c.getElements())).orElse(Set.of(record));
+    }
+
+    @Test
+    void shouldMergeClustersAcrossShards() {
+        try (final ShardedOnlineDeduplication<Long, String, String> deduplication = createDeduplication(2)) {
+            // "a" and "c" belong to the second shard, "b" and "d" to the first shard
+            assertThat(deduplication.deduplicate("a-c-1")).isEqualTo("a-c-1");
+            assertThat(deduplication.deduplicate("b-d-2")).isEqualTo("b-d-2");
+            assertThat(deduplication.deduplicate("a-d-3")).isEqualTo("a-d-3+a-c-1+b-d-2");
+            assertThat(deduplication.getCoordinator().getCluster("b-d-2").map(Cluster::getElements))
+                    .hasValueSatisfying(elements -> assertThat(elements)
+                            .containsExactlyInAnyOrder("a-c-1", "b-d-2", "a-d-3"));
+        }
+    }
+
+    @Test
+    void shouldFindSameClustersAsSingleEngine() {
+        final Random random = new Random(42);
+        final List<String> records = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            records.add(random.nextInt(200) + "-" + random.nextInt(200) + "-" + i);
+        }
+        final OnlinePairBasedDuplicateDetection<Long, String, String> reference = createDuplicateDetection();
+        records.forEach(record -> reference.detectDuplicates(record).count());
+
+        try (final ShardedOnlineDeduplication<Long, String, String> deduplication = createDeduplication(4)) {
+            assertThat(deduplication.deduplicate(records.stream()).collect(Collectors.toList())).hasSize(300);
+            for (final String record : records) {
+                assertThat(getElements(deduplication.getCoordinator().getCluster(record), record))
+                        .as(record)
+                        .isEqualTo(getElements(reference.getClustering().getCluster(record), record));
+            }
+        }
+    }
+
+    @Test
+    void shouldEvictOldestRecordsFromGlobalClusters() {
+        final ShardCoordinator<Long, String, String> coordinator = ShardCoordinator.<Long, String, String>builder()
+                .idExtractor(Function.identity())
+                .clusterIdGenerator(ClusterIdGenerators.longGenerator())
+                .maxRecords(2L)
+                .build();
+        coordinator.reconcile("a-b-1", List.of());
+        coordinator.reconcile("a-c-2", List.of(new Cluster<>(0L, List.of("a-b-1", "a-c-2"))));
+        coordinator.reconcile("a-d-3", List.of(new Cluster<>(0L, List.of("a-b-1", "a-c-2", "a-d-3"))));
+
+        assertThat(coordinator.cleanUp()).isEqualTo(1);
+
+        assertThat(coordinator.getRecordCount()).isEqualTo(2);
+        assertThat(coordinator.getCluster("a-b-1")).isEmpty();
+        assertThat(coordinator.getCluster("a-d-3").map(Cluster::getElements))
+                .hasValueSatisfying(elements -> assertThat(elements).containsExactlyInAnyOrder("a-c-2", "a-d-3"));
+    }
+
+    @Test
+    void shouldProcessSubmittedRecordsBeforeClosing() {
+        final List<CompletableFuture<String>> results = new ArrayList<>();
+        try (final ShardedOnlineDeduplication<Long, String, String> deduplication = createDeduplication(2)) {
+            for (int i = 0; i < 100; i++) {
+                results.add(deduplication.submit("a-" + i + "-" + i));
+            }
+        }
+
+        assertThat(results).allMatch(CompletableFuture::isDone);
+        assertThat(results.get(99).join()).contains("a-0-0", "a-99-99");
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.bakdata.dedupe.candidate_selection.Candidate;
+import com.bakdata.dedupe.candidate_selection.SortingKey;
+import com.bakdata.dedupe.candidate_selection.online.OnlineSortedNeighborhoodMethod;
+import com.bakdata.dedupe.classifier.Classification;
+import com.bakdata.dedupe.classifier.ClassificationResult;
+import com.bakdata.dedupe.clustering.ClusterIdGenerators;
+import com.bakdata.dedupe.clustering.TransitiveClosure;
+import com.bakdata.dedupe.duplicate_detection.online.OnlinePairBasedDuplicateDetection;
+import com.bakdata.dedupe.fusion.FusedValue;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+class SlidingWindowEvictionTest {
+    private static OnlineSortedNeighborhoodMethod<String> createSnm() {
+        return OnlineSortedNeighborhoodMethod.<String>builder()
+                .sortingKey(new SortingKey<>("first", s -> s.charAt(0)), 10)
+                .build();
+    }
+
+    private static List<String> addAndSelect(final OnlineSortedNeighborhoodMethod<String> snm,
+            final EvictionPolicy<String> eviction, final String record) {
+        final List<String> candidates = snm.selectCandidates(record)
+                .map(Candidate::getRecord2)
+                .collect(Collectors.toList());
+        eviction.recordAdded(record);
+        return candidates;
+    }
+
+    @Test
+    void shouldEvictOldestRecordsBeyondMaxSize() {
+        final OnlineSortedNeighborhoodMethod<String> snm = createSnm();
+        final SlidingWindowEviction<String> eviction = SlidingWindowEviction.<String>builder()
+                .target(snm)
+                .maxSize(2)
+                .cleanUpInterval(1)
+                .build();
+        addAndSelect(snm, eviction, "a1");
+        addAndSelect(snm, eviction, "a2");
+        addAndSelect(snm, eviction, "a3");
+
+        assertThat(eviction.getWindowSize()).isEqualTo(2);
+        assertThat(addAndSelect(snm, eviction, "a4")).containsExactlyInAnyOrder("a2", "a3");
+    }
+
+    @Test
+    void shouldEvictExpiredRecordsInBatches() {
+        final OnlineSortedNeighborhoodMethod<String> snm = createSnm();
+        final SlidingWindowEviction<String> eviction = SlidingWindowEviction.<String>builder()
+                .target(snm)
+                .timeToLive(Duration.ofDays(2))
+                .timestampExtractor(record -> Instant.parse("2019-01-0" + record.charAt(1) + "T00:00:00Z"))
+                .clock(Clock.fixed(Instant.parse("2019-01-05T12:00:00Z"), ZoneOffset.UTC))
+                .cleanUpInterval(3)
+                .build();
+        addAndSelect(snm, eviction, "a5");
+        addAndSelect(snm, eviction, "a1");
+        // not yet cleaned up
+        assertThat(addAndSelect(snm, eviction, "a4")).containsExactlyInAnyOrder("a5", "a1");
+
+        assertThat(addAndSelect(snm, eviction, "a6")).containsExactlyInAnyOrder("a5", "a4");
+    }
+
+    @Test
+    void shouldNotEvictCorrectedRecordWithOldVersion() {
+        final OnlineSortedNeighborhoodMethod<String> snm = createSnm();
+        final TransitiveClosure<Long, String, String> clustering = TransitiveClosure.<Long, String, String>builder()
+                .idExtractor(record -> record.substring(1))
+                .clusterIdGenerator(ClusterIdGenerators.longGenerator())
+                .build();
+        final SlidingWindowEviction<String> eviction = SlidingWindowEviction.<String>builder()
+                .target(snm)
+                .target(clustering)
+                .maxSize(2)
+                .cleanUpInterval(1)
+                .build();
+        final FusingOnlineDeduplication<Long, String> deduplication = FusingOnlineDeduplication.<Long, String>builder()
+                .duplicateDetection(OnlinePairBasedDuplicateDetection.<Long, String, String>builder()
+                        .candidateSelection(snm)
+                        .classifier(candidate -> ClassificationResult.builder()
+                                .classification(candidate.getRecord1().charAt(0) == candidate.getRecord2().charAt(0)
+                                        ? Classification.DUPLICATE : Classification.NON_DUPLICATE)
+                                .confidence(1)
+                                .build())
+                        .clustering(clustering)
+                        .build())
+                .fusion(cluster -> new FusedValue<>(String.join("+", cluster.getElements()), cluster, List.of()))
+                .incompleteFusionHandler(Optional::of)
+                .evictionPolicy(eviction)
+                .build();
+        deduplication.deduplicate("a1");
+        deduplication.deduplicate("b2");
+        // corrected version of record 1
+        deduplication.update("a1", "c1");
+        assertThat(eviction.getWindowSize()).isEqualTo(2);
+
+        // moves the window past the old version of record 1
+        deduplication.deduplicate("d3");
+        deduplication.delete("d3");
+        assertThat(eviction.getWindowSize()).isEqualTo(1);
+
+        assertThat(deduplication.deduplicate("c4")).isEqualTo("c4+c1");
+        assertThat(eviction.getWindowSize()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRejectTimeToLiveWithWriteAheadLog() {
+        final SlidingWindowEviction<String> sizeBound = SlidingWindowEviction.<String>builder().maxSize(2).build();
+        final SlidingWindowEviction<String> timeBound =
+                SlidingWindowEviction.<String>builder().timeToLive(Duration.ofDays(2)).build();
+        assertThat(sizeBound.isDeterministic()).isTrue();
+        assertThat(timeBound.isDeterministic()).isFalse();
+
+        final FusingOnlineDeduplication.FusingOnlineDeduplicationBuilder<Long, String> builder =
+                FusingOnlineDeduplication.<Long, String>builder()
+                        .duplicateDetection(record -> Stream.of())
+                        .fusion(cluster -> new FusedValue<>(cluster.get(0), cluster, List.of()))
+                        .writeAheadLog(record -> {
+                        });
+        assertThat(builder.evictionPolicy(sizeBound).build().getEvictionPolicy()).isSameAs(sizeBound);
+        assertThatThrownBy(() -> builder.evictionPolicy(timeBound).build())
+                .isInstanceOf(IllegalArgumentException.class);
+        // time-based eviction does not need to be replayed without a log
+        assertThat(builder.writeAheadLog(WriteAheadLog.disabled()).build().getEvictionPolicy()).isSameAs(timeBound);
+    }
+}
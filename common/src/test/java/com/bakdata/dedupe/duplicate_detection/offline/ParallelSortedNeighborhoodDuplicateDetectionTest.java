@@ -0,0 +1,172 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.duplicate_detection.offline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bakdata.dedupe.candidate_selection.SortingKey;
+import com.bakdata.dedupe.classifier.Classification;
+import com.bakdata.dedupe.classifier.ClassificationResult;
+import com.bakdata.dedupe.classifier.ClassifiedCandidate;
+import com.bakdata.dedupe.classifier.Classifier;
+import com.bakdata.dedupe.clustering.Cluster;
+import com.bakdata.dedupe.clustering.ClusterIdGenerators;
+import com.bakdata.dedupe.clustering.RefineCluster;
+import com.bakdata.dedupe.deduplication.offline.FusingOfflineDeduplication;
+import com.bakdata.dedupe.duplicate_detection.offline.ParallelSortedNeighborhoodDuplicateDetection.ParallelSortedNeighborhoodDuplicateDetectionBuilder;
+import com.bakdata.dedupe.fusion.FusedValue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.NonNull;
+import org.junit.jupiter.api.Test;
+
+class ParallelSortedNeighborhoodDuplicateDetectionTest {
+    private static final Classifier<String> CLASSIFIER = candidate -> ClassificationResult.builder()
+            .classification(candidate.getRecord1().substring(0, 2).equals(candidate.getRecord2().substring(0, 2))
+                    ? Classification.DUPLICATE : Classification.NON_DUPLICATE)
+            .confidence(1)
+            .build();
+
+    private static ParallelSortedNeighborhoodDuplicateDetection<Integer, String, String> createDetection(
+            final int parallelism) {
+        return createDetectionBuilder(parallelism).build();
+    }
+
+    private static ParallelSortedNeighborhoodDuplicateDetectionBuilder<Integer, String, String> createDetectionBuilder(
+            final int parallelism) {
+        return ParallelSortedNeighborhoodDuplicateDetection.<Integer, String, String>builder()
+                .sortingKey(new SortingKey<>("prefix", s -> s.substring(0, 2)))
+                .sortingKey(new SortingKey<>("suffix", s -> s.substring(2)))
+                .windowSize(3)
+                .classifier(CLASSIFIER)
+                .idExtractor(Function.identity())
+                .clusterIdGenerator(ClusterIdGenerators.intGenerator())
+                .parallelism(parallelism);
+    }
+
+    private static List<String> createRecords() {
+        final Random random = new Random(42);
+        final List<String> records = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            records.add("" + (char) ('a' + random.nextInt(20)) + (char) ('a' + random.nextInt(20)) + i);
+        }
+        return records;
+    }
+
+    @Test
+    void shouldFindAllClusters() {
+        final List<String> records = List.of("aa1", "bb1", "cc1", "aa2", "bb2", "aa3");
+
+        final List<Cluster<Integer, String>> clusters =
+                createDetection(2).detectDuplicates(records.stream()).collect(Collectors.toList());
+
+        assertThat(clusters)
+                .extracting(Cluster::getElements)
+                .containsExactly(List.of("aa1", "aa2", "aa3"), List.of("bb1", "bb2"), List.of("cc1"));
+        assertThat(clusters).extracting(Cluster::getId).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void shouldBeIndependentOfParallelism() {
+        final List<String> records = createRecords();
+
+        final List<Cluster<Integer, String>> sequential =
+                createDetection(1).detectDuplicates(records.stream()).collect(Collectors.toList());
+        final List<Cluster<Integer, String>> parallel =
+                createDetection(4).detectDuplicates(records.stream()).collect(Collectors.toList());
+
+        assertThat(parallel).isEqualTo(sequential);
+        assertThat(sequential.stream().mapToInt(Cluster::size).sum()).isEqualTo(records.size());
+    }
+
+    @Test
+    void shouldRefineConnectedComponents() {
+        final List<ClassifiedCandidate<String>> knownClassifications = Collections.synchronizedList(new ArrayList<>());
+        // splits the last element off each component and returns the parts in reverse order
+        final RefineCluster<Integer, String, String> refineCluster = new RefineCluster<>() {
+            @Override
+            public Stream<Cluster<Integer, String>> refine(final Stream<? extends Cluster<Integer, String>> clusters,
+                    final @NonNull Stream<ClassifiedCandidate<String>> classifications) {
+                classifications.forEach(knownClassifications::add);
+                return clusters.flatMap(cluster -> {
+                    final List<String> elements = cluster.getElements();
+                    return Stream.of(new Cluster<>(-1, elements.subList(elements.size() - 1, elements.size())),
+                            new Cluster<>(-1, elements.subList(0, elements.size() - 1)));
+                });
+            }
+
+            @Override
+            public @NonNull Function<Iterable<String>, Integer> getClusterIdGenerator() {
+                return ids -> -1;
+            }
+
+            @Override
+            public @NonNull Function<String, String> getIdExtractor() {
+                return Function.identity();
+            }
+        };
+        final ParallelSortedNeighborhoodDuplicateDetection<Integer, String, String> detection =
+                createDetectionBuilder(2).refineCluster(refineCluster).build();
+
+        final List<Cluster<Integer, String>> clusters =
+                detection.detectDuplicates(List.of("aa1", "bb1", "aa2", "aa3", "bb2").stream())
+                        .collect(Collectors.toList());
+
+        assertThat(clusters)
+                .extracting(Cluster::getElements)
+                .containsExactly(List.of("aa1", "aa2"), List.of("bb1", "bb2"), List.of("aa3"));
+        assertThat(clusters).extracting(Cluster::getId).containsExactly(0, 1, 2);
+        // only components with more than two records are refined with their own classifications
+        assertThat(knownClassifications)
+                .isNotEmpty()
+                .allSatisfy(candidate -> {
+                    assertThat(candidate.getCandidate().getRecord1()).startsWith("aa");
+                    assertThat(candidate.getCandidate().getRecord2()).startsWith("aa");
+                });
+    }
+
+    @Test
+    void shouldFuseClusters() {
+        final FusingOfflineDeduplication<Integer, String> deduplication =
+                FusingOfflineDeduplication.<Integer, String>builder()
+                        .duplicateDetection(createDetection(4))
+                        .fusion(cluster -> new FusedValue<>(Collections.min(cluster.getElements()), cluster,
+                                List.of()))
+                        .incompleteFusionHandler(Optional::of)
+                        .parallelism(4)
+                        .build();
+
+        final List<String> deduplicated =
+                deduplication.deduplicate(List.of("aa1", "bb1", "cc1", "aa2", "bb2", "aa3").stream())
+                        .collect(Collectors.toList());
+
+        assertThat(deduplicated).containsExactly("aa1", "bb1", "cc1");
+    }
+}
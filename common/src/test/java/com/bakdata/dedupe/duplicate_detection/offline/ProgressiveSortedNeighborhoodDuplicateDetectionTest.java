@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.duplicate_detection.offline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bakdata.dedupe.candidate_selection.Candidate;
+import com.bakdata.dedupe.candidate_selection.SortingKey;
+import com.bakdata.dedupe.candidate_selection.online.OnlineCandidate;
+import com.bakdata.dedupe.classifier.OracleClassifier;
+import com.bakdata.dedupe.clustering.Cluster;
+import com.bakdata.dedupe.clustering.ClusterIdGenerators;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class ProgressiveSortedNeighborhoodDuplicateDetectionTest {
+    private static final List<String> RECORDS = List.of("aa1", "bb1", "cc1", "aa2", "bb2", "aa3");
+    private static final Set<Candidate<String>> GOLD_DUPLICATES = Set.of(
+            new OnlineCandidate<>("aa1", "aa2"),
+            new OnlineCandidate<>("aa2", "aa3"),
+            new OnlineCandidate<>("aa1", "aa3"),
+            new OnlineCandidate<>("bb1", "bb2"));
+
+    private static ProgressiveSortedNeighborhoodDuplicateDetection<Integer, String, String> createDetection() {
+        return ProgressiveSortedNeighborhoodDuplicateDetection.<Integer, String, String>builder()
+                .sortingKey(new SortingKey<>("prefix", s -> s.substring(0, 2)))
+                .sortingKey(new SortingKey<>("suffix", s -> s.substring(2)))
+                .windowSize(3)
+                .classifier(new OracleClassifier<>(GOLD_DUPLICATES))
+                .idExtractor(Function.identity())
+                .clusterIdGenerator(ClusterIdGenerators.intGenerator())
+                .build();
+    }
+
+    @Test
+    void shouldFindAllClusters() {
+        final Collection<Cluster<Integer, String>> clusters = createDetection().materializeDuplicates(RECORDS);
+
+        assertThat(clusters)
+                .extracting(cluster -> Set.copyOf(cluster.getElements()))
+                .containsExactlyInAnyOrder(Set.of("aa1", "aa2", "aa3"), Set.of("bb1", "bb2"), Set.of("cc1"));
+    }
+
+    @Test
+    void shouldMaterializeMergedClusters() {
+        // a1-a2 and a3-a4 are found as separate clusters in distance 1, which are merged through a2-a3 in distance 2
+        final List<String> records = List.of("a1", "a2", "m", "a3", "a4");
+        final ProgressiveSortedNeighborhoodDuplicateDetection<Integer, String, String> detection =
+                ProgressiveSortedNeighborhoodDuplicateDetection.<Integer, String, String>builder()
+                        .sortingKey(new SortingKey<>("position", records::indexOf))
+                        .windowSize(3)
+                        .classifier(new OracleClassifier<>(Set.of(new OnlineCandidate<>("a1", "a2"),
+                                new OnlineCandidate<>("a3", "a4"), new OnlineCandidate<>("a2", "a3"))))
+                        .idExtractor(Function.identity())
+                        .clusterIdGenerator(ClusterIdGenerators.intGenerator())
+                        .build();
+
+        assertThat(detection.detectDuplicates(records.stream()).map(cluster -> Set.copyOf(cluster.getElements())))
+                .contains(Set.of("a1", "a2"), Set.of("a3", "a4"), Set.of("a1", "a2", "a3", "a4"));
+        assertThat(detection.materializeDuplicates(records))
+                .extracting(cluster -> Set.copyOf(cluster.getElements()))
+                .containsExactlyInAnyOrder(Set.of("a1", "a2", "a3", "a4"), Set.of("m"));
+    }
+
+    @Test
+    void shouldEmitDuplicatesBeforeSingletons() {
+        final List<Cluster<Integer, String>> firstClusters = createDetection().detectDuplicates(RECORDS.stream())
+                .limit(2)
+                .collect(Collectors.toList());
+
+        assertThat(firstClusters).allSatisfy(cluster -> assertThat(cluster.size()).isGreaterThan(1));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.similarity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bakdata.dedupe.deduplication.online.InMemoryRecordStore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+class CachingSimilarityTest {
+    @Test
+    void shouldOnlyCacheStoredRecords() {
+        final InMemoryRecordStore<String, String> recordStore =
+                InMemoryRecordStore.<String, String>builder().idExtractor(Function.identity()).build();
+        final AtomicInteger computations = new AtomicInteger();
+        final SimilarityMeasure<String> measure = (left, right, context) -> {
+            computations.incrementAndGet();
+            return left.equals(right) ? 1 : 0;
+        };
+        final CachingSimilarity<String, Integer> cachingSimilarity = CachingSimilarity.handles(measure, recordStore);
+        final SimilarityContext context = SimilarityContext.builder().build();
+        recordStore.put("a");
+        recordStore.put("b");
+
+        cachingSimilarity.getSimilarity("a", "b", context);
+        cachingSimilarity.getSimilarity("a", "b", context);
+        assertThat(computations).hasValue(1);
+
+        // the query record is neither cached nor stored
+        cachingSimilarity.getSimilarity("a", "q", context);
+        cachingSimilarity.getSimilarity("a", "q", context);
+        assertThat(computations).hasValue(3);
+        assertThat(recordStore.size()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class IntArraysTest {
+
+    @Test
+    void shouldSortLikeArraysSort() {
+        final int[] array = new Random(42).ints(100_000).toArray();
+        final int[] expected = array.clone();
+        Arrays.sort(expected);
+
+        IntArrays.parallelSort(array, Integer::compare);
+
+        assertThat(array).isEqualTo(expected);
+    }
+
+    @Test
+    void shouldKeepOrderOfEqualElements() {
+        // sorts positions by a key with many ties
+        final int[] keys = new Random(42).ints(50_000, 0, 100).toArray();
+        final int[] positions = new int[keys.length];
+        Arrays.setAll(positions, position -> position);
+
+        IntArrays.parallelSort(positions, (position1, position2) -> Integer.compare(keys[position1], keys[position2]));
+
+        for (int i = 1; i < positions.length; i++) {
+            final int previous = positions[i - 1];
+            final int current = positions[i];
+            assertThat(keys[previous] < keys[current] || keys[previous] == keys[current] && previous < current)
+                    .isTrue();
+        }
+    }
+
+    @Test
+    void shouldSortSmallArraysInCallingThread() {
+        final int[] array = {3, 1, 2};
+
+        IntArrays.sort(array, (left, right) -> Integer.compare(right, left));
+
+        assertThat(array).containsExactly(3, 2, 1);
+    }
+}
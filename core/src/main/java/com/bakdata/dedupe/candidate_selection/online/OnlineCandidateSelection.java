@@ -47,6 +47,32 @@ public interface OnlineCandidateSelection<T>
      */
     @NonNull Stream<Candidate<T>> selectCandidates(@NonNull T newRecord);
 
+    /**
+     * Selects the candidates for a query record like {@link #selectCandidates(Object)} but without adding the record
+     * to the internal representation.
+     * <p>Thus, this method does not modify any state and may be invoked concurrently by multiple readers, as long as
+     * no thread invokes a modifying method at the same time.</p>
+     *
+     * @param queryRecord the record for which the candidates are generated.
+     * @return the generated candidates.
+     * @throws UnsupportedOperationException if the candidate selection does not support read-only lookups.
+     */
+    default @NonNull Stream<Candidate<T>> lookupCandidates(final @NonNull T queryRecord) {
+        throw new UnsupportedOperationException(this.getClass().getSimpleName() + " does not support lookups");
+    }
+
+    /**
+     * Adds the record to the internal representation without selecting candidates; for example, if its candidates
+     * have already been selected with {@link #lookupCandidates(Object)} on the same state.
+     *
+     * @param newRecord the new record.
+     * @implNote The default implementation discards the candidates of {@link #selectCandidates(Object)}.
+     */
+    default void add(final @NonNull T newRecord) {
+        this.selectCandidates(newRecord).forEach(candidate -> {
+        });
+    }
+
     /**
      * @implNote Repeatedly invokes {@link #selectCandidates(Object)} to get all candidates.
      */
@@ -0,0 +1,77 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.clustering;
+
+import com.bakdata.dedupe.deduplication.online.Snapshottable;
+import java.util.Optional;
+import lombok.NonNull;
+
+
+/**
+ * Stores the clusters of a {@link Clustering} across invocations; that is, it maps the id of each clustered record to
+ * its cluster and each cluster to its records.
+ * <p>The operations mirror the typical changes of an online clustering, such that stores can persist them
+ * incrementally: New records are added to an existing cluster without rewriting the cluster, while merged or split
+ * clusters are removed and saved anew.</p>
+ * <p>Records that are not part of any stored cluster are implicitly singletons.</p>
+ * <p>Stores that keep their clusters in memory write them into a {@link
+ * com.bakdata.dedupe.deduplication.online.DeduplicationSnapshot}, while persistent stores only flush their changes.</p>
+ *
+ * @param <C> the type of the cluster id.
+ * @param <T> the type of the record.
+ * @param <I> the type of the record id.
+ */
+public interface ClusterStore<C extends Comparable<C>, T, I> extends Snapshottable {
+    /**
+     * Returns the cluster that contains the record with the given id.
+     *
+     * @param recordId the id of the record.
+     * @return the cluster of the record or {@link Optional#empty()} if the record is not part of any stored cluster.
+     */
+    @NonNull Optional<Cluster<C, T>> getCluster(@NonNull I recordId);
+
+    /**
+     * Saves the cluster and maps all of its records to it. A previously saved cluster with the same id is replaced;
+     * its records that are not part of the new cluster are removed unless they have been saved in another cluster in
+     * the meantime.
+     *
+     * @param cluster the cluster to save.
+     */
+    void saveCluster(@NonNull Cluster<C, T> cluster);
+
+    /**
+     * Adds the record to the given cluster, which has been previously retrieved from or saved in this store.
+     *
+     * @param cluster the stored cluster.
+     * @param record the new record of the cluster.
+     */
+    void addToCluster(@NonNull Cluster<C, T> cluster, @NonNull T record);
+
+    /**
+     * Removes the given cluster and the mapping of all of its records.
+     *
+     * @param cluster the stored cluster.
+     */
+    void removeCluster(@NonNull Cluster<C, ? extends T> cluster);
+}
@@ -24,6 +24,8 @@
 package com.bakdata.dedupe.clustering;
 
 import com.bakdata.dedupe.classifier.ClassifiedCandidate;
+import com.bakdata.dedupe.classifier.Classifier;
+import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Stream;
 import lombok.NonNull;
@@ -46,6 +48,31 @@ public interface Clustering<C extends Comparable<C>, T, I> {
      */
     @NonNull Stream<Cluster<C, T>> cluster(@NonNull Stream<ClassifiedCandidate<T>> classifiedCandidates);
 
+    /**
+     * Returns the current cluster of the given record without modifying any state.
+     *
+     * @param record the record.
+     * @return the cluster of the record or {@link Optional#empty()} if the record is not part of any cluster.
+     * @throws UnsupportedOperationException if the clustering does not support lookups.
+     */
+    default @NonNull Optional<Cluster<C, T>> getCluster(final @NonNull T record) {
+        throw new UnsupportedOperationException(this.getClass().getSimpleName() + " does not support lookups");
+    }
+
+    /**
+     * Removes the record from its cluster and reevaluates the remaining records of that cluster, which may fall apart
+     * if the removed record was their only link. Other clusters are not affected.
+     *
+     * @param record the record to remove.
+     * @param classifier the classifier to reevaluate pairs of the remaining records.
+     * @return the clusters of all remaining records of the former cluster including singleton clusters or an empty
+     * stream if the record was not part of any cluster.
+     * @throws UnsupportedOperationException if the clustering does not support removals.
+     */
+    default @NonNull Stream<Cluster<C, T>> remove(final @NonNull T record, final @NonNull Classifier<T> classifier) {
+        throw new UnsupportedOperationException(this.getClass().getSimpleName() + " does not support removals");
+    }
+
     /**
      * The cluster id generator that is used to create an id for a new cluster.
      *
@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.offline;
+
+import com.bakdata.dedupe.clustering.Cluster;
+import com.bakdata.dedupe.duplicate_detection.offline.OfflineDuplicateDetection;
+import com.bakdata.dedupe.fusion.FusedValue;
+import com.bakdata.dedupe.fusion.Fusion;
+import com.bakdata.dedupe.fusion.IncompleteFusionHandler;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+
+/**
+ * A full offline deduplication process, which
+ * <ul>
+ * <li>Detects all duplicate clusters of the dataset through an {@link OfflineDuplicateDetection}.</li>
+ * <li>Fuses the clusters in parallel into reconciled records.</li>
+ * </ul>
+ * <p>The result contains one record per cluster in the order of the clusters. Singleton clusters are passed through.
+ * If the fusion of a cluster fails and the {@link #incompleteFusionHandler} cannot complete it, the original records
+ * of the cluster are returned.</p>
+ * <p>The fusion runs on a {@link ForkJoinPool} of {@link #parallelism} threads and needs to be thread-safe.</p>
+ */
+@Value
+@Builder
+public class FusingOfflineDeduplication<C extends Comparable<C>, T> implements OfflineDeduplication<T> {
+    /**
+     * The duplicate detection returning all clusters of the dataset.
+     */
+    @NonNull
+    OfflineDuplicateDetection<C, T> duplicateDetection;
+    /**
+     * The fusion implementation that reconciles the clusters into new records.
+     */
+    @NonNull
+    Fusion<T> fusion;
+    /**
+     * A callback for non-trivial clusters.
+     */
+    @Builder.Default
+    @NonNull
+    IncompleteFusionHandler<T> incompleteFusionHandler = IncompleteFusionHandler.dontFuse();
+    /**
+     * The number of threads for fusion. Defaults to the number of available processors.
+     */
+    @Builder.Default
+    int parallelism = Runtime.getRuntime().availableProcessors();
+
+    @Override
+    public @NonNull Stream<T> deduplicate(final @NonNull Stream<? extends T> records) {
+        final List<Cluster<C, T>> clusters = this.duplicateDetection.detectDuplicates(records)
+                .collect(Collectors.toList());
+        final ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+        try {
+            final List<List<T>> fused = pool.submit(() -> clusters.parallelStream()
+                    .map(this::fuse)
+                    .collect(Collectors.toList()))
+                    .join();
+            return fused.stream().flatMap(List::stream);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private List<T> fuse(final Cluster<C, T> cluster) {
+        if (cluster.size() == 1) {
+            return cluster.getElements();
+        }
+        final FusedValue<T> fusedValue = this.fusion.fuse(cluster);
+        return this.incompleteFusionHandler.apply(fusedValue)
+                .map(FusedValue::getValue)
+                .map(List::of)
+                .orElse(cluster.getElements());
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import com.bakdata.util.Codec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Singular;
+import lombok.Value;
+
+
+/**
+ * Writes the complete state of an online deduplication into a single snapshot file and restores it, such that a
+ * restarted application does not need to replay the history of records.
+ * <p>The snapshot consists of a versioned header followed by the state of all {@link #components} in the given order.
+ * Records are encoded with the {@link #recordCodec} only once per snapshot, such that records that are referenced by
+ * multiple components, e.g., by all passes of a sorted neighborhood method and by their clusters, are cheap to
+ * include. Both writing and restoring use sequential, buffered I/O.</p>
+ * <p>The snapshot is written into a temporary file that atomically replaces the target file, such that a crash during
+ * writing does not corrupt the previous snapshot. The application must not process records while a snapshot is written
+ * or restored.</p>
+ *
+ * @param <C> the type of the cluster id.
+ * @param <T> the type of the record.
+ */
+@Value
+@Builder
+public class DeduplicationSnapshot<C extends Comparable<C>, T> {
+    private static final int MAGIC = 0x44445350;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * The binary encoding of the records.
+     */
+    @NonNull
+    Codec<T> recordCodec;
+    /**
+     * The binary encoding of the cluster ids.
+     */
+    @NonNull
+    Codec<C> clusterIdCodec;
+    /**
+     * All stateful components of the deduplication in a fixed order.
+     */
+    @NonNull
+    @Singular
+    List<Snapshottable> components;
+
+    /**
+     * Writes the state of all components into the given file.
+     *
+     * @param path the snapshot file.
+     * @throws UncheckedIOException if the snapshot cannot be written.
+     */
+    public void write(final @NonNull Path path) {
+        final Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (final DataOutputStream data = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempPath), BUFFER_SIZE))) {
+                data.writeInt(MAGIC);
+                data.writeInt(VERSION);
+                data.writeInt(this.components.size());
+                final SnapshotOutput output = new SnapshotOutput(data, this.erase(this.recordCodec),
+                        this.erase(this.clusterIdCodec));
+                for (final Snapshottable component : this.components) {
+                    data.writeUTF(component.getClass().getName());
+                    component.writeSnapshot(output);
+                }
+            }
+            try (final FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot " + path, e);
+        }
+    }
+
+    /**
+     * Restores the state of all components from the given file. The components are expected to be empty.
+     *
+     * @param path the snapshot file.
+     * @throws UncheckedIOException if the snapshot cannot be read.
+     * @throws IllegalStateException if the snapshot does not match the components.
+     */
+    public void restore(final @NonNull Path path) {
+        try (final DataInputStream data = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE))) {
+            if (data.readInt() != MAGIC) {
+                throw new IllegalStateException("Not a snapshot: " + path);
+            }
+            final int version = data.readInt();
+            if (version != VERSION) {
+                throw new IllegalStateException("Unsupported snapshot version " + version + ": " + path);
+            }
+            final int componentCount = data.readInt();
+            if (componentCount != this.components.size()) {
+                throw new IllegalStateException(
+                        "Snapshot contains " + componentCount + " components, but expected " + this.components.size());
+            }
+            final SnapshotInput input = new SnapshotInput(data, this.erase(this.recordCodec),
+                    this.erase(this.clusterIdCodec));
+            for (final Snapshottable component : this.components) {
+                final String componentClass = data.readUTF();
+                if (!componentClass.equals(component.getClass().getName())) {
+                    throw new IllegalStateException(
+                            "Snapshot contains " + componentClass + ", but expected " + component.getClass().getName());
+                }
+                component.restoreSnapshot(input);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot restore snapshot " + path, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> Codec<Object> erase(final Codec<V> codec) {
+        return (Codec<Object>) codec;
+    }
+}
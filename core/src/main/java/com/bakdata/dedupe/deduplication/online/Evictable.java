@@ -0,0 +1,50 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import java.util.Collection;
+import lombok.NonNull;
+
+
+/**
+ * A stateful component of an online deduplication, such as a candidate selection or a clustering, that can forget
+ * previously seen records to bound its memory usage.
+ * <p>Evicted records are not considered anymore for future records; that is, they are neither selected as candidates
+ * nor merged into clusters. Results that have been already emitted are not affected.</p>
+ * <p>Components may depend on each other; for example, an index may keep the handles of a {@link RecordStore}. The
+ * dependent components need to be evicted first, such that they can still resolve the evicted records. An {@link
+ * EvictionPolicy} should therefore evict its targets in the configured order.</p>
+ *
+ * @param <T> the type of the record.
+ * @see EvictionPolicy
+ */
+@FunctionalInterface
+public interface Evictable<T> {
+    /**
+     * Removes all state of the given records. Records that are not known are ignored.
+     *
+     * @param records the records to evict.
+     */
+    void evict(@NonNull Collection<? extends T> records);
+}
@@ -0,0 +1,79 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import lombok.NonNull;
+
+
+/**
+ * Decides when previously seen records are evicted from all {@link Evictable} components of an online deduplication.
+ * <p>{@link FusingOnlineDeduplication} notifies the policy about each record that has been added to or removed from
+ * the indexes of the duplicate detection. The policy then evicts the records from all of its components at once,
+ * such that candidate selection and clustering remain consistent.</p>
+ *
+ * @param <T> the type of the record.
+ * @implSpec Implementations should amortize the cost of eviction over multiple records instead of scanning the
+ * indexes on each insert.
+ */
+@FunctionalInterface
+public interface EvictionPolicy<T> {
+    /**
+     * Returns a policy that never evicts any record.
+     *
+     * @param <T> the type of the record.
+     * @return a policy that keeps all records.
+     */
+    static <T> @NonNull EvictionPolicy<T> disabled() {
+        return record -> {
+        };
+    }
+
+    /**
+     * Notifies the policy that a record has been added to the indexes of the duplicate detection.
+     *
+     * @param record the added record.
+     */
+    void recordAdded(@NonNull T record);
+
+    /**
+     * Notifies the policy that a record has been removed from the duplicate detection, because it has been deleted or
+     * replaced by a corrected version. The policy must not evict the removed record later, as the eviction of a
+     * record id would also evict a corrected version with the same id. Defaults to a no-op.
+     *
+     * @param record the removed record.
+     */
+    default void recordRemoved(final @NonNull T record) {
+        // nothing tracked
+    }
+
+    /**
+     * Returns whether the evicted records only depend on the sequence of added records and not on the wall clock.
+     * Defaults to true.
+     *
+     * @return false if records are evicted based on the current time.
+     */
+    default boolean isDeterministic() {
+        return true;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import com.bakdata.dedupe.clustering.Cluster;
+import java.util.Collection;
+import java.util.Optional;
+import lombok.NonNull;
+
+
+/**
+ * An index over the content of already deduplicated records, which allows {@link FusingOnlineDeduplication} to
+ * short-circuit exact re-deliveries of known records.
+ * <p>For an exact re-delivery, duplicate detection and fusion would only reproduce the previous result. The index thus
+ * returns the last result of the matching record directly, such that candidate selection, classification, clustering,
+ * and fusion are skipped.</p>
+ * <p>The re-delivered record is not added to the cluster of the original record, since it does not carry any new
+ * information.</p>
+ *
+ * @param <T> the type of the record.
+ * @implSpec Implementations need to document what they deem an exact duplicate and have to invalidate results of all
+ * records of changed clusters.
+ */
+public interface ExactDuplicateIndex<T> {
+    /**
+     * Returns an index that never finds an exact duplicate.
+     *
+     * @param <T> the type of the record.
+     * @return an index that always routes records through the full deduplication.
+     */
+    static <T> @NonNull ExactDuplicateIndex<T> disabled() {
+        return new ExactDuplicateIndex<>() {
+            @Override
+            public @NonNull Optional<T> lookup(final @NonNull T newRecord) {
+                return Optional.empty();
+            }
+
+            @Override
+            public void update(final @NonNull T newRecord, final @NonNull T result,
+                    final @NonNull Collection<? extends Cluster<?, T>> changedClusters) {
+                // nothing to remember
+            }
+
+            @Override
+            public void remove(final @NonNull T record) {
+                // nothing to forget
+            }
+        };
+    }
+
+    /**
+     * Looks up the last deduplication result of a record that is an exact duplicate of the given record.
+     *
+     * @param newRecord the new record.
+     * @return the last result of the exact duplicate or {@link Optional#empty()} if there is none.
+     */
+    @NonNull Optional<T> lookup(@NonNull T newRecord);
+
+    /**
+     * Remembers the result of a full deduplication of the given record.
+     *
+     * @param newRecord the record that has been deduplicated.
+     * @param result the result of the deduplication of the record.
+     * @param changedClusters all clusters that have been changed by the record.
+     */
+    void update(@NonNull T newRecord, @NonNull T result, @NonNull Collection<? extends Cluster<?, T>> changedClusters);
+
+    /**
+     * Forgets a record that has been deleted or replaced by a corrected version, such that a re-delivery of the record
+     * is fully deduplicated again.
+     *
+     * @param record the removed record.
+     */
+    void remove(@NonNull T record);
+}
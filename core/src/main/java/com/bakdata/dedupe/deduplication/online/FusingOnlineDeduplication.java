@@ -25,13 +25,25 @@ package com.bakdata.dedupe.deduplication.online;
 
 import com.bakdata.dedupe.clustering.Cluster;
 import com.bakdata.dedupe.clustering.Clusters;
+import com.bakdata.dedupe.duplicate_detection.online.Match;
 import com.bakdata.dedupe.duplicate_detection.online.OnlineDuplicateDetection;
 import com.bakdata.dedupe.fusion.FusedValue;
 import com.bakdata.dedupe.fusion.Fusion;
 import com.bakdata.dedupe.fusion.IncompleteFusionHandler;
-import java.util.Iterator;
-import java.util.stream.Stream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import lombok.AccessLevel;
 import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.Value;
 
@@ -39,12 +51,27 @@ import lombok.Value;
 /**
  * A full online deduplication process, which
  * <ul>
+ * <li>Short-circuits exact re-deliveries of known records through an {@link ExactDuplicateIndex}.</li>
+ * <li>Appends all other records to a {@link WriteAheadLog} to recover the state after a crash. As the log is replayed,
+ * the duplicate detection and the eviction policy need to be deterministic if the log is enabled.</li>
  * <li>Retrieves duplicate clusters through {@link OnlineDeduplication}.</li>
  * <li>Fuses the duplicate clusters into reconciled records. </li>
+ * <li>Notifies an {@link EvictionPolicy} about added and removed records to bound the state of the duplicate
+ * detection.</li>
  * </ul>
+ * <p>Corrected and deleted records are removed from the duplicate detection, which only reevaluates the former cluster
+ * of the record. The remaining records of the cluster are fused again.</p>
+ * <p>{@link #deduplicateBatch(List)} amortizes the work over a batch of records: The duplicate detection processes the
+ * batch at once and each affected cluster is fused once instead of once per record.</p>
+ * <h2>Lookups:</h2>
+ * <p>{@link #findMatches(Object, int)} answers which known clusters match a query record without modifying the
+ * deduplication state. Lookups may run concurrently with each other and with ingestion: Ingestion of a record is
+ * mutually exclusive with lookups, such that each lookup sees the consistent state after a completely processed record.
+ * Concurrent lookups require that the classifier and the read paths of the indexes are thread-safe, as is the case for
+ * the provided candidate selections, cluster stores, and caching similarity measures.</p>
  */
 @Value
-@Builder
+@EqualsAndHashCode(exclude = "lock")
 public class FusingOnlineDeduplication<C extends Comparable<C>, T> implements OnlineDeduplication<T> {
     /**
      * The duplicate detection returning duplicate clusters.
@@ -59,23 +86,241 @@ public class FusingOnlineDeduplication<C extends Comparable<C>, T> implements On
     /**
      * A callback for non-trivial clusters.
      */
-    @Builder.Default
     @NonNull
-    IncompleteFusionHandler<T> incompleteFusionHandler = IncompleteFusionHandler.dontFuse();
+    IncompleteFusionHandler<T> incompleteFusionHandler;
+    /**
+     * An index to bypass duplicate detection and fusion for exact re-deliveries of known records. Defaults to {@link
+     * ExactDuplicateIndex#disabled()}.
+     */
+    @NonNull
+    ExactDuplicateIndex<T> exactDuplicateIndex;
+    /**
+     * The policy to evict old records from the duplicate detection. Defaults to {@link EvictionPolicy#disabled()}.
+     */
+    @NonNull
+    EvictionPolicy<T> evictionPolicy;
+    /**
+     * The log of input records since the last snapshot. Defaults to {@link WriteAheadLog#disabled()}.
+     */
+    @NonNull
+    WriteAheadLog<T> writeAheadLog;
+    @Getter(AccessLevel.NONE)
+    ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Creates a full online deduplication.
+     *
+     * @throws IllegalArgumentException if an enabled {@link WriteAheadLog} is combined with a non-deterministic
+     * duplicate detection or eviction policy, which cannot be replayed.
+     */
+    @Builder
+    private FusingOnlineDeduplication(final @NonNull OnlineDuplicateDetection<C, T> duplicateDetection,
+            final @NonNull Fusion<T> fusion, final IncompleteFusionHandler<T> incompleteFusionHandler,
+            final ExactDuplicateIndex<T> exactDuplicateIndex, final EvictionPolicy<T> evictionPolicy,
+            final WriteAheadLog<T> writeAheadLog) {
+        this.duplicateDetection = duplicateDetection;
+        this.fusion = fusion;
+        this.incompleteFusionHandler =
+                incompleteFusionHandler != null ? incompleteFusionHandler : IncompleteFusionHandler.dontFuse();
+        this.exactDuplicateIndex = exactDuplicateIndex != null ? exactDuplicateIndex : ExactDuplicateIndex.disabled();
+        this.evictionPolicy = evictionPolicy != null ? evictionPolicy : EvictionPolicy.disabled();
+        this.writeAheadLog = writeAheadLog != null ? writeAheadLog : WriteAheadLog.disabled();
+        if (this.writeAheadLog.isEnabled()) {
+            if (!this.duplicateDetection.isDeterministic()) {
+                throw new IllegalArgumentException(
+                        "Cannot replay a write-ahead log with a time-dependent duplicate detection");
+            }
+            if (!this.evictionPolicy.isDeterministic()) {
+                throw new IllegalArgumentException(
+                        "Cannot replay a write-ahead log with a time-dependent eviction policy");
+            }
+        }
+    }
 
     @Override
     public @NonNull T deduplicate(final @NonNull T newRecord) {
-        final Stream<Cluster<C, T>> clusters = this.duplicateDetection.detectDuplicates(newRecord);
-        final Iterator<Cluster<C, T>> clusterIterator = clusters.iterator();
+        return this.withLock(this.lock.writeLock(), () -> this.deduplicateExclusively(newRecord));
+    }
+
+    /**
+     * Deduplicates the batch under a single lock. The duplicate detection processes the batch at once and each
+     * affected cluster is fused only once. Exact re-deliveries are short-circuited individually.
+     *
+     * @see OnlineDuplicateDetection#detectDuplicatesInBatch(List)
+     */
+    @Override
+    public @NonNull List<T> deduplicateBatch(final @NonNull List<? extends T> newRecords) {
+        return this.withLock(this.lock.writeLock(), () -> this.deduplicateBatchExclusively(newRecords));
+    }
+
+    @Override
+    public @NonNull List<T> update(final @NonNull T oldRecord, final @NonNull T newRecord) {
+        return this.withLock(this.lock.writeLock(), () -> this.updateExclusively(oldRecord, newRecord));
+    }
+
+    @Override
+    public @NonNull List<T> delete(final @NonNull T record) {
+        return this.withLock(this.lock.writeLock(), () -> this.deleteExclusively(record));
+    }
+
+    /**
+     * Finds the known clusters that match the query record best without adding the query record.
+     *
+     * @param queryRecord the record to look up.
+     * @param k the maximum number of returned matches.
+     * @return at most k matches ordered by descending relevance.
+     * @throws IllegalArgumentException if k is negative.
+     * @see OnlineDuplicateDetection#findMatches(Object, int)
+     */
+    public @NonNull List<Match<C, T>> findMatches(final @NonNull T queryRecord, final int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Number of matches must not be negative: " + k);
+        }
+        return this.withLock(this.lock.readLock(), () -> this.duplicateDetection.findMatches(queryRecord, k));
+    }
+
+    private <R> R withLock(final Lock lock, final Supplier<R> action) {
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private T deduplicateExclusively(final T newRecord) {
+        final Optional<T> knownResult = this.exactDuplicateIndex.lookup(newRecord);
+        if (knownResult.isPresent()) {
+            return knownResult.get();
+        }
+        // exact re-deliveries do not change any state and thus do not need to be logged
+        this.writeAheadLog.append(newRecord);
+
+        final List<Cluster<C, T>> clusters =
+                this.duplicateDetection.detectDuplicates(newRecord).collect(Collectors.toList());
+        return this.add(newRecord, clusters);
+    }
+
+    private List<T> deduplicateBatchExclusively(final List<? extends T> newRecords) {
+        final List<T> results = new ArrayList<>(newRecords.size());
+        final List<T> unknownRecords = new ArrayList<>();
+        for (final T newRecord : newRecords) {
+            final Optional<T> knownResult = this.exactDuplicateIndex.lookup(newRecord);
+            // unknown records are filled in after fusion
+            results.add(knownResult.orElse(null));
+            if (knownResult.isEmpty()) {
+                this.writeAheadLog.append(newRecord);
+                unknownRecords.add(newRecord);
+            }
+        }
+
+        final List<Cluster<C, T>> clusters = this.duplicateDetection.detectDuplicatesInBatch(unknownRecords);
+        final Map<T, T> clusterResults = new HashMap<>();
+        for (final Cluster<C, T> cluster : clusters) {
+            final T representative = cluster.get(0);
+            final Optional<T> result = cluster.size() == 1 ? Optional.of(representative) : this.fuse(cluster);
+            this.updateIndex(representative, result, List.of(cluster));
+            for (final T element : cluster.getElements()) {
+                clusterResults.put(element, result.orElse(element));
+            }
+        }
 
-        if (!clusterIterator.hasNext()) {
-            return newRecord;
+        for (int index = 0; index < results.size(); index++) {
+            if (results.get(index) == null) {
+                final T newRecord = newRecords.get(index);
+                final T result = clusterResults.get(newRecord);
+                if (result == null) {
+                    this.exactDuplicateIndex.update(newRecord, newRecord, List.of());
+                }
+                results.set(index, result != null ? result : newRecord);
+                this.evictionPolicy.recordAdded(newRecord);
+            }
         }
+        return results;
+    }
+
+    private List<T> updateExclusively(final T oldRecord, final T newRecord) {
+        this.writeAheadLog.appendDeletion(oldRecord);
+        final List<Cluster<C, T>> remainingClusters = this.remove(oldRecord);
+        this.writeAheadLog.append(newRecord);
+        final List<Cluster<C, T>> clusters =
+                this.duplicateDetection.detectDuplicates(newRecord).collect(Collectors.toList());
+
+        final List<T> results = new ArrayList<>();
+        results.add(this.add(newRecord, clusters));
+        // parts of the former cluster that have been merged with the corrected record are already fused
+        final List<Cluster<C, T>> separatedClusters = remainingClusters.stream()
+                .filter(remaining -> clusters.stream().noneMatch(cluster -> cluster.contains(remaining.get(0))))
+                .collect(Collectors.toList());
+        results.addAll(this.refuse(separatedClusters));
+        return results;
+    }
+
+    private List<T> deleteExclusively(final T record) {
+        this.writeAheadLog.appendDeletion(record);
+        return this.refuse(this.remove(record));
+    }
+
+    private T add(final T newRecord, final List<Cluster<C, T>> clusters) {
+        final Optional<T> result = this.fuse(newRecord, clusters);
+        this.updateIndex(newRecord, result, clusters);
+        this.evictionPolicy.recordAdded(newRecord);
+        return result.orElse(newRecord);
+    }
+
+    private List<Cluster<C, T>> remove(final T record) {
+        final List<Cluster<C, T>> remainingClusters =
+                this.duplicateDetection.remove(record).collect(Collectors.toList());
+        this.exactDuplicateIndex.remove(record);
+        this.evictionPolicy.recordRemoved(record);
+        return remainingClusters;
+    }
+
+    private List<T> refuse(final List<Cluster<C, T>> clusters) {
+        final List<T> results = new ArrayList<>(clusters.size());
+        for (final Cluster<C, T> cluster : clusters) {
+            final T representative = cluster.get(0);
+            final Optional<T> result =
+                    cluster.size() == 1 ? Optional.of(representative) : this.fuse(representative, List.of(cluster));
+            this.updateIndex(representative, result, List.of(cluster));
+            results.add(result.orElse(representative));
+        }
+        return results;
+    }
+
+    /**
+     * Remembers the result of the record for exact re-deliveries. If the fusion of its cluster was incomplete, each
+     * member of the cluster is its own result, as a full deduplication of any member would return the member itself.
+     */
+    private void updateIndex(final T newRecord, final Optional<T> fusedResult, final List<Cluster<C, T>> clusters) {
+        if (fusedResult.isPresent() || clusters.isEmpty()) {
+            this.exactDuplicateIndex.update(newRecord, fusedResult.orElse(newRecord), clusters);
+            return;
+        }
+        final Cluster<C, T> containingCluster = Clusters.getContainingCluster(clusters.iterator(), newRecord);
+        final List<Cluster<C, T>> otherClusters = clusters.stream()
+                .filter(cluster -> cluster != containingCluster)
+                .collect(Collectors.toList());
+        if (!otherClusters.isEmpty()) {
+            // invalidates the split parts
+            this.exactDuplicateIndex.update(newRecord, newRecord, otherClusters);
+        }
+        for (final T element : containingCluster.getElements()) {
+            this.exactDuplicateIndex.update(element, element, List.of());
+        }
+    }
+
+    private @NonNull Optional<T> fuse(final @NonNull T newRecord, final @NonNull List<Cluster<C, T>> clusters) {
+        if (clusters.isEmpty()) {
+            return Optional.of(newRecord);
+        }
+
+        return this.fuse(Clusters.getContainingCluster(clusters.iterator(), newRecord));
+    }
 
-        final @NonNull FusedValue<T> fusedValue =
-                this.fusion.fuse(Clusters.getContainingCluster(clusterIterator, newRecord));
+    private Optional<T> fuse(final Cluster<C, T> cluster) {
+        final @NonNull FusedValue<T> fusedValue = this.fusion.fuse(cluster);
         return this.incompleteFusionHandler.apply(fusedValue)
-                .map(FusedValue::getValue)
-                .orElse(newRecord);
+                .map(FusedValue::getValue);
     }
 }
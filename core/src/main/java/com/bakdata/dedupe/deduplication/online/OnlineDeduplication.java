@@ -23,6 +23,8 @@
  */
 package com.bakdata.dedupe.deduplication.online;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Stream;
 import lombok.NonNull;
 
@@ -54,6 +56,50 @@ public interface OnlineDeduplication<T> extends com.bakdata.dedupe.deduplication
      */
     @NonNull T deduplicate(@NonNull T newRecord);
 
+    /**
+     * Deduplicates a batch of records with all previously seen records and with each other.
+     * <p>In contrast to {@link #deduplicate(Object)}, implementations may amortize work over the batch and return the
+     * representations of the clusters after the whole batch has been processed. Thus, a record that is found to be a
+     * duplicate of a later record of the same batch is already represented by their common cluster.</p>
+     * <p>The default implementation deduplicates each record individually.</p>
+     *
+     * @param newRecords the batch of records that should be processed with all previously seen records.
+     * @return the record or a representation of its duplicate cluster for each record of the batch in the same order.
+     */
+    default @NonNull List<T> deduplicateBatch(final @NonNull List<? extends T> newRecords) {
+        final List<T> results = new ArrayList<>(newRecords.size());
+        for (final T newRecord : newRecords) {
+            results.add(this.deduplicate(newRecord));
+        }
+        return results;
+    }
+
+    /**
+     * Replaces a previously deduplicated record with a corrected version, such that the old version is neither used
+     * as a duplicate candidate nor as part of a representation anymore.
+     *
+     * @param oldRecord the previously deduplicated version of the record.
+     * @param newRecord the corrected version of the record.
+     * @return the new representation of the corrected record followed by the new representations of all records that
+     * have been in the same cluster as the old version but are not duplicates of the corrected record.
+     * @throws UnsupportedOperationException if the deduplication does not support updates.
+     */
+    default @NonNull List<T> update(final @NonNull T oldRecord, final @NonNull T newRecord) {
+        throw new UnsupportedOperationException(this.getClass().getSimpleName() + " does not support updates");
+    }
+
+    /**
+     * Deletes a previously deduplicated record, such that it is neither used as a duplicate candidate nor as part of a
+     * representation anymore.
+     *
+     * @param record the previously deduplicated record.
+     * @return the new representations of all records that have been in the same cluster as the deleted record.
+     * @throws UnsupportedOperationException if the deduplication does not support deletes.
+     */
+    default @NonNull List<T> delete(final @NonNull T record) {
+        throw new UnsupportedOperationException(this.getClass().getSimpleName() + " does not support deletes");
+    }
+
     @Override
     default @NonNull Stream<T> deduplicate(final @NonNull Stream<? extends T> records) {
         return records.map(this::deduplicate);
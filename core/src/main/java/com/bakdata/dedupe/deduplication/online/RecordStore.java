@@ -0,0 +1,105 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import java.util.function.Function;
+import lombok.NonNull;
+
+
+/**
+ * Stores the records of an online deduplication and assigns a dense int handle to each record id.
+ * <p>Indexes, cluster stores, and caches may keep the handles instead of references to the records. Handles can be
+ * kept in primitive arrays and compared without invoking {@link Object#equals(Object)} on the records, which
+ * considerably reduces the memory and time overhead of large indexes.</p>
+ * <p>A handle is assigned on the first {@link #put(Object)} of a record id and remains valid until the record is
+ * removed. Handles of removed records are not reused, such that stale handles in caches never resolve to a different
+ * record. However, the handle of a replaced record resolves to the latest version.</p>
+ * <p>If the store is {@link Evictable}, it should be evicted after all components that keep its handles, such that
+ * these components can still find the handles of the evicted records.</p>
+ *
+ * @param <T> the type of the record.
+ * @param <I> the type of the record id.
+ */
+public interface RecordStore<T, I> {
+    /**
+     * The handle of unknown records.
+     */
+    int NO_HANDLE = -1;
+
+    /**
+     * Stores the record and returns its handle. If a record with the same id is already stored, it is replaced and
+     * keeps its handle.
+     *
+     * @param record the record to store.
+     * @return the handle of the record.
+     */
+    int put(@NonNull T record);
+
+    /**
+     * Returns the handle of the record with the given id.
+     *
+     * @param recordId the id of the record.
+     * @return the handle or {@link #NO_HANDLE} if the record is unknown.
+     */
+    int getHandle(@NonNull I recordId);
+
+    /**
+     * Returns the record with the given handle.
+     *
+     * @param handle the handle of the record.
+     * @return the record.
+     * @throws IllegalArgumentException if the handle does not belong to a stored record.
+     */
+    @NonNull T get(int handle);
+
+    /**
+     * Returns whether the handle belongs to a stored record.
+     *
+     * @param handle the handle of the record.
+     * @return true if {@link #get(int)} returns a record for the handle.
+     */
+    boolean contains(int handle);
+
+    /**
+     * Removes the record with the given handle. Unknown handles are ignored.
+     *
+     * @param handle the handle of the record.
+     */
+    void remove(int handle);
+
+    /**
+     * Returns the function that extracts the id of a record.
+     */
+    @NonNull Function<? super T, ? extends I> getIdExtractor();
+
+    /**
+     * Returns the handle of the given record without storing it.
+     *
+     * @param record the record.
+     * @return the handle or {@link #NO_HANDLE} if the record is unknown.
+     */
+    default int getHandleOf(final @NonNull T record) {
+        return this.getHandle(this.getIdExtractor().apply(record));
+    }
+}
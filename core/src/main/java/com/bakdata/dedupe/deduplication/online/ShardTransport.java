@@ -0,0 +1,65 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import com.bakdata.dedupe.clustering.Cluster;
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import lombok.NonNull;
+
+
+/**
+ * Exchanges records and clusters between a sharded online deduplication and its shards. Each shard runs an independent
+ * {@link com.bakdata.dedupe.duplicate_detection.online.OnlineDuplicateDetection} over the records of its partition of
+ * the blocking keys.
+ * <p>Implementations may run the shards in the same JVM or in remote processes.</p>
+ *
+ * @param <C> the type of the cluster id.
+ * @param <T> the type of the record.
+ * @implSpec The records of a shard need to be processed in the order in which they are sent to this shard.
+ */
+public interface ShardTransport<C extends Comparable<C>, T> extends Closeable {
+    /**
+     * Returns the number of shards, which are addressed from 0 to {@code getShardCount() - 1}.
+     *
+     * @return the number of shards.
+     */
+    int getShardCount();
+
+    /**
+     * Sends the record to the shard, which detects its duplicates among the previously sent records.
+     *
+     * @param shard the index of the shard.
+     * @param record the new record.
+     * @return a future of the clusters of the record on the shard, which is empty if the shard found no duplicates.
+     */
+    @NonNull CompletableFuture<List<Cluster<C, T>>> send(int shard, @NonNull T record);
+
+    /**
+     * Stops all shards after the sent records have been processed.
+     */
+    @Override
+    void close();
+}
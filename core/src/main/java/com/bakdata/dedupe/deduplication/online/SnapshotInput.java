@@ -0,0 +1,99 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import com.bakdata.dedupe.clustering.Cluster;
+import com.bakdata.util.Codec;
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+
+/**
+ * The input of a {@link DeduplicationSnapshot}, which mirrors {@link SnapshotOutput}.
+ */
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+public class SnapshotInput {
+    /**
+     * The underlying input for primitive values.
+     */
+    @Getter
+    private final @NonNull DataInput data;
+    private final @NonNull Codec<Object> recordCodec;
+    private final @NonNull Codec<Object> clusterIdCodec;
+    private final List<Object> records = new ArrayList<>();
+
+    /**
+     * Reads a record, which has been written with {@link SnapshotOutput#writeRecord(Object)}.
+     *
+     * @param <T> the type of the record.
+     * @return the record.
+     * @throws IOException if the record cannot be read.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> @NonNull T readRecord() throws IOException {
+        final int reference = this.data.readInt();
+        if (reference >= 0) {
+            return (T) this.records.get(reference);
+        }
+        final Object record = this.recordCodec.read(this.data);
+        this.records.add(record);
+        return (T) record;
+    }
+
+    /**
+     * Reads a cluster id, which has been written with {@link SnapshotOutput#writeClusterId(Object)}.
+     *
+     * @param <C> the type of the cluster id.
+     * @return the cluster id.
+     * @throws IOException if the cluster id cannot be read.
+     */
+    @SuppressWarnings("unchecked")
+    public <C> @NonNull C readClusterId() throws IOException {
+        return (C) this.clusterIdCodec.read(this.data);
+    }
+
+    /**
+     * Reads a cluster, which has been written with {@link SnapshotOutput#writeCluster(Cluster)}.
+     *
+     * @param <C> the type of the cluster id.
+     * @param <T> the type of the record.
+     * @return the cluster.
+     * @throws IOException if the cluster cannot be read.
+     */
+    public <C extends Comparable<C>, T> @NonNull Cluster<C, T> readCluster() throws IOException {
+        final C id = this.readClusterId();
+        final int size = this.data.readInt();
+        final List<T> elements = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            elements.add(this.readRecord());
+        }
+        return new Cluster<>(id, elements);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import com.bakdata.dedupe.clustering.Cluster;
+import com.bakdata.util.Codec;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+
+/**
+ * The output of a {@link DeduplicationSnapshot}.
+ * <p>Each record instance is only encoded once; all further occurrences in the same snapshot are written as a
+ * reference, such that records that are shared between components are restored as shared instances.</p>
+ */
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+public class SnapshotOutput {
+    /**
+     * The underlying output for primitive values.
+     */
+    @Getter
+    private final @NonNull DataOutput data;
+    private final @NonNull Codec<Object> recordCodec;
+    private final @NonNull Codec<Object> clusterIdCodec;
+    private final Map<Object, Integer> recordReferences = new IdentityHashMap<>();
+
+    /**
+     * Writes the record or a reference to it, if it has been already written.
+     *
+     * @param record the record to write.
+     * @throws IOException if the record cannot be written.
+     */
+    public void writeRecord(final @NonNull Object record) throws IOException {
+        final Integer reference = this.recordReferences.get(record);
+        if (reference != null) {
+            this.data.writeInt(reference);
+            return;
+        }
+        this.data.writeInt(-1);
+        this.recordCodec.write(record, this.data);
+        this.recordReferences.put(record, this.recordReferences.size());
+    }
+
+    /**
+     * Writes the cluster id.
+     *
+     * @param clusterId the cluster id to write.
+     * @throws IOException if the cluster id cannot be written.
+     */
+    public void writeClusterId(final @NonNull Object clusterId) throws IOException {
+        this.clusterIdCodec.write(clusterId, this.data);
+    }
+
+    /**
+     * Writes the id and all records of the cluster.
+     *
+     * @param cluster the cluster to write.
+     * @throws IOException if the cluster cannot be written.
+     */
+    public void writeCluster(final @NonNull Cluster<?, ?> cluster) throws IOException {
+        this.writeClusterId(cluster.getId());
+        this.data.writeInt(cluster.size());
+        for (final Object element : cluster.getElements()) {
+            this.writeRecord(element);
+        }
+    }
+}
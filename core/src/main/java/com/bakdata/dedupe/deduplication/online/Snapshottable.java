@@ -0,0 +1,56 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import java.io.IOException;
+import lombok.NonNull;
+
+
+/**
+ * A stateful component of an online deduplication, whose state can be written into and restored from a {@link
+ * DeduplicationSnapshot}.
+ *
+ * @implSpec Implementations should write their state sequentially in a compact form and rebuild derived data
+ * structures on restore. The restored state must be the state at the time of the snapshot, even if the component has
+ * been changed afterwards. State that is persisted in files therefore needs to be included or retained, e.g., by
+ * keeping immutable files or truncating append-only files.
+ */
+public interface Snapshottable {
+    /**
+     * Writes the state of this component.
+     *
+     * @param output the snapshot output.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    void writeSnapshot(@NonNull SnapshotOutput output) throws IOException;
+
+    /**
+     * Restores the state of this component, which has been written with {@link #writeSnapshot(SnapshotOutput)}. The
+     * component is expected to be empty before.
+     *
+     * @param input the snapshot input.
+     * @throws IOException if the snapshot cannot be read.
+     */
+    void restoreSnapshot(@NonNull SnapshotInput input) throws IOException;
+}
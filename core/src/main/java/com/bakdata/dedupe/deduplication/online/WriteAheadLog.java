@@ -0,0 +1,99 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.online;
+
+import lombok.NonNull;
+
+
+/**
+ * Durably logs the input records of an online deduplication before they are processed, such that the mutations of all
+ * indexes and clusters since the last {@link DeduplicationSnapshot} can be recovered after a crash.
+ * <p>{@link FusingOnlineDeduplication} appends each record before it changes any state. Only the inputs are logged;
+ * the resulting mutations are reproduced by replaying the logged records on top of the restored snapshot. Hence,
+ * replay requires that
+ * <ul>
+ * <li>the snapshot restores all components to their state at the time of the snapshot, and</li>
+ * <li>the deduplication is deterministic for a given state and input; in particular, neither the {@link
+ * com.bakdata.dedupe.duplicate_detection.ComparisonBudget} nor the {@link EvictionPolicy} may depend on the wall
+ * clock.</li>
+ * </ul>
+ * {@link FusingOnlineDeduplication} rejects non-deterministic components if an enabled log is configured.</p>
+ *
+ * @param <T> the type of the record.
+ * @implSpec Implementations should batch writes to the storage device (group commit) instead of forcing each record.
+ */
+@FunctionalInterface
+public interface WriteAheadLog<T> {
+    /**
+     * Returns a log that does not persist any record.
+     *
+     * @param <T> the type of the record.
+     * @return a log that ignores all records.
+     */
+    static <T> @NonNull WriteAheadLog<T> disabled() {
+        return new WriteAheadLog<>() {
+            @Override
+            public void append(final @NonNull T record) {
+                // nothing to log
+            }
+
+            @Override
+            public boolean isEnabled() {
+                return false;
+            }
+
+            @Override
+            public void appendDeletion(final @NonNull T record) {
+                // nothing to log
+            }
+        };
+    }
+
+    /**
+     * Appends the record to the log before it is processed.
+     *
+     * @param record the input record.
+     */
+    void append(@NonNull T record);
+
+    /**
+     * Appends the deletion of a previously deduplicated record to the log before it is processed. An update is logged
+     * as the deletion of the old version followed by the new version.
+     *
+     * @param record the deleted record.
+     * @throws UnsupportedOperationException if the log does not support deletions.
+     */
+    default void appendDeletion(final @NonNull T record) {
+        throw new UnsupportedOperationException(this.getClass().getSimpleName() + " does not support deletions");
+    }
+
+    /**
+     * Returns whether the log persists records and will be replayed. Defaults to true.
+     *
+     * @return false if the log ignores all records.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.duplicate_detection;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.Value;
+
+
+/**
+ * Limits the classification effort that a pair-based {@link DuplicateDetection} spends on a single record.
+ * <p>Candidates are classified in the order of the candidate selection until either {@link #maxComparisons} or
+ * {@link #maxDuration} is exceeded. All remaining candidates are skipped and thus treated like non-selected pairs.
+ * Hence, the budget caps the tail latency in dense key regions at the cost of recall, which is minimized by candidate
+ * selections that return the most promising candidates first.</p>
+ * <p>The budget keeps track of how often it has been exhausted, such that the limits can be tuned.</p>
+ */
+@Value
+@Builder
+@EqualsAndHashCode(exclude = {"nanoClock", "records", "exhaustedRecords", "skippedComparisons"})
+public class ComparisonBudget {
+    /**
+     * The maximum number of classified candidates per record. Defaults to unlimited.
+     */
+    @Builder.Default
+    int maxComparisons = Integer.MAX_VALUE;
+    /**
+     * The maximum time spent in classification per record. The limit is checked before each classification, such that
+     * the last classification may exceed the limit. Defaults to unlimited.
+     */
+    @Builder.Default
+    @NonNull
+    Duration maxDuration = Duration.ofNanos(Long.MAX_VALUE);
+    /**
+     * The time source for {@link #maxDuration} in nanoseconds, which can be replaced for testing. Defaults to {@link
+     * System#nanoTime()}.
+     */
+    @Builder.Default
+    @NonNull
+    @Getter(AccessLevel.NONE)
+    LongSupplier nanoClock = System::nanoTime;
+    @Getter(AccessLevel.NONE)
+    LongAdder records = new LongAdder();
+    @Getter(AccessLevel.NONE)
+    LongAdder exhaustedRecords = new LongAdder();
+    @Getter(AccessLevel.NONE)
+    LongAdder skippedComparisons = new LongAdder();
+
+    /**
+     * Returns a budget without any limits.
+     *
+     * @return an unlimited budget.
+     */
+    public static @NonNull ComparisonBudget unlimited() {
+        return builder().build();
+    }
+
+    /**
+     * Returns whether the selected candidates only depend on the candidate selection, i.e., whether {@link
+     * #maxDuration} is unlimited. Time-limited budgets skip different candidates on each run.
+     */
+    public boolean isDeterministic() {
+        return this.maxDuration.compareTo(Duration.ofNanos(Long.MAX_VALUE)) >= 0;
+    }
+
+    /**
+     * Starts the classification of a new record.
+     *
+     * @return a tracker for the spent budget of the record.
+     */
+    public @NonNull Tracker start() {
+        this.records.increment();
+        return new Tracker();
+    }
+
+    /**
+     * Returns the number of records for which the budget has been tracked.
+     */
+    public long getRecordCount() {
+        return this.records.sum();
+    }
+
+    /**
+     * Returns the number of records for which the budget has been exhausted before all candidates were classified.
+     */
+    public long getExhaustedRecordCount() {
+        return this.exhaustedRecords.sum();
+    }
+
+    /**
+     * Returns the total number of candidates that have not been classified because of an exhausted budget.
+     */
+    public long getSkippedComparisonCount() {
+        return this.skippedComparisons.sum();
+    }
+
+    /**
+     * Returns the fraction of records for which the budget has been exhausted.
+     */
+    public double getExhaustedRatio() {
+        final long recordCount = this.getRecordCount();
+        return recordCount == 0 ? 0 : (double) this.getExhaustedRecordCount() / recordCount;
+    }
+
+    /**
+     * Tracks the spent budget for a single record.
+     */
+    @NoArgsConstructor(access = AccessLevel.PRIVATE)
+    public final class Tracker {
+        private final long start = ComparisonBudget.this.nanoClock.getAsLong();
+        private final long maxNanos = ComparisonBudget.this.maxDuration.toNanos();
+        private int comparisons;
+
+        /**
+         * Checks if another candidate may be classified and accounts for it.
+         *
+         * @return true iff the candidate may be classified.
+         */
+        public boolean tryAcquire() {
+            if (this.comparisons >= ComparisonBudget.this.maxComparisons) {
+                return false;
+            }
+            if (ComparisonBudget.this.nanoClock.getAsLong() - this.start > this.maxNanos) {
+                return false;
+            }
+            this.comparisons++;
+            return true;
+        }
+
+        /**
+         * Finishes the tracking of the record.
+         *
+         * @param skippedComparisons the number of candidates that have not been classified.
+         */
+        public void finish(final int skippedComparisons) {
+            if (skippedComparisons > 0) {
+                ComparisonBudget.this.exhaustedRecords.increment();
+                ComparisonBudget.this.skippedComparisons.add(skippedComparisons);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.duplicate_detection.online;
+
+import com.bakdata.dedupe.classifier.ClassificationResult;
+import java.util.List;
+import lombok.NonNull;
+import lombok.Value;
+
+
+/**
+ * A cluster of known records that matches a query record of {@link OnlineDuplicateDetection#findMatches(Object,
+ * int)}.
+ *
+ * @param <C> the type of the cluster id.
+ * @param <T> the type of the record.
+ */
+@Value
+public class Match<C extends Comparable<C>, T> {
+    /**
+     * The id of the matching cluster or null if the matching record is not part of any cluster.
+     */
+    C clusterId;
+    /**
+     * All records of the matching cluster or only the matching record if it is not part of any cluster.
+     */
+    @NonNull
+    List<T> records;
+    /**
+     * The record of the cluster that matches the query record best.
+     */
+    @NonNull
+    T bestMatch;
+    /**
+     * The classification of the query record and the {@link #bestMatch}.
+     */
+    @NonNull
+    ClassificationResult classificationResult;
+
+    /**
+     * Returns the confidence of the classification of the query record and the {@link #bestMatch}.
+     */
+    public double getScore() {
+        return this.classificationResult.getConfidence();
+    }
+}
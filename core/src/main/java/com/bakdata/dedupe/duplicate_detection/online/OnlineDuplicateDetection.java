@@ -25,6 +25,12 @@ package com.bakdata.dedupe.duplicate_detection.online;
 
 import com.bakdata.dedupe.clustering.Cluster;
 import com.bakdata.dedupe.duplicate_detection.DuplicateDetection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -55,6 +61,71 @@ public interface OnlineDuplicateDetection<C extends Comparable<C>, T> extends Du
      */
     @NonNull Stream<Cluster<C, T>> detectDuplicates(@NonNull T newRecord);
 
+    /**
+     * Returns all clusters that have been affected by a batch of new records. Records of the batch are also detected
+     * as duplicates of earlier records of the same batch.
+     * <p>The default implementation detects the duplicates of each record individually and drops clusters that have
+     * been superseded by a later record of the batch. Implementations may amortize work over the whole batch.</p>
+     *
+     * @param newRecords the batch of new records.
+     * @return all affected clusters in their state after the batch; each record is part of at most one cluster.
+     */
+    default @NonNull List<Cluster<C, T>> detectDuplicatesInBatch(final @NonNull List<? extends T> newRecords) {
+        final List<Cluster<C, T>> changedClusters = new ArrayList<>();
+        for (final T newRecord : newRecords) {
+            this.detectDuplicates(newRecord).forEach(changedClusters::add);
+        }
+        // later clusters contain the latest state of their records
+        final Set<T> clusteredRecords = new HashSet<>();
+        final Deque<Cluster<C, T>> latestClusters = new ArrayDeque<>();
+        for (int index = changedClusters.size() - 1; index >= 0; index--) {
+            final Cluster<C, T> cluster = changedClusters.get(index);
+            if (cluster.getElements().stream().noneMatch(clusteredRecords::contains)) {
+                clusteredRecords.addAll(cluster.getElements());
+                latestClusters.addFirst(cluster);
+            }
+        }
+        return new ArrayList<>(latestClusters);
+    }
+
+    /**
+     * Finds the clusters of known records that match the query record best without adding the query record or
+     * modifying any other state.
+     * <p>Matches are ordered by their classification, such that duplicates precede possible duplicates, and then by
+     * descending {@link Match#getScore()}.</p>
+     *
+     * @param queryRecord the record to look up.
+     * @param k the maximum number of returned matches.
+     * @return at most k matches.
+     * @throws IllegalArgumentException if k is negative.
+     * @throws UnsupportedOperationException if the duplicate detection does not support lookups.
+     */
+    default @NonNull List<Match<C, T>> findMatches(final @NonNull T queryRecord, final int k) {
+        throw new UnsupportedOperationException(this.getClass().getSimpleName() + " does not support lookups");
+    }
+
+    /**
+     * Removes a previously detected record from all indexes and reevaluates its former cluster.
+     *
+     * @param record the record to remove.
+     * @return the clusters of all remaining records of the former cluster of the record including singleton clusters.
+     * @throws UnsupportedOperationException if the duplicate detection does not support removals.
+     * @see com.bakdata.dedupe.clustering.Clustering#remove(Object, com.bakdata.dedupe.classifier.Classifier)
+     */
+    default @NonNull Stream<Cluster<C, T>> remove(final @NonNull T record) {
+        throw new UnsupportedOperationException(this.getClass().getSimpleName() + " does not support removals");
+    }
+
+    /**
+     * Returns whether the detected clusters only depend on the current state and the input records, such that
+     * reprocessing the same records on top of the same state yields the same result. Defaults to true.
+     *
+     * @return false if the result depends on time or other external factors.
+     */
+    default boolean isDeterministic() {
+        return true;
+    }
+
     @Override
     default @NonNull Stream<Cluster<C, T>> detectDuplicates(final @NonNull Stream<? extends T> records) {
         return records
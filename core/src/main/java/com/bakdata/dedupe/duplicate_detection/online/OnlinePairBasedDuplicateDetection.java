@@ -26,12 +26,20 @@ package com.bakdata.dedupe.duplicate_detection.online;
 import com.bakdata.dedupe.candidate_selection.Candidate;
 import com.bakdata.dedupe.candidate_selection.online.OnlineCandidateSelection;
 import com.bakdata.dedupe.classifier.Classification;
+import com.bakdata.dedupe.classifier.ClassificationResult;
 import com.bakdata.dedupe.classifier.ClassifiedCandidate;
 import com.bakdata.dedupe.classifier.Classifier;
 import com.bakdata.dedupe.clustering.Cluster;
 import com.bakdata.dedupe.clustering.Clustering;
+import com.bakdata.dedupe.deduplication.online.Evictable;
+import com.bakdata.dedupe.duplicate_detection.ComparisonBudget;
 import com.bakdata.dedupe.duplicate_detection.PossibleDuplicateHandler;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.Builder;
@@ -44,7 +52,8 @@ import lombok.Value;
  * <ul>
  * <li>Performs {@link com.bakdata.dedupe.candidate_selection.online.OnlineCandidateSelection}</li>
  * <li>Applies a {@link com.bakdata.dedupe.classifier.Classifier} to the found {@link
- * com.bakdata.dedupe.candidate_selection.Candidate}s</li>
+ * com.bakdata.dedupe.candidate_selection.Candidate}s in the order of the candidate selection until the {@link
+ * ComparisonBudget} is exhausted</li>
  * <li>Transforms the found duplicate pairs with a {@link com.bakdata.dedupe.clustering.Clustering} into {@link
  * com.bakdata.dedupe.clustering.Clusters}s</li>
  * </ul>
@@ -56,6 +65,11 @@ import lombok.Value;
 @Value
 @Builder
 public class OnlinePairBasedDuplicateDetection<C extends Comparable<C>, T, I> implements OnlineDuplicateDetection<C, T> {
+    private static final Comparator<Match<?, ?>> MATCH_ORDER =
+            Comparator.<Match<?, ?>, Boolean>comparing(
+                    match -> match.getClassificationResult().getClassification() != Classification.DUPLICATE)
+                    .thenComparing(Comparator.comparingDouble(Match<?, ?>::getScore).reversed());
+
     /**
      * The candidate selection which returns a list of candidates for each new record.
      */
@@ -76,19 +90,139 @@ public class OnlinePairBasedDuplicateDetection<C extends Comparable<C>, T, I> im
      */
     @Builder.Default
     PossibleDuplicateHandler<T> possibleDuplicateHandler = PossibleDuplicateHandler.keep();
+    /**
+     * Limits the number of classified candidates per record. Defaults to {@link ComparisonBudget#unlimited()}.
+     */
+    @Builder.Default
+    @NonNull
+    ComparisonBudget comparisonBudget = ComparisonBudget.unlimited();
 
     @Override
     public @NonNull Stream<Cluster<C, T>> detectDuplicates(final @NonNull T newRecord) {
-        final Stream<Candidate<T>> candidates = this.candidateSelection.selectCandidates(newRecord);
-        final List<ClassifiedCandidate<T>> classified = candidates
-                .map(candidate -> new ClassifiedCandidate<>(candidate, this.classifier.classify(candidate)))
+        // always materialize all candidates, such that the candidate selection can fully update its state
+        final List<Candidate<T>> candidates =
+                this.candidateSelection.selectCandidates(newRecord).collect(Collectors.toList());
+        final List<ClassifiedCandidate<T>> classified = this.classify(candidates);
+
+        return this.clustering.cluster(this.handlePossibleDuplicates(classified));
+    }
+
+    /**
+     * Selects the candidates of all records of the batch first, such that later records are paired with earlier
+     * records of the same batch. Then, all candidates are classified with the {@link #comparisonBudget} of their
+     * respective record, and the {@link #clustering} is applied once to all classified candidates.
+     */
+    @Override
+    public @NonNull List<Cluster<C, T>> detectDuplicatesInBatch(final @NonNull List<? extends T> newRecords) {
+        final List<List<Candidate<T>>> candidatesPerRecord = new ArrayList<>(newRecords.size());
+        for (final T newRecord : newRecords) {
+            candidatesPerRecord.add(this.candidateSelection.selectCandidates(newRecord).collect(Collectors.toList()));
+        }
+        final List<ClassifiedCandidate<T>> classified = new ArrayList<>();
+        for (final List<Candidate<T>> candidates : candidatesPerRecord) {
+            classified.addAll(this.classify(candidates));
+        }
+
+        return this.clustering.cluster(this.handlePossibleDuplicates(classified)).collect(Collectors.toList());
+    }
+
+    /**
+     * Classifies the candidates of {@link OnlineCandidateSelection#lookupCandidates(Object)} and groups the duplicates
+     * and possible duplicates by their current cluster. Each cluster is scored by its best matching record.
+     * <p>The lookup does not modify any state of this duplicate detection. It neither applies the {@link
+     * #comparisonBudget} nor the {@link #possibleDuplicateHandler}, which may have side effects.</p>
+     *
+     * @param queryRecord the record to look up.
+     * @param k the maximum number of returned matches.
+     * @return at most k matches.
+     * @throws IllegalArgumentException if k is negative.
+     */
+    @Override
+    public @NonNull List<Match<C, T>> findMatches(final @NonNull T queryRecord, final int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Number of matches must not be negative: " + k);
+        }
+        final Map<C, Match<C, T>> clusterMatches = new HashMap<>();
+        final Map<T, Match<C, T>> singletonMatches = new HashMap<>();
+        this.candidateSelection.lookupCandidates(queryRecord).forEach(candidate -> {
+            final ClassificationResult result = this.classifier.classify(candidate);
+            if (result.getClassification() != Classification.DUPLICATE
+                    && result.getClassification() != Classification.POSSIBLE_DUPLICATE) {
+                return;
+            }
+            final T knownRecord = candidate.getRecord2();
+            final Optional<Cluster<C, T>> cluster = this.clustering.getCluster(knownRecord);
+            if (cluster.isPresent()) {
+                final Match<C, T> match =
+                        new Match<>(cluster.get().getId(), List.copyOf(cluster.get().getElements()), knownRecord,
+                                result);
+                clusterMatches.merge(match.getClusterId(), match, OnlinePairBasedDuplicateDetection::better);
+            } else {
+                singletonMatches.put(knownRecord, new Match<>(null, List.of(knownRecord), knownRecord, result));
+            }
+        });
+        return Stream.concat(clusterMatches.values().stream(), singletonMatches.values().stream())
+                .sorted(MATCH_ORDER)
+                .limit(k)
                 .collect(Collectors.toList());
+    }
+
+    private static <C extends Comparable<C>, T> Match<C, T> better(final Match<C, T> match1, final Match<C, T> match2) {
+        return MATCH_ORDER.compare(match1, match2) <= 0 ? match1 : match2;
+    }
+
+    /**
+     * Removes the record from the candidate selection and reevaluates its former cluster with the {@link
+     * #classifier}. Possible duplicates are passed to the {@link #possibleDuplicateHandler}.
+     *
+     * @param record the record to remove.
+     * @return the clusters of all remaining records of the former cluster of the record including singleton clusters.
+     * @throws UnsupportedOperationException if the candidate selection is not {@link Evictable}.
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public @NonNull Stream<Cluster<C, T>> remove(final @NonNull T record) {
+        if (!(this.candidateSelection instanceof Evictable)) {
+            throw new UnsupportedOperationException(
+                    this.candidateSelection.getClass().getSimpleName() + " does not support removals");
+        }
+        ((Evictable<T>) this.candidateSelection).evict(List.of(record));
+        return this.clustering.remove(record, this::classifyRemaining);
+    }
 
-        final Stream<@NonNull ClassifiedCandidate<T>> handledPairs = classified.stream()
+    /**
+     * Returns whether the {@link #comparisonBudget} is deterministic.
+     */
+    @Override
+    public boolean isDeterministic() {
+        return this.comparisonBudget.isDeterministic();
+    }
+
+    private @NonNull ClassificationResult classifyRemaining(final @NonNull Candidate<T> candidate) {
+        final ClassifiedCandidate<T> classified = this.classifier.classifyCandidate(candidate);
+        if (classified.getClassificationResult().getClassification() == Classification.POSSIBLE_DUPLICATE) {
+            return this.possibleDuplicateHandler.possibleDuplicateFound(classified).getClassificationResult();
+        }
+        return classified.getClassificationResult();
+    }
+
+    private Stream<ClassifiedCandidate<T>> handlePossibleDuplicates(final List<ClassifiedCandidate<T>> classified) {
+        return classified.stream()
                 .map(cc -> cc.getClassificationResult().getClassification() == Classification.POSSIBLE_DUPLICATE ?
                         this.possibleDuplicateHandler.possibleDuplicateFound(cc) :
                         cc);
+    }
 
-        return this.clustering.cluster(handledPairs);
+    private List<ClassifiedCandidate<T>> classify(final List<Candidate<T>> candidates) {
+        final List<ClassifiedCandidate<T>> classified = new ArrayList<>(candidates.size());
+        final ComparisonBudget.Tracker tracker = this.comparisonBudget.start();
+        for (final Candidate<T> candidate : candidates) {
+            if (!tracker.tryAcquire()) {
+                break;
+            }
+            classified.add(new ClassifiedCandidate<>(candidate, this.classifier.classify(candidate)));
+        }
+        tracker.finish(candidates.size() - classified.size());
+        return classified;
     }
 }
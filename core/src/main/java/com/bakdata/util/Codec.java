@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import lombok.NonNull;
+
+
+/**
+ * A compact binary encoding of values for persistent data structures.
+ *
+ * @param <T> the type of the value.
+ */
+public interface Codec<T> {
+    /**
+     * Returns a codec for strings of arbitrary length in UTF-8.
+     *
+     * @return the string codec.
+     */
+    static @NonNull Codec<String> string() {
+        return new Codec<>() {
+            @Override
+            public void write(final @NonNull String value, final @NonNull DataOutput output) throws IOException {
+                final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            }
+
+            @Override
+            public @NonNull String read(final @NonNull DataInput input) throws IOException {
+                final byte[] bytes = new byte[input.readInt()];
+                input.readFully(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    /**
+     * Returns a codec for longs in 8 bytes.
+     *
+     * @return the long codec.
+     */
+    static @NonNull Codec<Long> longValue() {
+        return new Codec<>() {
+            @Override
+            public void write(final @NonNull Long value, final @NonNull DataOutput output) throws IOException {
+                output.writeLong(value);
+            }
+
+            @Override
+            public @NonNull Long read(final @NonNull DataInput input) throws IOException {
+                return input.readLong();
+            }
+        };
+    }
+
+    /**
+     * Writes the value to the output.
+     *
+     * @param value the value to write.
+     * @param output the output.
+     * @throws IOException if the output cannot be written.
+     */
+    void write(@NonNull T value, @NonNull DataOutput output) throws IOException;
+
+    /**
+     * Reads a value, which has been written with {@link #write(Object, DataOutput)}, from the input.
+     *
+     * @param input the input.
+     * @return the read value.
+     * @throws IOException if the input cannot be read.
+     */
+    @NonNull T read(@NonNull DataInput input) throws IOException;
+
+    /**
+     * Encodes the value into a new byte array.
+     *
+     * @param value the value to encode.
+     * @return the encoded value.
+     */
+    default byte @NonNull [] toBytes(final @NonNull T value) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final DataOutputStream output = new DataOutputStream(bytes)) {
+            this.write(value, output);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
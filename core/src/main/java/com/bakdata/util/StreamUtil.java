@@ -24,8 +24,16 @@
 
 package com.bakdata.util;
 
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.DoublePredicate;
+import java.util.function.Function;
 import java.util.function.IntPredicate;
 import java.util.function.LongPredicate;
 import java.util.function.Predicate;
@@ -72,4 +80,35 @@ public class StreamUtil {
     public static <T> @NonNull Stream<T> stream(final @NonNull Iterable<T> iterable) {
         return StreamSupport.stream(iterable.spliterator(), false);
     }
+
+    /**
+     * Lazily maps the elements to asynchronous results and returns the results in the order of the elements. At most
+     * {@code lookahead} elements are mapped ahead of the consumer of the returned stream.
+     */
+    public static <T, R> @NonNull Stream<R> mapAsyncOrdered(final @NonNull Stream<? extends T> stream,
+            final @NonNull Function<? super T, ? extends CompletableFuture<? extends R>> function,
+            final int lookahead) {
+        final Iterator<? extends T> input = stream.iterator();
+        final Iterator<R> output = new Iterator<>() {
+            private final Queue<CompletableFuture<? extends R>> pending = new ArrayDeque<>();
+
+            @Override
+            public boolean hasNext() {
+                while (input.hasNext() && this.pending.size() < lookahead) {
+                    this.pending.add(function.apply(input.next()));
+                }
+                return !this.pending.isEmpty();
+            }
+
+            @Override
+            public R next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return this.pending.remove().join();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(output, Spliterator.ORDERED), false)
+                .onClose(stream::close);
+    }
 }
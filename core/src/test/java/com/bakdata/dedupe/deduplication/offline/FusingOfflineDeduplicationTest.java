@@ -0,0 +1,137 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.deduplication.offline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.bakdata.dedupe.clustering.Cluster;
+import com.bakdata.dedupe.duplicate_detection.offline.OfflineDuplicateDetection;
+import com.bakdata.dedupe.fusion.FusedValue;
+import com.bakdata.dedupe.fusion.Fusion;
+import com.bakdata.dedupe.fusion.IncompleteFusionHandler;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class FusingOfflineDeduplicationTest {
+    private static final Fusion<String> MIN_FUSION =
+            cluster -> new FusedValue<>(Collections.min(cluster.getElements()), cluster, List.of());
+    private static final IncompleteFusionHandler<String> COMPLETE_FUSIONS =
+            fusedValue -> fusedValue.getExceptions().isEmpty() ? Optional.of(fusedValue) : Optional.empty();
+
+    /**
+     * Returns fixed clusters for the given records, consisting of consecutive records of the given size.
+     */
+    private static OfflineDuplicateDetection<Integer, String> createDetection(final int clusterSize) {
+        return records -> {
+            final List<String> elements = records.collect(Collectors.toList());
+            final List<Cluster<Integer, String>> clusters = new ArrayList<>();
+            for (int start = 0; start < elements.size(); start += clusterSize) {
+                clusters.add(new Cluster<>(clusters.size(),
+                        new ArrayList<>(elements.subList(start, Math.min(start + clusterSize, elements.size())))));
+            }
+            return clusters.stream();
+        };
+    }
+
+    private static FusingOfflineDeduplication<Integer, String> createDeduplication(final int clusterSize,
+            final Fusion<String> fusion, final int parallelism) {
+        return FusingOfflineDeduplication.<Integer, String>builder()
+                .duplicateDetection(createDetection(clusterSize))
+                .fusion(fusion)
+                .incompleteFusionHandler(COMPLETE_FUSIONS)
+                .parallelism(parallelism)
+                .build();
+    }
+
+    @Test
+    void shouldFuseClustersInOrder() {
+        final List<String> deduplicated = createDeduplication(2, MIN_FUSION, 2)
+                .deduplicate(List.of("d", "c", "b", "a", "e").stream())
+                .collect(Collectors.toList());
+
+        assertThat(deduplicated).containsExactly("c", "a", "e");
+    }
+
+    @Test
+    void shouldPassThroughSingletonsWithoutFusion() {
+        final Fusion<String> failingFusion = cluster -> {
+            throw new IllegalStateException("Singletons should not be fused");
+        };
+
+        final List<String> deduplicated = createDeduplication(1, failingFusion, 2)
+                .deduplicate(List.of("a", "b", "c").stream())
+                .collect(Collectors.toList());
+
+        assertThat(deduplicated).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void shouldReturnOriginalRecordsOfIncompleteFusions() {
+        final Fusion<String> incompleteFusion = cluster -> new FusedValue<>(cluster.get(0), cluster,
+                cluster.get(0).equals("a") ? List.of(new IllegalArgumentException("conflict")) : List.of());
+
+        final List<String> deduplicated = createDeduplication(2, incompleteFusion, 2)
+                .deduplicate(List.of("a", "b", "c", "d").stream())
+                .collect(Collectors.toList());
+
+        assertThat(deduplicated).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void shouldNotFuseWithDefaultIncompleteFusionHandler() {
+        final FusingOfflineDeduplication<Integer, String> deduplication =
+                FusingOfflineDeduplication.<Integer, String>builder()
+                        .duplicateDetection(createDetection(2))
+                        .fusion(MIN_FUSION)
+                        .build();
+
+        final List<String> deduplicated = deduplication.deduplicate(List.of("b", "a", "c").stream())
+                .collect(Collectors.toList());
+
+        assertThat(deduplicated).containsExactly("b", "a", "c");
+    }
+
+    @Test
+    void shouldBeIndependentOfParallelism() {
+        final List<String> records = IntStream.range(0, 10_000)
+                .mapToObj(i -> String.format("%05d", (i * 7919) % 10_000))
+                .collect(Collectors.toList());
+
+        final List<String> sequential = createDeduplication(3, MIN_FUSION, 1)
+                .deduplicate(records.stream())
+                .collect(Collectors.toList());
+        final List<String> parallel = createDeduplication(3, MIN_FUSION, 4)
+                .deduplicate(records.stream())
+                .collect(Collectors.toList());
+
+        assertThat(parallel)
+                .hasSize((records.size() + 2) / 3)
+                .isEqualTo(sequential);
+    }
+}
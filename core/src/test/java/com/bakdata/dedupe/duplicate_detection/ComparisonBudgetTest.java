@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.duplicate_detection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class ComparisonBudgetTest {
+
+    @Test
+    void shouldStopAfterMaxComparisons() {
+        final ComparisonBudget budget = ComparisonBudget.builder().maxComparisons(2).build();
+
+        final ComparisonBudget.Tracker tracker = budget.start();
+        assertThat(tracker.tryAcquire()).isTrue();
+        assertThat(tracker.tryAcquire()).isTrue();
+        assertThat(tracker.tryAcquire()).isFalse();
+        assertThat(tracker.tryAcquire()).isFalse();
+
+        // the limit applies per record
+        final ComparisonBudget.Tracker nextTracker = budget.start();
+        assertThat(nextTracker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void shouldStopAfterMaxDuration() {
+        final AtomicLong clock = new AtomicLong();
+        final ComparisonBudget budget = ComparisonBudget.builder()
+                .maxDuration(Duration.ofNanos(100))
+                .nanoClock(clock::get)
+                .build();
+
+        final ComparisonBudget.Tracker tracker = budget.start();
+        assertThat(tracker.tryAcquire()).isTrue();
+        clock.set(100);
+        assertThat(tracker.tryAcquire()).isTrue();
+        clock.set(101);
+        assertThat(tracker.tryAcquire()).isFalse();
+
+        // the time of a new record starts at its own start
+        final ComparisonBudget.Tracker nextTracker = budget.start();
+        clock.set(150);
+        assertThat(nextTracker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void shouldNotLimitUnlimitedBudget() {
+        final ComparisonBudget.Tracker tracker = ComparisonBudget.unlimited().start();
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(tracker.tryAcquire()).isTrue();
+        }
+    }
+
+    @Test
+    void shouldOnlyBeDeterministicWithoutMaxDuration() {
+        assertThat(ComparisonBudget.unlimited().isDeterministic()).isTrue();
+        assertThat(ComparisonBudget.builder().maxComparisons(2).build().isDeterministic()).isTrue();
+        assertThat(ComparisonBudget.builder().maxDuration(Duration.ofMillis(5)).build().isDeterministic()).isFalse();
+    }
+
+    @Test
+    void shouldReportExhaustion() {
+        final ComparisonBudget budget = ComparisonBudget.builder().maxComparisons(1).build();
+        assertThat(budget.getExhaustedRatio()).isZero();
+
+        budget.start().finish(0);
+        budget.start().finish(3);
+        budget.start().finish(0);
+        budget.start().finish(2);
+
+        assertThat(budget.getRecordCount()).isEqualTo(4);
+        assertThat(budget.getExhaustedRecordCount()).isEqualTo(2);
+        assertThat(budget.getSkippedComparisonCount()).isEqualTo(5);
+        assertThat(budget.getExhaustedRatio()).isEqualTo(0.5);
+    }
+}
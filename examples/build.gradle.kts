@@ -5,3 +5,20 @@ dependencies {
 
     testImplementation(libs.commons.csv)
 }
+
+// throughput benchmarks, which are not part of the test suite
+val benchmark: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.test.get().output
+    runtimeClasspath += sourceSets.main.get().output + sourceSets.test.get().output
+}
+
+configurations[benchmark.implementationConfigurationName].extendsFrom(configurations.testImplementation.get())
+configurations[benchmark.runtimeOnlyConfigurationName].extendsFrom(configurations.testRuntimeOnly.get())
+
+tasks.register<JavaExec>("benchmark") {
+    description = "Runs a benchmark of the examples, e.g., -Pbenchmark=ConcurrentPersonDeduplicationBenchmark."
+    group = "verification"
+    classpath = benchmark.runtimeClasspath
+    mainClass.set(providers.gradleProperty("benchmark").map { "com.bakdata.dedupe.person.$it" })
+    args(providers.gradleProperty("benchmarkArgs").map { it.split(" ") }.getOrElse(listOf()))
+}
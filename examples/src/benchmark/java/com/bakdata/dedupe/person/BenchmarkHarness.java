@@ -0,0 +1,71 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.person;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+import lombok.experimental.UtilityClass;
+
+/**
+ * A minimal harness for the throughput benchmarks of the examples.
+ * <p>The benchmarks are not part of the test suite. They live in the {@code benchmark} source set and are run with
+ * {@code ./gradlew :examples:benchmark -Pbenchmark=<simple class name> [-PbenchmarkArgs="<args>"]}.</p>
+ * <p>Each setting runs on fresh state: first for {@link #WARM_UP_ITERATIONS} discarded iterations to let the JIT
+ * compile the hot paths, then for {@link #MEASURED_ITERATIONS} measured iterations. The median throughput is reported,
+ * which is robust against outliers such as garbage collection pauses.</p>
+ */
+@UtilityClass
+class BenchmarkHarness {
+    static final int WARM_UP_ITERATIONS = 1;
+    static final int MEASURED_ITERATIONS = 3;
+
+    /**
+     * Measures the median throughput of the given run.
+     *
+     * @param run processes the records on fresh state and returns the number of processed records.
+     * @return the median throughput in records per second.
+     */
+    static double measureThroughput(final LongSupplier run) {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            run.getAsLong();
+        }
+        final double[] throughputs = new double[MEASURED_ITERATIONS];
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            final long start = System.nanoTime();
+            final long count = run.getAsLong();
+            throughputs[i] = count * 1e9 / (System.nanoTime() - start);
+        }
+        Arrays.sort(throughputs);
+        return throughputs[MEASURED_ITERATIONS / 2];
+    }
+
+    static void printHeader(final String benchmark, final int recordCount) {
+        System.out.printf("%s: %d records on %d available processors, median of %d runs%n", benchmark, recordCount,
+                Runtime.getRuntime().availableProcessors(), MEASURED_ITERATIONS);
+    }
+
+    static void printThroughput(final String setting, final double throughput, final double baseline) {
+        System.out.printf("%-24s %,12.0f records/s (speedup %.2f)%n", setting, throughput, throughput / baseline);
+    }
+}
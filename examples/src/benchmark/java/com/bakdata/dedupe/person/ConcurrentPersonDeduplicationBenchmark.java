@@ -0,0 +1,70 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.person;
+
+import com.bakdata.dedupe.clustering.ClusterIdGenerators;
+import com.bakdata.dedupe.deduplication.online.ConcurrentOnlineDeduplication;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Measures the throughput of {@link ConcurrentOnlineDeduplication} on synthetic persons for 1 to 32 threads.
+ * <p>Takes an optional number of records (default 50000) and is run through the {@link BenchmarkHarness}.</p>
+ */
+public final class ConcurrentPersonDeduplicationBenchmark {
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32};
+
+    private ConcurrentPersonDeduplicationBenchmark() {
+    }
+
+    public static void main(final String[] args) {
+        final int recordCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        final List<Person> persons = PersonGenerator.generatePersons(recordCount, new Random(0));
+        BenchmarkHarness.printHeader("ConcurrentOnlineDeduplication", recordCount);
+        double baseline = 0;
+        for (final int threads : THREADS) {
+            final double throughput = BenchmarkHarness.measureThroughput(() -> run(persons, threads));
+            if (threads == 1) {
+                baseline = throughput;
+            }
+            BenchmarkHarness.printThroughput(threads + " threads", throughput, baseline);
+        }
+    }
+
+    private static long run(final List<Person> persons, final int threads) {
+        try (final ConcurrentOnlineDeduplication<Long, Person, String> deduplication =
+                ConcurrentOnlineDeduplication.<Long, Person, String>builder()
+                        .candidateSelection(new PersonCandidateSelection())
+                        .classifier(new PersonClassifier())
+                        .fusion(new PersonFusion())
+                        .incompleteFusionHandler(Optional::of)
+                        .idExtractor(Person::getId)
+                        .clusterIdGenerator(ClusterIdGenerators.longGenerator())
+                        .parallelism(threads)
+                        .build()) {
+            return deduplication.deduplicate(persons.stream()).count();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.person;
+
+import com.bakdata.dedupe.candidate_selection.CompositeValue;
+import com.bakdata.dedupe.candidate_selection.SortingKey;
+import com.bakdata.dedupe.clustering.ClusterIdGenerators;
+import com.bakdata.dedupe.clustering.RefineClusterImpl;
+import com.bakdata.dedupe.deduplication.offline.FusingOfflineDeduplication;
+import com.bakdata.dedupe.duplicate_detection.offline.ParallelSortedNeighborhoodDuplicateDetection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Measures the throughput of a {@link FusingOfflineDeduplication} with a {@link
+ * ParallelSortedNeighborhoodDuplicateDetection} on synthetic persons for 1 to 32 threads, once with the plain
+ * connected components and once with refined clusters.
+ * <p>Takes an optional number of records (default 200000) and is run through the {@link BenchmarkHarness}.</p>
+ */
+public final class OfflinePersonDeduplicationBenchmark {
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32};
+
+    private OfflinePersonDeduplicationBenchmark() {
+    }
+
+    public static void main(final String[] args) {
+        final int recordCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        final List<Person> persons = PersonGenerator.generatePersons(recordCount, new Random(0));
+        BenchmarkHarness.printHeader("FusingOfflineDeduplication", recordCount);
+        for (final boolean refine : new boolean[]{false, true}) {
+            double baseline = 0;
+            for (final int threads : THREADS) {
+                final double throughput = BenchmarkHarness.measureThroughput(() -> run(persons, threads, refine));
+                if (threads == 1) {
+                    baseline = throughput;
+                }
+                BenchmarkHarness.printThroughput(threads + " threads" + (refine ? ", refined" : ""), throughput,
+                        baseline);
+            }
+        }
+    }
+
+    private static long run(final List<Person> persons, final int threads, final boolean refine) {
+        createDeduplication(threads, refine).deduplicate(persons.stream()).forEach(person -> { });
+        // the throughput is measured in input records
+        return persons.size();
+    }
+
+    private static FusingOfflineDeduplication<Long, Person> createDeduplication(final int threads,
+            final boolean refine) {
+        return FusingOfflineDeduplication.<Long, Person>builder()
+                .duplicateDetection(ParallelSortedNeighborhoodDuplicateDetection.<Long, Person, String>builder()
+                        .sortingKey(new SortingKey<>("First name+Last name",
+                                person -> CompositeValue.of(person.getFirstName(), person.getLastName())))
+                        .sortingKey(new SortingKey<>("Last name+First name",
+                                person -> CompositeValue.of(person.getLastName(), person.getFirstName())))
+                        .sortingKey(new SortingKey<>("Bday+Last name",
+                                person -> CompositeValue.of(person.getBirthDate(), person.getLastName())))
+                        .windowSize(PersonCandidateSelection.WINDOW_SIZE)
+                        .classifier(new PersonClassifier())
+                        .idExtractor(Person::getId)
+                        .clusterIdGenerator(ClusterIdGenerators.longGenerator())
+                        .refineCluster(refine ? RefineClusterImpl.<Long, Person, String>builder()
+                                .classifier(new PersonClassifier())
+                                .clusterIdGenerator(ClusterIdGenerators.longGenerator())
+                                .idExtractor(Person::getId)
+                                .build() : null)
+                        .parallelism(threads)
+                        .build())
+                .fusion(new PersonFusion())
+                .incompleteFusionHandler(Optional::of)
+                .parallelism(threads)
+                .build();
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.person;
+
+import com.bakdata.dedupe.candidate_selection.online.OnlineCandidate;
+import com.bakdata.dedupe.classifier.ClassifiedCandidate;
+import com.bakdata.dedupe.classifier.Classifier;
+import com.bakdata.dedupe.clustering.Cluster;
+import com.bakdata.dedupe.clustering.ClusterIdGenerators;
+import com.bakdata.dedupe.clustering.PivotRefineCluster;
+import com.bakdata.dedupe.clustering.RefineCluster;
+import com.bakdata.dedupe.clustering.RefineClusterImpl;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the quality and latency of {@link RefineClusterImpl} and {@link PivotRefineCluster} on synthetic clusters
+ * of persons, in which up to four different persons with up to eight misspelled duplicates each have been merged
+ * erroneously.
+ * <p>The known classifications link the duplicates of each person in a chain and each person to the next person, as
+ * a transitive closure would have seen them. The quality is measured as pairwise precision, recall, and F1 score with
+ * respect to the generated persons.</p>
+ * <p>Takes an optional number of clusters (default 500) and is run like the other benchmarks, see {@link
+ * BenchmarkHarness}. The latency is reported for a single round after the warm-up rounds.</p>
+ */
+public final class RefineClusterComparisonBenchmark {
+    private static final int MAX_PERSONS_PER_CLUSTER = 4;
+    private static final int MAX_DUPLICATES_PER_PERSON = 8;
+
+    private RefineClusterComparisonBenchmark() {
+    }
+
+    public static void main(final String[] args) {
+        final int clusterCount = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        final Random random = new Random(0);
+        final Map<String, Integer> truth = new HashMap<>();
+        final List<Cluster<Long, Person>> clusters = new ArrayList<>(clusterCount);
+        final List<ClassifiedCandidate<Person>> knownClassifications = new ArrayList<>();
+        final Classifier<Person> classifier = new PersonClassifier();
+        for (long clusterId = 0; clusterId < clusterCount; clusterId++) {
+            final Cluster<Long, Person> cluster = new Cluster<>(clusterId);
+            final int persons = 1 + random.nextInt(MAX_PERSONS_PER_CLUSTER);
+            for (int person = 0; person < persons; person++) {
+                final Person original = PersonGenerator.generatePerson(String.valueOf(truth.size()), random);
+                if (!cluster.getElements().isEmpty()) {
+                    knownClassifications.add(classifier.classifyCandidate(
+                            new OnlineCandidate<>(cluster.get(cluster.size() - 1), original)));
+                }
+                Person previous = original;
+                truth.put(original.getId(), truth.size());
+                cluster.add(original);
+                final int duplicates = random.nextInt(MAX_DUPLICATES_PER_PERSON);
+                for (int duplicate = 0; duplicate < duplicates; duplicate++) {
+                    final Person copy =
+                            PersonGenerator.generateDuplicate(original, String.valueOf(truth.size()), random);
+                    truth.put(copy.getId(), truth.get(original.getId()));
+                    knownClassifications.add(classifier.classifyCandidate(new OnlineCandidate<>(previous, copy)));
+                    previous = copy;
+                    cluster.add(copy);
+                }
+            }
+            clusters.add(cluster);
+        }
+        System.out.printf("%d clusters with %d records%n", clusterCount, truth.size());
+
+        for (int round = 1; round <= BenchmarkHarness.WARM_UP_ITERATIONS + 1; round++) {
+            System.out.printf(round <= BenchmarkHarness.WARM_UP_ITERATIONS ? "Warm-up round %d%n" : "Round %d%n",
+                    round);
+            benchmark("RefineClusterImpl", clusters, knownClassifications, truth,
+                    counter -> RefineClusterImpl.<Long, Person, String>builder()
+                            .classifier(counter)
+                            .clusterIdGenerator(ClusterIdGenerators.longGenerator())
+                            .idExtractor(Person::getId)
+                            .build());
+            benchmark("PivotRefineCluster", clusters, knownClassifications, truth,
+                    counter -> PivotRefineCluster.<Long, Person, String>builder()
+                            .classifier(counter)
+                            .clusterIdGenerator(ClusterIdGenerators.longGenerator())
+                            .idExtractor(Person::getId)
+                            .build());
+        }
+    }
+
+    private static void benchmark(final String name, final List<Cluster<Long, Person>> clusters,
+            final List<ClassifiedCandidate<Person>> knownClassifications, final Map<String, Integer> truth,
+            final Function<Classifier<Person>, RefineCluster<Long, Person, String>> refineClusterFactory) {
+        final AtomicLong classifications = new AtomicLong();
+        final Classifier<Person> classifier = new PersonClassifier();
+        final RefineCluster<Long, Person, String> refineCluster = refineClusterFactory.apply(candidate -> {
+            classifications.incrementAndGet();
+            return classifier.classify(candidate);
+        });
+
+        final long start = System.nanoTime();
+        final List<Cluster<Long, Person>> refinedClusters =
+                refineCluster.refine(clusters.stream(), knownClassifications.stream()).collect(Collectors.toList());
+        final double millis = (System.nanoTime() - start) / 1e6;
+
+        long truePairs = 0;
+        for (final Cluster<Long, Person> cluster : clusters) {
+            truePairs += countPairs(cluster, truth, true);
+        }
+        long predictedPairs = 0;
+        long correctPairs = 0;
+        for (final Cluster<Long, Person> cluster : refinedClusters) {
+            predictedPairs += countPairs(cluster, truth, false);
+            correctPairs += countPairs(cluster, truth, true);
+        }
+        final double precision = (double) correctPairs / predictedPairs;
+        final double recall = (double) correctPairs / truePairs;
+        System.out.printf("%-20s %8.1f ms (%.3f ms/cluster), %7d classifications, precision %.3f, recall %.3f, "
+                        + "F1 %.3f%n", name, millis, millis / clusters.size(), classifications.get(), precision, recall,
+                2 * precision * recall / (precision + recall));
+    }
+
+    private static long countPairs(final Cluster<Long, Person> cluster, final Map<String, Integer> truth,
+            final boolean onlyDuplicates) {
+        long pairs = 0;
+        for (int index1 = 0; index1 < cluster.size(); index1++) {
+            for (int index2 = index1 + 1; index2 < cluster.size(); index2++) {
+                if (!onlyDuplicates || truth.get(cluster.get(index1).getId())
+                        .equals(truth.get(cluster.get(index2).getId()))) {
+                    pairs++;
+                }
+            }
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.person;
+
+import com.bakdata.dedupe.clustering.ClusterIdGenerators;
+import com.bakdata.dedupe.deduplication.online.LocalShardTransport;
+import com.bakdata.dedupe.deduplication.online.ShardCoordinator;
+import com.bakdata.dedupe.deduplication.online.ShardedOnlineDeduplication;
+import com.bakdata.dedupe.duplicate_detection.PossibleDuplicateHandler;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Measures the throughput of a {@link ShardedOnlineDeduplication} with a {@link LocalShardTransport} on synthetic
+ * persons for 1 to 32 shards. The persons are routed by last name and birth date.
+ * <p>Takes an optional number of records (default 50000) and is run through the {@link BenchmarkHarness}.</p>
+ */
+public final class ShardedPersonDeduplicationBenchmark {
+    private static final int[] SHARDS = {1, 2, 4, 8, 16, 32};
+
+    private ShardedPersonDeduplicationBenchmark() {
+    }
+
+    public static void main(final String[] args) {
+        final int recordCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        final List<Person> persons = PersonGenerator.generatePersons(recordCount, new Random(0));
+        BenchmarkHarness.printHeader("ShardedOnlineDeduplication", recordCount);
+        double baseline = 0;
+        for (final int shards : SHARDS) {
+            final double throughput = BenchmarkHarness.measureThroughput(() -> run(persons, shards));
+            if (shards == 1) {
+                baseline = throughput;
+            }
+            BenchmarkHarness.printThroughput(shards + " shards", throughput, baseline);
+        }
+    }
+
+    private static long run(final List<Person> persons, final int shards) {
+        final LocalShardTransport.LocalShardTransportBuilder<Long, Person> transport = LocalShardTransport.builder();
+        for (int shard = 0; shard < shards; shard++) {
+            transport.shard(new PersonDuplicateDetection(PossibleDuplicateHandler.keep()));
+        }
+        try (final ShardedOnlineDeduplication<Long, Person, String> deduplication =
+                ShardedOnlineDeduplication.<Long, Person, String>builder()
+                        .transport(transport.build())
+                        .blockingKey(Person::getLastName)
+                        .blockingKey(Person::getBirthDate)
+                        .coordinator(ShardCoordinator.<Long, Person, String>builder()
+                                .idExtractor(Person::getId)
+                                .clusterIdGenerator(ClusterIdGenerators.longGenerator())
+                                .build())
+                        .fusion(new PersonFusion())
+                        .incompleteFusionHandler(Optional::of)
+                        .build()) {
+            return deduplication.deduplicate(persons.stream()).count();
+        }
+    }
+}
@@ -27,6 +27,7 @@ import com.bakdata.dedupe.candidate_selection.CompositeValue;
 import com.bakdata.dedupe.candidate_selection.SortingKey;
 import com.bakdata.dedupe.candidate_selection.online.OnlineCandidateSelection;
 import com.bakdata.dedupe.candidate_selection.online.OnlineSortedNeighborhoodMethod;
+import com.bakdata.dedupe.deduplication.online.Evictable;
 import java.text.Normalizer;
 import java.text.Normalizer.Form;
 import java.util.Locale;
@@ -35,12 +36,12 @@ import lombok.Value;
 import lombok.experimental.Delegate;
 
 @Value
-public class PersonCandidateSelection implements OnlineCandidateSelection<Person> {
+public class PersonCandidateSelection implements OnlineCandidateSelection<Person>, Evictable<Person> {
     public static final int WINDOW_SIZE = 20;
     private static final Pattern BRACED_TERMS = Pattern.compile("\\(.*?\\)");
     private static final Pattern NON_ALPHA = Pattern.compile("[^\\p{Alnum}]");
     @Delegate
-    OnlineCandidateSelection<Person> candidateSelection = OnlineSortedNeighborhoodMethod.<Person>builder()
+    OnlineSortedNeighborhoodMethod<Person> candidateSelection = OnlineSortedNeighborhoodMethod.<Person>builder()
             .defaultWindowSize(WINDOW_SIZE)
             .sortingKey(new SortingKey<>("First name+Last name",
                     person -> CompositeValue.of(normalize(person.getFirstName()), normalize(person.getLastName()))))
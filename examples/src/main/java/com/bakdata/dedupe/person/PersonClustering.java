@@ -28,14 +28,19 @@ import com.bakdata.dedupe.clustering.Clustering;
 import com.bakdata.dedupe.clustering.ConsistentClustering;
 import com.bakdata.dedupe.clustering.RefineClusterImpl;
 import com.bakdata.dedupe.clustering.RefinedTransitiveClosure;
+import com.bakdata.dedupe.clustering.SequentialClusterIdGenerator;
+import com.bakdata.dedupe.deduplication.online.Snapshottable;
+import java.util.List;
 import lombok.Value;
 import lombok.experimental.Delegate;
 
 @Value
 public class PersonClustering implements Clustering<Long, Person, String> {
+    SequentialClusterIdGenerator<String, Long> clusterIdGenerator = ClusterIdGenerators.longGenerator();
+
     RefineClusterImpl<Long, Person, String> refineCluster = RefineClusterImpl.<Long, Person, String>builder()
             .classifier(new PersonClassifier())
-            .clusterIdGenerator(ClusterIdGenerators.longGenerator())
+            .clusterIdGenerator(this.clusterIdGenerator)
             .idExtractor(Person::getId)
             .build();
 
@@ -44,9 +49,19 @@ public class PersonClustering implements Clustering<Long, Person, String> {
             .idExtractor(Person::getId)
             .build();
 
+    ConsistentClustering<Long, Person, String> consistentClustering =
+            ConsistentClustering.<Long, Person, String>builder()
+                    .clustering(this.refinedTransitiveClosure)
+                    .idExtractor(Person::getId)
+                    .build();
+
     @Delegate
-    Clustering<Long, Person, String> clustering = ConsistentClustering.<Long, Person, String>builder()
-            .clustering(this.refinedTransitiveClosure)
-            .idExtractor(Person::getId)
-            .build();
+    Clustering<Long, Person, String> clustering = this.consistentClustering;
+
+    /**
+     * Returns the stateful components for a {@link com.bakdata.dedupe.deduplication.online.DeduplicationSnapshot}.
+     */
+    public List<Snapshottable> getSnapshotComponents() {
+        return List.of(this.clusterIdGenerator, this.consistentClustering);
+    }
 }
@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.person;
+
+import com.bakdata.util.Codec;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import lombok.NonNull;
+
+/**
+ * Binary encoding of persons for snapshots, in which each optional field is prefixed with a presence flag.
+ */
+public class PersonCodec implements Codec<Person> {
+    private static final Codec<String> STRING = Codec.string();
+
+    @Override
+    public void write(final @NonNull Person person, final @NonNull DataOutput output) throws IOException {
+        writeString(person.getId(), output);
+        writeString(person.getFirstName(), output);
+        writeString(person.getLastName(), output);
+        output.writeBoolean(person.getBirthDate() != null);
+        if (person.getBirthDate() != null) {
+            output.writeLong(person.getBirthDate().toEpochDay());
+        }
+        writeString(person.getGender() == null ? null : person.getGender().name(), output);
+        writeString(person.getSource(), output);
+        writeString(person.getOriginalId(), output);
+        writeString(person.getLastModified() == null ? null : person.getLastModified().toString(), output);
+        output.writeInt(person.getFusedIds().size());
+        for (final String fusedId : person.getFusedIds()) {
+            STRING.write(fusedId, output);
+        }
+    }
+
+    @Override
+    public @NonNull Person read(final @NonNull DataInput input) throws IOException {
+        final Person.PersonBuilder builder = Person.builder()
+                .id(readString(input))
+                .firstName(readString(input))
+                .lastName(readString(input));
+        if (input.readBoolean()) {
+            builder.birthDate(LocalDate.ofEpochDay(input.readLong()));
+        }
+        final String gender = readString(input);
+        builder.gender(gender == null ? null : Gender.valueOf(gender))
+                .source(readString(input))
+                .originalId(readString(input));
+        final String lastModified = readString(input);
+        builder.lastModified(lastModified == null ? null : LocalDateTime.parse(lastModified));
+        final int fusedIdCount = input.readInt();
+        final Set<String> fusedIds = new HashSet<>(fusedIdCount);
+        for (int i = 0; i < fusedIdCount; i++) {
+            fusedIds.add(STRING.read(input));
+        }
+        return builder.fusedIds(fusedIds).build();
+    }
+
+    private static void writeString(final String value, final DataOutput output) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            STRING.write(value, output);
+        }
+    }
+
+    private static String readString(final DataInput input) throws IOException {
+        return input.readBoolean() ? STRING.read(input) : null;
+    }
+}
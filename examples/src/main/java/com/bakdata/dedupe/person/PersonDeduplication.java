@@ -23,10 +23,12 @@
  */
 package com.bakdata.dedupe.person;
 
+import com.bakdata.dedupe.deduplication.online.DeduplicationSnapshot;
 import com.bakdata.dedupe.deduplication.online.FusingOnlineDeduplication;
 import com.bakdata.dedupe.deduplication.online.OnlineDeduplication;
 import com.bakdata.dedupe.duplicate_detection.PossibleDuplicateHandler;
 import com.bakdata.dedupe.fusion.IncompleteFusionHandler;
+import com.bakdata.util.Codec;
 import lombok.Value;
 import lombok.experimental.Delegate;
 
@@ -34,13 +36,27 @@ import lombok.experimental.Delegate;
 public class PersonDeduplication implements OnlineDeduplication<Person> {
     @Delegate
     OnlineDeduplication<Person> deduplication;
+    PersonDuplicateDetection duplicateDetection;
 
     public PersonDeduplication(final PossibleDuplicateHandler<Person> possibleDuplicateHandler,
             final IncompleteFusionHandler<Person> incompleteFusionHandler) {
+        this.duplicateDetection = new PersonDuplicateDetection(possibleDuplicateHandler);
         this.deduplication = FusingOnlineDeduplication.<Long, Person>builder()
-                .duplicateDetection(new PersonDuplicateDetection(possibleDuplicateHandler))
+                .duplicateDetection(this.duplicateDetection)
                 .fusion(new PersonFusion())
                 .incompleteFusionHandler(incompleteFusionHandler)
                 .build();
     }
+
+    /**
+     * Creates a snapshot of the complete deduplication state, which can be written periodically and restored into a
+     * new instance on restart instead of replaying all records.
+     */
+    public DeduplicationSnapshot<Long, Person> createSnapshot() {
+        return DeduplicationSnapshot.<Long, Person>builder()
+                .recordCodec(new PersonCodec())
+                .clusterIdCodec(Codec.longValue())
+                .components(this.duplicateDetection.getSnapshotComponents())
+                .build();
+    }
 }
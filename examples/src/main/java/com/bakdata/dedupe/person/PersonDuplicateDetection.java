@@ -23,23 +23,38 @@
  */
 package com.bakdata.dedupe.person;
 
+import com.bakdata.dedupe.deduplication.online.Snapshottable;
 import com.bakdata.dedupe.duplicate_detection.PossibleDuplicateHandler;
 import com.bakdata.dedupe.duplicate_detection.online.OnlineDuplicateDetection;
 import com.bakdata.dedupe.duplicate_detection.online.OnlinePairBasedDuplicateDetection;
+import java.util.ArrayList;
+import java.util.List;
 import lombok.Value;
 import lombok.experimental.Delegate;
 
 @Value
 public class PersonDuplicateDetection implements OnlineDuplicateDetection<Long, Person> {
+    PersonCandidateSelection candidateSelection = new PersonCandidateSelection();
+    PersonClustering clustering = new PersonClustering();
     @Delegate
     OnlineDuplicateDetection<Long, Person> duplicateDetection;
 
     public PersonDuplicateDetection(final PossibleDuplicateHandler<Person> possibleDuplicateHandler) {
         this.duplicateDetection = OnlinePairBasedDuplicateDetection.<Long, Person, String>builder()
                 .classifier(new PersonClassifier())
-                .candidateSelection(new PersonCandidateSelection())
-                .clustering(new PersonClustering())
+                .candidateSelection(this.candidateSelection)
+                .clustering(this.clustering)
                 .possibleDuplicateHandler(possibleDuplicateHandler)
                 .build();
     }
+
+    /**
+     * Returns the stateful components for a {@link com.bakdata.dedupe.deduplication.online.DeduplicationSnapshot}.
+     */
+    public List<Snapshottable> getSnapshotComponents() {
+        final List<Snapshottable> components = new ArrayList<>();
+        components.add(this.candidateSelection.getCandidateSelection());
+        components.addAll(this.clustering.getSnapshotComponents());
+        return components;
+    }
 }
@@ -24,20 +24,30 @@
 package com.bakdata.dedupe.person;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import com.bakdata.dedupe.deduplication.online.FingerprintIndex;
+import com.bakdata.dedupe.deduplication.online.FusingOnlineDeduplication;
+import com.bakdata.dedupe.deduplication.online.OnlineDeduplication;
 import com.bakdata.dedupe.duplicate_detection.PossibleDuplicateHandler;
+import com.bakdata.dedupe.duplicate_detection.online.Match;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class PersonDeduplicationTest {
     private static final DateTimeFormatter BDAY_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yy");
@@ -66,6 +76,11 @@ class PersonDeduplicationTest {
         }
     }
 
+    private static String fingerprint(final Person person) {
+        return String.join("\u0000", person.getFirstName(), person.getLastName(),
+                String.valueOf(person.getBirthDate()), String.valueOf(person.getGender()));
+    }
+
     @Test
     void testDeduplication() throws IOException {
         final PersonDeduplication deduplication =
@@ -84,4 +99,133 @@ class PersonDeduplicationTest {
             assertThat(fusedPerson.toBuilder().fusedIds(Set.of()).build()).isEqualTo(customer);
         }
     }
+
+    @Test
+    void testExactDuplicateFastPath() throws IOException {
+        final OnlineDeduplication<Person> deduplication = FusingOnlineDeduplication.<Long, Person>builder()
+                .duplicateDetection(new PersonDuplicateDetection(PossibleDuplicateHandler.keep()))
+                .fusion(new PersonFusion())
+                .incompleteFusionHandler(Optional::of)
+                .exactDuplicateIndex(FingerprintIndex.<Person>builder()
+                        .fingerprintFunction(PersonDeduplicationTest::fingerprint)
+                        .build())
+                .build();
+
+        final Map<String, Person> customers = parseCsv("/customer.csv").stream()
+                .collect(Collectors.toMap(PersonDeduplicationTest::fingerprint, Function.identity()));
+        for (final Person customer : customers.values()) {
+            assertThat(deduplication.deduplicate(customer)).isSameAs(customer);
+        }
+
+        final Map<String, Person> duplicates = parseCsv("/exact_duplicates.csv").stream()
+                .collect(Collectors.toMap(Person::getId, Function.identity()));
+        // the birth date of 162 differs from its original 62, so it is the only record that is not an exact duplicate
+        final Person fuzzyDuplicate = duplicates.remove("162");
+        assertThat(customers).doesNotContainKey(fingerprint(fuzzyDuplicate));
+        assertThat(deduplication.deduplicate(fuzzyDuplicate).getFusedIds()).contains("62", "162");
+
+        assertThat(duplicates).hasSize(8);
+        for (final Person duplicate : duplicates.values()) {
+            final Person original = customers.get(fingerprint(duplicate));
+            assertThat(original).isNotNull();
+            // exact duplicates are short-circuited to the result of the original record
+            assertThat(deduplication.deduplicate(duplicate)).isSameAs(original);
+        }
+    }
+
+    @Test
+    void testUpdateAndDelete() throws IOException {
+        final PersonDeduplication deduplication =
+                new PersonDeduplication(PossibleDuplicateHandler.keep(), Optional::of);
+        final Map<String, Person> customers = parseCsv("/customer.csv").stream()
+                .collect(Collectors.toMap(PersonDeduplicationTest::fingerprint, Function.identity()));
+        customers.values().forEach(deduplication::deduplicate);
+        final Person duplicate = parseCsv("/exact_duplicates.csv").stream()
+                .filter(person -> customers.containsKey(fingerprint(person)))
+                .findFirst()
+                .orElseThrow();
+        final Person original = customers.get(fingerprint(duplicate));
+        assertThat(deduplication.deduplicate(duplicate).getFusedIds()).contains(original.getId());
+
+        // the original record is no longer fused with the deleted duplicate
+        assertThat(deduplication.delete(duplicate)).containsExactly(original);
+        assertThat(deduplication.deduplicate(duplicate).getFusedIds()).contains(original.getId());
+
+        final Person corrected = duplicate.toBuilder().firstName("Zacharias").lastName("Zyxwvutsrq").build();
+        final List<Person> results = deduplication.update(duplicate, corrected);
+        assertThat(results).containsExactly(corrected, original);
+    }
+
+    @Test
+    void testSnapshotRestore(@TempDir final Path directory) throws IOException {
+        final PersonDeduplication deduplication =
+                new PersonDeduplication(PossibleDuplicateHandler.keep(), Optional::of);
+        parseCsv("/customer.csv").forEach(deduplication::deduplicate);
+        final Path snapshot = directory.resolve("snapshot");
+        deduplication.createSnapshot().write(snapshot);
+
+        final PersonDeduplication restored = new PersonDeduplication(PossibleDuplicateHandler.keep(), Optional::of);
+        restored.createSnapshot().restore(snapshot);
+
+        // the restored deduplication finds the same duplicates without replaying the customers
+        for (final Person duplicate : parseCsv("/exact_duplicates.csv")) {
+            assertThat(restored.deduplicate(duplicate).getFusedIds())
+                    .isEqualTo(deduplication.deduplicate(duplicate).getFusedIds())
+                    .hasSizeGreaterThan(1);
+        }
+    }
+
+    @Test
+    void testReadOnlyMatches() throws IOException {
+        final FusingOnlineDeduplication<Long, Person> deduplication = FusingOnlineDeduplication.<Long, Person>builder()
+                .duplicateDetection(new PersonDuplicateDetection(PossibleDuplicateHandler.keep()))
+                .fusion(new PersonFusion())
+                .incompleteFusionHandler(Optional::of)
+                .build();
+        final Map<String, Person> customers = parseCsv("/customer.csv").stream()
+                .collect(Collectors.toMap(PersonDeduplicationTest::fingerprint, Function.identity()));
+        customers.values().forEach(deduplication::deduplicate);
+        final Person query = parseCsv("/exact_duplicates.csv").stream()
+                .filter(person -> customers.containsKey(fingerprint(person)))
+                .findFirst()
+                .orElseThrow();
+
+        final List<Match<Long, Person>> matches = deduplication.findMatches(query, 3);
+
+        assertThat(matches).isNotEmpty().hasSizeLessThanOrEqualTo(3);
+        assertThat(matches.get(0).getBestMatch()).isSameAs(customers.get(fingerprint(query)));
+        // the query record has not been added
+        assertThat(deduplication.findMatches(query, 3)).isEqualTo(matches);
+        assertThat(deduplication.findMatches(query, 0)).isEmpty();
+        assertThatThrownBy(() -> deduplication.findMatches(query, -1)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(deduplication.deduplicate(query).getFusedIds()).contains(query.getId());
+    }
+
+    @Test
+    void testBatchDeduplication() throws IOException {
+        final PersonDeduplication deduplication =
+                new PersonDeduplication(PossibleDuplicateHandler.keep(), Optional::of);
+        final List<Person> customers = parseCsv("/customer.csv");
+        final List<Person> duplicates = parseCsv("/exact_duplicates.csv");
+
+        // no fusion on the non-duplicated customers
+        final List<Person> customerResults = deduplication.deduplicateBatch(customers);
+        for (int index = 0; index < customers.size(); index++) {
+            assertThat(customerResults.get(index)).isSameAs(customers.get(index));
+        }
+
+        // duplicates within the batch share the fused result of their cluster
+        final List<Person> batch = new ArrayList<>(duplicates);
+        batch.addAll(duplicates.stream()
+                .map(duplicate -> duplicate.toBuilder().id(duplicate.getId() + "-copy").build())
+                .collect(Collectors.toList()));
+        final List<Person> results = deduplication.deduplicateBatch(batch);
+        assertThat(results).hasSameSizeAs(batch);
+        for (int index = 0; index < duplicates.size(); index++) {
+            final Person result = results.get(index);
+            assertThat(result.getFusedIds()).contains(duplicates.get(index).getId(),
+                    duplicates.get(index).getId() + "-copy");
+            assertThat(results.get(index + duplicates.size())).isSameAs(result);
+        }
+    }
 }
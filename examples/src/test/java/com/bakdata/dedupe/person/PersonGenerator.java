@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 bakdata GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.bakdata.dedupe.person;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic persons for benchmarks, of which a fixed share are misspelled duplicates of earlier persons.
+ */
+final class PersonGenerator {
+    private static final String[] SYLLABLES = {"an", "ber", "cla", "da", "em", "fe", "gre", "han", "jo", "kla", "le",
+            "ma", "no", "pau", "so", "tim", "wa", "zu"};
+    private static final int DUPLICATE_PERCENTAGE = 30;
+
+    private PersonGenerator() {
+    }
+
+    static List<Person> generatePersons(final int count, final Random random) {
+        final List<Person> persons = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final Person person;
+            if (!persons.isEmpty() && random.nextInt(100) < DUPLICATE_PERCENTAGE) {
+                person = generateDuplicate(persons.get(random.nextInt(persons.size())), String.valueOf(i), random);
+            } else {
+                person = generatePerson(String.valueOf(i), random);
+            }
+            persons.add(person);
+        }
+        return persons;
+    }
+
+    static Person generatePerson(final String id, final Random random) {
+        return Person.builder()
+                .id(id)
+                .firstName(generateName(2, random))
+                .lastName(generateName(3, random))
+                .birthDate(LocalDate.of(1940, 1, 1).plusDays(random.nextInt(365 * 60)))
+                .gender(random.nextBoolean() ? Gender.MALE : Gender.FEMALE)
+                .lastModified(LocalDateTime.now())
+                .build();
+    }
+
+    static Person generateDuplicate(final Person original, final String id, final Random random) {
+        return original.toBuilder()
+                .id(id)
+                .firstName(misspell(original.getFirstName(), random))
+                .fusedIds(new HashSet<>(original.getFusedIds()))
+                .build();
+    }
+
+    private static String generateName(final int syllables, final Random random) {
+        final StringBuilder name = new StringBuilder();
+        for (int i = 0; i < syllables; i++) {
+            name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        return name.toString();
+    }
+
+    private static String misspell(final String name, final Random random) {
+        final char[] chars = name.toCharArray();
+        final int position = 1 + random.nextInt(chars.length - 1);
+        chars[position] = (char) ('a' + random.nextInt(26));
+        return new String(chars);
+    }
+}